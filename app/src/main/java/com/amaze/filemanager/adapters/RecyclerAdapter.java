@@ -47,9 +47,15 @@ import static com.amaze.filemanager.ui.fragments.preferencefragments.Preferences
 import static com.amaze.filemanager.ui.fragments.preferencefragments.PreferencesConstants.PREFERENCE_USE_CIRCULAR_IMAGES;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -386,8 +392,12 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
           continue;
         }
         String dateModifiedCurrentItem =
-            currentItem.requireLayoutElementParcelable().dateModification.split("\\|")[0];
-        String dateModifiedSelectedElement = selectedElement.dateModification.split("\\|")[0];
+            currentItem
+                .requireLayoutElementParcelable()
+                .getDateModification(context)
+                .split("\\|")[0];
+        String dateModifiedSelectedElement =
+            selectedElement.getDateModification(context).split("\\|")[0];
         if (dateModifiedCurrentItem.trim().equalsIgnoreCase(dateModifiedSelectedElement.trim())
             && currentItem.getChecked() != ListItem.CHECKED) {
           currentItem.setChecked(true);
@@ -575,6 +585,231 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
     setItems(recyclerView, elements, true);
   }
 
+  /**
+   * Applies changes to the files shown, notifying only the items concerned. Items are set again
+   * from elements only if the folders or files header would appear or disappear.
+   *
+   * @param elements all the elements, changes included
+   * @param changed new elements for files shown, or for files to add
+   * @param removed paths of the files not to show anymore
+   * @param comparator order of the files shown, to put the changed and new ones at their place
+   */
+  public void applyChanges(
+      @NonNull RecyclerView recyclerView,
+      @NonNull List<LayoutElementParcelable> elements,
+      @NonNull Collection<LayoutElementParcelable> changed,
+      @NonNull Set<String> removed,
+      @NonNull Comparator<? super LayoutElementParcelable> comparator) {
+    ArrayList<ListItem> items = getItemsDigested();
+    List<IconDataParcelable> icons = mainFragment.getMainFragmentViewModel().getIconList();
+    if (items == null || icons == null || icons.size() != items.size()) {
+      setItems(recyclerView, elements);
+      notifyDataSetChanged();
+      return;
+    }
+
+    Map<String, Integer> positions = new HashMap<>(items.size());
+    int directories = 0, files = 0;
+    for (int i = 0; i < items.size(); i++) {
+      ListItem item = items.get(i);
+      if (item.specialType == TYPE_ITEM && item.layoutElementParcelable != null) {
+        positions.put(item.layoutElementParcelable.desc, i);
+        if (item.layoutElementParcelable.isDirectory) directories++;
+        else files++;
+      }
+    }
+
+    List<LayoutElementParcelable> added = new ArrayList<>();
+    for (LayoutElementParcelable element : changed) {
+      if (!positions.containsKey(element.desc)) {
+        added.add(element);
+      }
+    }
+    boolean showsHeaders =
+        getBoolean(PREFERENCE_SHOW_HEADERS)
+            && mainFragment.getMainFragmentViewModel().getDsort() != DirSortBy.NONE_ON_TOP;
+    if (showsHeaders && headersChange(items, positions, changed, removed, directories, files)) {
+      setItemsKeepingChecked(recyclerView, elements, items);
+      return;
+    }
+
+    List<LayoutElementParcelable> replaced = new ArrayList<>();
+    for (LayoutElementParcelable element : changed) {
+      Integer position = positions.get(element.desc);
+      if (position != null) {
+        ListItem item = new ListItem(element);
+        item.setChecked(items.get(position).getChecked() == ListItem.CHECKED);
+        items.set(position, item);
+        icons.set(position, element.getIconData());
+        notifyItemChanged(position);
+        replaced.add(element);
+      }
+    }
+
+    List<Integer> removedPositions = new ArrayList<>(removed.size());
+    for (String path : removed) {
+      Integer position = positions.get(path);
+      if (position != null) removedPositions.add(position);
+    }
+    // from the end, for the positions not to shift
+    Collections.sort(removedPositions, Collections.reverseOrder());
+    for (int position : removedPositions) {
+      items.remove(position);
+      icons.remove(position);
+      notifyItemRemoved(position);
+    }
+
+    if (replaced.isEmpty() && added.isEmpty()) {
+      return;
+    }
+    List<Integer> filePositions = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      if (items.get(i).specialType == TYPE_ITEM && items.get(i).layoutElementParcelable != null) {
+        filePositions.add(i);
+      }
+    }
+
+    // a changed file may not be at its place anymore, e.g. when sorted by date or size
+    for (LayoutElementParcelable element : replaced) {
+      int rank = 0;
+      while (items.get(filePositions.get(rank)).layoutElementParcelable != element) rank++;
+      int from = filePositions.remove(rank);
+      ListItem item = items.remove(from);
+      IconDataParcelable icon = icons.remove(from);
+      shiftPositions(filePositions, rank, -1);
+
+      rank = rankOf(items, filePositions, element, comparator);
+      int to = insertPosition(items, filePositions, rank, element);
+      items.add(to, item);
+      icons.add(to, icon);
+      shiftPositions(filePositions, rank, 1);
+      filePositions.add(rank, to);
+      if (from != to) {
+        notifyItemMoved(from, to);
+      }
+    }
+
+    for (LayoutElementParcelable element : added) {
+      int rank = rankOf(items, filePositions, element, comparator);
+      int position = insertPosition(items, filePositions, rank, element);
+      items.add(position, new ListItem(element));
+      icons.add(position, element.getIconData());
+      shiftPositions(filePositions, rank, 1);
+      filePositions.add(rank, position);
+      notifyItemInserted(position);
+    }
+  }
+
+  /** Moves the positions of the files from rank onward by delta, after an insertion or removal. */
+  private static void shiftPositions(List<Integer> filePositions, int rank, int delta) {
+    for (int i = rank; i < filePositions.size(); i++) {
+      filePositions.set(i, filePositions.get(i) + delta);
+    }
+  }
+
+  /** Number of files shown that come before element, found by binary search. */
+  private int rankOf(
+      List<ListItem> items,
+      List<Integer> filePositions,
+      LayoutElementParcelable element,
+      Comparator<? super LayoutElementParcelable> comparator) {
+    int low = 0, high = filePositions.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      LayoutElementParcelable shown = items.get(filePositions.get(middle)).layoutElementParcelable;
+      if (comparator.compare(shown, element) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Position in items of the file coming after the first rank files shown. It goes next to a
+   * neighbour of the same kind, for a folder not to end up under the files header or the other
+   * way round.
+   */
+  private int insertPosition(
+      List<ListItem> items,
+      List<Integer> filePositions,
+      int rank,
+      LayoutElementParcelable element) {
+    if (rank > 0) {
+      int previous = filePositions.get(rank - 1);
+      if (items.get(previous).layoutElementParcelable.isDirectory == element.isDirectory) {
+        return previous + 1;
+      }
+    }
+    if (rank < filePositions.size()) {
+      int next = filePositions.get(rank);
+      if (items.get(next).layoutElementParcelable.isDirectory == element.isDirectory
+          || rank == 0) {
+        return next;
+      }
+    }
+    if (rank > 0) {
+      return filePositions.get(rank - 1) + 1;
+    }
+    int end = items.size();
+    if (end > 0 && items.get(end - 1).specialType == EMPTY_LAST_ITEM) {
+      end--;
+    }
+    return end;
+  }
+
+  /** Sets items again from elements, the files checked among the old items staying checked. */
+  private void setItemsKeepingChecked(
+      @NonNull RecyclerView recyclerView,
+      @NonNull List<LayoutElementParcelable> elements,
+      @NonNull List<ListItem> oldItems) {
+    Set<String> checked = new HashSet<>();
+    for (ListItem item : oldItems) {
+      if (item.getChecked() == ListItem.CHECKED && item.layoutElementParcelable != null) {
+        checked.add(item.layoutElementParcelable.desc);
+      }
+    }
+    setItems(recyclerView, elements);
+    if (!checked.isEmpty()) {
+      for (ListItem item : getItemsDigested()) {
+        if (item.layoutElementParcelable != null
+            && checked.contains(item.layoutElementParcelable.desc)) {
+          item.setChecked(true);
+        }
+      }
+    }
+    notifyDataSetChanged();
+  }
+
+  /** Whether the folders or files header would appear or disappear with the changes. */
+  private boolean headersChange(
+      List<ListItem> items,
+      Map<String, Integer> positions,
+      Collection<LayoutElementParcelable> changed,
+      Set<String> removed,
+      int directories,
+      int files) {
+    int newDirectories = directories, newFiles = files;
+    for (String path : removed) {
+      Integer position = positions.get(path);
+      if (position != null) {
+        if (items.get(position).layoutElementParcelable.isDirectory) newDirectories--;
+        else newFiles--;
+      }
+    }
+    for (LayoutElementParcelable element : changed) {
+      Integer position = positions.get(element.desc);
+      if (position != null) {
+        if (items.get(position).layoutElementParcelable.isDirectory) newDirectories--;
+        else newFiles--;
+      }
+      if (element.isDirectory) newDirectories++;
+      else newFiles++;
+    }
+    return (directories > 0) != (newDirectories > 0) || (files > 0) != (newFiles > 0);
+  }
+
   private void setItems(
       @NonNull RecyclerView recyclerView,
       @NonNull List<LayoutElementParcelable> elements,
@@ -602,7 +837,7 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
         if (e != null) {
           listItems.add(new ListItem(e.isBack, e));
         }
-        uris.add(e != null ? e.iconData : null);
+        uris.add(e != null ? e.getIconData() : null);
       }
     }
 
@@ -904,20 +1139,21 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
     // setting icons for various cases
     // apkIcon holder refers to square/non-circular drawable
     // pictureIcon is circular drawable
-    switch (rowItem.filetype) {
+    final IconDataParcelable iconData = rowItem.getIconData();
+    switch (rowItem.getFiletype()) {
       case Icons.IMAGE:
       case Icons.VIDEO:
         if (getBoolean(PREFERENCE_SHOW_THUMB) && rowItem.getMode() != OpenMode.FTP) {
           if (getBoolean(PREFERENCE_USE_CIRCULAR_IMAGES)) {
             showThumbnailWithBackground(
-                holder, rowItem.iconData, holder.pictureIcon, rowItem.iconData::setImageBroken);
+                holder, iconData, holder.pictureIcon, iconData::setImageBroken);
           } else {
             showThumbnailWithBackground(
-                holder, rowItem.iconData, holder.apkIcon, rowItem.iconData::setImageBroken);
+                holder, iconData, holder.apkIcon, iconData::setImageBroken);
           }
         } else {
           holder.genericIcon.setImageResource(
-              rowItem.filetype == Icons.IMAGE
+              rowItem.getFiletype() == Icons.IMAGE
                   ? R.drawable.ic_doc_image
                   : R.drawable.ic_doc_video_am);
         }
@@ -925,7 +1161,7 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
       case Icons.APK:
         if (getBoolean(PREFERENCE_SHOW_THUMB)) {
           showThumbnailWithBackground(
-              holder, rowItem.iconData, holder.apkIcon, rowItem.iconData::setImageBroken);
+              holder, iconData, holder.apkIcon, iconData::setImageBroken);
         } else {
           holder.genericIcon.setImageResource(R.drawable.ic_doc_apk_white);
         }
@@ -940,13 +1176,13 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
           holder.genericIcon.setVisibility(View.INVISIBLE);
         } else {
           // we could not find the extension, set a generic file type icon probably a directory
-          modelProvider.getPreloadRequestBuilder(rowItem.iconData).into(holder.genericIcon);
+          modelProvider.getPreloadRequestBuilder(iconData).into(holder.genericIcon);
         }
         break;
       case Icons.ENCRYPTED:
       default:
         holder.genericIcon.setVisibility(View.VISIBLE);
-        modelProvider.getPreloadRequestBuilder(rowItem.iconData).into(holder.genericIcon);
+        modelProvider.getPreloadRequestBuilder(iconData).into(holder.genericIcon);
         break;
     }
 
@@ -963,9 +1199,9 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
       // making sure the generic icon background color filter doesn't get changed
       // to grey on picture/video/apk/generic text icons when checked
       // so that user can still look at the thumbs even after selection
-      if ((rowItem.filetype != Icons.IMAGE
-              && rowItem.filetype != Icons.APK
-              && rowItem.filetype != Icons.VIDEO)
+      if ((rowItem.getFiletype() != Icons.IMAGE
+              && rowItem.getFiletype() != Icons.APK
+              && rowItem.getFiletype() != Icons.VIDEO)
           || !getBoolean(PREFERENCE_SHOW_THUMB)) {
         holder.apkIcon.setVisibility(View.GONE);
         holder.pictureIcon.setVisibility(View.GONE);
@@ -977,9 +1213,9 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
       // holder.genericText.setText("");
     } else {
       holder.checkImageView.setVisibility(View.INVISIBLE);
-      if (!((rowItem.filetype == Icons.APK
-              || rowItem.filetype == Icons.IMAGE
-              || rowItem.filetype == Icons.VIDEO)
+      if (!((rowItem.getFiletype() == Icons.APK
+              || rowItem.getFiletype() == Icons.IMAGE
+              || rowItem.getFiletype() == Icons.VIDEO)
           && getBoolean(PREFERENCE_SHOW_THUMB))) {
         holder.genericIcon.setVisibility(View.VISIBLE);
         GradientDrawable gradientDrawable = (GradientDrawable) holder.genericIcon.getBackground();
@@ -988,7 +1224,8 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
           if (rowItem.isDirectory) {
             gradientDrawable.setColor(iconSkinColor);
           } else {
-            ColorUtils.colorizeIcons(context, rowItem.filetype, gradientDrawable, iconSkinColor);
+            ColorUtils.colorizeIcons(
+                context, rowItem.getFiletype(), gradientDrawable, iconSkinColor);
           }
         } else {
           gradientDrawable.setColor(iconSkinColor);
@@ -1003,15 +1240,15 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
       holder.perm.setText(rowItem.permissions);
     }
     if (getBoolean(PREFERENCE_SHOW_LAST_MODIFIED)) {
-      holder.date.setText(rowItem.dateModification);
+      holder.date.setText(rowItem.getDateModification(context));
     } else {
       holder.date.setVisibility(View.GONE);
     }
     if (isBackButton) {
-      holder.date.setText(rowItem.size);
+      holder.date.setText(rowItem.getSize(context));
       holder.txtDesc.setText("");
     } else if (getBoolean(PREFERENCE_SHOW_FILE_SIZE)) {
-      holder.txtDesc.setText(rowItem.size);
+      holder.txtDesc.setText(rowItem.getSize(context));
     }
   }
 
@@ -1055,7 +1292,8 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
     holder.genericIcon.setVisibility(View.VISIBLE);
     holder.checkImageViewGrid.setVisibility(View.INVISIBLE);
 
-    if (rowItem.filetype == Icons.IMAGE || rowItem.filetype == Icons.VIDEO) {
+    final IconDataParcelable iconData = rowItem.getIconData();
+    if (rowItem.getFiletype() == Icons.IMAGE || rowItem.getFiletype() == Icons.VIDEO) {
       if (getBoolean(PREFERENCE_SHOW_THUMB) && rowItem.getMode() != OpenMode.FTP) {
         holder.imageView1.setVisibility(View.VISIBLE);
         holder.imageView1.setImageDrawable(null);
@@ -1063,21 +1301,21 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
             || utilsProvider.getAppTheme().equals(AppTheme.BLACK))
           holder.imageView1.setBackgroundColor(Color.BLACK);
         showRoundedThumbnail(
-            holder, rowItem.iconData, holder.imageView1, rowItem.iconData::setImageBroken);
+            holder, iconData, holder.imageView1, iconData::setImageBroken);
       } else {
-        if (rowItem.filetype == Icons.IMAGE)
+        if (rowItem.getFiletype() == Icons.IMAGE)
           holder.genericIcon.setImageResource(R.drawable.ic_doc_image);
         else holder.genericIcon.setImageResource(R.drawable.ic_doc_video_am);
       }
-    } else if (rowItem.filetype == Icons.APK) {
+    } else if (rowItem.getFiletype() == Icons.APK) {
       if (getBoolean(PREFERENCE_SHOW_THUMB))
         showRoundedThumbnail(
-            holder, rowItem.iconData, holder.genericIcon, rowItem.iconData::setImageBroken);
+            holder, iconData, holder.genericIcon, iconData::setImageBroken);
       else {
         holder.genericIcon.setImageResource(R.drawable.ic_doc_apk_white);
       }
     } else {
-      Glide.with(mainFragment).load(rowItem.iconData.image).into(holder.genericIcon);
+      Glide.with(mainFragment).load(iconData.image).into(holder.genericIcon);
     }
 
     if (holder.genericIcon.getVisibility() == View.VISIBLE) {
@@ -1086,7 +1324,7 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
       if (rowItem.isDirectory) {
         iconBackground.setBackgroundColor(iconSkinColor);
       } else {
-        switch (rowItem.filetype) {
+        switch (rowItem.getFiletype()) {
           case Icons.VIDEO:
             if (!getBoolean(PREFERENCE_SHOW_THUMB)) iconBackground.setBackgroundColor(videoColor);
             break;
@@ -1128,9 +1366,9 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
     if (getItemsDigested().get(position).getChecked() == ListItem.CHECKED) {
       if (holder.genericIcon.getVisibility() == View.VISIBLE) {
 
-        if ((rowItem.filetype != Icons.IMAGE
-                && rowItem.filetype != Icons.APK
-                && rowItem.filetype != Icons.VIDEO)
+        if ((rowItem.getFiletype() != Icons.IMAGE
+                && rowItem.getFiletype() != Icons.APK
+                && rowItem.getFiletype() != Icons.VIDEO)
             || !getBoolean(PREFERENCE_SHOW_THUMB)) {
           View iconBackground =
               getBoolean(PREFERENCE_USE_CIRCULAR_IMAGES) ? holder.genericIcon : holder.iconLayout;
@@ -1159,10 +1397,10 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
     holder.about.setOnClickListener(v -> showPopup(v, rowItem));
 
     if (getBoolean(PREFERENCE_SHOW_LAST_MODIFIED)) {
-      holder.date.setText(rowItem.dateModification);
+      holder.date.setText(rowItem.getDateModification(context));
     }
     if (isBackButton) {
-      holder.date.setText(rowItem.size);
+      holder.date.setText(rowItem.getSize(context));
       holder.txtDesc.setText("");
     }
     if (getBoolean(PREFERENCE_SHOW_PERMISSIONS)) {
@@ -1183,7 +1421,7 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolde
         && mainFragment.getMainFragmentViewModel().isList()) {
       if (getBoolean(PREFERENCE_SHOW_THUMB)) {
         int filetype =
-            getItemsDigested().get(adapterPosition).requireLayoutElementParcelable().filetype;
+            getItemsDigested().get(adapterPosition).requireLayoutElementParcelable().getFiletype();
 
         if (filetype == Icons.VIDEO || filetype == Icons.IMAGE) {
           if (getBoolean(PREFERENCE_USE_CIRCULAR_IMAGES)) {
@@ -20,46 +20,79 @@
 
 package com.amaze.filemanager.adapters
 
+import android.annotation.SuppressLint
 import android.content.Context
 import android.text.Spannable
 import android.text.SpannableString
+import android.text.SpannableStringBuilder
 import android.text.style.ForegroundColorSpan
 import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import androidx.appcompat.widget.AppCompatTextView
 import androidx.core.content.ContextCompat
-import androidx.recyclerview.widget.DiffUtil
-import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import com.amaze.filemanager.R
 import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.MatchRange
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.SearchResult
 import com.amaze.filemanager.ui.activities.MainActivity
 import com.amaze.filemanager.ui.colors.ColorPreference
 import java.util.Random
 
-class SearchRecyclerViewAdapter :
-    ListAdapter<SearchResult, SearchRecyclerViewAdapter.ViewHolder>(
-        object : DiffUtil.ItemCallback<SearchResult>() {
-            override fun areItemsTheSame(
-                oldItem: SearchResult,
-                newItem: SearchResult,
-            ): Boolean {
-                return oldItem.file.path == newItem.file.path &&
-                    oldItem.file.name == newItem.file.name
-            }
+/**
+ * Shows search results in order. Results found later are merged in, notifying only the positions
+ * they are inserted at, so that a long list isn't compared again as it grows.
+ */
+class SearchRecyclerViewAdapter : RecyclerView.Adapter<SearchRecyclerViewAdapter.ViewHolder>() {
+    private var items: List<SearchResult> = emptyList()
+
+    /**
+     * Replace all shown results with [newItems], already in order.
+     */
+    @SuppressLint("NotifyDataSetChanged")
+    fun setItems(newItems: List<SearchResult>) {
+        items = ArrayList(newItems)
+        notifyDataSetChanged()
+    }
 
-            override fun areContentsTheSame(
-                oldItem: SearchResult,
-                newItem: SearchResult,
-            ): Boolean {
-                return oldItem.file.path == newItem.file.path &&
-                    oldItem.file.name == newItem.file.name &&
-                    oldItem.matchRange == newItem.matchRange
-            }
-        },
+    /**
+     * Insert [newItems] among the shown results, which are in the order of [comparator].
+     */
+    fun addItems(
+        newItems: List<SearchResult>,
+        comparator: Comparator<SearchResult>,
     ) {
+        if (newItems.isEmpty()) return
+        val added = newItems.sortedWith(comparator)
+        val merged = ArrayList<SearchResult>(items.size + added.size)
+        // positions in merged of runs of added results, notified once merged
+        val runs = ArrayList<IntArray>()
+        var i = 0
+        var j = 0
+        while (i < items.size || j < added.size) {
+            if (j < added.size && (i == items.size || comparator.compare(added[j], items[i]) < 0)) {
+                val last = runs.lastOrNull()
+                if (last != null && last[0] + last[1] == merged.size) {
+                    last[1]++
+                } else {
+                    runs.add(intArrayOf(merged.size, 1))
+                }
+                merged.add(added[j++])
+            } else {
+                merged.add(items[i++])
+            }
+        }
+        items = merged
+        for ((start, count) in runs.map { it[0] to it[1] }) {
+            notifyItemRangeInserted(start, count)
+        }
+    }
+
+    override fun getItemCount(): Int = items.size
+
+    private fun getItem(position: Int): SearchResult = items[position]
+
     override fun onCreateViewHolder(
         parent: ViewGroup,
         type: Int,
@@ -74,21 +107,23 @@ class SearchRecyclerViewAdapter :
         holder: SearchRecyclerViewAdapter.ViewHolder,
         position: Int,
     ) {
-        val (file, matchResult) = getItem(position)
+        val (file, matchResult, line) = getItem(position)
 
         val colorPreference =
             (AppConfig.getInstance().mainActivityContext as MainActivity).currentColorPreference
 
-        val fileName = SpannableString(file.name)
-        fileName.setSpan(
-            ForegroundColorSpan(colorPreference.accent),
-            matchResult.first,
-            matchResult.last + 1,
-            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE,
-        )
-
-        holder.fileNameTV.text = fileName
-        holder.filePathTV.text = file.path.substring(0, file.path.lastIndexOf("/"))
+        val parentPath = file.path.substring(0, file.path.lastIndexOf("/"))
+        if (line == null) {
+            holder.fileNameTV.text = highlight(file.name, matchResult, colorPreference.accent)
+            holder.filePathTV.text = parentPath
+        } else {
+            // found by content, show the matching line under the path
+            holder.fileNameTV.text = file.name
+            holder.filePathTV.text =
+                SpannableStringBuilder(parentPath)
+                    .append('\n')
+                    .append(highlight(line, matchResult, colorPreference.accent))
+        }
 
         holder.colorView.setBackgroundColor(getRandomColor(holder.colorView.context))
 
@@ -130,6 +165,23 @@ class SearchRecyclerViewAdapter :
         }
     }
 
+    private fun highlight(
+        text: String,
+        matchRange: MatchRange,
+        color: Int,
+    ): SpannableString {
+        val highlighted = SpannableString(text)
+        if (!matchRange.isEmpty()) {
+            highlighted.setSpan(
+                ForegroundColorSpan(color),
+                matchRange.first,
+                matchRange.last + 1,
+                Spannable.SPAN_EXCLUSIVE_EXCLUSIVE,
+            )
+        }
+        return highlighted
+    }
+
     private fun getRandomColor(context: Context): Int {
         return ContextCompat.getColor(
             context,
@@ -26,15 +26,18 @@ import java.util.Calendar;
 import com.amaze.filemanager.fileoperations.filesystem.OpenMode;
 import com.amaze.filemanager.filesystem.HybridFileParcelable;
 import com.amaze.filemanager.filesystem.files.sort.ComparableParcelable;
+import com.amaze.filemanager.filesystem.files.sort.SortKey;
 import com.amaze.filemanager.ui.icons.Icons;
 import com.amaze.filemanager.utils.Utils;
 
 import android.content.Context;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.text.format.Formatter;
 
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 public class LayoutElementParcelable implements Parcelable, ComparableParcelable {
 
@@ -42,21 +45,29 @@ public class LayoutElementParcelable implements Parcelable, ComparableParcelable
       String.valueOf(Calendar.getInstance().get(Calendar.YEAR));
 
   public final boolean isBack;
-  public final int filetype;
-  public final IconDataParcelable iconData;
   public final String title;
   public final String desc;
   public final String permissions;
   public final String symlink;
-  public String size;
   public boolean isDirectory;
   public long date, longSize;
-  public String dateModification;
   public final boolean header;
 
   // same as hfile.modes but different than openmode in Main.java
   private OpenMode mode = OpenMode.FILE;
 
+  private final boolean useThumbs;
+
+  // What is only needed to show the element is made when it is shown, see the getters
+  private int filetype = FILETYPE_UNSET;
+  @Nullable private IconDataParcelable iconData;
+  @Nullable private String size;
+  @Nullable private String dateModification;
+
+  @Nullable private SortKey sortKey;
+
+  private static final int FILETYPE_UNSET = Integer.MIN_VALUE;
+
   public LayoutElementParcelable(
       @NonNull Context c, boolean isBack, String goback, boolean showThumbs) {
     this(
@@ -145,9 +156,99 @@ public class LayoutElementParcelable implements Parcelable, ComparableParcelable
       boolean isDirectory,
       boolean useThumbs,
       OpenMode openMode) {
-    filetype = Icons.getTypeOfFile(path, isDirectory);
-    @DrawableRes int fallbackIcon = Icons.loadMimeIcon(path, isDirectory);
+    this(
+        isBack,
+        title,
+        path,
+        permissions,
+        symlink,
+        longSize,
+        header,
+        date.trim().equals("") ? 0 : Long.parseLong(date),
+        isDirectory,
+        useThumbs,
+        openMode);
+    this.size = size;
+    if (date.trim().equals("")) {
+      this.dateModification = "";
+    }
+  }
+
+  /**
+   * Element of a listing, its size and date are formatted only when it is shown.
+   *
+   * @param longSize size in bytes, negative if unknown
+   */
+  public LayoutElementParcelable(
+      String title,
+      String path,
+      String permissions,
+      String symlink,
+      long longSize,
+      long date,
+      boolean isDirectory,
+      boolean useThumbs,
+      OpenMode openMode) {
+    this(
+        false,
+        title,
+        path,
+        permissions,
+        symlink,
+        Math.max(longSize, 0),
+        false,
+        date,
+        isDirectory,
+        useThumbs,
+        openMode);
+    if (isDirectory || longSize < 0) {
+      this.size = "";
+    }
+  }
+
+  private LayoutElementParcelable(
+      boolean isBack,
+      String title,
+      String path,
+      String permissions,
+      String symlink,
+      long longSize,
+      boolean header,
+      long date,
+      boolean isDirectory,
+      boolean useThumbs,
+      OpenMode openMode) {
     this.mode = openMode;
+    this.useThumbs = useThumbs;
+    this.title = title;
+    this.desc = path;
+    this.permissions = permissions.trim();
+    this.symlink = symlink.trim();
+    this.header = header;
+    this.longSize = longSize;
+    this.isDirectory = isDirectory;
+    this.date = date;
+    this.isBack = isBack;
+  }
+
+  /** Type of the file, one of the constants in {@link Icons} */
+  public int getFiletype() {
+    if (filetype == FILETYPE_UNSET) {
+      filetype = Icons.getTypeOfFile(desc, isDirectory);
+    }
+    return filetype;
+  }
+
+  public @NonNull IconDataParcelable getIconData() {
+    if (iconData == null) {
+      iconData = createIconData();
+    }
+    return iconData;
+  }
+
+  private IconDataParcelable createIconData() {
+    @DrawableRes int fallbackIcon = Icons.loadMimeIcon(desc, isDirectory);
+    int filetype = getFiletype();
     if (useThumbs) {
       switch (mode) {
         case SMB:
@@ -158,45 +259,48 @@ public class LayoutElementParcelable implements Parcelable, ComparableParcelable
         case BOX:
           if (!isDirectory
               && (filetype == Icons.IMAGE || filetype == Icons.VIDEO || filetype == Icons.APK)) {
-            this.iconData =
-                new IconDataParcelable(IconDataParcelable.IMAGE_FROMCLOUD, path, fallbackIcon);
+            return new IconDataParcelable(IconDataParcelable.IMAGE_FROMCLOUD, desc, fallbackIcon);
           } else {
-            this.iconData = new IconDataParcelable(IconDataParcelable.IMAGE_RES, fallbackIcon);
+            return new IconDataParcelable(IconDataParcelable.IMAGE_RES, fallbackIcon);
           }
-          break;
           // Until we find a way to properly handle threading issues with thread unsafe FTPClient,
           // we refrain from loading any files via FTP as file thumbnail. - TranceLove
         case FTP:
-          this.iconData = new IconDataParcelable(IconDataParcelable.IMAGE_RES, fallbackIcon);
-          break;
+          return new IconDataParcelable(IconDataParcelable.IMAGE_RES, fallbackIcon);
         default:
           if (filetype == Icons.IMAGE || filetype == Icons.VIDEO || filetype == Icons.APK) {
-            this.iconData =
-                new IconDataParcelable(IconDataParcelable.IMAGE_FROMFILE, path, fallbackIcon);
+            return new IconDataParcelable(IconDataParcelable.IMAGE_FROMFILE, desc, fallbackIcon);
           } else {
-            this.iconData = new IconDataParcelable(IconDataParcelable.IMAGE_RES, fallbackIcon);
+            return new IconDataParcelable(IconDataParcelable.IMAGE_RES, fallbackIcon);
           }
       }
     } else {
-      this.iconData = new IconDataParcelable(IconDataParcelable.IMAGE_RES, fallbackIcon);
+      return new IconDataParcelable(IconDataParcelable.IMAGE_RES, fallbackIcon);
     }
+  }
 
-    this.title = title;
-    this.desc = path;
-    this.permissions = permissions.trim();
-    this.symlink = symlink.trim();
+  /** Size as shown to the user, formatted from {@link #longSize} unless set */
+  public @NonNull String getSize(@NonNull Context c) {
+    if (size == null) {
+      size = Formatter.formatFileSize(c, longSize);
+    }
+    return size;
+  }
+
+  public void setSize(@NonNull String size) {
     this.size = size;
-    this.header = header;
-    this.longSize = longSize;
-    this.isDirectory = isDirectory;
-    if (!date.trim().equals("")) {
-      this.date = Long.parseLong(date);
-      this.dateModification = Utils.getDate(c, this.date);
-    } else {
-      this.date = 0;
-      this.dateModification = "";
+  }
+
+  /** Date as shown to the user, formatted from {@link #date} unless set */
+  public @NonNull String getDateModification(@NonNull Context c) {
+    if (dateModification == null) {
+      dateModification = Utils.getDate(c, date);
     }
-    this.isBack = isBack;
+    return dateModification;
+  }
+
+  public void setDateModification(@NonNull String dateModification) {
+    this.dateModification = dateModification;
   }
 
   public OpenMode getMode() {
@@ -241,6 +345,8 @@ public class LayoutElementParcelable implements Parcelable, ComparableParcelable
     size = im.readString();
     longSize = im.readLong();
     isBack = im.readInt() != 0;
+    useThumbs = im.readInt() != 0;
+    mode = OpenMode.getOpenMode(im.readInt());
   }
 
   @Override
@@ -264,6 +370,8 @@ public class LayoutElementParcelable implements Parcelable, ComparableParcelable
     p1.writeString(size);
     p1.writeLong(longSize);
     p1.writeInt(isBack ? 1 : 0);
+    p1.writeInt(useThumbs ? 1 : 0);
+    p1.writeInt(mode.ordinal());
   }
 
   public static final Parcelable.Creator<LayoutElementParcelable> CREATOR =
@@ -297,4 +405,13 @@ public class LayoutElementParcelable implements Parcelable, ComparableParcelable
   public long getSize() {
     return longSize;
   }
+
+  @NonNull
+  @Override
+  public SortKey getSortKey() {
+    if (sortKey == null) {
+      sortKey = new SortKey(title);
+    }
+    return sortKey;
+  }
 }
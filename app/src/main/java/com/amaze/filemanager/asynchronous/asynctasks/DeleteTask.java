@@ -24,6 +24,10 @@ import static com.amaze.filemanager.ui.activities.MainActivity.TAG_INTENT_FILTER
 import static com.amaze.filemanager.ui.activities.MainActivity.TAG_INTENT_FILTER_GENERAL;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +43,7 @@ import com.amaze.filemanager.filesystem.SafRootHolder;
 import com.amaze.filemanager.filesystem.cloud.CloudUtil;
 import com.amaze.filemanager.filesystem.files.CryptUtil;
 import com.amaze.filemanager.filesystem.files.MediaConnectionUtils;
+import com.amaze.filemanager.filesystem.root.DeleteFileCommand;
 import com.amaze.filemanager.ui.activities.MainActivity;
 import com.amaze.filemanager.ui.fragments.CompressedExplorerFragment;
 import com.amaze.filemanager.ui.fragments.preferencefragments.PreferencesConstants;
@@ -104,9 +109,17 @@ public class DeleteTask
     boolean wasDeleted = true;
     if (files.size() == 0) return new AsyncTaskResult<>(true);
 
+    Set<HybridFileParcelable> deletedAsRoot;
+    try {
+      deletedAsRoot = deleteRootFiles();
+    } catch (ShellNotRunningException e) {
+      LOG.warn("failed to delete files", e);
+      return new AsyncTaskResult<>(e);
+    }
+
     for (HybridFileParcelable file : files) {
       try {
-        wasDeleted = doDeleteFile(file);
+        wasDeleted = deletedAsRoot.contains(file) || doDeleteFile(file);
         if (!wasDeleted) break;
       } catch (Exception e) {
         return new AsyncTaskResult<>(e);
@@ -155,6 +168,38 @@ public class DeleteTask
     notificationManager.cancel(NotificationConstants.COPY_ID);
   }
 
+  /**
+   * Permanently deletes the files in root all at once, instead of one shell round trip each.
+   *
+   * @return the files deleted
+   */
+  private Set<HybridFileParcelable> deleteRootFiles() throws ShellNotRunningException {
+    if (!rootMode || !doDeletePermanently) {
+      return Collections.emptySet();
+    }
+
+    List<HybridFileParcelable> rootFiles = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    for (HybridFileParcelable file : files) {
+      if (file.isRoot()) {
+        rootFiles.add(file);
+        paths.add(file.getPath());
+      }
+    }
+    if (rootFiles.isEmpty()) {
+      return Collections.emptySet();
+    }
+
+    boolean[] deleted = DeleteFileCommand.INSTANCE.deleteFiles(paths);
+    Set<HybridFileParcelable> deletedFiles = new HashSet<>();
+    for (int i = 0; i < rootFiles.size(); i++) {
+      if (deleted[i]) {
+        deletedFiles.add(rootFiles.get(i));
+      }
+    }
+    return deletedFiles;
+  }
+
   private boolean doDeleteFile(@NonNull HybridFileParcelable file) throws Exception {
     switch (file.getMode()) {
       case OTG:
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks
+
+import android.os.SystemClock
+import com.amaze.filemanager.adapters.data.LayoutElementParcelable
+
+/**
+ * Collects the entries of a directory while they are being listed, and hands the sorted entries
+ * known so far to [onBatch]: first as soon as a screenful is known, then each time their count
+ * doubles, or when [maxDelayMillis] went by without a batch. Doubling keeps the merging of all
+ * batches O(n log n), like sorting the whole listing at once.
+ *
+ * Not thread safe, meant to be fed by the thread doing the listing. [onBatch] is called on that
+ * same thread, with a list it's free to keep.
+ */
+class ListingBatcher
+    @JvmOverloads
+    constructor(
+        private val comparator: Comparator<in LayoutElementParcelable>,
+        private val onBatch: (List<LayoutElementParcelable>) -> Unit,
+        private val firstBatchSize: Int = FIRST_BATCH_SIZE,
+        private val maxDelayMillis: Long = MAX_BATCH_DELAY_MILLIS,
+        private val clock: () -> Long = SystemClock::elapsedRealtime,
+    ) {
+        companion object {
+            /** About a screenful of rows, in list view. */
+            const val FIRST_BATCH_SIZE = 32
+
+            const val MAX_BATCH_DELAY_MILLIS = 400L
+        }
+
+        private var sorted: List<LayoutElementParcelable> = emptyList()
+        private val pending = ArrayList<LayoutElementParcelable>()
+        private var nextBatchSize = firstBatchSize
+        private var lastBatchTime = clock()
+
+        /** Number of batches given to [onBatch] so far. */
+        var batchCount = 0
+            private set
+
+        /** Add a newly listed entry, may call [onBatch]. */
+        fun add(element: LayoutElementParcelable) {
+            pending.add(element)
+            if (sorted.size + pending.size >= nextBatchSize ||
+                clock() - lastBatchTime >= maxDelayMillis
+            ) {
+                publish()
+            }
+        }
+
+        private fun publish() {
+            pending.sortWith(comparator)
+            sorted = merge(sorted, pending)
+            pending.clear()
+            nextBatchSize = maxOf(sorted.size * 2, firstBatchSize)
+            lastBatchTime = clock()
+            batchCount++
+            onBatch(ArrayList(sorted))
+        }
+
+        private fun merge(
+            left: List<LayoutElementParcelable>,
+            right: List<LayoutElementParcelable>,
+        ): List<LayoutElementParcelable> {
+            val merged = ArrayList<LayoutElementParcelable>(left.size + right.size)
+            var i = 0
+            var j = 0
+            while (i < left.size && j < right.size) {
+                merged.add(if (comparator.compare(left[i], right[j]) <= 0) left[i++] else right[j++])
+            }
+            merged.addAll(left.subList(i, left.size))
+            merged.addAll(right.subList(j, right.size))
+            return merged
+        }
+    }
@@ -60,6 +60,7 @@ import com.amaze.filemanager.utils.GenericExtKt;
 import com.amaze.filemanager.utils.OTGUtil;
 import com.amaze.filemanager.utils.OnAsyncTaskFinished;
 import com.amaze.filemanager.utils.OnFileFound;
+import com.amaze.filemanager.utils.OnProgressUpdate;
 import com.amaze.filemanager.utils.Utils;
 import com.amaze.trashbin.TrashBin;
 import com.amaze.trashbin.TrashBinFile;
@@ -74,6 +75,8 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
 import android.text.format.Formatter;
 import android.widget.Toast;
@@ -83,9 +86,13 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.core.util.Pair;
 
+import jcifs.CIFSException;
+import jcifs.CloseableIterator;
+import jcifs.SmbResource;
 import jcifs.smb.SmbAuthException;
 import jcifs.smb.SmbException;
 import jcifs.smb.SmbFile;
+import kotlin.Unit;
 import kotlin.collections.CollectionsKt;
 
 public class LoadFilesListTask
@@ -93,6 +100,9 @@ public class LoadFilesListTask
 
   private static final Logger LOG = LoggerFactory.getLogger(LoadFilesListTask.class);
 
+  /** Number of SMB entries handled at once, while the server sends the rest of the listing. */
+  private static final int SMB_CHUNK_SIZE = 32;
+
   private String path;
   private WeakReference<MainFragment> mainFragmentReference;
   private WeakReference<Context> context;
@@ -100,6 +110,9 @@ public class LoadFilesListTask
   private boolean showHiddenFiles, showThumbs;
   private DataUtils dataUtils = DataUtils.getInstance();
   private OnAsyncTaskFinished<Pair<OpenMode, List<LayoutElementParcelable>>> listener;
+  private @Nullable OnProgressUpdate<Pair<OpenMode, List<LayoutElementParcelable>>> batchListener;
+  private @Nullable ListingBatcher batcher;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
   private boolean forceReload;
 
   public LoadFilesListTask(
@@ -111,6 +124,23 @@ public class LoadFilesListTask
       boolean showHiddenFiles,
       boolean forceReload,
       OnAsyncTaskFinished<Pair<OpenMode, List<LayoutElementParcelable>>> l) {
+    this(context, path, mainFragment, openmode, showThumbs, showHiddenFiles, forceReload, null, l);
+  }
+
+  /**
+   * @param batchListener if not null, gets the sorted entries known so far while the directory is
+   *     being listed, on the main thread. The complete list is still given to the last argument.
+   */
+  public LoadFilesListTask(
+      Context context,
+      String path,
+      MainFragment mainFragment,
+      OpenMode openmode,
+      boolean showThumbs,
+      boolean showHiddenFiles,
+      boolean forceReload,
+      @Nullable OnProgressUpdate<Pair<OpenMode, List<LayoutElementParcelable>>> batchListener,
+      OnAsyncTaskFinished<Pair<OpenMode, List<LayoutElementParcelable>>> l) {
     this.path = path;
     this.mainFragmentReference = new WeakReference<>(mainFragment);
     this.openmode = openmode;
@@ -118,6 +148,7 @@ public class LoadFilesListTask
     this.showThumbs = showThumbs;
     this.showHiddenFiles = showHiddenFiles;
     this.listener = l;
+    this.batchListener = batchListener;
     this.forceReload = forceReload;
   }
 
@@ -157,6 +188,17 @@ public class LoadFilesListTask
     mainFragmentViewModel.setFileCount(0);
     final List<LayoutElementParcelable> list;
 
+    if (batchListener != null
+        && openmode != OpenMode.CUSTOM
+        && openmode != OpenMode.TRASH_BIN
+        && openmode != OpenMode.ANDROID_DATA) {
+      batcher =
+          new ListingBatcher(
+              new FileListSorter(
+                  mainFragmentViewModel.getDsort(), SortHandler.getSortType(context, path)),
+              this::postBatch);
+    }
+
     switch (openmode) {
       case SMB:
         list = listSmb(hFile, mainActivityViewModel, mainFragment);
@@ -207,6 +249,26 @@ public class LoadFilesListTask
     return new Pair<>(openmode, list);
   }
 
+  private Unit postBatch(List<LayoutElementParcelable> batch) {
+    final OpenMode batchOpenMode = openmode;
+    mainHandler.post(
+        () -> {
+          if (!isCancelled() && batchListener != null) {
+            batchListener.onUpdate(new Pair<>(batchOpenMode, batch));
+          }
+        });
+    return Unit.INSTANCE;
+  }
+
+  /** Adds a newly listed element, and streams it to {@link #batchListener} if any. */
+  private void onListed(
+      @NonNull List<LayoutElementParcelable> list, @NonNull LayoutElementParcelable element) {
+    list.add(element);
+    if (batcher != null) {
+      batcher.add(element);
+    }
+  }
+
   @Override
   protected void onCancelled() {
     listener.onAsyncTaskFinished(null);
@@ -327,7 +389,7 @@ public class LoadFilesListTask
       }
     }
 
-    Collections.sort(list, new FileListSorter(viewModel.getDsort(), sortType));
+    FileListSorter.sort(list, new FileListSorter(viewModel.getDsort(), sortType));
   }
 
   private @Nullable LayoutElementParcelable createListParcelables(HybridFileParcelable baseFile) {
@@ -343,31 +405,14 @@ public class LoadFilesListTask
       return null;
     }
 
-    String size = "";
-    long longSize = 0;
-
-    if (!baseFile.isDirectory()) {
-      if (baseFile.getSize() != -1) {
-        try {
-          longSize = baseFile.getSize();
-          size = Formatter.formatFileSize(context, longSize);
-        } catch (NumberFormatException e) {
-          LOG.warn("failed to create list parcelables", e);
-        }
-      }
-    }
-
     LayoutElementParcelable layoutElement =
         new LayoutElementParcelable(
-            context,
             baseFile.getName(context),
             baseFile.getPath(),
             baseFile.getPermission(),
             baseFile.getLink(),
-            size,
-            longSize,
-            false,
-            baseFile.getDate() + "",
+            baseFile.isDirectory() ? 0 : baseFile.getSize(),
+            baseFile.getDate(),
             baseFile.isDirectory(),
             showThumbs,
             baseFile.getMode());
@@ -625,8 +670,8 @@ public class LoadFilesListTask
       LayoutElementParcelable element = hybridFile.generateLayoutElement(context, true);
       element.date = trashBinFile.getDeleteTime();
       element.longSize = trashBinFile.getSizeBytes();
-      element.size = Formatter.formatFileSize(context, trashBinFile.getSizeBytes());
-      element.dateModification = Utils.getDate(context, trashBinFile.getDeleteTime() * 1000);
+      element.setSize(Formatter.formatFileSize(context, trashBinFile.getSizeBytes()));
+      element.setDateModification(Utils.getDate(context, trashBinFile.getDeleteTime() * 1000));
       element.isDirectory = trashBinFile.isDirectory();
       deletedFiles.add(element);
     }
@@ -685,9 +730,20 @@ public class LoadFilesListTask
     if (smbCache != null && !forceReload) {
       list = smbCache;
     } else {
-      try {
-        SmbFile[] smbFile = _file.getSmbFile(5000).listFiles();
-        list = mainFragment.addToSmb(smbFile, path, showHiddenFiles);
+      list = new ArrayList<>();
+      // Entries are handled as the server sends them, instead of waiting for listFiles()
+      try (CloseableIterator<SmbResource> children = _file.getSmbFile(5000).children()) {
+        List<SmbFile> chunk = new ArrayList<>(SMB_CHUNK_SIZE);
+        while (children.hasNext()) {
+          chunk.add((SmbFile) children.next());
+          if (chunk.size() == SMB_CHUNK_SIZE || !children.hasNext()) {
+            for (LayoutElementParcelable elem :
+                mainFragment.addToSmb(chunk.toArray(new SmbFile[0]), path, showHiddenFiles)) {
+              onListed(list, elem);
+            }
+            chunk.clear();
+          }
+        }
       } catch (SmbAuthException e) {
         if (!e.getMessage().toLowerCase().contains("denied")) {
           mainFragment.reauthenticateSmb();
@@ -695,7 +751,7 @@ public class LoadFilesListTask
         LOG.warn("failed to load smb list, authentication issue: ", e);
         publishProgress(e);
         return null;
-      } catch (SmbException | NullPointerException e) {
+      } catch (CIFSException | NullPointerException e) {
         LOG.warn("Failed to load smb files for path: " + path, e);
         mainFragment.reauthenticateSmb();
         return null;
@@ -721,7 +777,7 @@ public class LoadFilesListTask
             if (!(dataUtils.isFileHidden(file.getPath()) || file.isHidden() && !showHiddenFiles)) {
               LayoutElementParcelable elem = createListParcelables(file);
               if (elem != null) {
-                list.add(elem);
+                onListed(list, elem);
               }
             }
           });
@@ -736,7 +792,7 @@ public class LoadFilesListTask
         path,
         file -> {
           LayoutElementParcelable elem = createListParcelables(file);
-          if (elem != null) list.add(elem);
+          if (elem != null) onListed(list, elem);
         });
     return list;
   }
@@ -752,7 +808,7 @@ public class LoadFilesListTask
       listDocumentFilesInternal(
           file -> {
             LayoutElementParcelable elem = createListParcelables(file);
-            if (elem != null) list.add(elem);
+            if (elem != null) onListed(list, elem);
           });
       mainActivityViewModel.putInCache(path, list);
     }
@@ -774,7 +830,7 @@ public class LoadFilesListTask
           openmode,
           file -> {
             LayoutElementParcelable elem = createListParcelables(file);
-            if (elem != null) list.add(elem);
+            if (elem != null) onListed(list, elem);
           });
       mainActivityViewModel.putInCache(path, list);
     }
@@ -803,11 +859,11 @@ public class LoadFilesListTask
           },
           hybridFileParcelable -> {
             LayoutElementParcelable elem = createListParcelables(hybridFileParcelable);
-            if (elem != null) list.add(elem);
+            if (elem != null) onListed(list, elem);
             return null;
           });
       if (list.size() > MainActivityViewModel.Companion.getCACHE_LOCAL_LIST_THRESHOLD()) {
-        mainActivityViewModel.putInCache(path, list);
+        mainActivityViewModel.putLocalInCache(path, list, showHiddenFiles, showThumbs);
       }
       if (null != currentOpenMode[0]) {
         openmode = currentOpenMode[0];
@@ -23,6 +23,7 @@ package com.amaze.filemanager.asynchronous.asynctasks.ftp
 import android.app.ProgressDialog
 import android.widget.Toast
 import androidx.annotation.MainThread
+import androidx.annotation.StringRes
 import com.amaze.filemanager.R
 import com.amaze.filemanager.application.AppConfig
 import com.amaze.filemanager.asynchronous.asynctasks.Task
@@ -35,6 +36,12 @@ abstract class AbstractGetHostInfoTask<V, T : Callable<V>>(
 ) : Task<V, T> {
     private lateinit var progressDialog: ProgressDialog
 
+    /**
+     * Message shown when the server can't be reached, taking host, port and error message.
+     */
+    @StringRes
+    protected open val connectFailedMessage: Int = R.string.ssh_connect_failed
+
     /**
      * Routine to run before passing control to worker thread, usually for UI related operations.
      */
@@ -60,7 +67,7 @@ abstract class AbstractGetHostInfoTask<V, T : Callable<V>>(
             AppConfig.getInstance()
                 .resources
                 .getString(
-                    R.string.ssh_connect_failed,
+                    connectFailedMessage,
                     hostname,
                     port,
                     error.localizedMessage,
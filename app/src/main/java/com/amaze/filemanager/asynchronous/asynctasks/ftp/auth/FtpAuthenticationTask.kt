@@ -69,7 +69,7 @@ class FtpAuthenticationTask(
                 AppConfig.getInstance()
                     .resources
                     .getString(
-                        R.string.ssh_connect_failed,
+                        R.string.ftp_connect_failed,
                         host,
                         port,
                         error.localizedMessage ?: error.message,
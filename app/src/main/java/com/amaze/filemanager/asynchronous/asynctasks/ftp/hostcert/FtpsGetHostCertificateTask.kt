@@ -21,6 +21,7 @@
 package com.amaze.filemanager.asynchronous.asynctasks.ftp.hostcert
 
 import android.content.Context
+import com.amaze.filemanager.R
 import com.amaze.filemanager.asynchronous.asynctasks.ftp.AbstractGetHostInfoTask
 import org.json.JSONObject
 import java.lang.ref.WeakReference
@@ -34,5 +35,7 @@ class FtpsGetHostCertificateTask(
 ) : AbstractGetHostInfoTask<JSONObject, FtpsGetHostCertificateTaskCallable>(host, port, callback) {
     val ctx: WeakReference<Context> = WeakReference(context)
 
+    override val connectFailedMessage: Int = R.string.ftp_connect_failed
+
     override fun getTask(): FtpsGetHostCertificateTaskCallable = FtpsGetHostCertificateTaskCallable(host, port, explicitTls)
 }
@@ -20,107 +20,151 @@
 
 package com.amaze.filemanager.asynchronous.asynctasks.hashcalculator;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Objects;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.amaze.filemanager.database.ChecksumCache;
+import com.amaze.filemanager.database.models.explorer.ChecksumEntry;
 import com.amaze.filemanager.filesystem.HybridFileParcelable;
-import com.amaze.filemanager.filesystem.files.GenericCopyUtil;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
-/** Generates hashes from files (MD5 and SHA256) */
+/**
+ * Generates hashes from files (MD5, SHA-1, SHA-256 and CRC32) in a single pass over the file.
+ * Results are kept in {@link ChecksumCache}, so an unchanged file is not read again.
+ */
 public class CalculateHashCallback implements Callable<Hash> {
 
-  private InputStream inputStreamMd5;
-  private InputStream inputStreamSha;
+  /** Receives how far hashing went. */
+  public interface ProgressListener {
+    void onProgress(long bytesHashed, long totalBytes);
+  }
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  /** Local files are mapped this much at a time, so that it works in a 32-bit address space. */
+  private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
   private final HybridFileParcelable file;
   private final Context context;
+  private final AtomicBoolean cancelled;
+  @Nullable private final ProgressListener progressListener;
 
   public CalculateHashCallback(HybridFileParcelable file, final Context context) {
+    this(file, context, new AtomicBoolean(false), null);
+  }
+
+  /**
+   * @param cancelled hashing stops with {@link CancellationException} once this is set
+   * @param progressListener notified after each chunk hashed
+   */
+  public CalculateHashCallback(
+      HybridFileParcelable file,
+      final Context context,
+      @NonNull AtomicBoolean cancelled,
+      @Nullable ProgressListener progressListener) {
     if (file.isSftp()) {
       throw new IllegalArgumentException("Use CalculateHashSftpCallback");
     }
     this.context = context;
     this.file = file;
+    this.cancelled = cancelled;
+    this.progressListener = progressListener;
   }
 
   @WorkerThread
   @Override
   public Hash call() throws Exception {
-    boolean isNotADirectory = !file.isDirectory(context);
-    this.inputStreamMd5 = file.getInputStream(context);
-    this.inputStreamSha = file.getInputStream(context);
+    if (file.isDirectory(context)) {
+      throw new IllegalArgumentException("Cannot calculate hash of directory " + file.getPath());
+    }
 
-    String md5 = null;
-    String sha256 = null;
+    File localFile = file.isLocal() ? new File(file.getPath()) : null;
+    boolean canMap = localFile != null && localFile.canRead();
+    long size = canMap ? localFile.length() : file.getSize();
+    long lastModified = canMap ? localFile.lastModified() : file.getDate();
 
-    if (isNotADirectory) {
-      md5 = getMD5Checksum();
-      sha256 = getSHA256Checksum();
+    ChecksumEntry cached = ChecksumCache.INSTANCE.find(file.getPath(), size, lastModified);
+    if (cached != null) {
+      return new Hash(cached.md5, cached.sha256, cached.sha1, cached.crc32);
     }
 
-    Objects.requireNonNull(md5);
-    Objects.requireNonNull(sha256);
-
-    return new Hash(md5, sha256);
+    MultiDigest digest = new MultiDigest();
+    if (canMap) {
+      digestMapped(localFile, size, digest);
+    } else {
+      digestStream(size, digest);
+    }
+    Hash hash = digest.toHash();
+
+    ChecksumCache.INSTANCE.put(
+        new ChecksumEntry(
+            file.getPath(),
+            size,
+            lastModified,
+            hash.getMd5(),
+            hash.getSha1(),
+            hash.getSha(),
+            hash.getCrc32()));
+    return hash;
   }
 
-  // see this How-to for a faster way to convert a byte array to a HEX string
-
-  private String getMD5Checksum() throws Exception {
-    byte[] b = createChecksum();
-    String result = "";
-
-    for (byte aB : b) {
-      result += Integer.toString((aB & 0xff) + 0x100, 16).substring(1);
+  private void digestMapped(File localFile, long size, MultiDigest digest) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(localFile, "r")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      long position = 0;
+      while (position < size) {
+        long windowSize = Math.min(MAP_WINDOW_SIZE, size - position);
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+        while (window.hasRemaining()) {
+          // Digest the mapped pages in place, a chunk at a time to report progress
+          int length = Math.min(BUFFER_SIZE, window.remaining());
+          window.limit(window.position() + length);
+          digest.update(window);
+          window.limit(window.capacity());
+          position += length;
+          onChunkHashed(position, size);
+        }
+      }
     }
-    return result;
   }
 
-  private String getSHA256Checksum() throws NoSuchAlgorithmException, IOException {
-    MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-    byte[] input = new byte[GenericCopyUtil.DEFAULT_BUFFER_SIZE];
-    int length;
-    InputStream inputStream = inputStreamMd5;
-    while ((length = inputStream.read(input)) != -1) {
-      if (length > 0) messageDigest.update(input, 0, length);
+  private void digestStream(long size, MultiDigest digest) throws IOException {
+    InputStream inputStream = file.getInputStream(context);
+    if (inputStream == null) {
+      throw new IOException("Cannot read " + file.getPath());
     }
-
-    byte[] hash = messageDigest.digest();
-
-    StringBuilder hexString = new StringBuilder();
-
-    for (byte aHash : hash) {
-      // convert hash to base 16
-      String hex = Integer.toHexString(0xff & aHash);
-      if (hex.length() == 1) hexString.append('0');
-      hexString.append(hex);
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long position = 0;
+    try {
+      int length;
+      while ((length = inputStream.read(buffer)) != -1) {
+        digest.update(buffer, 0, length);
+        position += length;
+        onChunkHashed(position, size);
+      }
+    } finally {
+      inputStream.close();
     }
-    inputStream.close();
-    return hexString.toString();
   }
 
-  private byte[] createChecksum() throws Exception {
-    InputStream fis = inputStreamSha;
-
-    byte[] buffer = new byte[8192];
-    MessageDigest complete = MessageDigest.getInstance("MD5");
-    int numRead;
-
-    do {
-      numRead = fis.read(buffer);
-      if (numRead > 0) {
-        complete.update(buffer, 0, numRead);
-      }
-    } while (numRead != -1);
-
-    fis.close();
-    return complete.digest();
+  private void onChunkHashed(long position, long size) {
+    if (cancelled.get()) {
+      throw new CancellationException("Hash calculation of " + file.getPath() + " cancelled");
+    }
+    if (progressListener != null) {
+      progressListener.onProgress(position, size);
+    }
   }
 }
@@ -24,6 +24,8 @@ import android.content.Context
 import android.view.View
 import android.widget.LinearLayout
 import android.widget.Toast
+import androidx.annotation.IdRes
+import androidx.annotation.StringRes
 import androidx.appcompat.widget.AppCompatTextView
 import com.amaze.filemanager.R
 import com.amaze.filemanager.asynchronous.asynctasks.Task
@@ -34,16 +36,37 @@ import org.slf4j.LoggerFactory
 import java.lang.ref.WeakReference
 import java.util.Locale
 import java.util.concurrent.Callable
+import java.util.concurrent.CancellationException
+import java.util.concurrent.atomic.AtomicBoolean
 
-data class Hash(val md5: String, val sha: String)
+/**
+ * Checksums of a file, as lowercase hex strings. Empty if not computed.
+ */
+data class Hash
+    @JvmOverloads
+    constructor(
+        val md5: String,
+        val sha: String,
+        val sha1: String = "",
+        val crc32: String = "",
+    )
 
 class CalculateHashTask(
     private val file: HybridFileParcelable,
     context: Context,
     view: View,
 ) : Task<Hash, Callable<Hash>> {
+    companion object {
+        private val HASH_TEXT_VIEWS = intArrayOf(R.id.t9, R.id.t10, R.id.t11, R.id.t12)
+    }
+
     private val log: Logger = LoggerFactory.getLogger(CalculateHashTask::class.java)
 
+    private val cancelled = AtomicBoolean(false)
+
+    // Only touched on the worker thread
+    private var lastPercentShown = -1
+
     private val task: Callable<Hash> =
         if (file.isSftp && !file.isDirectory(context)) {
             CalculateHashSftpCallback(file)
@@ -51,7 +74,7 @@ class CalculateHashTask(
             // Don't do this. Especially when FTPClient requires thread safety.
             DoNothingCalculateHashCallback()
         } else {
-            CalculateHashCallback(file, context)
+            CalculateHashCallback(file, context, cancelled, this::onProgress)
         }
 
     private val context = WeakReference(context)
@@ -59,7 +82,36 @@ class CalculateHashTask(
 
     override fun getTask(): Callable<Hash> = task
 
+    /**
+     * Stop reading the file, e.g. when the properties dialog is closed.
+     */
+    fun cancel() = cancelled.set(true)
+
+    private fun onProgress(
+        bytesHashed: Long,
+        totalBytes: Long,
+    ) {
+        if (totalBytes <= 0) return
+        val percent = (bytesHashed * 100 / totalBytes).toInt()
+        if (percent == lastPercentShown) return
+        lastPercentShown = percent
+
+        val view = view.get() ?: return
+        view.post {
+            val context = context.get() ?: return@post
+            val text = context.getString(R.string.calculating_progress, percent)
+            HASH_TEXT_VIEWS.forEach {
+                view.findViewById<AppCompatTextView>(it).text = text
+            }
+        }
+    }
+
     override fun onError(error: Throwable) {
+        if (error is CancellationException || cancelled.get()) {
+            // the dialog showing the hashes is gone, nothing went wrong
+            log.debug("Hash calculation of {} cancelled", file.path)
+            return
+        }
         log.error("Error on calculate hash", error)
         updateView(null)
     }
@@ -84,6 +136,24 @@ class CalculateHashTask(
         val mMD5LinearLayout = view.findViewById<LinearLayout>(R.id.properties_dialog_md5)
         val mSHA256LinearLayout = view.findViewById<LinearLayout>(R.id.properties_dialog_sha256)
 
+        // Not every backend computes these
+        showOptionalHash(
+            context,
+            view,
+            R.id.properties_dialog_sha1,
+            R.id.t11,
+            R.string.hash_sha1,
+            hashes?.sha1,
+        )
+        showOptionalHash(
+            context,
+            view,
+            R.id.properties_dialog_crc32,
+            R.id.t12,
+            R.string.hash_crc32,
+            hashes?.crc32,
+        )
+
         if (!file.isDirectory(context) && file.getSize() != 0L) {
             md5HashText.text = md5Text
             sha256Text.text = shaText
@@ -115,4 +185,32 @@ class CalculateHashTask(
             mSHA256LinearLayout.visibility = View.GONE
         }
     }
+
+    @Suppress("LongParameterList")
+    private fun showOptionalHash(
+        context: Context,
+        view: View,
+        @IdRes layoutId: Int,
+        @IdRes textViewId: Int,
+        @StringRes nameId: Int,
+        hash: String?,
+    ) {
+        val layout = view.findViewById<LinearLayout>(layoutId)
+        if (hash.isNullOrEmpty() || file.isDirectory(context) || file.getSize() == 0L) {
+            layout.visibility = View.GONE
+            return
+        }
+        view.findViewById<AppCompatTextView>(textViewId).text = hash
+        layout.setOnLongClickListener {
+            FileUtils.copyToClipboard(context, hash)
+            Toast.makeText(
+                context,
+                context.resources.getString(nameId) + " " +
+                    context.resources.getString(R.string.properties_copied_clipboard),
+                Toast.LENGTH_SHORT,
+            )
+                .show()
+            false
+        }
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.hashcalculator
+
+import android.os.Build
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+import java.util.Locale
+import java.util.zip.CRC32
+
+/**
+ * Computes MD5, SHA-1, SHA-256 and CRC32 of the same data together, so that it only has to be
+ * read once.
+ */
+class MultiDigest {
+    private val md5 = MessageDigest.getInstance("MD5")
+    private val sha1 = MessageDigest.getInstance("SHA-1")
+    private val sha256 = MessageDigest.getInstance("SHA-256")
+    private val crc32 = CRC32()
+    private var crc32Buffer: ByteArray? = null
+
+    /**
+     * Feed the next length bytes of buffer from offset.
+     */
+    fun update(
+        buffer: ByteArray,
+        offset: Int,
+        length: Int,
+    ) {
+        md5.update(buffer, offset, length)
+        sha1.update(buffer, offset, length)
+        sha256.update(buffer, offset, length)
+        crc32.update(buffer, offset, length)
+    }
+
+    /**
+     * Feed the bytes remaining in buffer, leaving its position at its limit. A direct buffer, such
+     * as a mapped file, is not copied to the heap.
+     */
+    fun update(buffer: ByteBuffer) {
+        val start = buffer.position()
+        for (digest in arrayOf(md5, sha1, sha256)) {
+            buffer.position(start)
+            digest.update(buffer)
+        }
+        buffer.position(start)
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            crc32.update(buffer)
+        } else {
+            // CRC32 only takes a ByteBuffer from Oreo on
+            val length = buffer.remaining()
+            val bytes =
+                crc32Buffer?.takeIf { it.size >= length }
+                    ?: ByteArray(length).also { crc32Buffer = it }
+            buffer.get(bytes, 0, length)
+            crc32.update(bytes, 0, length)
+        }
+    }
+
+    /**
+     * Finish the computation and return the digests as lowercase hex strings.
+     */
+    fun toHash(): Hash =
+        Hash(
+            toHex(md5.digest()),
+            toHex(sha256.digest()),
+            toHex(sha1.digest()),
+            String.format(Locale.ROOT, "%08x", crc32.value),
+        )
+
+    companion object {
+        private val HEX_DIGITS = "0123456789abcdef".toCharArray()
+
+        /**
+         * Convert bytes to lowercase hex string.
+         */
+        @JvmStatic
+        fun toHex(bytes: ByteArray): String {
+            val chars = CharArray(bytes.size * 2)
+            bytes.forEachIndexed { i, byte ->
+                val value = byte.toInt() and 0xff
+                chars[i * 2] = HEX_DIGITS[value ushr 4]
+                chars[i * 2 + 1] = HEX_DIGITS[value and 0x0f]
+            }
+            return String(chars)
+        }
+    }
+}
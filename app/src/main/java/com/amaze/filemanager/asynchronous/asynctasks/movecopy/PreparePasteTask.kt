@@ -42,9 +42,10 @@ import com.amaze.filemanager.filesystem.FilenameHelper
 import com.amaze.filemanager.filesystem.HybridFile
 import com.amaze.filemanager.filesystem.HybridFileParcelable
 import com.amaze.filemanager.filesystem.MakeDirectoryOperation
-import com.amaze.filemanager.filesystem.files.FileUtils
+import com.amaze.filemanager.filesystem.files.TotalSizeWalker
 import com.amaze.filemanager.ui.activities.MainActivity
 import com.amaze.filemanager.utils.OnFileFound
+import com.amaze.filemanager.utils.ProgressHandler
 import com.amaze.filemanager.utils.Utils
 import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.CoroutineScope
@@ -131,7 +132,6 @@ class PreparePasteTask(strongRefMain: MainActivity) {
             return
         }
 
-        val totalBytes = FileUtils.getTotalBytes(filesToCopy, context.get())
         destination = HybridFile(openMode, targetPath)
         destination.generateMode(context.get())
 
@@ -148,12 +148,6 @@ class PreparePasteTask(strongRefMain: MainActivity) {
                 destination.mode == openMode &&
                 MoveFiles.getOperationSupportedFileSystem().contains(openMode)
 
-        if (destination.usableSpace < totalBytes &&
-            !isMoveSupported
-        ) {
-            Toast.makeText(context.get(), R.string.in_safe, Toast.LENGTH_SHORT).show()
-            return
-        }
         @Suppress("DEPRECATION")
         progressDialog =
             ProgressDialog.show(
@@ -161,12 +155,21 @@ class PreparePasteTask(strongRefMain: MainActivity) {
                 "",
                 context.get()?.getString(R.string.checking_conflicts),
             )
+        // moving within the same filesystem takes no space, otherwise sizes are summed up while
+        // looking for conflicts
+        val sizeWalker =
+            context.get()?.takeUnless { isMoveSupported }?.let {
+                TotalSizeWalker(it.applicationContext, ProgressHandler()).apply {
+                    start(filesToCopy)
+                }
+            }
         checkConflicts(
             isRootMode,
             filesToCopy,
             destination,
             conflictingFiles,
             conflictingDirActionMap,
+            sizeWalker,
         )
     }
 
@@ -176,6 +179,7 @@ class PreparePasteTask(strongRefMain: MainActivity) {
         destination: HybridFile,
         conflictingFiles: MutableList<HybridFileParcelable>,
         conflictingDirActionMap: HashMap<HybridFileParcelable, String>,
+        sizeWalker: TotalSizeWalker?,
     ) {
         coroutineScope.launch {
             destination.forEachChildrenFile(
@@ -191,6 +195,14 @@ class PreparePasteTask(strongRefMain: MainActivity) {
                     }
                 },
             )
+            if (sizeWalker != null && destination.usableSpace < sizeWalker.await()) {
+                withContext(Dispatchers.Main) {
+                    Toast.makeText(context.get(), R.string.in_safe, Toast.LENGTH_SHORT).show()
+                    progressDialog?.dismiss()
+                }
+                coroutineScope.cancel()
+                return@launch
+            }
             withContext(Dispatchers.Main) {
                 prepareDialog(conflictingFiles, conflictingDirActionMap)
                 @Suppress("DEPRECATION")
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
+
+import java.nio.ByteBuffer
+import java.util.Locale
+
+/**
+ * Finds the first line of some content that matches, without decoding the lines that can't.
+ *
+ * Content is scanned for the longest of the ASCII [literals], ignoring case, using the
+ * Boyer-Moore-Horspool algorithm. Only lines containing it are decoded as UTF-8 and checked in
+ * full. If there is no such literal, every line is checked.
+ */
+class ContentScanner(literals: List<String>) {
+    private val pattern: ByteArray? =
+        literals
+            .filter { literal -> literal.isNotEmpty() && literal.all { it.code < 0x80 } }
+            .maxByOrNull { it.length }
+            ?.lowercase(Locale.ROOT)
+            ?.toByteArray(Charsets.US_ASCII)
+
+    /** How far the pattern can move on, by the folded byte under its last position */
+    private val shifts: IntArray? =
+        pattern?.let { pattern ->
+            IntArray(256) { pattern.size }.also { shifts ->
+                for (i in 0 until pattern.size - 1) {
+                    shifts[pattern[i].toInt() and 0xff] = pattern.size - 1 - i
+                }
+            }
+        }
+
+    /**
+     * Returns the first line of [content], between its position and limit, for which
+     * [matchLine] finds a match, along with that match. Gives up once [isActive] returns false.
+     */
+    fun firstMatchingLine(
+        content: ByteBuffer,
+        isActive: () -> Boolean = { true },
+        matchLine: (String) -> MatchRange?,
+    ): Pair<String, MatchRange>? {
+        val end = content.limit()
+        // always at the start of a line
+        var from = content.position()
+        while (from < end && isActive()) {
+            val candidate = if (pattern == null) from else indexOf(content, from, end)
+            if (candidate < 0) return null
+            var lineStart = candidate
+            while (lineStart > from && content.get(lineStart - 1) != NEW_LINE) lineStart--
+            var lineEnd = candidate
+            while (lineEnd < end && content.get(lineEnd) != NEW_LINE) lineEnd++
+            val line = decode(content, lineStart, lineEnd)
+            val matchRange = matchLine(line)
+            if (matchRange != null) return line to matchRange
+            from = lineEnd + 1
+        }
+        return null
+    }
+
+    /** Index of the first occurrence of [pattern] in [content] from [from] to [end], or -1 */
+    private fun indexOf(
+        content: ByteBuffer,
+        from: Int,
+        end: Int,
+    ): Int {
+        val pattern = pattern!!
+        val shifts = shifts!!
+        val last = pattern.size - 1
+        var start = from
+        while (start + last < end) {
+            var i = last
+            while (i >= 0 && fold(content.get(start + i)) == pattern[i]) i--
+            if (i < 0) return start
+            start += shifts[fold(content.get(start + last)).toInt() and 0xff]
+        }
+        return -1
+    }
+
+    private fun decode(
+        content: ByteBuffer,
+        start: Int,
+        end: Int,
+    ): String {
+        // don't show the carriage return of Windows line endings
+        val crlf = end > start && content.get(end - 1) == CARRIAGE_RETURN
+        val bytes = ByteArray(if (crlf) end - start - 1 else end - start)
+        val view = content.duplicate()
+        view.position(start)
+        view.get(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+
+    companion object {
+        /** Separates lines */
+        const val NEW_LINE = '\n'.code.toByte()
+
+        private const val CARRIAGE_RETURN = '\r'.code.toByte()
+
+        /** Number of bytes at the start of content looked at to tell if it is binary */
+        const val BINARY_CHECK_LENGTH = 8192
+
+        /** Starts of common binary formats which may not have a NUL byte early on */
+        private val BINARY_MAGICS: List<ByteArray> =
+            listOf(
+                // PNG
+                byteArrayOf(0x89.toByte(), 'P'.code.toByte(), 'N'.code.toByte(), 'G'.code.toByte()),
+                // JPEG
+                byteArrayOf(0xff.toByte(), 0xd8.toByte(), 0xff.toByte()),
+                // GZIP
+                byteArrayOf(0x1f, 0x8b.toByte()),
+                // ELF
+                byteArrayOf(0x7f, 'E'.code.toByte(), 'L'.code.toByte(), 'F'.code.toByte()),
+                // 7z
+                byteArrayOf('7'.code.toByte(), 'z'.code.toByte(), 0xbc.toByte(), 0xaf.toByte()),
+                "PK\u0003\u0004".toByteArray(Charsets.US_ASCII),
+                "GIF8".toByteArray(Charsets.US_ASCII),
+                "%PDF".toByteArray(Charsets.US_ASCII),
+                "Rar!".toByteArray(Charsets.US_ASCII),
+                "dex\n".toByteArray(Charsets.US_ASCII),
+                "ID3".toByteArray(Charsets.US_ASCII),
+                "OggS".toByteArray(Charsets.US_ASCII),
+                "RIFF".toByteArray(Charsets.US_ASCII),
+            )
+
+        /**
+         * Whether [content], between its position and limit, looks like binary rather than text:
+         * it starts like a known binary format, or has a NUL byte near the start.
+         */
+        @JvmStatic
+        fun isBinary(content: ByteBuffer): Boolean {
+            val start = content.position()
+            val length = content.limit() - start
+            if (BINARY_MAGICS.any { startsWith(content, start, length, it) }) return true
+            for (i in start until start + minOf(length, BINARY_CHECK_LENGTH)) {
+                if (content.get(i) == 0.toByte()) return true
+            }
+            return false
+        }
+
+        private fun startsWith(
+            content: ByteBuffer,
+            start: Int,
+            length: Int,
+            magic: ByteArray,
+        ): Boolean =
+            magic.size <= length && magic.indices.all { content.get(start + it) == magic[it] }
+
+        private const val UPPER_A = 'A'.code.toByte()
+        private const val UPPER_Z = 'Z'.code.toByte()
+
+        /** Lower case of ASCII letters, other bytes as they are */
+        private fun fold(byte: Byte): Byte =
+            if (byte in UPPER_A..UPPER_Z) (byte + ('a' - 'A')).toByte() else byte
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
+
+import android.content.Context
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
+import org.slf4j.LoggerFactory
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.coroutines.coroutineContext
+
+/**
+ * Search for files whose content has a line matching the query, starting from [path]. Each found
+ * file is published with its first matching line.
+ */
+class ContentSearch(
+    query: String,
+    path: String,
+    searchParameters: SearchParameters,
+    context: Context,
+    private val openMode: OpenMode,
+) : FileSearch(query, path, searchParameters) {
+    private val LOG = LoggerFactory.getLogger(ContentSearch::class.java)
+
+    private val applicationContext: Context = context.applicationContext
+
+    /**
+     * Search for occurrences of a given text in file contents and publish the result.
+     *
+     * Up to [FILES_IN_FLIGHT] directories are listed or files read at the same time. Files that
+     * look binary are skipped, see [ContentScanner.isBinary].
+     */
+    override suspend fun search(filter: SearchFilter) {
+        val directory = HybridFile(openMode, path)
+        if (directory.isSmb) return
+
+        if (directory.isDirectory(applicationContext)) {
+            val isRegex = SearchParameter.REGEX in searchParameters
+            val scanner = ContentScanner(FilenameIndexSearch.requiredLiterals(query, isRegex))
+            // directories to list and files to read
+            val worklist = Channel<HybridFile>(Channel.UNLIMITED)
+            // items queued or being worked on
+            val pending = AtomicInteger(1)
+            worklist.trySend(directory)
+            coroutineScope {
+                repeat(FILES_IN_FLIGHT) {
+                    launch(Dispatchers.IO) {
+                        for (next in worklist) {
+                            try {
+                                if (next is HybridFileParcelable && !next.isDirectory) {
+                                    searchContent(next, filter, scanner)
+                                } else {
+                                    list(next, worklist, pending)
+                                }
+                            } finally {
+                                if (pending.decrementAndGet() == 0) worklist.close()
+                            }
+                        }
+                    }
+                }
+            }
+        } else {
+            LOG.warn("Cannot search " + directory.path + ": Permission Denied")
+        }
+    }
+
+    private suspend fun list(
+        directory: HybridFile,
+        worklist: Channel<HybridFile>,
+        pending: AtomicInteger,
+    ) {
+        val job = coroutineContext[Job]
+        directory.forEachChildrenFile(
+            applicationContext,
+            SearchParameter.ROOT in searchParameters,
+        ) { file ->
+            if (job?.isActive == false) return@forEachChildrenFile
+            if (!file.isHidden || SearchParameter.SHOW_HIDDEN_FILES in searchParameters) {
+                pending.incrementAndGet()
+                worklist.trySend(file)
+            }
+        }
+    }
+
+    private suspend fun searchContent(
+        file: HybridFileParcelable,
+        filter: SearchFilter,
+        scanner: ContentScanner,
+    ) {
+        val job = coroutineContext[Job]
+        if (job?.isActive == false) return
+        val isActive = { job?.isActive != false }
+        val match =
+            try {
+                if (file.isLocal) {
+                    searchLocal(File(file.path), scanner, isActive, filter)
+                } else {
+                    readStream(file)?.let { searchBuffer(it, scanner, isActive, filter) }
+                }
+            } catch (e: IOException) {
+                LOG.warn("Cannot read " + file.path, e)
+                null
+            } catch (e: SecurityException) {
+                LOG.warn("Cannot read " + file.path, e)
+                null
+            }
+        val (line, matchRange) = match ?: return
+        val (shownLine, shownRange) = excerpt(line, matchRange)
+        publishProgress(file, shownRange, shownLine)
+    }
+
+    /**
+     * First matching line of content, unless it looks binary.
+     */
+    private fun searchBuffer(
+        content: ByteBuffer,
+        scanner: ContentScanner,
+        isActive: () -> Boolean,
+        filter: SearchFilter,
+    ): Pair<String, MatchRange>? {
+        if (ContentScanner.isBinary(content)) return null
+        return scanner.firstMatchingLine(content, isActive) { filter.searchFilter(it) }
+    }
+
+    /**
+     * First matching line of a local file. Files are memory mapped, unless small enough for
+     * mapping to cost more than reading them, or modified in the last [MIN_MAPPED_AGE_MILLIS]:
+     * pages of a mapped file truncated meanwhile raise SIGBUS when accessed. Those are read in
+     * chunks instead.
+     */
+    private fun searchLocal(
+        file: File,
+        scanner: ContentScanner,
+        isActive: () -> Boolean,
+        filter: SearchFilter,
+    ): Pair<String, MatchRange>? =
+        RandomAccessFile(file, "r").use { randomAccessFile ->
+            val length = randomAccessFile.length()
+            val age = System.currentTimeMillis() - file.lastModified()
+            when {
+                length == 0L -> null
+                length < MAP_THRESHOLD -> {
+                    val bytes = ByteArray(length.toInt())
+                    randomAccessFile.readFully(bytes)
+                    searchBuffer(ByteBuffer.wrap(bytes), scanner, isActive, filter)
+                }
+                age >= MIN_MAPPED_AGE_MILLIS && length <= Int.MAX_VALUE -> {
+                    // the mapping stays valid after the channel is closed
+                    val content =
+                        randomAccessFile.channel.map(FileChannel.MapMode.READ_ONLY, 0, length)
+                    searchBuffer(content, scanner, isActive, filter)
+                }
+                else -> searchChunks(randomAccessFile.channel, scanner, isActive, filter)
+            }
+        }
+
+    /**
+     * First matching line of what is read from channel, unless it looks binary. It is read
+     * [CHUNK_SIZE] bytes at a time, lines going on in the next chunk being searched with it.
+     */
+    private fun searchChunks(
+        channel: FileChannel,
+        scanner: ContentScanner,
+        isActive: () -> Boolean,
+        filter: SearchFilter,
+    ): Pair<String, MatchRange>? {
+        val buffer = ByteBuffer.allocate(CHUNK_SIZE)
+        var endOfFile = false
+        var first = true
+        while (!endOfFile && isActive()) {
+            // fill the buffer, after the end of the previous chunk
+            while (buffer.hasRemaining() && !endOfFile) {
+                endOfFile = channel.read(buffer) < 0
+            }
+            buffer.flip()
+            if (first && ContentScanner.isBinary(buffer)) return null
+            first = false
+
+            // search complete lines only, a line longer than the buffer is cut
+            var end = buffer.limit()
+            if (!endOfFile) {
+                var lastNewLine = end - 1
+                while (lastNewLine >= 0 && buffer.get(lastNewLine) != ContentScanner.NEW_LINE) {
+                    lastNewLine--
+                }
+                if (lastNewLine >= 0) end = lastNewLine + 1
+            }
+            val limit = buffer.limit()
+            buffer.limit(end)
+            scanner.firstMatchingLine(buffer, isActive) { filter.searchFilter(it) }
+                ?.let { return it }
+            buffer.limit(limit)
+            buffer.position(end)
+            buffer.compact()
+        }
+        return null
+    }
+
+    /**
+     * Content of a file that isn't local, as long as it is at most [MAX_STREAMED_SIZE] bytes.
+     */
+    private fun readStream(file: HybridFileParcelable): ByteBuffer? {
+        if (file.size > MAX_STREAMED_SIZE) return null
+        val inputStream = file.getInputStream(applicationContext) ?: return null
+        return inputStream.use {
+            val content = ByteArrayOutputStream()
+            val buffer = ByteArray(BUFFER_SIZE)
+            var read = it.read(buffer)
+            while (read >= 0) {
+                content.write(buffer, 0, read)
+                if (content.size() > MAX_STREAMED_SIZE) return null
+                read = it.read(buffer)
+            }
+            ByteBuffer.wrap(content.toByteArray())
+        }
+    }
+
+    companion object {
+        /** Reading files is partly CPU bound, unlike listing directories */
+        @JvmField
+        val FILES_IN_FLIGHT = Runtime.getRuntime().availableProcessors().coerceAtLeast(4)
+
+        /** Smallest local file that is memory mapped */
+        const val MAP_THRESHOLD = 64 * 1024
+
+        /** Local files modified more recently than this may still be written, they aren't mapped */
+        const val MIN_MAPPED_AGE_MILLIS = 60 * 1000L
+
+        /** Bytes read at a time from local files that aren't mapped */
+        const val CHUNK_SIZE = 256 * 1024
+
+        /** Largest file searched which isn't local, as it must be read into memory */
+        const val MAX_STREAMED_SIZE = 8 * 1024 * 1024
+
+        private const val BUFFER_SIZE = 16 * 1024
+
+        /** Longest part of a matching line that is shown */
+        const val MAX_LINE_LENGTH = 160
+
+        /** Number of characters shown before the match, in a line too long to be shown whole */
+        const val LINE_CONTEXT = 40
+
+        /**
+         * Part of [line] to show for a match in [matchRange]: without indentation and at most
+         * [MAX_LINE_LENGTH] long, unless the match itself is longer. Returns the shown part
+         * along with where the match is in it.
+         */
+        @JvmStatic
+        fun excerpt(
+            line: String,
+            matchRange: MatchRange,
+        ): Pair<String, MatchRange> {
+            val indentation = line.indexOfFirst { !it.isWhitespace() }.coerceAtLeast(0)
+            val start =
+                minOf(indentation, matchRange.first).coerceAtLeast(matchRange.first - LINE_CONTEXT)
+            val end =
+                minOf(line.length, maxOf(start + MAX_LINE_LENGTH, matchRange.last + 1))
+            return line.substring(start, end) to
+                (matchRange.first - start)..(matchRange.last - start)
+        }
+    }
+}
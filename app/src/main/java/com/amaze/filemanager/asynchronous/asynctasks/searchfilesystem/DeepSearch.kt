@@ -23,8 +23,13 @@ package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
 import android.content.Context
 import com.amaze.filemanager.fileoperations.filesystem.OpenMode
 import com.amaze.filemanager.filesystem.HybridFile
-import kotlinx.coroutines.isActive
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
 import org.slf4j.LoggerFactory
+import java.util.concurrent.atomic.AtomicInteger
 import kotlin.coroutines.coroutineContext
 
 class DeepSearch(
@@ -43,9 +48,12 @@ class DeepSearch(
     }
 
     /**
-     * Search for occurrences of a given text in file names and publish the result
+     * Search for occurrences of a given text in file names and publish the result.
      *
-     * @param directory the current path
+     * Up to [DIRECTORIES_IN_FLIGHT] directories are listed at the same time. Names and types
+     * come from the listing, without looking at each file again. Files of a directory are
+     * published in listing order, and a directory always before what it contains; there is no
+     * order between different directories.
      */
     override suspend fun search(filter: SearchFilter) {
         val directory = HybridFile(openMode, path)
@@ -53,21 +61,19 @@ class DeepSearch(
 
         if (directory.isDirectory(applicationContext)) {
             // you have permission to read this directory
-            val worklist = ArrayDeque<HybridFile>()
-            worklist.add(directory)
-            while (coroutineContext.isActive && worklist.isNotEmpty()) {
-                val nextFile = worklist.removeFirst()
-                nextFile.forEachChildrenFile(
-                    applicationContext,
-                    SearchParameter.ROOT in searchParameters,
-                ) { file ->
-                    if (!file.isHidden || SearchParameter.SHOW_HIDDEN_FILES in searchParameters) {
-                        val resultRange = filter.searchFilter(file.getName(applicationContext))
-                        if (resultRange != null) {
-                            publishProgress(file, resultRange)
-                        }
-                        if (file.isDirectory(applicationContext)) {
-                            worklist.add(file)
+            val worklist = Channel<HybridFile>(Channel.UNLIMITED)
+            // directories queued or being listed
+            val pending = AtomicInteger(1)
+            worklist.trySend(directory)
+            coroutineScope {
+                repeat(DIRECTORIES_IN_FLIGHT) {
+                    launch(Dispatchers.IO) {
+                        for (nextFile in worklist) {
+                            try {
+                                list(nextFile, filter, worklist, pending)
+                            } finally {
+                                if (pending.decrementAndGet() == 0) worklist.close()
+                            }
                         }
                     }
                 }
@@ -76,4 +82,34 @@ class DeepSearch(
             LOG.warn("Cannot search " + directory.path + ": Permission Denied")
         }
     }
+
+    private suspend fun list(
+        directory: HybridFile,
+        filter: SearchFilter,
+        worklist: Channel<HybridFile>,
+        pending: AtomicInteger,
+    ) {
+        val job = coroutineContext[Job]
+        directory.forEachChildrenFile(
+            applicationContext,
+            SearchParameter.ROOT in searchParameters,
+        ) { file ->
+            if (job?.isActive == false) return@forEachChildrenFile
+            if (!file.isHidden || SearchParameter.SHOW_HIDDEN_FILES in searchParameters) {
+                val resultRange = filter.searchFilter(file.name)
+                if (resultRange != null) {
+                    publishProgress(file, resultRange)
+                }
+                if (file.isDirectory) {
+                    pending.incrementAndGet()
+                    worklist.trySend(file)
+                }
+            }
+        }
+    }
+
+    companion object {
+        /** Listing is I/O bound, so this doesn't need to follow the number of cores. */
+        const val DIRECTORIES_IN_FLIGHT = 4
+    }
 }
@@ -24,6 +24,10 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.FileSearch.SearchFilter
 import com.amaze.filemanager.filesystem.HybridFileParcelable
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
 import java.util.Locale
 import java.util.regex.Pattern
 
@@ -32,26 +36,59 @@ abstract class FileSearch(
     protected val path: String,
     protected val searchParameters: SearchParameters,
 ) {
-    private val mutableFoundFilesLiveData: MutableLiveData<List<SearchResult>> =
-        MutableLiveData()
-    val foundFilesLiveData: LiveData<List<SearchResult>> = mutableFoundFilesLiveData
-    private val foundFilesList: MutableList<SearchResult> = mutableListOf()
+    private val mutableFoundFilesLiveData: MutableLiveData<SearchResults> =
+        object : MutableLiveData<SearchResults>() {
+            override fun setValue(value: SearchResults?) {
+                super.setValue(value)
+                // observers are done with it
+                awaitingDelivery = false
+            }
+        }
+
+    /**
+     * Results found so far. Found files are published in batches, at most [BATCH_WINDOW_MILLIS]
+     * apart, and once more when the search ends.
+     */
+    val foundFilesLiveData: LiveData<SearchResults> = mutableFoundFilesLiveData
+
+    /** Published chunks of results, guarded by itself */
+    private val chunks: MutableList<List<SearchResult>> = mutableListOf()
+    private var publishedCount = 0
+    private var pending: MutableList<SearchResult> = ArrayList()
+
+    /** Whether the last published results didn't reach the observers yet */
+    @Volatile
+    private var awaitingDelivery = false
 
     /**
      * Search for files, whose names match [query], starting from [path] and add them to
      * [foundFilesLiveData]
      */
     suspend fun search() {
-        if (SearchParameter.REGEX !in searchParameters) {
-            // regex not turned on so we use simpleFilter
-            this.search(simpleFilter(query))
-        } else {
-            if (SearchParameter.REGEX_MATCHES !in searchParameters) {
-                // only regex turned on so we use regexFilter
-                this.search(regexFilter(query))
-            } else {
-                // regex turned on and names must match pattern so use regexMatchFilter
-                this.search(regexMatchFilter(query))
+        coroutineScope {
+            val batchTimer =
+                launch {
+                    while (isActive) {
+                        delay(BATCH_WINDOW_MILLIS)
+                        flush(false)
+                    }
+                }
+            try {
+                if (SearchParameter.REGEX !in searchParameters) {
+                    // regex not turned on so we use simpleFilter
+                    search(simpleFilter(query))
+                } else {
+                    if (SearchParameter.REGEX_MATCHES !in searchParameters) {
+                        // only regex turned on so we use regexFilter
+                        search(regexFilter(query))
+                    } else {
+                        // regex turned on and names must match pattern so use regexMatchFilter
+                        search(regexMatchFilter(query))
+                    }
+                }
+            } finally {
+                batchTimer.cancel()
+                flush(true)
             }
         }
     }
@@ -63,14 +100,33 @@ abstract class FileSearch(
     protected abstract suspend fun search(filter: SearchFilter)
 
     /**
-     * Add [file] to list of found files and post it to [foundFilesLiveData]
+     * Add [file] to list of found files, to be posted to [foundFilesLiveData] with the next batch.
+     * May be called from several threads at once.
      */
     protected fun publishProgress(
         file: HybridFileParcelable,
         matchRange: MatchRange,
+        line: String? = null,
     ) {
-        foundFilesList.add(SearchResult(file, matchRange))
-        mutableFoundFilesLiveData.postValue(foundFilesList)
+        synchronized(chunks) {
+            pending.add(SearchResult(file, matchRange, line))
+            if (pending.size >= MAX_BATCH_SIZE) flush(false)
+        }
+    }
+
+    /**
+     * Publish the files found since last time. Unless [force]d, waits for observers to be done
+     * with what was published before, letting the batch grow meanwhile.
+     */
+    private fun flush(force: Boolean) {
+        synchronized(chunks) {
+            if (pending.isEmpty() || (!force && awaitingDelivery)) return
+            chunks.add(pending)
+            publishedCount += pending.size
+            pending = ArrayList()
+            awaitingDelivery = true
+            mutableFoundFilesLiveData.postValue(SearchResults(chunks.toList(), publishedCount))
+        }
     }
 
     private fun simpleFilter(query: String): SearchFilter =
@@ -138,6 +194,14 @@ abstract class FileSearch(
         return stringBuilder.toString()
     }
 
+    companion object {
+        /** Longest time found files wait to be published */
+        const val BATCH_WINDOW_MILLIS = 100L
+
+        /** Number of found files published right away, unless observers are lagging */
+        const val MAX_BATCH_SIZE = 256
+    }
+
     fun interface SearchFilter {
         /**
          * If the file with the given [fileName] fulfills some predicate, returns the part that fulfills the predicate.
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
+
+import com.amaze.filemanager.filesystem.RootHelper
+import com.amaze.filemanager.filesystem.files.FilenameIndex
+import kotlinx.coroutines.Job
+import java.io.File
+import kotlin.coroutines.coroutineContext
+
+/**
+ * Search the names in a [FilenameIndex], which includes files the MediaStore doesn't know about.
+ * Found files are checked to still exist, as the index may be a little behind.
+ */
+class FilenameIndexSearch(
+    query: String,
+    path: String,
+    searchParameters: SearchParameters,
+    private val index: FilenameIndex,
+) : FileSearch(query, path, searchParameters) {
+    override suspend fun search(filter: SearchFilter) {
+        val job = coroutineContext[Job]
+        index.search(
+            path,
+            requiredLiterals(query, SearchParameter.REGEX in searchParameters),
+            SearchParameter.SHOW_HIDDEN_FILES in searchParameters,
+        ) { directory, name ->
+            val resultRange = filter.searchFilter(name)
+            if (resultRange != null) {
+                val file = File(directory, name)
+                if (file.exists()) {
+                    publishProgress(RootHelper.generateBaseFile(file, true), resultRange)
+                }
+            }
+            job?.isActive != false
+        }
+    }
+
+    companion object {
+        /** Regular expression syntax which may make any literal optional */
+        private const val OPTIONAL_SYNTAX = "\\|()[]{}"
+
+        /**
+         * Parts of [query] that any matching name or line contains, ignoring case.
+         */
+        @JvmStatic
+        fun requiredLiterals(
+            query: String,
+            isRegex: Boolean,
+        ): List<String> =
+            when {
+                !isRegex -> listOf(query)
+                query.any { it in OPTIONAL_SYNTAX } -> emptyList()
+                // '*' and '?' are wildcards, see FileSearch.bashRegexToJava
+                else -> query.split('.', '*', '?', '^', '$', '+').filter { it.isNotEmpty() }
+            }
+    }
+}
@@ -35,15 +35,12 @@ class IndexedSearch(
 ) : FileSearch(query, path, searchParameters) {
     override suspend fun search(filter: SearchFilter) {
         if (cursor.count > 0 && cursor.moveToFirst()) {
+            val dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DATA)
+            val displayNameColumn =
+                cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DISPLAY_NAME)
             do {
-                val nextPath =
-                    cursor.getString(
-                        cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DATA),
-                    )
-                val displayName =
-                    cursor.getString(
-                        cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DISPLAY_NAME),
-                    )
+                val nextPath = cursor.getString(dataColumn)
+                val displayName = cursor.getString(displayNameColumn)
                 if (nextPath != null && displayName != null && nextPath.contains(path)) {
                     val resultRange = filter.searchFilter(displayName)
                     if (resultRange != null) {
@@ -62,4 +59,90 @@ class IndexedSearch(
 
         cursor.close()
     }
+
+    /**
+     * Selection for a MediaStore query, as in
+     * [android.content.ContentResolver.query]. Both are null to select everything.
+     */
+    data class Selection(val selection: String?, val selectionArgs: Array<String>?) {
+        override fun equals(other: Any?): Boolean =
+            other is Selection &&
+                selection == other.selection &&
+                selectionArgs.contentEquals(other.selectionArgs)
+
+        override fun hashCode(): Int = 31 * selection.hashCode() + selectionArgs.contentHashCode()
+    }
+
+    companion object {
+        private const val LIKE_ESCAPE = '\\'
+
+        /** Regular expression syntax besides the '*', '?' and '.' wildcards */
+        private const val REGEX_SYNTAX = "\\^$+|()[]{}"
+
+        /**
+         * Selection of the MediaStore files below [path] whose names may match [query], so that
+         * they don't all have to go through [FileSearch.SearchFilter]. Names are only narrowed
+         * for ASCII queries, as LIKE only ignores the case of ASCII letters, and for regular
+         * expressions only if the query uses no syntax but wildcards.
+         */
+        @JvmStatic
+        fun selectionOf(
+            query: String,
+            path: String,
+            searchParameters: SearchParameters,
+        ): Selection {
+            val clauses = ArrayList<String>()
+            val args = ArrayList<String>()
+            val trimmedPath = path.trimEnd('/')
+            if (trimmedPath.isNotEmpty()) {
+                clauses.add(MediaStore.Files.FileColumns.DATA + " LIKE ? ESCAPE '$LIKE_ESCAPE'")
+                args.add(escapeLike(trimmedPath) + "/%")
+            }
+            namePatternOf(query, searchParameters)?.let {
+                clauses.add(
+                    MediaStore.Files.FileColumns.DISPLAY_NAME + " LIKE ? ESCAPE '$LIKE_ESCAPE'",
+                )
+                args.add(it)
+            }
+            return if (clauses.isEmpty()) {
+                Selection(null, null)
+            } else {
+                Selection(clauses.joinToString(" AND "), args.toTypedArray())
+            }
+        }
+
+        private fun namePatternOf(
+            query: String,
+            searchParameters: SearchParameters,
+        ): String? {
+            if (query.isEmpty() || query.any { it.code > 0x7f }) return null
+            if (SearchParameter.REGEX !in searchParameters) {
+                return "%" + escapeLike(query) + "%"
+            }
+            if (query.any { it in REGEX_SYNTAX }) return null
+            // wildcards match word chars only, LIKE wildcards any char, so this selects more
+            val pattern =
+                escapeLike(query).map {
+                    when (it) {
+                        '*' -> '%'
+                        '?', '.' -> '_'
+                        else -> it
+                    }
+                }.joinToString("")
+            return if (SearchParameter.REGEX_MATCHES in searchParameters) {
+                pattern
+            } else {
+                "%$pattern%"
+            }
+        }
+
+        private fun escapeLike(s: String): String {
+            val escaped = StringBuilder(s.length)
+            for (c in s) {
+                if (c == LIKE_ESCAPE || c == '%' || c == '_') escaped.append(LIKE_ESCAPE)
+                escaped.append(c)
+            }
+            return escaped.toString()
+        }
+    }
 }
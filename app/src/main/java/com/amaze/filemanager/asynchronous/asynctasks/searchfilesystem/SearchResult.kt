@@ -22,7 +22,15 @@ package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
 
 import com.amaze.filemanager.filesystem.HybridFileParcelable
 
-data class SearchResult(val file: HybridFileParcelable, val matchRange: MatchRange)
+/**
+ * A [file] found by a search. [matchRange] is the part of its name that matched, or of [line] if
+ * it was found by its content, [line] then being the first line that matched.
+ */
+data class SearchResult(
+    val file: HybridFileParcelable,
+    val matchRange: MatchRange,
+    val line: String? = null,
+)
 
 typealias MatchRange = IntProgression
 
@@ -38,10 +38,13 @@ class SearchResultListSorter(
         Comparator { o1, o2 ->
             val currentTime = Date().time
             val comparator =
-                compareBy<SearchResult> { (item, matchRange) ->
+                compareBy<SearchResult> { (item, matchRange, line) ->
+                    // the name, or the line for a match in the content
+                    val matchedText = line ?: item.getParcelableName()
+
                     // the match percentage of the search term in the name
                     val matchPercentageScore =
-                        matchRange.size().toDouble() / item.getParcelableName().length.toDouble()
+                        matchRange.size().toDouble() / matchedText.length.toDouble()
 
                     // if the name starts with the search term
                     val startScore = (matchRange.first == 0).toInt()
@@ -49,7 +52,7 @@ class SearchResultListSorter(
                     // if the search term is surrounded by separators
                     // e.g. "my-cat" more relevant than "mysterious" for search term "my"
                     val wordScore =
-                        item.getParcelableName().split('-', '_', '.', ' ').any {
+                        matchedText.split('-', '_', '.', ' ').any {
                             it.contentEquals(
                                 searchTerm,
                                 ignoreCase = true,
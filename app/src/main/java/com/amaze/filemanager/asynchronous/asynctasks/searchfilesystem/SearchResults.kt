@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
+
+/**
+ * Results of a search found so far, made of chunks which never change once published. A later
+ * [SearchResults] of the same search starts with all the results of an earlier one, so whoever
+ * already took the first results only needs to look past them.
+ */
+class SearchResults internal constructor(
+    private val chunks: List<List<SearchResult>>,
+    override val size: Int,
+) : AbstractList<SearchResult>() {
+    /** Index of the first result of each chunk */
+    private val offsets =
+        IntArray(chunks.size).also {
+            var offset = 0
+            for (i in chunks.indices) {
+                it[i] = offset
+                offset += chunks[i].size
+            }
+        }
+
+    override fun get(index: Int): SearchResult {
+        if (index < 0 || index >= size) {
+            throw IndexOutOfBoundsException("Index: $index, Size: $size")
+        }
+        var chunk = offsets.binarySearch(index)
+        if (chunk < 0) chunk = -chunk - 2
+        return chunks[chunk][index - offsets[chunk]]
+    }
+
+    companion object {
+        @JvmField
+        val EMPTY = SearchResults(emptyList(), 0)
+    }
+}
@@ -26,66 +26,141 @@ import android.os.Message
 import android.view.View
 import androidx.recyclerview.widget.RecyclerView
 import com.amaze.filemanager.adapters.RecyclerAdapter
+import com.amaze.filemanager.adapters.data.LayoutElementParcelable
+import com.amaze.filemanager.database.SortHandler
 import com.amaze.filemanager.filesystem.CustomFileObserver
-import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.files.FileListSorter
+import com.amaze.filemanager.filesystem.files.FileUtils
 import com.amaze.filemanager.ui.fragments.MainFragment
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import java.io.File
 import java.lang.ref.WeakReference
+import java.util.Collections
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 
+/**
+ * Applies the changes reported by [CustomFileObserver] to the files shown by a [MainFragment].
+ *
+ * Changes reported close together are applied at once. Elements of the changed files are created
+ * in the background, then the list is patched looking files up by path, notifying the adapter of
+ * the items concerned only.
+ */
 class FileHandler(
     mainFragment: MainFragment,
     private val listView: RecyclerView,
     private val useThumbs: Boolean,
+    private val showHidden: Boolean,
 ) : Handler(
         Looper.getMainLooper(),
     ) {
+    companion object {
+        /** Changes reported within this delay are applied together. */
+        private const val COALESCE_DELAY_MILLIS = 100L
+
+        private val executor: ExecutorService = Executors.newSingleThreadExecutor()
+    }
+
     private val mainFragment: WeakReference<MainFragment> = WeakReference(mainFragment)
     private val log: Logger = LoggerFactory.getLogger(FileHandler::class.java)
 
+    /** Names of the files changed since the changes were last applied. */
+    private val pendingNames = LinkedHashSet<String>()
+    private val applyPendingNames = Runnable { applyPendingNames() }
+
     override fun handleMessage(msg: Message) {
         super.handleMessage(msg)
         val main = mainFragment.get() ?: return
-        val mainFragmentViewModel = main.mainFragmentViewModel ?: return
-        val elementsList = main.elementsList ?: return
         if (main.activity == null) {
             return
         }
 
-        val path = msg.obj as? String
         when (msg.what) {
             CustomFileObserver.GOBACK -> {
                 main.goBack()
             }
-            CustomFileObserver.NEW_ITEM -> {
+            CustomFileObserver.NEW_ITEM,
+            CustomFileObserver.MODIFIED_ITEM,
+            CustomFileObserver.DELETED_ITEM,
+            -> {
+                val path = msg.obj as? String
                 if (path == null) {
                     log.error("Path is empty for file")
                     return
                 }
-                val fileCreated =
-                    HybridFile(
-                        mainFragmentViewModel.openMode,
-                        "${main.currentPath}/$path",
-                    )
-                val newElement = fileCreated.generateLayoutElement(main.requireContext(), useThumbs)
-                main.elementsList?.add(newElement)
-            }
-            CustomFileObserver.DELETED_ITEM -> {
-                val index =
-                    elementsList.withIndex().find {
-                        File(it.value.desc).name == path
-                    }?.index
-
-                if (index != null) {
-                    main.elementsList?.removeAt(index)
+                if (pendingNames.isEmpty()) {
+                    postDelayed(applyPendingNames, COALESCE_DELAY_MILLIS)
                 }
+                pendingNames.add(path)
             }
             else -> {
                 super.handleMessage(msg)
-                return
             }
         }
+    }
+
+    private fun applyPendingNames() {
+        val main = mainFragment.get() ?: return
+        val directory = main.currentPath ?: return
+        val context = main.context?.applicationContext ?: return
+        val names = ArrayList(pendingNames)
+        pendingNames.clear()
+
+        executor.execute {
+            // whether a file was created, modified or deleted, only its current state matters
+            val changed = ArrayList<LayoutElementParcelable>()
+            val removed = HashSet<String>()
+            for (name in names) {
+                val file = File(directory, name)
+                val element =
+                    if (file.exists()) {
+                        FileUtils.generateListedElement(context, file, showHidden, useThumbs)
+                    } else {
+                        null
+                    }
+                if (element != null) {
+                    changed.add(element)
+                } else {
+                    removed.add(file.path)
+                }
+            }
+            post { applyChanges(directory, changed, removed) }
+        }
+    }
+
+    private fun applyChanges(
+        directory: String,
+        changed: List<LayoutElementParcelable>,
+        removed: Set<String>,
+    ) {
+        val main = mainFragment.get() ?: return
+        val mainFragmentViewModel = main.mainFragmentViewModel ?: return
+        val elementsList = main.elementsList ?: return
+        if (main.activity == null || directory != main.currentPath) {
+            return
+        }
+
+        // changed files are inserted again, their date or size may sort them elsewhere now
+        val replaced = changed.mapTo(HashSet()) { it.desc }
+        elementsList.removeAll { it.desc in removed || it.desc in replaced }
+        // files go where sorting the list again would put them, after the back element if any
+        val sorter =
+            FileListSorter(
+                mainFragmentViewModel.dsort,
+                SortHandler.getSortType(main.requireContext(), directory),
+            )
+        val start = if (elementsList.firstOrNull()?.isBack == true) 1 else 0
+        for (element in changed) {
+            val search =
+                Collections.binarySearch(
+                    elementsList.subList(start, elementsList.size),
+                    element,
+                    sorter,
+                )
+            elementsList.add(start + if (search < 0) -search - 1 else search, element)
+        }
+
         if (listView.visibility == View.VISIBLE) {
             if (elementsList.size == 0) {
                 // no item left in list, recreate views
@@ -94,19 +169,18 @@ class FileHandler(
                     !mainFragmentViewModel.isList,
                 )
             } else {
-                listView.adapter?.let {
-                    val itemList = main.elementsList ?: listOf()
-                    // we already have some elements in list view, invalidate the adapter
-                    (listView.adapter as RecyclerAdapter).setItems(listView, itemList)
-                }
+                (listView.adapter as? RecyclerAdapter)?.applyChanges(
+                    listView,
+                    elementsList,
+                    changed,
+                    removed,
+                    sorter,
+                )
             }
         } else {
             // there was no list view, means the directory was empty
             main.loadlist(main.currentPath, true, mainFragmentViewModel.openMode, true)
         }
-        main.currentPath?.let {
-            main.mainActivityViewModel?.evictPathFromListCache(it)
-        }
         main.computeScroll()
     }
 }
@@ -55,12 +55,19 @@ public class ServiceWatcherUtil {
   public static final UpdatePosition UPDATE_POSITION =
       (toAdd -> ServiceWatcherUtil.position += toAdd);
 
+  /**
+   * Variant of {@link #UPDATE_POSITION} safe to be called from more than one thread, e.g. by the
+   * workers of a {@link com.amaze.filemanager.filesystem.files.ParallelCopyEngine}.
+   */
+  public static final UpdatePosition CONCURRENT_UPDATE_POSITION =
+      ServiceWatcherUtil::addToPosition;
+
   public static int state = STATE_UNSET;
 
   /**
-   * Position of byte in total byte size to be copied. This variable CANNOT be updated from more
-   * than one thread simultaneously. This variable should only be updated from an {@link
-   * AbstractProgressiveService}'s background thread.
+   * Position of byte in total byte size to be copied. This variable CANNOT be updated directly from
+   * more than one thread simultaneously. This variable should only be updated from an {@link
+   * AbstractProgressiveService}'s background thread, or through {@link #addToPosition(long)}.
    *
    * @see #postWaiting(Context)
    */
@@ -85,6 +92,14 @@ public class ServiceWatcherUtil {
     haltCounter = -1;
   }
 
+  /**
+   * Atomically increase {@link #position}. Use this instead of updating it directly when more than
+   * one thread reports progress.
+   */
+  public static synchronized void addToPosition(long toAdd) {
+    position += toAdd;
+  }
+
   /**
    * Watches over the service progress without interrupting the worker thread in respective services
    * Method frees up all the resources and handlers after operation completes.
@@ -166,7 +181,8 @@ public class ServiceWatcherUtil {
 
       progressHandler.addWrittenLength(position);
 
-      if (position == progressHandler.getTotalSize() || progressHandler.getCancelled()) {
+      if ((position == progressHandler.getTotalSize() && progressHandler.isTotalSizeKnown())
+          || progressHandler.getCancelled()) {
         // process complete, free up resources
         // we've finished the work or process cancelled
         if (!pendingIntents.isEmpty()) pendingIntents.remove();
@@ -187,7 +187,8 @@ public abstract class AbstractProgressiveService extends Service
 
         String remainingTime;
         if (speed != 0) {
-          remainingTime = Utils.formatTimer(Math.round((totalSize - writtenSize) / speed));
+          remainingTime =
+              Utils.formatTimer(Math.round(Math.max(totalSize - writtenSize, 0) / speed));
         } else {
           remainingTime = getString(R.string.unknown);
         }
@@ -208,7 +209,8 @@ public abstract class AbstractProgressiveService extends Service
         getNotificationManager().notify(getNotificationId(), getNotificationBuilder().build());
       }
 
-      if (writtenSize == totalSize || totalSize == 0) {
+      if (getProgressHandler().isTotalSizeKnown()
+          && (writtenSize == totalSize || totalSize == 0)) {
         if (move && getNotificationId() == NotificationConstants.COPY_ID) {
 
           // mBuilder.setContentTitle(getString(R.string.move_complete));
@@ -24,6 +24,7 @@ import static android.app.PendingIntent.FLAG_UPDATE_CURRENT;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +34,7 @@ import com.amaze.filemanager.application.AppConfig;
 import com.amaze.filemanager.asynchronous.asynctasks.DeleteTask;
 import com.amaze.filemanager.asynchronous.management.ServiceWatcherUtil;
 import com.amaze.filemanager.database.CryptHandler;
+import com.amaze.filemanager.database.TransferJournal;
 import com.amaze.filemanager.database.models.explorer.EncryptedEntry;
 import com.amaze.filemanager.fileoperations.exceptions.ShellNotRunningException;
 import com.amaze.filemanager.fileoperations.filesystem.OpenMode;
@@ -41,12 +43,14 @@ import com.amaze.filemanager.filesystem.HybridFile;
 import com.amaze.filemanager.filesystem.HybridFileParcelable;
 import com.amaze.filemanager.filesystem.Operations;
 import com.amaze.filemanager.filesystem.files.CryptUtil;
-import com.amaze.filemanager.filesystem.files.FileUtils;
 import com.amaze.filemanager.filesystem.files.GenericCopyUtil;
 import com.amaze.filemanager.filesystem.files.MediaConnectionUtils;
+import com.amaze.filemanager.filesystem.files.ParallelCopyEngine;
+import com.amaze.filemanager.filesystem.files.TotalSizeWalker;
 import com.amaze.filemanager.filesystem.root.CopyFilesCommand;
 import com.amaze.filemanager.filesystem.root.MoveFileCommand;
 import com.amaze.filemanager.ui.activities.MainActivity;
+import com.amaze.filemanager.ui.fragments.preferencefragments.PreferencesConstants;
 import com.amaze.filemanager.ui.notifications.NotificationConstants;
 import com.amaze.filemanager.utils.DatapointParcelable;
 import com.amaze.filemanager.utils.ObtainableServiceBinder;
@@ -69,6 +73,9 @@ import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 import androidx.preference.PreferenceManager;
 
+import kotlin.Unit;
+import kotlin.jvm.functions.Function0;
+
 public class CopyService extends AbstractProgressiveService {
   private static final Logger LOG = LoggerFactory.getLogger(CopyService.class);
   public static final String TAG_IS_ROOT_EXPLORER = "is_root";
@@ -77,6 +84,13 @@ public class CopyService extends AbstractProgressiveService {
   public static final String TAG_COPY_OPEN_MODE = "MODE"; // target open mode
   public static final String TAG_COPY_MOVE = "move";
   private static final String TAG_COPY_START_ID = "id";
+  private static final String TAG_COPY_REDELIVERED = "redelivered";
+
+  /**
+   * Timestamps of a copied file and its source may differ this much, as not every filesystem
+   * keeps milliseconds
+   */
+  private static final long LAST_MODIFIED_TOLERANCE = 2000;
 
   public static final String TAG_BROADCAST_COPY_CANCEL = "copycancel";
 
@@ -159,14 +173,16 @@ public class CopyService extends AbstractProgressiveService {
     b.putString(TAG_COPY_TARGET, targetPath);
     b.putInt(TAG_COPY_OPEN_MODE, mode);
     b.putParcelableArrayList(TAG_COPY_SOURCES, files);
+    b.putBoolean(TAG_COPY_REDELIVERED, (flags & START_FLAG_REDELIVERY) != 0);
 
     super.onStartCommand(intent, flags, startId);
     super.progressHalted();
     // going async
     new DoInBackground(isRootExplorer).execute(b);
 
-    // If we get killed, after returning from here, restart
-    return START_NOT_STICKY;
+    // If we get killed, after returning from here, restart and redeliver the intent: files that
+    // were done already are skipped, interrupted ones resume from the transfer journal
+    return START_REDELIVER_INTENT;
   }
 
   @Override
@@ -236,6 +252,9 @@ public class CopyService extends AbstractProgressiveService {
     private final boolean isRootExplorer;
     private int sourceProgress = 0;
 
+    /** Finds the total size while copying, see {@link TotalSizeWalker} */
+    private TotalSizeWalker sizeWalker;
+
     private DoInBackground(boolean isRootExplorer) {
       this.isRootExplorer = isRootExplorer;
     }
@@ -245,24 +264,40 @@ public class CopyService extends AbstractProgressiveService {
       ArrayList<HybridFileParcelable> sourceFiles = p1[0].getParcelableArrayList(TAG_COPY_SOURCES);
 
       // setting up service watchers and initial data packages
-      // finding total size on background thread (this is necessary condition for SMB!)
-      long totalSize = FileUtils.getTotalBytes(sourceFiles, c);
+      // finding total size on background threads (this is necessary condition for SMB!), while
+      // copying already, the total keeps growing until the walker is done
+      sizeWalker = new TotalSizeWalker(c, progressHandler);
+      sizeWalker.start(sourceFiles);
       int totalSourceFiles = sourceFiles.size();
 
       progressHandler.setSourceSize(totalSourceFiles);
-      progressHandler.setTotalSize(totalSize);
 
       progressHandler.setProgressListener((speed) -> publishResults(speed, false, move));
 
       watcherUtil = new ServiceWatcherUtil(progressHandler);
 
-      addFirstDatapoint(sourceFiles.get(0).getName(c), sourceFiles.size(), totalSize, move);
+      addFirstDatapoint(
+          sourceFiles.get(0).getName(c),
+          sourceFiles.size(),
+          progressHandler.getTotalSize(),
+          move);
 
       targetPath = p1[0].getString(TAG_COPY_TARGET);
       move = p1[0].getBoolean(TAG_COPY_MOVE);
       OpenMode openMode = OpenMode.getOpenMode(p1[0].getInt(TAG_COPY_OPEN_MODE));
-      copy = new Copy();
-      copy.execute(sourceFiles, targetPath, move, openMode);
+      copy = new Copy(p1[0].getBoolean(TAG_COPY_REDELIVERED));
+      try {
+        copy.execute(sourceFiles, targetPath, move, openMode);
+      } finally {
+        sizeWalker.cancel();
+      }
+      if (copy.failedFOps.size() == 0
+          && !progressHandler.getCancelled()
+          && !progressHandler.isTotalSizeKnown()) {
+        // everything got copied before the walker was done, so the total is what was copied
+        progressHandler.setTotalSize(ServiceWatcherUtil.position);
+        progressHandler.setTotalSizeKnown(true);
+      }
 
       if (copy.failedFOps.size() == 0) {
 
@@ -347,9 +382,36 @@ public class CopyService extends AbstractProgressiveService {
       ArrayList<HybridFile> failedFOps;
       ArrayList<HybridFileParcelable> toDelete;
 
-      Copy() {
+      /** Sources moved by renaming them, there's nothing left to delete afterwards */
+      private final ArrayList<HybridFileParcelable> renamed = new ArrayList<>();
+
+      /** Where each of {@link #renamed} was moved to */
+      private final ArrayList<HybridFile> renamedTargets = new ArrayList<>();
+
+      /**
+       * Directory timestamps can only be restored after all their children were written, so they
+       * are applied once the {@link ParallelCopyEngine} finished. Deepest directories come first.
+       */
+      private final ArrayList<Runnable> directoryTimestamps = new ArrayList<>();
+
+      /** Sources a killed instance of this service moved already, nothing is left to delete */
+      private final ArrayList<HybridFileParcelable> moved = new ArrayList<>();
+
+      /** Whether copied files are checked against their source, see {@link GenericCopyUtil} */
+      private final boolean verify;
+
+      /** Whether a killed instance of this service already did part of this operation */
+      private final boolean redelivered;
+
+      Copy(boolean redelivered) {
+        this.redelivered = redelivered;
         failedFOps = new ArrayList<>();
         toDelete = new ArrayList<>();
+        verify =
+            PreferenceManager.getDefaultSharedPreferences(c)
+                .getBoolean(
+                    PreferencesConstants.PREFERENCE_VERIFY_COPY,
+                    PreferencesConstants.DEFAULT_PREFERENCE_VERIFY_COPY);
       }
 
       /**
@@ -366,69 +428,107 @@ public class CopyService extends AbstractProgressiveService {
         // initial start of copy, initiate the watcher
         watcherUtil.watch(CopyService.this);
 
-        if (FileProperties.checkFolder((targetPath), c) == 1) {
-          for (int i = 0; i < sourceFiles.size(); i++) {
-            sourceProgress = i;
-            HybridFileParcelable f1 = (sourceFiles.get(i));
-
-            try {
+        // either source or target are in root, copied together after the others
+        final ArrayList<HybridFileParcelable> rootSources = new ArrayList<>();
+        final ArrayList<HybridFile> rootTargets = new ArrayList<>();
 
-              HybridFile hFile;
-              if (targetPath.contains(getExternalCacheDir().getPath())) {
-                // the target open mode is not the one we're currently in!
-                // we're processing the file for cache
-                hFile =
-                    new HybridFile(
-                        OpenMode.FILE, targetPath, sourceFiles.get(i).getName(c), f1.isDirectory());
-              } else {
+        if (FileProperties.checkFolder((targetPath), c) == 1) {
+          final ParallelCopyEngine engine = new ParallelCopyEngine(progressHandler);
+          final ParallelCopyEngine.Job[] jobs = new ParallelCopyEngine.Job[sourceFiles.size()];
+          try {
+            for (int i = 0; i < sourceFiles.size(); i++) {
+              sourceProgress = i;
+              HybridFileParcelable f1 = (sourceFiles.get(i));
 
-                // the target open mode is where we're currently at
-                hFile =
-                    new HybridFile(
-                        mode, targetPath, sourceFiles.get(i).getName(c), f1.isDirectory());
+              if (engine.isAborted()) {
+                break;
               }
 
-              if (!progressHandler.getCancelled()) {
+              ParallelCopyEngine.Job job = engine.newJob();
+              jobs[i] = job;
+              try {
+
+                HybridFile hFile;
+                if (targetPath.contains(getExternalCacheDir().getPath())) {
+                  // the target open mode is not the one we're currently in!
+                  // we're processing the file for cache
+                  hFile =
+                      new HybridFile(
+                          OpenMode.FILE,
+                          targetPath,
+                          sourceFiles.get(i).getName(c),
+                          f1.isDirectory());
+                } else {
+
+                  // the target open mode is where we're currently at
+                  hFile =
+                      new HybridFile(
+                          mode, targetPath, sourceFiles.get(i).getName(c), f1.isDirectory());
+                }
 
                 if ((f1.getMode() == OpenMode.ROOT || mode == OpenMode.ROOT) && isRootExplorer) {
                   // either source or target are in root
                   LOG.debug("either source or target are in root");
                   progressHandler.setSourceFilesProcessed(++sourceProgress);
-                  copyRoot(f1, hFile, move);
+                  rootSources.add(f1);
+                  rootTargets.add(hFile);
                   continue;
                 }
                 progressHandler.setSourceFilesProcessed(++sourceProgress);
-                copyFiles((f1), hFile, progressHandler);
-              } else {
+                if (redelivered && move && !f1.exists(c)) {
+                  // moved before the service got killed, the walker didn't count it either
+                  moved.add(f1);
+                  continue;
+                }
+                if (move && GenericCopyUtil.renameWithinFilesystem(f1, hFile)) {
+                  // source and target are on the same filesystem, no need to copy any byte
+                  sizeWalker.onSizeOf(
+                      f1,
+                      size -> {
+                        ServiceWatcherUtil.addToPosition(size);
+                        return Unit.INSTANCE;
+                      });
+                  renamed.add(f1);
+                  renamedTargets.add(hFile);
+                  continue;
+                }
+                copyFiles((f1), hFile, engine, job);
+              } catch (Exception e) {
+                LOG.error("Got exception checkout: " + f1.getPath(), e);
+                engine.reportFailure(job, e);
                 break;
               }
-            } catch (Exception e) {
-              LOG.error("Got exception checkout: " + f1.getPath(), e);
+            }
+          } finally {
+            engine.awaitCompletion();
+          }
+          copyRoot(rootSources, rootTargets, move);
+          scanRenamed();
 
+          for (Runnable directoryTimestamp : directoryTimestamps) {
+            directoryTimestamp.run();
+          }
+
+          // a failure stops the whole operation, everything not fully copied by then failed
+          for (int i = 0; i < sourceFiles.size(); i++) {
+            ParallelCopyEngine.Job job = jobs[i];
+            if (job == null ? engine.getFailure() != null : job.isFailed()) {
               failedFOps.add(sourceFiles.get(i));
-              for (int j = i + 1; j < sourceFiles.size(); j++) failedFOps.add(sourceFiles.get(j));
-              break;
             }
           }
-
         } else if (isRootExplorer) {
           for (int i = 0; i < sourceFiles.size(); i++) {
-            if (!progressHandler.getCancelled()) {
-              HybridFile hFile =
-                  new HybridFile(
-                      mode,
-                      targetPath,
-                      sourceFiles.get(i).getName(c),
-                      sourceFiles.get(i).isDirectory());
-              progressHandler.setSourceFilesProcessed(++sourceProgress);
-              progressHandler.setFileName(sourceFiles.get(i).getName(c));
-              copyRoot(sourceFiles.get(i), hFile, move);
-              /*if(checkFiles(new HybridFile(sourceFiles.get(i).getMode(),path),
-              new HybridFile(OpenMode.ROOT,targetPath+"/"+name))){
-                  failedFOps.add(sourceFiles.get(i));
-              }*/
-            }
+            rootSources.add(sourceFiles.get(i));
+            rootTargets.add(
+                new HybridFile(
+                    mode,
+                    targetPath,
+                    sourceFiles.get(i).getName(c),
+                    sourceFiles.get(i).isDirectory()));
           }
+          sourceProgress += sourceFiles.size();
+          progressHandler.setSourceFilesProcessed(sourceProgress);
+          copyRoot(rootSources, rootTargets, move);
         } else {
           failedFOps.addAll(sourceFiles);
           return;
@@ -439,39 +539,77 @@ public class CopyService extends AbstractProgressiveService {
         if (move && !progressHandler.getCancelled()) {
           ArrayList<HybridFileParcelable> toDelete = new ArrayList<>();
           for (HybridFileParcelable a : sourceFiles) {
-            if (!failedFOps.contains(a)) toDelete.add(a);
+            if (!failedFOps.contains(a) && !renamed.contains(a) && !moved.contains(a)) {
+              toDelete.add(a);
+            }
           }
           new DeleteTask(c, true).execute((toDelete));
         }
       }
 
-      void copyRoot(HybridFileParcelable sourceFile, HybridFile targetFile, boolean move) {
+      /**
+       * Lets MediaStore know about renamed files, as they are neither deleted by {@link DeleteTask}
+       * nor scanned after copying: the old paths are gone and the new ones appeared.
+       */
+      private void scanRenamed() {
+        if (renamed.isEmpty()) {
+          return;
+        }
+
+        ArrayList<HybridFile> paths = new ArrayList<>(renamed.size() + renamedTargets.size());
+        paths.addAll(renamed);
+        paths.addAll(renamedTargets);
+        MediaConnectionUtils.scanFile(c, paths.toArray(new HybridFile[0]));
+      }
+
+      /**
+       * Copies or moves files where either source or target are in root, in as few shell round
+       * trips as possible. Those that fail end up in {@link #failedFOps}.
+       */
+      void copyRoot(
+          List<HybridFileParcelable> sourceFiles, List<HybridFile> targetFiles, boolean move) {
+        if (sourceFiles.isEmpty()) {
+          return;
+        }
 
+        List<String> sources = new ArrayList<>(sourceFiles.size());
+        List<String> targets = new ArrayList<>(targetFiles.size());
+        for (int i = 0; i < sourceFiles.size(); i++) {
+          sources.add(sourceFiles.get(i).getPath());
+          targets.add(targetFiles.get(i).getPath());
+        }
+        Function0<Boolean> isCancelled = () -> progressHandler.getCancelled();
         try {
-          if (!move) {
-            CopyFilesCommand.INSTANCE.copyFiles(sourceFile.getPath(), targetFile.getPath());
-          } else {
-            MoveFileCommand.INSTANCE.moveFile(sourceFile.getPath(), targetFile.getPath());
+          boolean[] succeeded =
+              move
+                  ? MoveFileCommand.INSTANCE.moveFiles(sources, targets, isCancelled)
+                  : CopyFilesCommand.INSTANCE.copyFiles(sources, targets, isCancelled);
+          for (int i = 0; i < sourceFiles.size(); i++) {
+            if (succeeded[i]) {
+              ServiceWatcherUtil.addToPosition(sourceFiles.get(i).getSize());
+            } else {
+              failedFOps.add(sourceFiles.get(i));
+            }
           }
-          ServiceWatcherUtil.position += sourceFile.getSize();
         } catch (ShellNotRunningException e) {
-          LOG.warn(
-              "failed to copy root file source: {} dest: {}",
-              sourceFile.getPath(),
-              targetFile.getPath(),
-              e);
-          failedFOps.add(sourceFile);
+          LOG.warn("failed to copy {} root files", sources.size(), e);
+          failedFOps.addAll(sourceFiles);
         }
-        MediaConnectionUtils.scanFile(c, new HybridFile[] {targetFile});
+        MediaConnectionUtils.scanFile(c, targetFiles.toArray(new HybridFile[0]));
       }
 
+      /**
+       * Walks the source tree on the calling thread, creating directories as it goes, and hands
+       * every regular file over to the given {@link ParallelCopyEngine}.
+       */
       private void copyFiles(
           final HybridFileParcelable sourceFile,
           final HybridFile targetFile,
-          final ProgressHandler progressHandler)
+          final ParallelCopyEngine engine,
+          final ParallelCopyEngine.Job job)
           throws IOException {
 
-        if (progressHandler.getCancelled()) return;
+        if (engine.isAborted()) return;
         if (sourceFile.isDirectory()) {
 
           if (!targetFile.exists()) {
@@ -486,9 +624,8 @@ public class CopyService extends AbstractProgressiveService {
             failedFOps.add(sourceFile);
             return;
           }
-          targetFile.setLastModified(sourceFile.lastModified());
 
-          if (progressHandler.getCancelled()) return;
+          if (engine.isAborted()) return;
           sourceFile.forEachChildrenFile(
               c,
               false,
@@ -500,32 +637,56 @@ public class CopyService extends AbstractProgressiveService {
                         file.getName(c),
                         file.isDirectory());
                 try {
-                  copyFiles(file, destFile, progressHandler);
-                  destFile.setLastModified(file.lastModified());
+                  copyFiles(file, destFile, engine, job);
                 } catch (IOException e) {
                   throw new IllegalStateException(e); // throw unchecked exception, no throws needed
                 }
               });
+
+          final long lastModified = sourceFile.lastModified();
+          directoryTimestamps.add(() -> targetFile.setLastModified(lastModified));
         } else {
           if (!Operations.isFileNameValid(sourceFile.getName(c))) {
             failedFOps.add(sourceFile);
             return;
           }
+          if (redelivered && isCopiedAlready(sourceFile, targetFile)) {
+            ServiceWatcherUtil.addToPosition(sourceFile.getSize());
+            return;
+          }
 
-          GenericCopyUtil copyUtil = new GenericCopyUtil(c, progressHandler);
-
-          progressHandler.setFileName(sourceFile.getName(c));
-          copyUtil.copy(
+          engine.submit(
+              job,
               sourceFile,
               targetFile,
               () -> {
-                // we ran out of memory to map the whole channel, let's switch to streams
-                AppConfig.toast(c, c.getString(R.string.copy_low_memory));
-              },
-              ServiceWatcherUtil.UPDATE_POSITION);
-          targetFile.setLastModified(sourceFile.lastModified());
+                GenericCopyUtil copyUtil = new GenericCopyUtil(c, progressHandler, verify);
+
+                progressHandler.setFileName(sourceFile.getName(c));
+                copyUtil.copy(
+                    sourceFile,
+                    targetFile,
+                    () -> {
+                      // we ran out of memory to map the whole channel, let's switch to streams
+                      AppConfig.toast(c, c.getString(R.string.copy_low_memory));
+                    },
+                    ServiceWatcherUtil.CONCURRENT_UPDATE_POSITION);
+                targetFile.setLastModified(sourceFile.lastModified());
+              });
         }
       }
+
+      /**
+       * Answers if a killed instance of this service copied sourceFile completely: the copy is as
+       * large as its source, got its timestamp, which happens last, and isn't left to be resumed.
+       */
+      private boolean isCopiedAlready(HybridFileParcelable sourceFile, HybridFile targetFile) {
+        return targetFile.exists(c)
+            && TransferJournal.INSTANCE.findCheckpoint(targetFile.getPath()) == null
+            && targetFile.length(c) == sourceFile.getSize()
+            && Math.abs(targetFile.lastModified() - sourceFile.lastModified())
+                < LAST_MODIFIED_TOLERANCE;
+      }
     }
   }
 
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database
+
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.models.explorer.ChecksumEntry
+import io.reactivex.schedulers.Schedulers
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+
+/**
+ * Remembers checksums of files, so that they are not read again as long as they are unchanged.
+ */
+object ChecksumCache {
+    private val log: Logger = LoggerFactory.getLogger(ChecksumCache::class.java)
+    private val database: ExplorerDatabase = AppConfig.getInstance().explorerDatabase
+
+    /**
+     * Find the checksums recorded for the given path. Returns null if not exist, or if the file
+     * changed size or modification time since.
+     */
+    fun find(
+        path: String,
+        size: Long,
+        lastModified: Long,
+    ): ChecksumEntry? {
+        return runCatching {
+            database.checksumEntryDao().find(path).subscribeOn(Schedulers.io()).blockingGet()
+        }.onFailure {
+            log.warn("failed to read checksums of {}", path, it)
+        }.getOrNull()?.takeIf { it.size == size && it.lastModified == lastModified }
+    }
+
+    /**
+     * Record the checksums of a file, replacing any recorded before.
+     */
+    fun put(entry: ChecksumEntry) {
+        runCatching {
+            database.checksumEntryDao().insert(entry).subscribeOn(Schedulers.io()).blockingAwait()
+        }.onFailure {
+            log.warn("failed to save checksums of {}", entry.path, it)
+        }
+    }
+}
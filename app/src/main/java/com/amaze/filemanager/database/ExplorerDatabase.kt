@@ -27,23 +27,40 @@ import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.migration.Migration
 import androidx.sqlite.db.SupportSQLiteDatabase
+import com.amaze.filemanager.database.daos.ChecksumEntryDao
 import com.amaze.filemanager.database.daos.CloudEntryDao
 import com.amaze.filemanager.database.daos.EncryptedEntryDao
+import com.amaze.filemanager.database.daos.FolderSizeEntryDao
 import com.amaze.filemanager.database.daos.SortDao
 import com.amaze.filemanager.database.daos.TabDao
+import com.amaze.filemanager.database.daos.TransferCheckpointDao
+import com.amaze.filemanager.database.daos.TransferTuningDao
+import com.amaze.filemanager.database.models.explorer.ChecksumEntry
 import com.amaze.filemanager.database.models.explorer.CloudEntry
 import com.amaze.filemanager.database.models.explorer.EncryptedEntry
+import com.amaze.filemanager.database.models.explorer.FolderSizeEntry
 import com.amaze.filemanager.database.models.explorer.Sort
 import com.amaze.filemanager.database.models.explorer.Tab
+import com.amaze.filemanager.database.models.explorer.TransferCheckpoint
+import com.amaze.filemanager.database.models.explorer.TransferTuning
 
 /**
- * Repository for [Tab], [Sort], [EncryptedEntry], [CloudEntry] in
- * explorer.db in Amaze.
+ * Repository for [Tab], [Sort], [EncryptedEntry], [CloudEntry], [TransferCheckpoint],
+ * [ChecksumEntry], [TransferTuning], [FolderSizeEntry] in explorer.db in Amaze.
  *
  * @see RoomDatabase
  */
 @Database(
-    entities = [Tab::class, Sort::class, EncryptedEntry::class, CloudEntry::class],
+    entities = [
+        Tab::class,
+        Sort::class,
+        EncryptedEntry::class,
+        CloudEntry::class,
+        TransferCheckpoint::class,
+        ChecksumEntry::class,
+        TransferTuning::class,
+        FolderSizeEntry::class,
+    ],
     version = ExplorerDatabase.DATABASE_VERSION,
 )
 @Suppress("StringLiteralDuplication", "ComplexMethod", "LongMethod")
@@ -68,13 +85,37 @@ abstract class ExplorerDatabase : RoomDatabase() {
      */
     abstract fun cloudEntryDao(): CloudEntryDao
 
+    /**
+     * Returns DAO for [TransferCheckpoint] objects.
+     */
+    abstract fun transferCheckpointDao(): TransferCheckpointDao
+
+    /**
+     * Returns DAO for [ChecksumEntry] objects.
+     */
+    abstract fun checksumEntryDao(): ChecksumEntryDao
+
+    /**
+     * Returns DAO for [TransferTuning] objects.
+     */
+    abstract fun transferTuningDao(): TransferTuningDao
+
+    /**
+     * Returns DAO for [FolderSizeEntry] objects.
+     */
+    abstract fun folderSizeEntryDao(): FolderSizeEntryDao
+
     companion object {
         private const val DATABASE_NAME = "explorer.db"
-        const val DATABASE_VERSION = 11
+        const val DATABASE_VERSION = 15
         const val TABLE_TAB = "tab"
         const val TABLE_CLOUD_PERSIST = "cloud"
         const val TABLE_ENCRYPTED = "encrypted"
         const val TABLE_SORT = "sort"
+        const val TABLE_TRANSFER_JOURNAL = "transfer_journal"
+        const val TABLE_CHECKSUM_CACHE = "checksum_cache"
+        const val TABLE_TRANSFER_TUNING = "transfer_tuning"
+        const val TABLE_FOLDER_SIZE = "folder_size"
         const val COLUMN_TAB_NO = "tab_no"
         const val COLUMN_PATH = "path"
         const val COLUMN_HOME = "home"
@@ -86,6 +127,25 @@ abstract class ExplorerDatabase : RoomDatabase() {
         const val COLUMN_CLOUD_PERSIST = "persist"
         const val COLUMN_SORT_PATH = "path"
         const val COLUMN_SORT_TYPE = "type"
+        const val COLUMN_TRANSFER_TARGET = "target"
+        const val COLUMN_TRANSFER_SOURCE = "source"
+        const val COLUMN_TRANSFER_SOURCE_SIZE = "source_size"
+        const val COLUMN_TRANSFER_SOURCE_MODIFIED = "source_modified"
+        const val COLUMN_TRANSFER_COMPLETED = "completed"
+        const val COLUMN_CHECKSUM_PATH = "path"
+        const val COLUMN_CHECKSUM_SIZE = "size"
+        const val COLUMN_CHECKSUM_MODIFIED = "modified"
+        const val COLUMN_CHECKSUM_MD5 = "md5"
+        const val COLUMN_CHECKSUM_SHA1 = "sha1"
+        const val COLUMN_CHECKSUM_SHA256 = "sha256"
+        const val COLUMN_CHECKSUM_CRC32 = "crc32"
+        const val COLUMN_TUNING_DEVICES = "devices"
+        const val COLUMN_TUNING_BLOCK_SIZE = "block_size"
+        const val COLUMN_TUNING_THROUGHPUT = "throughput"
+        const val COLUMN_FOLDER_SIZE_PATH = "path"
+        const val COLUMN_FOLDER_SIZE_MODIFIED = "modified"
+        const val COLUMN_FOLDER_SIZE_FILES_SIZE = "files_size"
+        const val COLUMN_FOLDER_SIZE_SUBDIRECTORIES = "subdirectories"
 
         @VisibleForTesting
         var overrideDatabaseBuilder: ((Context) -> Builder<ExplorerDatabase>)? = null
@@ -317,7 +377,7 @@ abstract class ExplorerDatabase : RoomDatabase() {
             }
 
         internal val MIGRATION_10_11: Migration =
-            object : Migration(10, DATABASE_VERSION) {
+            object : Migration(10, 11) {
                 override fun migrate(database: SupportSQLiteDatabase) {
                     database.execSQL(
                         "UPDATE " +
@@ -331,6 +391,104 @@ abstract class ExplorerDatabase : RoomDatabase() {
                 }
             }
 
+        // 11->12: add transfer journal table
+        internal val MIGRATION_11_12: Migration =
+            object : Migration(11, 12) {
+                override fun migrate(database: SupportSQLiteDatabase) {
+                    database.execSQL(
+                        "CREATE TABLE IF NOT EXISTS " +
+                            TABLE_TRANSFER_JOURNAL +
+                            "(" +
+                            COLUMN_TRANSFER_TARGET +
+                            " TEXT NOT NULL, " +
+                            COLUMN_TRANSFER_SOURCE +
+                            " TEXT NOT NULL, " +
+                            COLUMN_TRANSFER_SOURCE_SIZE +
+                            " INTEGER NOT NULL, " +
+                            COLUMN_TRANSFER_SOURCE_MODIFIED +
+                            " INTEGER NOT NULL, " +
+                            COLUMN_TRANSFER_COMPLETED +
+                            " INTEGER NOT NULL, " +
+                            "PRIMARY KEY(" +
+                            COLUMN_TRANSFER_TARGET +
+                            "))",
+                    )
+                }
+            }
+
+        // 12->13: add checksum cache table
+        internal val MIGRATION_12_13: Migration =
+            object : Migration(12, 13) {
+                override fun migrate(database: SupportSQLiteDatabase) {
+                    database.execSQL(
+                        "CREATE TABLE IF NOT EXISTS " +
+                            TABLE_CHECKSUM_CACHE +
+                            "(" +
+                            COLUMN_CHECKSUM_PATH +
+                            " TEXT NOT NULL, " +
+                            COLUMN_CHECKSUM_SIZE +
+                            " INTEGER NOT NULL, " +
+                            COLUMN_CHECKSUM_MODIFIED +
+                            " INTEGER NOT NULL, " +
+                            COLUMN_CHECKSUM_MD5 +
+                            " TEXT NOT NULL, " +
+                            COLUMN_CHECKSUM_SHA1 +
+                            " TEXT NOT NULL, " +
+                            COLUMN_CHECKSUM_SHA256 +
+                            " TEXT NOT NULL, " +
+                            COLUMN_CHECKSUM_CRC32 +
+                            " TEXT NOT NULL, " +
+                            "PRIMARY KEY(" +
+                            COLUMN_CHECKSUM_PATH +
+                            "))",
+                    )
+                }
+            }
+
+        // 13->14: add transfer tuning table
+        internal val MIGRATION_13_14: Migration =
+            object : Migration(13, 14) {
+                override fun migrate(database: SupportSQLiteDatabase) {
+                    database.execSQL(
+                        "CREATE TABLE IF NOT EXISTS " +
+                            TABLE_TRANSFER_TUNING +
+                            "(" +
+                            COLUMN_TUNING_DEVICES +
+                            " TEXT NOT NULL, " +
+                            COLUMN_TUNING_BLOCK_SIZE +
+                            " INTEGER NOT NULL, " +
+                            COLUMN_TUNING_THROUGHPUT +
+                            " INTEGER NOT NULL, " +
+                            "PRIMARY KEY(" +
+                            COLUMN_TUNING_DEVICES +
+                            "))",
+                    )
+                }
+            }
+
+        // 14->15: add folder size table
+        internal val MIGRATION_14_15: Migration =
+            object : Migration(14, DATABASE_VERSION) {
+                override fun migrate(database: SupportSQLiteDatabase) {
+                    database.execSQL(
+                        "CREATE TABLE IF NOT EXISTS " +
+                            TABLE_FOLDER_SIZE +
+                            "(" +
+                            COLUMN_FOLDER_SIZE_PATH +
+                            " TEXT NOT NULL, " +
+                            COLUMN_FOLDER_SIZE_MODIFIED +
+                            " INTEGER NOT NULL, " +
+                            COLUMN_FOLDER_SIZE_FILES_SIZE +
+                            " INTEGER NOT NULL, " +
+                            COLUMN_FOLDER_SIZE_SUBDIRECTORIES +
+                            " TEXT NOT NULL, " +
+                            "PRIMARY KEY(" +
+                            COLUMN_FOLDER_SIZE_PATH +
+                            "))",
+                    )
+                }
+            }
+
         /**
          * Initialize the database. Optionally, may provide a custom way to create the database
          * with supplied [Context].
@@ -354,6 +512,10 @@ abstract class ExplorerDatabase : RoomDatabase() {
                 .addMigrations(MIGRATION_8_9)
                 .addMigrations(MIGRATION_9_10)
                 .addMigrations(MIGRATION_10_11)
+                .addMigrations(MIGRATION_11_12)
+                .addMigrations(MIGRATION_12_13)
+                .addMigrations(MIGRATION_13_14)
+                .addMigrations(MIGRATION_14_15)
                 .allowMainThreadQueries()
                 .build()
         }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database
+
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.models.explorer.FolderSizeEntry
+import io.reactivex.schedulers.Schedulers
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+
+/**
+ * Remembers what was found in directories while sizing them, so that unchanged directories are not
+ * listed again.
+ */
+object FolderSizeCache {
+    private val log: Logger = LoggerFactory.getLogger(FolderSizeCache::class.java)
+    private val database: ExplorerDatabase
+        get() = AppConfig.getInstance().explorerDatabase
+
+    /**
+     * Find everything recorded for the given directory and the directories below it, by path.
+     */
+    fun findTree(path: String): Map<String, FolderSizeEntry> {
+        return runCatching {
+            database.folderSizeEntryDao().findTree(path, prefixOf(path))
+                .subscribeOn(Schedulers.io()).blockingGet()
+        }.onFailure {
+            log.warn("failed to read folder sizes of {}", path, it)
+        }.getOrNull()?.associateBy { it.path } ?: emptyMap()
+    }
+
+    /**
+     * Forget the given directories and everything below them, then record the given entries,
+     * replacing any recorded before.
+     */
+    fun update(
+        entries: Collection<FolderSizeEntry>,
+        removedPaths: Collection<String>,
+    ) {
+        runCatching {
+            val dao = database.folderSizeEntryDao()
+            for (path in removedPaths) {
+                dao.deleteTree(path, prefixOf(path)).subscribeOn(Schedulers.io()).blockingAwait()
+            }
+            if (entries.isNotEmpty()) {
+                dao.insert(entries.toList()).subscribeOn(Schedulers.io()).blockingAwait()
+            }
+        }.onFailure {
+            log.warn("failed to save folder sizes", it)
+        }
+    }
+
+    private fun prefixOf(path: String) = if (path.endsWith('/')) path else "$path/"
+}
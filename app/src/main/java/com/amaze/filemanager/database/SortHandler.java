@@ -23,7 +23,10 @@ package com.amaze.filemanager.database;
 import static com.amaze.filemanager.ui.fragments.preferencefragments.PreferencesConstants.PREFERENCE_SORTBY_ONLY_THIS;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,13 +44,21 @@ import androidx.preference.PreferenceManager;
 
 import io.reactivex.schedulers.Schedulers;
 
-/** Created by Ning on 5/28/2018. */
+/**
+ * Sort types chosen for single folders. All of them are read from the database once, then looked
+ * up in memory; changes are written to both.
+ *
+ * <p>Created by Ning on 5/28/2018.
+ */
 public class SortHandler {
 
   private final Logger LOG = LoggerFactory.getLogger(SortHandler.class);
 
   private final ExplorerDatabase database;
 
+  /** Sort type by path, null until read from the database */
+  @Nullable private volatile Map<String, Integer> sorts;
+
   private SortHandler(@NonNull ExplorerDatabase explorerDatabase) {
     database = explorerDatabase;
   }
@@ -80,26 +91,51 @@ public class SortHandler {
 
   public void addEntry(String path, SortType sortType) {
     Sort sort = new Sort(path, sortType.toDirectorySortInt());
+    getSorts().put(path, sort.type);
     database.sortDao().insert(sort).subscribeOn(Schedulers.io()).subscribe();
   }
 
   public void clear(String path) {
+    getSorts().remove(path);
     database.sortDao().clear(path).subscribeOn(Schedulers.io()).subscribe();
   }
 
   public void updateEntry(Sort oldSort, String newPath, SortType newSortType) {
     Sort newSort = new Sort(newPath, newSortType.toDirectorySortInt());
+    getSorts().put(newPath, newSort.type);
     database.sortDao().update(newSort).subscribeOn(Schedulers.io()).subscribe();
   }
 
   @Nullable
   public Sort findEntry(String path) {
-    try {
-      return database.sortDao().find(path).subscribeOn(Schedulers.io()).blockingGet();
-    } catch (Exception e) {
-      // catch error to handle Single#onError for blockingGet
-      LOG.error(getClass().getSimpleName(), e);
+    if (path == null || path.isEmpty()) {
       return null;
     }
+    Integer type = getSorts().get(path);
+    return type == null ? null : new Sort(path, type);
+  }
+
+  @NonNull
+  private Map<String, Integer> getSorts() {
+    Map<String, Integer> result = sorts;
+    if (result != null) {
+      return result;
+    }
+    synchronized (this) {
+      if (sorts == null) {
+        Map<String, Integer> loaded = new ConcurrentHashMap<>();
+        try {
+          List<Sort> all = database.sortDao().list().subscribeOn(Schedulers.io()).blockingGet();
+          for (Sort sort : all) {
+            loaded.put(sort.path, sort.type);
+          }
+        } catch (Exception e) {
+          // catch error to handle Single#onError for blockingGet
+          LOG.error(getClass().getSimpleName(), e);
+        }
+        sorts = loaded;
+      }
+      return sorts;
+    }
   }
 }
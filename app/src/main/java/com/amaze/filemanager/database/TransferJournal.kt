@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database
+
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.models.explorer.TransferCheckpoint
+import io.reactivex.schedulers.Schedulers
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+
+/**
+ * Keeps track of how far file transfers got, so that an interrupted transfer can be resumed
+ * instead of restarted.
+ */
+object TransferJournal {
+    private val log: Logger = LoggerFactory.getLogger(TransferJournal::class.java)
+    private val database: ExplorerDatabase = AppConfig.getInstance().explorerDatabase
+
+    /**
+     * Find the [TransferCheckpoint] recorded for the given target. Returns null if not exist.
+     */
+    fun findCheckpoint(target: String): TransferCheckpoint? {
+        return runCatching {
+            database.transferCheckpointDao().find(target).subscribeOn(Schedulers.io())
+                .blockingGet()
+        }.onFailure {
+            log.warn("failed to read transfer checkpoint for {}", target, it)
+        }.getOrNull()
+    }
+
+    /**
+     * Record that [completedBytes] bytes of source are durably written to target. Blocks until the
+     * checkpoint is persisted.
+     */
+    fun checkpoint(
+        target: String,
+        source: String,
+        sourceSize: Long,
+        sourceLastModified: Long,
+        completedBytes: Long,
+    ) {
+        runCatching {
+            database.transferCheckpointDao()
+                .insert(
+                    TransferCheckpoint(
+                        target,
+                        source,
+                        sourceSize,
+                        sourceLastModified,
+                        completedBytes,
+                    ),
+                )
+                .subscribeOn(Schedulers.io())
+                .blockingAwait()
+        }.onFailure {
+            log.warn("failed to write transfer checkpoint for {}", target, it)
+        }
+    }
+
+    /**
+     * Forget about the transfer to the given target, after it completed.
+     */
+    fun complete(target: String) {
+        runCatching {
+            database.transferCheckpointDao().delete(target).subscribeOn(Schedulers.io())
+                .blockingAwait()
+        }.onFailure {
+            log.warn("failed to delete transfer checkpoint for {}", target, it)
+        }
+    }
+
+    /**
+     * Find the [TransferCheckpoint]s recorded for targets starting with [prefix].
+     */
+    fun findCheckpoints(prefix: String): List<TransferCheckpoint> {
+        return runCatching {
+            database.transferCheckpointDao().findAll(prefix).subscribeOn(Schedulers.io())
+                .blockingGet()
+        }.onFailure {
+            log.warn("failed to read transfer checkpoints for {}", prefix, it)
+        }.getOrDefault(emptyList())
+    }
+
+    /**
+     * Forget about the transfers to targets starting with [prefix].
+     */
+    fun completeAll(prefix: String) {
+        runCatching {
+            database.transferCheckpointDao().deleteAll(prefix).subscribeOn(Schedulers.io())
+                .blockingAwait()
+        }.onFailure {
+            log.warn("failed to delete transfer checkpoints for {}", prefix, it)
+        }
+    }
+
+    /**
+     * Answers from which byte a transfer can carry on, given a previously recorded checkpoint.
+     *
+     * Only resumes when the checkpoint was made for the same source, the source didn't change
+     * since, and the target still holds at least the checkpointed bytes.
+     *
+     * @return number of bytes which need not be transferred again, 0 if starting over
+     */
+    @JvmStatic
+    fun resumeOffsetOf(
+        checkpoint: TransferCheckpoint?,
+        source: String,
+        sourceSize: Long,
+        sourceLastModified: Long,
+        targetLength: Long,
+    ): Long {
+        return if (checkpoint != null &&
+            checkpoint.source == source &&
+            checkpoint.sourceSize == sourceSize &&
+            checkpoint.sourceLastModified == sourceLastModified &&
+            checkpoint.completedBytes in 1..minOf(sourceSize, targetLength)
+        ) {
+            checkpoint.completedBytes
+        } else {
+            0L
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database.daos;
+
+import static com.amaze.filemanager.database.ExplorerDatabase.COLUMN_CHECKSUM_PATH;
+import static com.amaze.filemanager.database.ExplorerDatabase.TABLE_CHECKSUM_CACHE;
+
+import com.amaze.filemanager.database.models.explorer.ChecksumEntry;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+
+/**
+ * {@link Dao} interface definition for {@link ChecksumEntry}. Concrete class is generated by Room
+ * during build.
+ *
+ * @see Dao
+ * @see ChecksumEntry
+ * @see com.amaze.filemanager.database.ExplorerDatabase
+ */
+@Dao
+public interface ChecksumEntryDao {
+
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  Completable insert(ChecksumEntry entity);
+
+  @Query("SELECT * FROM " + TABLE_CHECKSUM_CACHE + " WHERE " + COLUMN_CHECKSUM_PATH + " = :path")
+  Maybe<ChecksumEntry> find(String path);
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database.daos;
+
+import static com.amaze.filemanager.database.ExplorerDatabase.COLUMN_FOLDER_SIZE_PATH;
+import static com.amaze.filemanager.database.ExplorerDatabase.TABLE_FOLDER_SIZE;
+
+import java.util.List;
+
+import com.amaze.filemanager.database.models.explorer.FolderSizeEntry;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import io.reactivex.Completable;
+import io.reactivex.Single;
+
+/**
+ * {@link Dao} interface definition for {@link FolderSizeEntry}. Concrete class is generated by Room
+ * during build.
+ *
+ * <p>A tree is a directory plus everything below it, <code>prefix</code> being the directory path
+ * followed by a separator.
+ *
+ * @see Dao
+ * @see FolderSizeEntry
+ * @see com.amaze.filemanager.database.ExplorerDatabase
+ */
+@Dao
+public interface FolderSizeEntryDao {
+
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  Completable insert(List<FolderSizeEntry> entities);
+
+  @Query(
+      "SELECT * FROM "
+          + TABLE_FOLDER_SIZE
+          + " WHERE "
+          + COLUMN_FOLDER_SIZE_PATH
+          + " = :path OR substr("
+          + COLUMN_FOLDER_SIZE_PATH
+          + ", 1, length(:prefix)) = :prefix")
+  Single<List<FolderSizeEntry>> findTree(String path, String prefix);
+
+  @Query(
+      "DELETE FROM "
+          + TABLE_FOLDER_SIZE
+          + " WHERE "
+          + COLUMN_FOLDER_SIZE_PATH
+          + " = :path OR substr("
+          + COLUMN_FOLDER_SIZE_PATH
+          + ", 1, length(:prefix)) = :prefix")
+  Completable deleteTree(String path, String prefix);
+}
@@ -23,6 +23,8 @@ package com.amaze.filemanager.database.daos;
 import static com.amaze.filemanager.database.ExplorerDatabase.COLUMN_PATH;
 import static com.amaze.filemanager.database.ExplorerDatabase.TABLE_SORT;
 
+import java.util.List;
+
 import com.amaze.filemanager.database.models.explorer.Sort;
 
 import androidx.room.Dao;
@@ -51,6 +53,9 @@ public interface SortDao {
   @Query("SELECT * FROM " + TABLE_SORT + " WHERE " + COLUMN_PATH + " = :path")
   Single<Sort> find(String path);
 
+  @Query("SELECT * FROM " + TABLE_SORT)
+  Single<List<Sort>> list();
+
   @Transaction
   @Query("DELETE FROM " + TABLE_SORT + " WHERE " + COLUMN_PATH + " = :path")
   Completable clear(String path);
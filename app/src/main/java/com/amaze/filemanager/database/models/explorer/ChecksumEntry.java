@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database.models.explorer;
+
+import com.amaze.filemanager.database.ExplorerDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Checksums of a file, as computed for the properties dialog.
+ *
+ * <p>Only valid as long as the file still has the recorded {@link #size} and {@link
+ * #lastModified}.
+ */
+@Entity(tableName = ExplorerDatabase.TABLE_CHECKSUM_CACHE)
+public class ChecksumEntry {
+
+  @PrimaryKey
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_CHECKSUM_PATH)
+  public final String path;
+
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_CHECKSUM_SIZE)
+  public final long size;
+
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_CHECKSUM_MODIFIED)
+  public final long lastModified;
+
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_CHECKSUM_MD5)
+  public final String md5;
+
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_CHECKSUM_SHA1)
+  public final String sha1;
+
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_CHECKSUM_SHA256)
+  public final String sha256;
+
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_CHECKSUM_CRC32)
+  public final String crc32;
+
+  public ChecksumEntry(
+      @NonNull String path,
+      long size,
+      long lastModified,
+      @NonNull String md5,
+      @NonNull String sha1,
+      @NonNull String sha256,
+      @NonNull String crc32) {
+    this.path = path;
+    this.size = size;
+    this.lastModified = lastModified;
+    this.md5 = md5;
+    this.sha1 = sha1;
+    this.sha256 = sha256;
+    this.crc32 = crc32;
+  }
+}
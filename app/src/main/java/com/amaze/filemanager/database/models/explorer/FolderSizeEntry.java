@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database.models.explorer;
+
+import com.amaze.filemanager.database.ExplorerDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * What {@link com.amaze.filemanager.filesystem.files.FolderSizeCalculator} found in a directory,
+ * valid as long as the directory keeps its modification time.
+ */
+@Entity(tableName = ExplorerDatabase.TABLE_FOLDER_SIZE)
+public class FolderSizeEntry {
+
+  /** Separates names in {@link #subdirectories}, as it can't be part of a file name */
+  public static final char SEPARATOR = '/';
+
+  @PrimaryKey
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_FOLDER_SIZE_PATH)
+  public final String path;
+
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_FOLDER_SIZE_MODIFIED)
+  public final long lastModified;
+
+  /** Total size of the files directly in the directory, not counting subdirectories */
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_FOLDER_SIZE_FILES_SIZE)
+  public final long filesSize;
+
+  /** Names of the subdirectories, joined by {@link #SEPARATOR} */
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_FOLDER_SIZE_SUBDIRECTORIES)
+  public final String subdirectories;
+
+  public FolderSizeEntry(
+      @NonNull String path, long lastModified, long filesSize, @NonNull String subdirectories) {
+    this.path = path;
+    this.lastModified = lastModified;
+    this.filesSize = filesSize;
+    this.subdirectories = subdirectories;
+  }
+}
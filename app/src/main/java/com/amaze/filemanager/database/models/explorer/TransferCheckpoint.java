@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database.models.explorer;
+
+import com.amaze.filemanager.database.ExplorerDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Progress of a file transfer, as recorded in the transfer journal.
+ *
+ * <p>{@link #completedBytes} bytes of {@link #source} are known to have reached {@link #target}.
+ * The source size and modification date are kept to tell whether the source changed since.
+ */
+@Entity(tableName = ExplorerDatabase.TABLE_TRANSFER_JOURNAL)
+public class TransferCheckpoint {
+
+  @PrimaryKey
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_TRANSFER_TARGET)
+  public final String target;
+
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_TRANSFER_SOURCE)
+  public final String source;
+
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_TRANSFER_SOURCE_SIZE)
+  public final long sourceSize;
+
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_TRANSFER_SOURCE_MODIFIED)
+  public final long sourceLastModified;
+
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_TRANSFER_COMPLETED)
+  public final long completedBytes;
+
+  public TransferCheckpoint(
+      @NonNull String target,
+      @NonNull String source,
+      long sourceSize,
+      long sourceLastModified,
+      long completedBytes) {
+    this.target = target;
+    this.source = source;
+    this.sourceSize = sourceSize;
+    this.sourceLastModified = sourceLastModified;
+    this.completedBytes = completedBytes;
+  }
+}
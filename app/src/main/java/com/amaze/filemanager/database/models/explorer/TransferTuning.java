@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database.models.explorer;
+
+import com.amaze.filemanager.database.ExplorerDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Transfer block size which gave the best throughput between a source and a target device, as
+ * learnt by {@link com.amaze.filemanager.filesystem.files.TransferTuner}.
+ */
+@Entity(tableName = ExplorerDatabase.TABLE_TRANSFER_TUNING)
+public class TransferTuning {
+
+  @PrimaryKey
+  @NonNull
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_TUNING_DEVICES)
+  public final String devices;
+
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_TUNING_BLOCK_SIZE)
+  public final int blockSize;
+
+  /** Bytes per second achieved with {@link #blockSize} */
+  @ColumnInfo(name = ExplorerDatabase.COLUMN_TUNING_THROUGHPUT)
+  public final long throughput;
+
+  public TransferTuning(@NonNull String devices, int blockSize, long throughput) {
+    this.devices = devices;
+    this.blockSize = blockSize;
+    this.throughput = throughput;
+  }
+}
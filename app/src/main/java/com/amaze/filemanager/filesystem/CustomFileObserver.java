@@ -25,10 +25,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -42,11 +47,15 @@ import androidx.annotation.RequiresApi;
 /**
  * Class which monitors any change in local filesystem and updates the adapter Makes use of inotify
  * in Linux
+ *
+ * <p>Before Android 10 two {@link FileObserver}s on the same path share the same inotify watch,
+ * stopping one stops both, so use {@link #watch(String, Handler)} to share a single observer
+ * between everyone interested in a path.
  */
 public class CustomFileObserver extends FileObserver {
 
   /** Values for what of Handler Message */
-  public static final int GOBACK = -1, NEW_ITEM = 0, DELETED_ITEM = 1;
+  public static final int GOBACK = -1, NEW_ITEM = 0, DELETED_ITEM = 1, MODIFIED_ITEM = 2;
 
   /**
    * When the bserver stops observing this event is recieved Check:
@@ -56,21 +65,55 @@ public class CustomFileObserver extends FileObserver {
 
   private static final int DEFER_CONSTANT_SECONDS = 5;
   private static final int DEFER_CONSTANT = DEFER_CONSTANT_SECONDS * 1000;
-  private static final int MASK = CREATE | MOVED_TO | DELETE | MOVED_FROM | DELETE_SELF | MOVE_SELF;
+  private static final int MASK =
+      CREATE | MOVED_TO | DELETE | MOVED_FROM | DELETE_SELF | MOVE_SELF | CLOSE_WRITE | ATTRIB;
+
+  private static final Map<String, CustomFileObserver> SHARED = new HashMap<>();
 
   private long lastMessagedTime = 0L;
   private boolean messagingScheduled = false;
   private boolean wasStopped = false;
 
-  private Handler handler;
+  private final List<Handler> handlers = new CopyOnWriteArrayList<>();
   private String path;
   private final List<String> pathsAdded = Collections.synchronizedList(new ArrayList<>());
   private final List<String> pathsRemoved = Collections.synchronizedList(new ArrayList<>());
+  private final Set<String> pathsModified = Collections.synchronizedSet(new LinkedHashSet<>());
 
   public CustomFileObserver(String path, Handler handler) {
     super(path, MASK);
     this.path = path;
-    this.handler = handler;
+    this.handlers.add(handler);
+  }
+
+  /**
+   * Get changes in path sent to handler, sharing the observer already watching path if any.
+   *
+   * @return the observer, to {@link #release(Handler)} once done
+   */
+  public static synchronized CustomFileObserver watch(String path, Handler handler) {
+    CustomFileObserver observer = SHARED.get(path);
+    if (observer == null || observer.wasStopped()) {
+      observer = new CustomFileObserver(path, handler);
+      SHARED.put(path, observer);
+      observer.startWatching();
+    } else {
+      observer.handlers.add(handler);
+    }
+    return observer;
+  }
+
+  /** Stop sending changes to handler, and stop watching if nobody else is interested. */
+  public void release(Handler handler) {
+    synchronized (CustomFileObserver.class) {
+      handlers.remove(handler);
+      if (handlers.isEmpty()) {
+        if (SHARED.get(path) == this) {
+          SHARED.remove(path);
+        }
+        stopWatching();
+      }
+    }
   }
 
   public boolean wasStopped() {
@@ -119,9 +162,19 @@ public class CustomFileObserver extends FileObserver {
       case MOVED_FROM:
         pathsRemoved.add(path);
         break;
+      case CLOSE_WRITE:
+      case ATTRIB:
+        if (path == null) {
+          // the directory itself
+          return;
+        }
+        pathsModified.add(path);
+        break;
       case DELETE_SELF:
       case MOVE_SELF:
-        handler.obtainMessage(GOBACK).sendToTarget();
+        for (Handler handler : handlers) {
+          handler.obtainMessage(GOBACK).sendToTarget();
+        }
         return;
     }
 
@@ -153,20 +206,34 @@ public class CustomFileObserver extends FileObserver {
 
     synchronized (pathsAdded) {
       for (String pathAdded : pathsAdded) {
-        handler.obtainMessage(NEW_ITEM, pathAdded).sendToTarget();
+        sendMessage(NEW_ITEM, pathAdded);
       }
     }
     pathsAdded.clear();
 
+    // after the creations, files being written are usually first created
+    synchronized (pathsModified) {
+      for (String pathModified : pathsModified) {
+        sendMessage(MODIFIED_ITEM, pathModified);
+      }
+    }
+    pathsModified.clear();
+
     synchronized (pathsRemoved) {
       for (String pathRemoved : pathsRemoved) {
-        handler.obtainMessage(DELETED_ITEM, pathRemoved).sendToTarget();
+        sendMessage(DELETED_ITEM, pathRemoved);
       }
     }
     pathsRemoved.clear();
     messagingScheduled = false;
   }
 
+  private void sendMessage(int what, String path) {
+    for (Handler handler : handlers) {
+      handler.obtainMessage(what, path).sendToTarget();
+    }
+  }
+
   private ScheduledExecutorService executor = null;
 
   /**
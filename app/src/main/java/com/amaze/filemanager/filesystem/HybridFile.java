@@ -32,7 +32,6 @@ import static com.amaze.filemanager.filesystem.ssh.SshClientUtils.sftpGetSize;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -75,6 +74,8 @@ import com.amaze.filemanager.filesystem.files.MediaConnectionUtils;
 import com.amaze.filemanager.filesystem.ftp.ExtensionsKt;
 import com.amaze.filemanager.filesystem.ftp.FTPClientImpl;
 import com.amaze.filemanager.filesystem.ftp.FtpClientTemplate;
+import com.amaze.filemanager.filesystem.ftp.NetCopyClient;
+import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool;
 import com.amaze.filemanager.filesystem.ftp.NetCopyClientUtils;
 import com.amaze.filemanager.filesystem.ftp.NetCopyConnectionInfo;
 import com.amaze.filemanager.filesystem.root.DeleteFileCommand;
@@ -119,7 +120,6 @@ import io.reactivex.schedulers.Schedulers;
 import jcifs.smb.SmbException;
 import jcifs.smb.SmbFile;
 import kotlin.collections.ArraysKt;
-import kotlin.io.ByteStreamsKt;
 import kotlin.text.Charsets;
 import net.schmizz.sshj.SSHClient;
 import net.schmizz.sshj.common.Buffer;
@@ -1137,35 +1137,7 @@ public class HybridFile {
         }
         break;
       case FTP:
-        inputStream =
-            NetCopyClientUtils.INSTANCE.execute(
-                new FtpClientTemplate<InputStream>(getPath(), false) {
-                  public InputStream executeWithFtpClient(@NonNull FTPClient ftpClient)
-                      throws IOException {
-                    String parent = getParent(AppConfig.getInstance());
-                    /*
-                     * Use temp file to hold the FTP file.
-                     *
-                     * Due to the single thread nature of FTPClient, it is not possible to open
-                     * both input and output streams on the same FTP server on the same time.
-                     * Hence have to use placeholder temp file to hold contents for freeing out
-                     * the thread for output stream. - TranceLove
-                     */
-                    File tmpFile = File.createTempFile("ftp-transfer_", ".tmp");
-                    tmpFile.deleteOnExit();
-                    ftpClient.changeWorkingDirectory(
-                        NetCopyClientUtils.extractRemotePathFrom(parent));
-                    ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
-                    InputStream fin =
-                        ftpClient.retrieveFileStream(getName(AppConfig.getInstance()));
-                    FileOutputStream fout = new FileOutputStream(tmpFile);
-                    ByteStreamsKt.copyTo(fin, fout, GenericCopyUtil.DEFAULT_BUFFER_SIZE);
-                    fin.close();
-                    fout.close();
-                    ftpClient.completePendingCommand();
-                    return FTPClientImpl.wrap(tmpFile);
-                  }
-                });
+        inputStream = openFtpInputStream();
         break;
       case DOCUMENT_FILE:
         ContentResolver contentResolver = context.getContentResolver();
@@ -1208,6 +1180,58 @@ public class HybridFile {
     return inputStream;
   }
 
+  /**
+   * Stream FTP file contents on a pooled connection held until the stream is closed, so bytes are
+   * handed out as they arrive while other connections to the same server stay usable, e.g. for
+   * writing the copy target.
+   *
+   * @return stream that gives back its connection when closed, or null on failure
+   */
+  @Nullable
+  private InputStream openFtpInputStream() {
+    NetCopyClient<FTPClient> client = NetCopyClientConnectionPool.INSTANCE.checkout(getPath());
+    if (client == null) {
+      return null;
+    }
+    try {
+      FTPClient ftpClient = client.getClientImpl();
+      ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+      InputStream inputStream =
+          ftpClient.retrieveFileStream(NetCopyClientUtils.extractRemotePathFrom(getPath()));
+      if (inputStream != null) {
+        return FTPClientImpl.wrap(inputStream, client);
+      }
+      NetCopyClientConnectionPool.INSTANCE.checkin(client);
+    } catch (IOException e) {
+      LOG.warn("failed to get input stream for ftp file", e);
+      NetCopyClientConnectionPool.INSTANCE.invalidate(client);
+    }
+    return null;
+  }
+
+  /** Same as {@link #openFtpInputStream()}, for writing. */
+  @Nullable
+  private OutputStream openFtpOutputStream() {
+    NetCopyClient<FTPClient> client = NetCopyClientConnectionPool.INSTANCE.checkout(path);
+    if (client == null) {
+      return null;
+    }
+    try {
+      FTPClient ftpClient = client.getClientImpl();
+      ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+      OutputStream outputStream =
+          ftpClient.storeFileStream(NetCopyClientUtils.extractRemotePathFrom(path));
+      if (outputStream != null) {
+        return FTPClientImpl.wrap(outputStream, client);
+      }
+      NetCopyClientConnectionPool.INSTANCE.checkin(client);
+    } catch (IOException e) {
+      LOG.warn("failed to get output stream for ftp file", e);
+      NetCopyClientConnectionPool.INSTANCE.invalidate(client);
+    }
+    return null;
+  }
+
   @Nullable
   public OutputStream getOutputStream(Context context) {
     OutputStream outputStream;
@@ -1242,22 +1266,7 @@ public class HybridFile {
               }
             });
       case FTP:
-        outputStream =
-            NetCopyClientUtils.INSTANCE.execute(
-                new FtpClientTemplate<OutputStream>(path, false) {
-                  public OutputStream executeWithFtpClient(@NonNull FTPClient ftpClient)
-                      throws IOException {
-                    ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
-                    String remotePath = NetCopyClientUtils.extractRemotePathFrom(path);
-                    OutputStream outputStream = ftpClient.storeFileStream(remotePath);
-                    if (outputStream != null) {
-                      return FTPClientImpl.wrap(outputStream, ftpClient);
-                    } else {
-                      return null;
-                    }
-                  }
-                });
-        return outputStream;
+        return openFtpOutputStream();
       case SMB:
         try {
           outputStream = getSmbFile().getOutputStream();
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import com.amaze.filemanager.fileoperations.filesystem.OpenMode;
 import com.amaze.filemanager.filesystem.files.sort.ComparableParcelable;
+import com.amaze.filemanager.filesystem.files.sort.SortKey;
 import com.amaze.filemanager.filesystem.ftp.ExtensionsKt;
 import com.amaze.filemanager.utils.Utils;
 
@@ -54,6 +55,7 @@ public class HybridFileParcelable extends HybridFile implements Parcelable, Comp
   private String name;
   private String link = "";
   private Uri fullUri = null;
+  @Nullable private SortKey sortKey;
 
   public HybridFileParcelable(String path) {
     super(OpenMode.FILE, path);
@@ -268,4 +270,15 @@ public class HybridFileParcelable extends HybridFile implements Parcelable, Comp
   public String getParcelableName() {
     return getName();
   }
+
+  @NonNull
+  @Override
+  public SortKey getSortKey() {
+    String name = getParcelableName();
+    // Name can be changed with setName(), keys follow it
+    if (sortKey == null || !sortKey.getName().equals(name)) {
+      sortKey = new SortKey(name);
+    }
+    return sortKey;
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.content.Context
+import com.amaze.filemanager.asynchronous.asynctasks.hashcalculator.MultiDigest
+import com.amaze.filemanager.exceptions.ChecksumMismatchException
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.ftp.NetCopyClientUtils.extractRemotePathFrom
+import com.amaze.filemanager.filesystem.ssh.SshClientSessionTemplate
+import com.amaze.filemanager.filesystem.ssh.SshClientUtils
+import net.schmizz.sshj.common.IOUtils
+import net.schmizz.sshj.connection.channel.direct.Session
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.security.MessageDigest
+
+/**
+ * Checks that a copied file is bit-exact with its source, by comparing SHA-256 checksums.
+ *
+ * The checksum of the source is best computed while it's being copied, see [newDigest], so that
+ * it is read only once. The checksum of the target is computed on the remote side when it's on
+ * SFTP, and by reading it back otherwise.
+ */
+class CopyVerifier(private val context: Context) {
+    companion object {
+        @JvmStatic
+        private val LOG: Logger = LoggerFactory.getLogger(CopyVerifier::class.java)
+
+        const val ALGORITHM = "SHA-256"
+
+        private const val SHA256_COMMAND = "sha256sum -b %s | cut -c -64"
+
+        /**
+         * Digest to feed with every byte read from the source while copying it.
+         */
+        @JvmStatic
+        fun newDigest(): MessageDigest = MessageDigest.getInstance(ALGORITHM)
+
+        /**
+         * Quote path for a POSIX shell, so that nothing in it is expanded.
+         */
+        @JvmStatic
+        fun shellQuote(path: String): String = "'" + path.replace("'", "'\\''") + "'"
+    }
+
+    /**
+     * Compare the checksum of target with the one of source.
+     *
+     * @param sourceDigest digest of the whole source computed while copying, or null if the copy
+     * didn't go through it; the checksum of the source is then computed like the target's
+     * @throws ChecksumMismatchException if the checksums differ
+     */
+    @Throws(IOException::class)
+    fun verify(
+        source: HybridFile,
+        target: HybridFile,
+        sourceDigest: MessageDigest?,
+    ) {
+        val expected = sourceDigest?.let { MultiDigest.toHex(it.digest()) } ?: checksumOf(source)
+        val actual = checksumOf(target)
+        if (!expected.equals(actual, ignoreCase = true)) {
+            throw ChecksumMismatchException(target.path, expected, actual)
+        }
+    }
+
+    /**
+     * SHA-256 checksum of file, as lowercase hex string.
+     */
+    @Throws(IOException::class)
+    fun checksumOf(file: HybridFile): String {
+        if (file.isSftp) {
+            remoteChecksumOf(file)?.let { return it }
+            LOG.debug("no remote checksum for {}, reading it back instead", file.path)
+        }
+        return readBackChecksumOf(file)
+    }
+
+    private fun remoteChecksumOf(file: HybridFile): String? {
+        return SshClientUtils.execute(
+            object : SshClientSessionTemplate<String?>(file.path) {
+                override fun execute(sshClientSession: Session): String? {
+                    val command =
+                        sshClientSession.exec(
+                            SHA256_COMMAND.format(shellQuote(extractRemotePathFrom(file.path))),
+                        )
+                    val result = String(IOUtils.readFully(command.inputStream).toByteArray())
+                    command.close()
+                    // sha256sum may be missing on the server, then the output is of no use
+                    return result.trim().takeIf { command.exitStatus == 0 && it.length == 64 }
+                }
+            },
+        )
+    }
+
+    private fun readBackChecksumOf(file: HybridFile): String {
+        val digest = newDigest()
+        val inputStream =
+            file.getInputStream(context)
+                ?: throw IOException("Cannot open ${file.path} for reading")
+        inputStream.use {
+            val buffer = ByteArray(GenericCopyUtil.DEFAULT_TRANSFER_QUANTUM)
+            while (true) {
+                val count = it.read(buffer)
+                if (count < 0) break
+                digest.update(buffer, 0, count)
+            }
+        }
+        return MultiDigest.toHex(digest.digest())
+    }
+}
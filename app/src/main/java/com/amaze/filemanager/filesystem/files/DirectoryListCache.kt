@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.content.Context
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Message
+import androidx.collection.LruCache
+import com.amaze.filemanager.adapters.data.LayoutElementParcelable
+import com.amaze.filemanager.filesystem.CustomFileObserver
+import java.io.File
+
+/**
+ * Cache of directory listings, bounded by the memory their elements take.
+ *
+ * Listings of local directories are kept coherent with the filesystem: a [CustomFileObserver]
+ * watches each of them while cached, and its creations, deletions and modifications are patched
+ * into the cached listing instead of discarding it. Other listings are only kept until
+ * [remove]d.
+ */
+class DirectoryListCache
+    @JvmOverloads
+    constructor(
+        private val context: Context,
+        maxBytes: Int = defaultMaxBytes(),
+    ) {
+        companion object {
+            /**
+             * Rough size of a [LayoutElementParcelable] once shown, with its icon and display
+             * strings, without its other strings.
+             */
+            private const val ELEMENT_OVERHEAD_BYTES = 320
+
+            /** A 16th of the heap, listings are the biggest thing kept around after images. */
+            private fun defaultMaxBytes(): Int =
+                (Runtime.getRuntime().maxMemory() / 16).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+
+            /** Approximate memory taken by element. */
+            @JvmStatic
+            fun estimateBytes(element: LayoutElementParcelable): Int {
+                val strings =
+                    listOf(
+                        element.title,
+                        element.desc,
+                        element.permissions,
+                        element.symlink,
+                    )
+                return ELEMENT_OVERHEAD_BYTES + 2 * strings.sumOf { it?.length ?: 0 }
+            }
+        }
+
+        private val watcherThread: HandlerThread by lazy {
+            HandlerThread("directory-list-cache").also { it.start() }
+        }
+
+        private val cache =
+            object : LruCache<String, Listing>(maxBytes) {
+                override fun sizeOf(
+                    key: String,
+                    value: Listing,
+                ): Int = value.bytes
+
+                override fun entryRemoved(
+                    evicted: Boolean,
+                    key: String,
+                    oldValue: Listing,
+                    newValue: Listing?,
+                ) {
+                    if (oldValue.watcher != null && newValue?.watcher !== oldValue.watcher) {
+                        oldValue.watcher.release()
+                    }
+                }
+            }
+
+        /**
+         * Cache elements listed at path. Local directories that can be read are kept up to date
+         * until evicted, the others until [remove]d.
+         *
+         * @param local whether path is a directory of the local filesystem
+         * @param showHidden whether elements were listed with hidden files, for new files
+         * @param useThumbs as in the listed elements, for new files
+         */
+        fun put(
+            path: String,
+            elements: List<LayoutElementParcelable>,
+            local: Boolean,
+            showHidden: Boolean,
+            useThumbs: Boolean,
+        ) {
+            val directory = File(path)
+            val watcher =
+                if (local && directory.isDirectory && directory.canRead()) {
+                    Watcher(path, showHidden, useThumbs)
+                } else {
+                    null
+                }
+            synchronized(cache) {
+                cache.put(path, Listing(Elements(elements), watcher))
+            }
+        }
+
+        /** Cached elements of path, as a copy free to be modified, or null. */
+        fun get(path: String): List<LayoutElementParcelable>? =
+            synchronized(cache) { cache.get(path)?.elements?.list?.let { ArrayList(it) } }
+
+        /** Forget about path. */
+        fun remove(path: String) {
+            synchronized(cache) { cache.remove(path) }
+        }
+
+        /** Forget about everything and stop watching, the cache can't be used afterwards. */
+        fun close() {
+            synchronized(cache) { cache.evictAll() }
+            watcherThread.quitSafely()
+        }
+
+        /** Total of [estimateBytes] of the cached elements. */
+        fun size(): Int = cache.size()
+
+        private fun patch(
+            watcher: Watcher,
+            change: (Elements) -> Unit,
+        ) {
+            synchronized(cache) {
+                val listing = cache.get(watcher.path)
+                if (listing == null || listing.watcher !== watcher) {
+                    return
+                }
+                change(listing.elements)
+                // put again, for the new size to be accounted for
+                cache.put(watcher.path, Listing(listing.elements, watcher))
+            }
+        }
+
+        /**
+         * Elements of a directory, found by name. Their order isn't kept, listings are sorted
+         * once taken out of the cache.
+         */
+        private class Elements(elements: List<LayoutElementParcelable>) {
+            val list = ArrayList(elements)
+            private val indices = HashMap<String, Int>(elements.size * 4 / 3 + 1)
+
+            /** Total of [estimateBytes] of the elements. */
+            var bytes = 0
+                private set
+
+            init {
+                list.forEachIndexed { i, element ->
+                    indices[nameOf(element)] = i
+                    bytes += estimateBytes(element)
+                }
+            }
+
+            /** Add element, or replace the one of the same name. */
+            fun set(element: LayoutElementParcelable) {
+                val name = nameOf(element)
+                val index = indices[name]
+                bytes += estimateBytes(element)
+                if (index == null) {
+                    indices[name] = list.size
+                    list.add(element)
+                } else {
+                    bytes -= estimateBytes(list[index])
+                    list[index] = element
+                }
+            }
+
+            /** Remove the element of that name, if any. */
+            fun remove(name: String) {
+                val index = indices.remove(name) ?: return
+                bytes -= estimateBytes(list[index])
+                // move the last element in its place rather than shift all the following ones
+                val last = list.removeAt(list.size - 1)
+                if (index < list.size) {
+                    list[index] = last
+                    indices[nameOf(last)] = index
+                }
+            }
+
+            private fun nameOf(element: LayoutElementParcelable): String =
+                element.desc.substringAfterLast('/')
+        }
+
+        private class Listing(
+            val elements: Elements,
+            val watcher: Watcher?,
+        ) {
+            /** As when put in the cache, [LruCache] expects it not to change afterwards. */
+            val bytes = elements.bytes.coerceAtLeast(1)
+        }
+
+        private inner class Watcher(
+            val path: String,
+            val showHidden: Boolean,
+            val useThumbs: Boolean,
+        ) : Handler(watcherThread.looper) {
+            private val observer = CustomFileObserver.watch(path, this)
+
+            fun release() {
+                observer.release(this)
+            }
+
+            override fun handleMessage(msg: Message) {
+                val name = msg.obj as? String
+                when (msg.what) {
+                    CustomFileObserver.GOBACK -> remove(path)
+                    CustomFileObserver.NEW_ITEM, CustomFileObserver.MODIFIED_ITEM -> {
+                        if (name == null || !File(path, name).exists()) return
+                        val element =
+                            FileUtils.generateListedElement(
+                                context,
+                                File(path, name),
+                                showHidden,
+                                useThumbs,
+                            )
+                        patch(this) { elements ->
+                            if (element != null) elements.set(element) else elements.remove(name)
+                        }
+                    }
+                    CustomFileObserver.DELETED_ITEM -> {
+                        // may have been created again since
+                        if (name == null || File(path, name).exists()) return
+                        patch(this) { elements -> elements.remove(name) }
+                    }
+                    else -> super.handleMessage(msg)
+                }
+            }
+        }
+    }
@@ -20,12 +20,15 @@
 
 package com.amaze.filemanager.filesystem.files
 
+import android.os.Build
 import com.amaze.filemanager.adapters.data.LayoutElementParcelable
 import com.amaze.filemanager.filesystem.files.sort.ComparableParcelable
 import com.amaze.filemanager.filesystem.files.sort.DirSortBy
 import com.amaze.filemanager.filesystem.files.sort.SortBy
 import com.amaze.filemanager.filesystem.files.sort.SortType
 import java.lang.Long
+import java.util.Arrays
+import java.util.Collections
 import java.util.Locale
 import kotlin.Boolean
 import kotlin.Comparator
@@ -52,7 +55,7 @@ class FileListSorter(
         file1: ComparableParcelable,
         file2: ComparableParcelable,
     ): Int {
-        return file1.getParcelableName().compareTo(file2.getParcelableName(), ignoreCase = true)
+        return file1.getSortKey().foldedName.compareTo(file2.getSortKey().foldedName)
     }
 
     /**
@@ -114,8 +117,8 @@ class FileListSorter(
             SortBy.TYPE -> {
                 // sort by type
                 return if (!isDirectory(file1) && !isDirectory(file2)) {
-                    val ext_a = getExtension(file1.getParcelableName())
-                    val ext_b = getExtension(file2.getParcelableName())
+                    val ext_a = file1.getSortKey().extension
+                    val ext_b = file2.getSortKey().extension
                     val res = asc * ext_a.compareTo(ext_b)
                     if (res == 0) {
                         asc * compareName(file1, file2)
@@ -134,6 +137,35 @@ class FileListSorter(
     }
 
     companion object {
+        /** Size from which [sort] spreads the work over all cores, where supported */
+        const val PARALLEL_SORT_THRESHOLD = 8192
+
+        /**
+         * Sorts [list] with [comparator], in parallel for lists of at least
+         * [PARALLEL_SORT_THRESHOLD] elements on Android 7.0 and up.
+         */
+        @JvmStatic
+        fun <T> sort(
+            list: MutableList<T>,
+            comparator: Comparator<in T>,
+        ) {
+            if (list.size < PARALLEL_SORT_THRESHOLD ||
+                Build.VERSION.SDK_INT < Build.VERSION_CODES.N
+            ) {
+                Collections.sort(list, comparator)
+                return
+            }
+
+            @Suppress("UNCHECKED_CAST")
+            val elements = list as MutableList<Any?>
+            val array = elements.toTypedArray()
+            @Suppress("UNCHECKED_CAST")
+            Arrays.parallelSort(array, comparator as Comparator<Any?>)
+            for (i in array.indices) {
+                elements[i] = array[i]
+            }
+        }
+
         /**
          * Convenience method to get the file extension in given path.
          *
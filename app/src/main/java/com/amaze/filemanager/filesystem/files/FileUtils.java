@@ -109,21 +109,12 @@ public class FileUtils {
   public static final String NOMEDIA_FILE = ".nomedia";
   public static final String DUMMY_FILE = ".DummyFile";
 
+  /**
+   * @see FolderSizeCalculator#folderSize(File, OnProgressUpdate)
+   */
   public static long folderSize(File directory, OnProgressUpdate<Long> updateState) {
-    long length = 0;
-    try {
-      for (File file : directory.listFiles()) {
-        if (file.isFile()) length += file.length();
-        else
-          length +=
-              folderSize(file, null); // null because updateState would be called for children dirs
-
-        if (updateState != null) updateState.onUpdate(length);
-      }
-    } catch (Exception e) {
-      LOG.warn("failed to get folder size", e);
-    }
-    return length;
+    if (directory == null) return 0;
+    return FolderSizeCalculator.folderSize(directory, updateState);
   }
 
   public static long folderSize(HybridFile directory, OnProgressUpdate<Long> updateState) {
@@ -212,6 +203,33 @@ public class FileUtils {
     }
   }
 
+  /**
+   * Element for a local file, the same as listing its directory gives. Unlike {@link
+   * HybridFile#generateLayoutElement(Context, boolean)} it doesn't compute directory sizes.
+   *
+   * @return null if the file is hidden and hidden files aren't shown
+   */
+  public static @Nullable LayoutElementParcelable generateListedElement(
+      @NonNull Context context, @NonNull File file, boolean showHidden, boolean useThumbs) {
+    if (DataUtils.getInstance().isFileHidden(file.getPath())) {
+      return null;
+    }
+    HybridFileParcelable baseFile = RootHelper.generateBaseFile(file, showHidden);
+    if (baseFile == null) {
+      return null;
+    }
+    return new LayoutElementParcelable(
+        baseFile.getName(context),
+        baseFile.getPath(),
+        baseFile.getPermission(),
+        baseFile.getLink(),
+        baseFile.isDirectory() ? 0 : baseFile.getSize(),
+        baseFile.getDate(),
+        baseFile.isDirectory(),
+        useThumbs,
+        baseFile.getMode());
+  }
+
   public static void crossfade(View buttons, final View pathbar) {
     // Set the content view to 0% opacity but visible, so that it is visible
     // (but fully transparent) during the animation.
@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.os.Environment
+import androidx.annotation.VisibleForTesting
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.filesystem.files.sort.SortKey
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Names of every file and directory below a root directory, to search them without listing the
+ * directories again.
+ *
+ * Names are kept in memory along with postings of the trigrams of their folded form, so that a
+ * search only checks the names containing every trigram of what it looks for. What was listed is
+ * saved to disk, and [refresh] lists again only the directories whose modification time changed
+ * since, including across restarts.
+ */
+class FilenameIndex(private val storeFile: File) {
+    /** What was found by listing a directory */
+    private class Directory(
+        val path: String,
+        val lastModified: Long,
+        val names: Array<String>,
+        val isDirectory: BooleanArray,
+    )
+
+    /** Searchable form of the index. Never changed once built, so it's read without locking. */
+    private class Snapshot(
+        val root: String,
+        val directories: List<Directory>,
+        /** Name of each entry */
+        val names: Array<String>,
+        /** Index in [directories] of the directory of each entry */
+        val parents: IntArray,
+        /** Whether each entry is hidden, or in a hidden directory */
+        val hidden: BooleanArray,
+        /** Sorted indexes of the entries, by trigram of their folded name */
+        val postings: Map<Long, IntArray>,
+    )
+
+    @Volatile
+    private var snapshot: Snapshot? = null
+    private val refreshing = AtomicBoolean(false)
+
+    /**
+     * Whether the index was built and covers the given path.
+     */
+    fun covers(path: String): Boolean {
+        val root = snapshot?.root ?: return false
+        return path == root || path.startsWith(prefixOf(root))
+    }
+
+    /**
+     * Bring the index up to date with the tree under [root], listing again only the directories
+     * which changed. Blocks until done, then saves the index to disk.
+     */
+    fun refresh(root: File) {
+        synchronized(this) {
+            val known =
+                (snapshot?.takeIf { it.root == root.path }?.directories ?: load(root.path))
+                    ?.associateBy { it.path }
+                    ?: emptyMap()
+            val directories = crawl(root, known)
+            if (directories.isEmpty()) {
+                // root can't be listed, e.g. no permission yet
+                return
+            }
+            snapshot = build(root.path, directories)
+            if (directories.any { known[it.path] !== it } || directories.size != known.size) {
+                save(root.path, directories)
+            }
+        }
+    }
+
+    /**
+     * [refresh] on a background thread, unless a refresh is already running.
+     */
+    fun refreshInBackground(root: File) {
+        if (!refreshing.compareAndSet(false, true)) return
+        executor.execute {
+            try {
+                refresh(root)
+            } catch (e: Exception) {
+                LOG.warn("failed to index {}", root.path, e)
+            } finally {
+                refreshing.set(false)
+            }
+        }
+    }
+
+    /**
+     * Go through the entries below [path] whose names, once folded, contain every one of
+     * [literals]. Literals shorter than a trigram don't narrow the search.
+     *
+     * @param onCandidate given the directory and name of each entry, returns false to stop
+     * @return false if the index doesn't cover [path]
+     */
+    fun search(
+        path: String,
+        literals: Collection<String>,
+        includeHidden: Boolean,
+        onCandidate: (directory: String, name: String) -> Boolean,
+    ): Boolean {
+        val snapshot = snapshot ?: return false
+        if (path != snapshot.root && !path.startsWith(prefixOf(snapshot.root))) return false
+
+        val prefix = prefixOf(path)
+        val inPath =
+            BooleanArray(snapshot.directories.size) {
+                val directoryPath = snapshot.directories[it].path
+                directoryPath == path || directoryPath.startsWith(prefix)
+            }
+
+        val candidates = candidatesOf(snapshot, literals)
+        val count = candidates?.size ?: snapshot.names.size
+        for (i in 0 until count) {
+            val id = candidates?.get(i) ?: i
+            val parent = snapshot.parents[id]
+            if (!inPath[parent] || (!includeHidden && snapshot.hidden[id])) continue
+            if (!onCandidate(snapshot.directories[parent].path, snapshot.names[id])) break
+        }
+        return true
+    }
+
+    private fun candidatesOf(
+        snapshot: Snapshot,
+        literals: Collection<String>,
+    ): IntArray? {
+        var candidates: IntArray? = null
+        for (literal in literals) {
+            val folded = SortKey.fold(literal)
+            for (i in 0..folded.length - TRIGRAM_LENGTH) {
+                val postings = snapshot.postings[trigramOf(folded, i)] ?: return IntArray(0)
+                candidates = if (candidates == null) postings else intersect(candidates, postings)
+                if (candidates.isEmpty()) return candidates
+            }
+        }
+        return candidates
+    }
+
+    private fun crawl(
+        root: File,
+        known: Map<String, Directory>,
+    ): List<Directory> {
+        val directories = ArrayList<Directory>()
+        val worklist = ArrayDeque<Pair<File, Int>>()
+        worklist.add(root to 0)
+        while (worklist.isNotEmpty()) {
+            val (directory, depth) = worklist.removeLast()
+            val lastModified = directory.lastModified()
+            val previous = known[directory.path]
+            val entry =
+                if (previous != null && lastModified != 0L && previous.lastModified == lastModified) {
+                    previous
+                } else {
+                    list(directory, lastModified) ?: continue
+                }
+            directories.add(entry)
+            if (depth >= MAX_DEPTH) continue
+            for (i in entry.names.indices) {
+                if (entry.isDirectory[i]) {
+                    worklist.add(File(directory, entry.names[i]) to depth + 1)
+                }
+            }
+        }
+        return directories
+    }
+
+    private fun list(
+        directory: File,
+        lastModified: Long,
+    ): Directory? {
+        val children = directory.listFiles() ?: return null
+        return Directory(
+            directory.path,
+            lastModified,
+            Array(children.size) { children[it].name },
+            BooleanArray(children.size) { children[it].isDirectory },
+        )
+    }
+
+    private fun build(
+        root: String,
+        directories: List<Directory>,
+    ): Snapshot {
+        val count = directories.sumOf { it.names.size }
+        val names = arrayOfNulls<String>(count)
+        val parents = IntArray(count)
+        val hidden = BooleanArray(count)
+        val postings = HashMap<Long, IntList>()
+        val hiddenDirectories = HashMap<String, Boolean>()
+        hiddenDirectories[root] = false
+
+        var id = 0
+        for ((parent, directory) in directories.withIndex()) {
+            val directoryHidden = hiddenDirectories[directory.path] ?: false
+            for (i in directory.names.indices) {
+                val name = directory.names[i]
+                names[id] = name
+                parents[id] = parent
+                hidden[id] = directoryHidden || name.startsWith('.')
+                if (directory.isDirectory[i]) {
+                    hiddenDirectories[File(directory.path, name).path] = hidden[id]
+                }
+                val folded = SortKey.fold(name)
+                for (j in 0..folded.length - TRIGRAM_LENGTH) {
+                    postings.getOrPut(trigramOf(folded, j)) { IntList() }.addOnce(id)
+                }
+                id++
+            }
+        }
+
+        return Snapshot(
+            root,
+            directories,
+            names.requireNoNulls(),
+            parents,
+            hidden,
+            postings.mapValuesTo(HashMap(postings.size)) { it.value.toArray() },
+        )
+    }
+
+    private fun load(root: String): List<Directory>? {
+        if (!storeFile.exists()) return null
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(storeFile))).use { input ->
+                if (input.readInt() != MAGIC || input.readUTF() != root) return null
+                List(input.readInt()) {
+                    val path = input.readUTF()
+                    val lastModified = input.readLong()
+                    val count = input.readInt()
+                    val names = arrayOfNulls<String>(count)
+                    val isDirectory = BooleanArray(count)
+                    for (i in 0 until count) {
+                        names[i] = input.readUTF()
+                        isDirectory[i] = input.readBoolean()
+                    }
+                    Directory(path, lastModified, names.requireNoNulls(), isDirectory)
+                }
+            }
+        } catch (e: IOException) {
+            LOG.warn("failed to load filename index", e)
+            null
+        }
+    }
+
+    private fun save(
+        root: String,
+        directories: List<Directory>,
+    ) {
+        val temp = File(storeFile.path + ".tmp")
+        try {
+            DataOutputStream(BufferedOutputStream(FileOutputStream(temp))).use { output ->
+                output.writeInt(MAGIC)
+                output.writeUTF(root)
+                output.writeInt(directories.size)
+                for (directory in directories) {
+                    output.writeUTF(directory.path)
+                    output.writeLong(directory.lastModified)
+                    output.writeInt(directory.names.size)
+                    for (i in directory.names.indices) {
+                        output.writeUTF(directory.names[i])
+                        output.writeBoolean(directory.isDirectory[i])
+                    }
+                }
+            }
+            if (!temp.renameTo(storeFile)) {
+                LOG.warn("failed to save filename index to {}", storeFile.path)
+            }
+        } catch (e: IOException) {
+            LOG.warn("failed to save filename index", e)
+            temp.delete()
+        }
+    }
+
+    /** Growable list of entry indexes, added in increasing order */
+    private class IntList {
+        private var values = IntArray(4)
+        private var size = 0
+
+        fun addOnce(value: Int) {
+            if (size > 0 && values[size - 1] == value) return
+            if (size == values.size) values = values.copyOf(size * 2)
+            values[size++] = value
+        }
+
+        fun toArray(): IntArray = values.copyOf(size)
+    }
+
+    companion object {
+        @JvmStatic
+        private val LOG: Logger = LoggerFactory.getLogger(FilenameIndex::class.java)
+
+        private const val FILE_NAME = "filename_index"
+
+        /** Format of the saved index, to be changed along with it */
+        private const val MAGIC = 0x414d5a01
+
+        private const val TRIGRAM_LENGTH = 3
+
+        /** Guards against symbolic link loops */
+        private const val MAX_DEPTH = 64
+
+        private val executor: ExecutorService =
+            Executors.newSingleThreadExecutor { r ->
+                Thread(r, "filename-index").also { it.isDaemon = true }
+            }
+
+        /** The index of the primary storage */
+        @JvmStatic
+        val instance: FilenameIndex by lazy {
+            FilenameIndex(File(AppConfig.getInstance().filesDir, FILE_NAME))
+        }
+
+        /**
+         * [refreshInBackground] the index of the primary storage.
+         */
+        @JvmStatic
+        fun refreshPrimaryStorage() {
+            instance.refreshInBackground(Environment.getExternalStorageDirectory())
+        }
+
+        private fun prefixOf(path: String) = if (path.endsWith('/')) path else "$path/"
+
+        private fun trigramOf(
+            s: String,
+            start: Int,
+        ): Long =
+            (s[start].code.toLong() shl 32) or
+                (s[start + 1].code.toLong() shl 16) or
+                s[start + 2].code.toLong()
+
+        @VisibleForTesting
+        internal fun intersect(
+            a: IntArray,
+            b: IntArray,
+        ): IntArray {
+            val result = IntArray(minOf(a.size, b.size))
+            var i = 0
+            var j = 0
+            var size = 0
+            while (i < a.size && j < b.size) {
+                when {
+                    a[i] < b[j] -> i++
+                    a[i] > b[j] -> j++
+                    else -> {
+                        result[size++] = a[i]
+                        i++
+                        j++
+                    }
+                }
+            }
+            return result.copyOf(size)
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import com.amaze.filemanager.database.FolderSizeCache
+import com.amaze.filemanager.database.models.explorer.FolderSizeEntry
+import com.amaze.filemanager.utils.OnProgressUpdate
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Sizes local directories, listing their subdirectories concurrently on a pool shared by every
+ * caller.
+ *
+ * For each directory, the total size of its files and the names of its subdirectories are kept
+ * in [FolderSizeCache] along with its modification time. As long as that time is unchanged, the
+ * directory is not listed again and only its subdirectories are visited. Files rewritten in place
+ * don't change the modification time of their directory, so their new size is only seen once
+ * something is added, removed or renamed next to them.
+ */
+object FolderSizeCalculator {
+    @JvmStatic
+    private val LOG: Logger = LoggerFactory.getLogger(FolderSizeCalculator::class.java)
+
+    /** Listing is I/O bound, so this doesn't need to follow the number of cores. */
+    const val WORKER_COUNT = 4
+
+    private val executor: ExecutorService =
+        Executors.newFixedThreadPool(WORKER_COUNT, WorkerThreadFactory())
+
+    /**
+     * Size the given directory, blocking until done.
+     *
+     * @param onProgress told the size found so far, as directories are visited
+     * @return total size of the files in the directory and below
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun folderSize(
+        directory: File,
+        onProgress: OnProgressUpdate<Long>? = null,
+    ): Long = Walk(directory, onProgress).run()
+
+    private class Walk(
+        private val root: File,
+        private val onProgress: OnProgressUpdate<Long>?,
+    ) {
+        private val known: Map<String, FolderSizeEntry> =
+            runCatching { FolderSizeCache.findTree(root.path) }.getOrDefault(emptyMap())
+        private val found = ConcurrentLinkedQueue<FolderSizeEntry>()
+        private val removed = ConcurrentLinkedQueue<String>()
+        private var total = 0L
+
+        /** Directories not visited yet, plus one held by [run] while it's submitting. */
+        private val pending = AtomicInteger(1)
+        private val done = CountDownLatch(1)
+
+        fun run(): Long {
+            submit(root)
+            release()
+            try {
+                done.await()
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                return synchronized(this) { total }
+            }
+            runCatching { FolderSizeCache.update(found, removed) }
+            return total
+        }
+
+        private fun visit(directory: File) {
+            val lastModified = directory.lastModified()
+            val entry = known[directory.path]
+            if (entry != null && lastModified != 0L && entry.lastModified == lastModified) {
+                add(entry.filesSize)
+                namesOf(entry).forEach { submit(File(directory, it)) }
+                return
+            }
+
+            val children = directory.listFiles() ?: return
+            var filesSize = 0L
+            val subdirectories = ArrayList<String>()
+            for (child in children) {
+                if (child.isFile) {
+                    filesSize += child.length()
+                } else {
+                    subdirectories.add(child.name)
+                    submit(child)
+                }
+            }
+            add(filesSize)
+
+            if (entry != null) {
+                (namesOf(entry) - subdirectories.toSet()).forEach {
+                    removed.add(File(directory, it).path)
+                }
+            }
+            if (lastModified != 0L) {
+                found.add(
+                    FolderSizeEntry(
+                        directory.path,
+                        lastModified,
+                        filesSize,
+                        subdirectories.joinToString(FolderSizeEntry.SEPARATOR.toString()),
+                    ),
+                )
+            }
+        }
+
+        private fun namesOf(entry: FolderSizeEntry): List<String> =
+            entry.subdirectories.split(FolderSizeEntry.SEPARATOR).filter { it.isNotEmpty() }
+
+        private fun add(size: Long) {
+            synchronized(this) {
+                total += size
+                onProgress?.onUpdate(total)
+            }
+        }
+
+        private fun submit(directory: File) {
+            pending.incrementAndGet()
+            executor.execute {
+                try {
+                    visit(directory)
+                } catch (e: Exception) {
+                    LOG.warn("failed to get folder size", e)
+                } finally {
+                    release()
+                }
+            }
+        }
+
+        private fun release() {
+            if (pending.decrementAndGet() == 0) done.countDown()
+        }
+    }
+
+    private class WorkerThreadFactory : ThreadFactory {
+        private val counter = AtomicInteger(0)
+
+        override fun newThread(r: Runnable): Thread =
+            Thread(r, "folder-size-${counter.incrementAndGet()}").also {
+                it.isDaemon = true
+            }
+    }
+}
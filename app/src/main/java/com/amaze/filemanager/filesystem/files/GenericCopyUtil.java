@@ -34,6 +34,8 @@ import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Objects;
 
 import org.slf4j.Logger;
@@ -57,8 +59,10 @@ import com.cloudrail.si.interfaces.CloudStorage;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.os.Build;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.documentfile.provider.DocumentFile;
 
@@ -71,20 +75,43 @@ public class GenericCopyUtil {
   private final Context mContext; // context needed to find the DocumentFile in otg/sd card
   private final DataUtils dataUtils = DataUtils.getInstance();
   private final ProgressHandler progressHandler;
+  private final boolean verify;
+
+  /** Fed with every byte read from the source when verifying, null if the copy bypassed it */
+  @Nullable private MessageDigest sourceDigest;
+
+  /** Size of the copy buffer and of the stream buffers, see {@link TransferTuner} */
+  private int blockSize = DEFAULT_TRANSFER_QUANTUM;
 
   public static final int DEFAULT_BUFFER_SIZE = 8192;
 
   /*
-     Defines the block size per transfer over NIO channels.
+     Defines the block size per transfer over NIO channels, until TransferTuner learnt a better
+     one for the devices involved.
 
      Cannot modify DEFAULT_BUFFER_SIZE since it's used by other classes, will have undesired
      effect on other functions
   */
-  private static final int DEFAULT_TRANSFER_QUANTUM = 1024 * 1024;
+  static final int DEFAULT_TRANSFER_QUANTUM = 1024 * 1024;
+
+  /*
+     Defines the block size per FileChannel#transferTo call when both ends are local files. The
+     kernel moves the bytes itself, so this only bounds how often progress gets reported.
+  */
+  private static final long LOCAL_TRANSFER_QUANTUM = 8 * 1024 * 1024;
 
   public GenericCopyUtil(Context context, ProgressHandler progressHandler) {
+    this(context, progressHandler, false);
+  }
+
+  /**
+   * @param verify whether to check that every copied file has the same checksum as its source,
+   *     see {@link CopyVerifier}
+   */
+  public GenericCopyUtil(Context context, ProgressHandler progressHandler, boolean verify) {
     this.mContext = context;
     this.progressHandler = progressHandler;
+    this.verify = verify;
   }
 
   /**
@@ -104,6 +131,11 @@ public class GenericCopyUtil {
     WritableByteChannel outChannel = null;
     BufferedInputStream bufferedInputStream = null;
     BufferedOutputStream bufferedOutputStream = null;
+    // retried on low memory, the source is read again from its start
+    sourceDigest = verify ? CopyVerifier.newDigest() : null;
+    TransferTuner.Transfer transfer =
+        lowOnMemory ? null : TransferTuner.begin(mSourceFile, mTargetFile);
+    blockSize = transfer != null ? transfer.getBlockSize() : DEFAULT_BUFFER_SIZE;
 
     try {
       // initializing the input channels based on file types
@@ -122,10 +154,10 @@ public class GenericCopyUtil {
 
         bufferedInputStream =
             new BufferedInputStream(
-                contentResolver.openInputStream(documentSourceFile.getUri()), DEFAULT_BUFFER_SIZE);
+                contentResolver.openInputStream(documentSourceFile.getUri()), blockSize);
       } else if (mSourceFile.isSmb() || mSourceFile.isSftp() || mSourceFile.isFtp()) {
         bufferedInputStream =
-            new BufferedInputStream(mSourceFile.getInputStream(mContext), DEFAULT_TRANSFER_QUANTUM);
+            new BufferedInputStream(mSourceFile.getInputStream(mContext), blockSize);
       } else if (mSourceFile.isDropBoxFile()
           || mSourceFile.isBoxFile()
           || mSourceFile.isGoogleDriveFile()
@@ -135,7 +167,8 @@ public class GenericCopyUtil {
         CloudStorage cloudStorage = dataUtils.getAccount(openMode);
         bufferedInputStream =
             new BufferedInputStream(
-                cloudStorage.download(CloudUtil.stripPath(openMode, mSourceFile.getPath())));
+                cloudStorage.download(CloudUtil.stripPath(openMode, mSourceFile.getPath())),
+                blockSize);
       } else {
 
         // source file is neither smb nor otg; getting a channel from direct file instead of stream
@@ -161,12 +194,11 @@ public class GenericCopyUtil {
 
             bufferedInputStream =
                 new BufferedInputStream(
-                    contentResolver.openInputStream(documentSourceFile.getUri()),
-                    DEFAULT_BUFFER_SIZE);
+                    contentResolver.openInputStream(documentSourceFile.getUri()), blockSize);
           } else if (Build.VERSION.SDK_INT == Build.VERSION_CODES.KITKAT) {
             InputStream inputStream1 =
                 MediaStoreHack.getInputStream(mContext, file, mSourceFile.getSize());
-            bufferedInputStream = new BufferedInputStream(inputStream1);
+            bufferedInputStream = new BufferedInputStream(inputStream1, blockSize);
           }
         }
       }
@@ -187,11 +219,10 @@ public class GenericCopyUtil {
 
         bufferedOutputStream =
             new BufferedOutputStream(
-                contentResolver.openOutputStream(documentTargetFile.getUri()), DEFAULT_BUFFER_SIZE);
+                contentResolver.openOutputStream(documentTargetFile.getUri()), blockSize);
       } else if (mTargetFile.isFtp() || mTargetFile.isSftp() || mTargetFile.isSmb()) {
         bufferedOutputStream =
-            new BufferedOutputStream(
-                mTargetFile.getOutputStream(mContext), DEFAULT_TRANSFER_QUANTUM);
+            new BufferedOutputStream(mTargetFile.getOutputStream(mContext), blockSize);
       } else if (mTargetFile.isDropBoxFile()
           || mTargetFile.isBoxFile()
           || mTargetFile.isGoogleDriveFile()
@@ -218,12 +249,12 @@ public class GenericCopyUtil {
 
             bufferedOutputStream =
                 new BufferedOutputStream(
-                    contentResolver.openOutputStream(documentTargetFile.getUri()),
-                    DEFAULT_BUFFER_SIZE);
+                    contentResolver.openOutputStream(documentTargetFile.getUri()), blockSize);
           } else if (Build.VERSION.SDK_INT == Build.VERSION_CODES.KITKAT) {
             // Workaround for Kitkat ext SD card
             bufferedOutputStream =
-                new BufferedOutputStream(MediaStoreHack.getOutputStream(mContext, file.getPath()));
+                new BufferedOutputStream(
+                    MediaStoreHack.getOutputStream(mContext, file.getPath()), blockSize);
           }
         }
       }
@@ -239,7 +270,12 @@ public class GenericCopyUtil {
       Objects.requireNonNull(inChannel);
       Objects.requireNonNull(outChannel);
 
+      boolean tuned = transfer != null && !isKernelTransfer(inChannel, outChannel);
+      long start = SystemClock.elapsedRealtime();
       doCopy(inChannel, outChannel, updatePosition);
+      if (tuned && !progressHandler.getCancelled()) {
+        TransferTuner.end(transfer, mSourceFile.getSize(), SystemClock.elapsedRealtime() - start);
+      }
     } catch (IOException e) {
       LOG.error("I/O Error copy {} to {}: {}", mSourceFile, mTargetFile, e);
       throw new IOException(e);
@@ -250,6 +286,9 @@ public class GenericCopyUtil {
 
       startCopy(true, onLowMemory, updatePosition);
     } finally {
+      if (transfer != null) {
+        TransferTuner.end(transfer);
+      }
 
       try {
         if (inChannel != null && inChannel.isOpen()) inChannel.close();
@@ -283,13 +322,16 @@ public class GenericCopyUtil {
 
     if (mSourceFile.getMode() == openMode) {
       // we're in the same provider, use api method
+      sourceDigest = null;
       cloudStorage.copy(
           CloudUtil.stripPath(openMode, mSourceFile.getPath()),
           CloudUtil.stripPath(openMode, mTargetFile.getPath()));
     } else {
       cloudStorage.upload(
           CloudUtil.stripPath(openMode, mTargetFile.getPath()),
-          bufferedInputStream,
+          sourceDigest != null
+              ? new DigestInputStream(bufferedInputStream, sourceDigest)
+              : bufferedInputStream,
           mSourceFile.getSize(),
           true);
       bufferedInputStream.close();
@@ -297,10 +339,15 @@ public class GenericCopyUtil {
   }
 
   /**
-   * Method exposes this class to initiate copy
+   * Method exposes this class to initiate copy. Large downloads from SFTP and SMB are fetched in
+   * several parts at once, see {@link SegmentedDownload}; other copies from or to SFTP and SMB are
+   * checkpointed, see {@link ResumableCopy}. When verifying, the target is checked against the
+   * source once copied, see {@link CopyVerifier}.
    *
    * @param sourceFile the source file, which is to be copied
    * @param targetFile the target file
+   * @throws com.amaze.filemanager.exceptions.ChecksumMismatchException if verifying and the
+   *     target doesn't match the source
    */
   public void copy(
       HybridFileParcelable sourceFile,
@@ -311,7 +358,31 @@ public class GenericCopyUtil {
     this.mSourceFile = sourceFile;
     this.mTargetFile = targetFile;
 
-    startCopy(false, onLowMemory, updatePosition);
+    if (SegmentedDownload.isSupported(sourceFile, targetFile)) {
+      try {
+        new SegmentedDownload(progressHandler).download(sourceFile, targetFile, updatePosition);
+      } finally {
+        MediaConnectionUtils.scanFile(mContext, new HybridFile[] {mTargetFile});
+      }
+      // segments arrive out of order, the source can't be digested on the way
+      sourceDigest = null;
+    } else if (ResumableCopy.isSupported(sourceFile, targetFile)) {
+      sourceDigest = verify ? CopyVerifier.newDigest() : null;
+      try {
+        boolean digestedWholeSource =
+            new ResumableCopy(mContext, progressHandler)
+                .copy(sourceFile, targetFile, updatePosition, sourceDigest);
+        if (!digestedWholeSource) sourceDigest = null;
+      } finally {
+        MediaConnectionUtils.scanFile(mContext, new HybridFile[] {mTargetFile});
+      }
+    } else {
+      startCopy(false, onLowMemory, updatePosition);
+    }
+
+    if (verify && !progressHandler.getCancelled()) {
+      new CopyVerifier(mContext).verify(sourceFile, targetFile, sourceDigest);
+    }
   }
 
   /**
@@ -389,15 +460,49 @@ public class GenericCopyUtil {
     doCopy(inChannel, Channels.newChannel(bufferedOutputStream), updatePosition);
   }
 
+  /**
+   * Moves a local file or directory by renaming it, so no bytes are copied. This only works when
+   * source and target are on the same filesystem, and the target doesn't exist yet.
+   *
+   * @param sourceFile the file to be moved
+   * @param targetFile where to move the file to
+   * @return true if the file was moved, false if it has to be copied instead
+   */
+  public static boolean renameWithinFilesystem(
+      @NonNull HybridFile sourceFile, @NonNull HybridFile targetFile) {
+    if (!sourceFile.isLocal() || !targetFile.isLocal()) return false;
+
+    File source = new File(sourceFile.getPath());
+    File target = new File(targetFile.getPath());
+    if (target.exists() || !FileProperties.isWritable(target)) return false;
+
+    // fails with EXDEV if target is on another filesystem, which is cheap to find out
+    return source.renameTo(target);
+  }
+
   @VisibleForTesting
   void doCopy(
       @NonNull ReadableByteChannel from,
       @NonNull WritableByteChannel to,
       @NonNull UpdatePosition updatePosition)
       throws IOException {
-    ByteBuffer buffer = ByteBuffer.allocateDirect(DEFAULT_TRANSFER_QUANTUM);
+    if (isKernelTransfer(from, to)) {
+      doTransfer((FileChannel) from, (FileChannel) to, updatePosition);
+      return;
+    }
+
+    // small files are common, a direct buffer of the tuned size would churn native memory
+    long sourceSize = mSourceFile != null ? mSourceFile.getSize() : 0;
+    int capacity =
+        sourceSize > 0
+            ? (int) Math.min(blockSize, Math.max(sourceSize, DEFAULT_BUFFER_SIZE))
+            : blockSize;
+    ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
     long count;
-    while ((from.read(buffer) != -1 || buffer.position() > 0) && !progressHandler.getCancelled()) {
+    while (!progressHandler.getCancelled()) {
+      int start = buffer.position();
+      if (from.read(buffer) == -1 && buffer.position() == 0) break;
+      if (sourceDigest != null) digest(buffer, start);
       buffer.flip();
       count = to.write(buffer);
       updatePosition.updatePosition(count);
@@ -407,7 +512,56 @@ public class GenericCopyUtil {
     buffer.flip();
     while (buffer.hasRemaining()) to.write(buffer);
 
+    if (to instanceof FileChannel) {
+      // target may have been larger than source, if it was overwritten
+      FileChannel target = (FileChannel) to;
+      target.truncate(target.position());
+    }
+
     from.close();
     to.close();
   }
+
+  /** Answers if bytes will be moved by the kernel, without going through our buffer */
+  private boolean isKernelTransfer(
+      @NonNull ReadableByteChannel from, @NonNull WritableByteChannel to) {
+    return from instanceof FileChannel && to instanceof FileChannel && sourceDigest == null;
+  }
+
+  /** Feeds the digest with the bytes just read into buffer, from start to its position */
+  private void digest(@NonNull ByteBuffer buffer, int start) {
+    ByteBuffer read = buffer.duplicate();
+    read.flip();
+    read.position(start);
+    sourceDigest.update(read);
+  }
+
+  /**
+   * Copies between two local files with {@link FileChannel#transferTo(long, long,
+   * WritableByteChannel)}, letting the kernel move the bytes without passing them through a
+   * buffer of our own.
+   */
+  private void doTransfer(
+      @NonNull FileChannel from, @NonNull FileChannel to, @NonNull UpdatePosition updatePosition)
+      throws IOException {
+    try {
+      long size = from.size();
+      long position = from.position();
+      while (position < size && !progressHandler.getCancelled()) {
+        long count =
+            from.transferTo(position, Math.min(LOCAL_TRANSFER_QUANTUM, size - position), to);
+        if (count <= 0) {
+          // source shrank while we were copying
+          break;
+        }
+        position += count;
+        updatePosition.updatePosition(count);
+      }
+      // target may have been larger than source, if it was overwritten
+      to.truncate(to.position());
+    } finally {
+      from.close();
+      to.close();
+    }
+  }
 }
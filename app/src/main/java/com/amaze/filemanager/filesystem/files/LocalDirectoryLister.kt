@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.annotation.SuppressLint
+import android.os.Build
+import android.system.ErrnoException
+import android.system.Os
+import android.system.OsConstants
+import android.system.StructStat
+import androidx.annotation.RequiresApi
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.filesystem.RootHelper
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Lists local directories with a single stat call per entry, instead of the separate calls behind
+ * [File.isDirectory], [File.length] and [File.lastModified]. Entries of very large directories are
+ * stat'ed on as many threads as there are cores.
+ *
+ * Relies on [Os.stat], only available from Lollipop on, see [isSupported].
+ */
+object LocalDirectoryLister {
+    private val log: Logger = LoggerFactory.getLogger(LocalDirectoryLister::class.java)
+
+    /** Directories with fewer entries are stat'ed on the calling thread. */
+    const val FAN_OUT_THRESHOLD = 1024
+
+    private const val CHUNK_SIZE = 256
+
+    private val executor: ExecutorService by lazy {
+        Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors().coerceAtLeast(2),
+            StatThreadFactory(),
+        )
+    }
+
+    /**
+     * Whether directories can be listed this way. False before Lollipop, or if stat doesn't work
+     * at all.
+     */
+    @JvmStatic
+    val isSupported: Boolean by lazy {
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP &&
+            runCatching { Os.stat("/") }
+                .onFailure { log.warn("stat not available, listing files one call at a time", it) }
+                .isSuccess
+    }
+
+    /**
+     * List the children of directory, in the same order as [File.list]. Only call if
+     * [isSupported].
+     *
+     * @return false if directory couldn't be listed
+     */
+    @SuppressLint("NewApi")
+    @JvmStatic
+    fun list(
+        directory: File,
+        showHidden: Boolean,
+        onFileFound: (HybridFileParcelable) -> Unit,
+    ): Boolean {
+        val names = directory.list() ?: return false
+        // same as File.isHidden, which only looks at the name
+        val visible = if (showHidden) names.asList() else names.filterNot { it.startsWith('.') }
+        if (visible.size < FAN_OUT_THRESHOLD) {
+            visible.forEach { onFileFound(entryOf(directory, it)) }
+        } else {
+            visible.chunked(CHUNK_SIZE)
+                .map { chunk -> executor.submit(Callable { chunk.map { entryOf(directory, it) } }) }
+                // chunks are handed over in order, as soon as each is ready
+                .forEach { future -> future.get().forEach(onFileFound) }
+        }
+        return true
+    }
+
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private fun entryOf(
+        directory: File,
+        name: String,
+    ): HybridFileParcelable {
+        val path = File(directory, name).path
+        val stat =
+            try {
+                Os.stat(path)
+            } catch (e: ErrnoException) {
+                // dangling symlink, or deleted meanwhile: same as what File would answer
+                null
+            }
+        val isDirectory = stat != null && OsConstants.S_ISDIR(stat.st_mode)
+        return HybridFileParcelable(
+            path,
+            // access(2) behind File.canRead and friends, as mode bits don't tell the truth on FUSE
+            // or sdcardfs mounts, nor account for SELinux
+            if (stat != null) RootHelper.parseFilePermission(File(path)) else "",
+            stat?.let { lastModifiedOf(it) } ?: 0L,
+            if (stat == null || isDirectory) 0L else stat.st_size,
+            isDirectory,
+        ).apply {
+            this.name = name
+            this.mode = OpenMode.FILE
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private fun lastModifiedOf(stat: StructStat): Long {
+        return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            stat.st_mtim.tv_sec * 1000 + stat.st_mtim.tv_nsec / 1_000_000
+        } else {
+            stat.st_mtime * 1000
+        }
+    }
+
+    private class StatThreadFactory : ThreadFactory {
+        private val counter = AtomicInteger(0)
+
+        override fun newThread(r: Runnable): Thread =
+            Thread(r, "directory-lister-${counter.incrementAndGet()}").also {
+                it.isDaemon = true
+            }
+    }
+}
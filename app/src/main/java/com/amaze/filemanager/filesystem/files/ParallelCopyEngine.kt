@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.utils.ProgressHandler
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Copies independent files on a bounded pool of worker threads.
+ *
+ * Callers walk the source tree themselves (creating directories in order) and [submit] each
+ * regular file copy. Every file copy holds a slot on both its source and target device for the
+ * duration of the transfer, so that e.g. a slow OTG stick or an FTP server never gets more
+ * concurrent streams than it can handle, independent of how many workers are free.
+ *
+ * The first failure aborts the engine: copies already running are allowed to finish, but no new
+ * copy is started afterwards, mimicking the sequential behaviour of stopping at the first error.
+ */
+class ParallelCopyEngine
+    @JvmOverloads
+    constructor(
+        private val progressHandler: ProgressHandler,
+        workerCount: Int = DEFAULT_WORKER_COUNT,
+    ) {
+        /**
+         * A single unit of work, run on a worker thread.
+         */
+        fun interface CopyAction {
+            /**
+             * Perform the copy.
+             */
+            @Throws(IOException::class)
+            fun copy()
+        }
+
+        /**
+         * Groups all the copies belonging to one of the files the user selected, so that failures
+         * can be reported against it.
+         */
+        inner class Job internal constructor() {
+            private val error = AtomicReference<Throwable?>(null)
+
+            @Volatile
+            private var skipped = false
+
+            /**
+             * The first error thrown by any of the copies of this job, if any.
+             */
+            fun getError(): Throwable? = error.get()
+
+            /**
+             * Answers if any of the copies of this job failed, or was never run because another
+             * copy failed. Copies skipped because the user cancelled do not count as failures.
+             */
+            fun isFailed(): Boolean = error.get() != null || (skipped && getFailure() != null)
+
+            internal fun fail(e: Throwable) {
+                error.compareAndSet(null, e)
+            }
+
+            internal fun skip() {
+                skipped = true
+            }
+        }
+
+        private val workerCount = workerCount.coerceAtLeast(1)
+        private val executor: ExecutorService =
+            Executors.newFixedThreadPool(this.workerCount, WorkerThreadFactory())
+
+        /** Keeps the submitting thread from running too far ahead of the workers. */
+        private val queueSlots = Semaphore(this.workerCount * QUEUED_COPIES_PER_WORKER)
+        private val deviceSlots: MutableMap<String, Semaphore> = ConcurrentHashMap()
+        private val firstFailure = AtomicReference<Throwable?>(null)
+        private val pending = AtomicInteger(0)
+        private val lock = Object()
+
+        /**
+         * Answers if no further copies will be started, either because one failed or because the
+         * operation was cancelled by the user.
+         */
+        fun isAborted(): Boolean = firstFailure.get() != null || progressHandler.cancelled
+
+        /**
+         * The first error that aborted the engine, if any.
+         */
+        fun getFailure(): Throwable? = firstFailure.get()
+
+        /**
+         * Record an error that happened outside of the engine while processing the given [Job],
+         * e.g. while walking the source tree. Aborts the engine like a failed copy would.
+         */
+        fun reportFailure(
+            job: Job,
+            e: Throwable,
+        ) {
+            job.fail(e)
+            firstFailure.compareAndSet(null, e)
+        }
+
+        /**
+         * Create a new [Job] for a top level source file.
+         */
+        fun newJob(): Job = Job()
+
+        /**
+         * Queue a file copy. Blocks while too many copies are queued already.
+         *
+         * @param job the [Job] the copy belongs to
+         * @param source the file being read, used to determine the source device
+         * @param target the file being written, used to determine the target device
+         * @param action the actual copy
+         */
+        fun submit(
+            job: Job,
+            source: HybridFile,
+            target: HybridFile,
+            action: CopyAction,
+        ) {
+            if (isAborted()) {
+                job.skip()
+                return
+            }
+            queueSlots.acquireUninterruptibly()
+            pending.incrementAndGet()
+            executor.execute {
+                try {
+                    if (isAborted()) {
+                        job.skip()
+                    } else {
+                        withDeviceSlots(source, target) { action.copy() }
+                    }
+                } catch (e: Throwable) {
+                    LOG.warn("failed to copy {} to {}", source.path, target.path, e)
+                    reportFailure(job, e)
+                } finally {
+                    queueSlots.release()
+                    if (pending.decrementAndGet() == 0) {
+                        synchronized(lock) { lock.notifyAll() }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Wait for all submitted copies to finish, then release the worker threads. The engine
+         * cannot be used after calling this.
+         */
+        fun awaitCompletion() {
+            try {
+                synchronized(lock) {
+                    while (pending.get() > 0) {
+                        lock.wait()
+                    }
+                }
+            } finally {
+                executor.shutdown()
+            }
+        }
+
+        private inline fun withDeviceSlots(
+            source: HybridFile,
+            target: HybridFile,
+            block: () -> Unit,
+        ) {
+            // Acquire in a stable order, so two workers can never wait on each other's slot
+            val slots =
+                sortedSetOf(deviceKeyOf(source), deviceKeyOf(target)).map { key ->
+                    deviceSlots.getOrPut(key) { Semaphore(maxConcurrencyFor(key), true) }
+                }
+            slots.forEach { it.acquireUninterruptibly() }
+            try {
+                block()
+            } finally {
+                slots.asReversed().forEach { it.release() }
+            }
+        }
+
+        private class WorkerThreadFactory : ThreadFactory {
+            private val counter = AtomicInteger(0)
+
+            override fun newThread(r: Runnable): Thread =
+                Thread(r, "copy-worker-${counter.incrementAndGet()}").also {
+                    it.isDaemon = true
+                }
+        }
+
+        companion object {
+            @JvmStatic
+            private val LOG: Logger = LoggerFactory.getLogger(ParallelCopyEngine::class.java)
+
+            /** Copies are I/O bound, so this doesn't need to follow the number of cores. */
+            const val DEFAULT_WORKER_COUNT = 4
+
+            private const val QUEUED_COPIES_PER_WORKER = 4
+
+            private const val KEY_SEPARATOR = "|"
+
+            /**
+             * Derive a key identifying the device or host the given file lives on. Files sharing
+             * the same key share the same concurrency limit.
+             */
+            @JvmStatic
+            fun deviceKeyOf(file: HybridFile): String {
+                val path = file.path ?: ""
+                val location =
+                    when (file.mode) {
+                        OpenMode.SMB, OpenMode.SFTP, OpenMode.FTP ->
+                            path.substringAfter("://")
+                                .substringBefore('/')
+                                .substringBefore('?')
+                                .substringAfterLast('@')
+                        OpenMode.FILE, OpenMode.ROOT, OpenMode.TRASH_BIN, OpenMode.ANDROID_DATA ->
+                            localVolumeOf(path)
+                        else -> ""
+                    }
+                return "${file.mode.name}$KEY_SEPARATOR$location"
+            }
+
+            /**
+             * Maximum number of concurrent transfers allowed against a single device key, as
+             * returned by [deviceKeyOf].
+             */
+            @JvmStatic
+            fun maxConcurrencyFor(deviceKey: String): Int =
+                when (OpenMode.valueOf(deviceKey.substringBefore(KEY_SEPARATOR))) {
+                    OpenMode.FILE, OpenMode.ROOT, OpenMode.TRASH_BIN, OpenMode.ANDROID_DATA -> 4
+                    OpenMode.SMB, OpenMode.SFTP -> 3
+                    OpenMode.OTG, OpenMode.DOCUMENT_FILE -> 2
+                    OpenMode.GDRIVE, OpenMode.DROPBOX, OpenMode.BOX, OpenMode.ONEDRIVE -> 2
+                    // FTP clients are not thread safe and get serialized anyway
+                    else -> 1
+                }
+
+            /**
+             * Local paths only differ in volume when they are on a different storage, which
+             * Android mounts below /storage.
+             */
+            private fun localVolumeOf(path: String): String {
+                val segments = path.split('/').filter { it.isNotEmpty() }
+                return when {
+                    segments.size >= 2 && segments[0] == "storage" ->
+                        "/${segments[0]}/${segments[1]}"
+                    else -> "/"
+                }
+            }
+        }
+    }
@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.content.Context
+import android.os.SystemClock
+import com.amaze.filemanager.database.TransferJournal
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.fileoperations.utils.UpdatePosition
+import com.amaze.filemanager.filesystem.FileProperties
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.filesystem.ftp.NetCopyClientUtils.extractRemotePathFrom
+import com.amaze.filemanager.filesystem.ssh.READ_AHEAD_MAX_UNCONFIRMED_READS
+import com.amaze.filemanager.filesystem.ssh.SFtpClientTemplate
+import com.amaze.filemanager.filesystem.ssh.SshClientUtils
+import com.amaze.filemanager.filesystem.ssh.openWithReadAheadSupport
+import com.amaze.filemanager.utils.ProgressHandler
+import jcifs.smb.SmbRandomAccessFile
+import net.schmizz.sshj.sftp.SFTPClient
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.io.RandomAccessFile
+import java.security.MessageDigest
+import java.util.EnumSet
+
+/**
+ * Copies a single file while recording its progress in the [TransferJournal], so that a copy
+ * interrupted by the service being killed or the network going away carries on from the last
+ * checkpoint the next time, instead of starting over.
+ *
+ * Only used when at least one end is remote, and both ends support writing from an arbitrary
+ * offset: local files, SFTP and SMB.
+ */
+class ResumableCopy(
+    private val context: Context,
+    private val progressHandler: ProgressHandler,
+) {
+    companion object {
+        @JvmStatic
+        private val LOG: Logger = LoggerFactory.getLogger(ResumableCopy::class.java)
+
+        /** Bytes written between two checkpoints. */
+        const val CHECKPOINT_INTERVAL = 16L * 1024 * 1024
+
+        private const val MAX_UNCONFIRMED_WRITES = 16
+
+        private val RESUMABLE_MODES = EnumSet.of(OpenMode.FILE, OpenMode.SFTP, OpenMode.SMB)
+
+        /**
+         * Answers if a copy from source to target can be made resumable.
+         */
+        @JvmStatic
+        fun isSupported(
+            source: HybridFile,
+            target: HybridFile,
+        ): Boolean {
+            return RESUMABLE_MODES.contains(source.mode) &&
+                RESUMABLE_MODES.contains(target.mode) &&
+                !(source.isLocal && target.isLocal) &&
+                (!source.isLocal || FileProperties.isReadable(File(source.path))) &&
+                (!target.isLocal || FileProperties.isWritable(File(target.path)))
+        }
+    }
+
+    /**
+     * Copy source to target, skipping whatever a previous interrupted copy already transferred.
+     *
+     * @param digest fed with every byte read from source, see [CopyVerifier]
+     * @return true if digest saw the whole source, false if the copy was resumed or cancelled
+     */
+    @Throws(IOException::class)
+    @JvmOverloads
+    fun copy(
+        source: HybridFileParcelable,
+        target: HybridFile,
+        updatePosition: UpdatePosition,
+        digest: MessageDigest? = null,
+    ): Boolean {
+        val sourceSize = source.size
+        val sourceLastModified = source.date
+        val checkpoint = TransferJournal.findCheckpoint(target.path)
+        val offset =
+            TransferJournal.resumeOffsetOf(
+                checkpoint,
+                source.path,
+                sourceSize,
+                sourceLastModified,
+                if (checkpoint != null) target.length(context) else 0L,
+            )
+        if (offset > 0) {
+            LOG.info("resuming copy of {} at byte {}", source.path, offset)
+            updatePosition.updatePosition(offset)
+        }
+
+        val transfer = TransferTuner.begin(source, target)
+        try {
+            val start = SystemClock.elapsedRealtime()
+            var position = offset
+            openSourceAt(source, offset).use { input ->
+                openTargetAt(target, offset).use { output ->
+                    val buffer = ByteArray(transfer.blockSize)
+                    var checkpointed = offset
+                    while (!progressHandler.cancelled) {
+                        val count = input.read(buffer)
+                        if (count < 0) break
+                        digest?.update(buffer, 0, count)
+                        output.write(buffer, 0, count)
+                        position += count
+                        updatePosition.updatePosition(count.toLong())
+                        if (position - checkpointed >= CHECKPOINT_INTERVAL) {
+                            output.flush()
+                            TransferJournal.checkpoint(
+                                target.path,
+                                source.path,
+                                sourceSize,
+                                sourceLastModified,
+                                position,
+                            )
+                            checkpointed = position
+                        }
+                    }
+                    output.flush()
+                    if (progressHandler.cancelled) {
+                        TransferJournal.checkpoint(
+                            target.path,
+                            source.path,
+                            sourceSize,
+                            sourceLastModified,
+                            position,
+                        )
+                    } else {
+                        TransferJournal.complete(target.path)
+                    }
+                }
+            }
+            if (progressHandler.cancelled) return false
+
+            TransferTuner.end(transfer, position - offset, SystemClock.elapsedRealtime() - start)
+        } finally {
+            TransferTuner.end(transfer)
+        }
+        return offset == 0L
+    }
+
+    private fun openSourceAt(
+        source: HybridFile,
+        offset: Long,
+    ): InputStream {
+        if (source.isSftp) {
+            return SshClientUtils.execute(
+                object : SFtpClientTemplate<InputStream>(source.path, false) {
+                    override fun execute(client: SFTPClient): InputStream {
+                        val remoteFile =
+                            client.openWithReadAheadSupport(extractRemotePathFrom(source.path))
+                        return remoteFile.ReadAheadRemoteFileInputStream(
+                            READ_AHEAD_MAX_UNCONFIRMED_READS,
+                            offset,
+                        ).closing(remoteFile, client)
+                    }
+                },
+            ) ?: throw IOException("Cannot open ${source.path} for reading")
+        }
+
+        val inputStream =
+            source.getInputStream(context)
+                ?: throw IOException("Cannot open ${source.path} for reading")
+        // both local and SMB streams skip by moving their file pointer, without reading
+        var remaining = offset
+        while (remaining > 0) {
+            val skipped = inputStream.skip(remaining)
+            if (skipped <= 0) {
+                inputStream.close()
+                throw IOException("Cannot skip to byte $offset of ${source.path}")
+            }
+            remaining -= skipped
+        }
+        return inputStream
+    }
+
+    /**
+     * Open target for writing from offset onward, discarding anything after offset. Calling
+     * [OutputStream.flush] on the returned stream guarantees the written bytes reached the target.
+     */
+    private fun openTargetAt(
+        target: HybridFile,
+        offset: Long,
+    ): OutputStream {
+        return when (target.mode) {
+            OpenMode.SFTP ->
+                SshClientUtils.execute(
+                    object : SFtpClientTemplate<OutputStream>(target.path, false) {
+                        override fun execute(client: SFTPClient): OutputStream {
+                            val remoteFile =
+                                client.open(
+                                    extractRemotePathFrom(target.path),
+                                    EnumSet.of(
+                                        net.schmizz.sshj.sftp.OpenMode.WRITE,
+                                        net.schmizz.sshj.sftp.OpenMode.CREAT,
+                                    ),
+                                )
+                            remoteFile.setLength(offset)
+                            return remoteFile.RemoteFileOutputStream(
+                                offset,
+                                MAX_UNCONFIRMED_WRITES,
+                            ).closing(remoteFile, client)
+                        }
+                    },
+                ) ?: throw IOException("Cannot open ${target.path} for writing")
+            OpenMode.SMB -> {
+                val randomAccessFile = SmbRandomAccessFile(target.smbFile, "rw")
+                randomAccessFile.setLength(offset)
+                randomAccessFile.seek(offset)
+                // SMB writes are acknowledged one by one, nothing to flush
+                object : OutputStream() {
+                    override fun write(b: Int) = randomAccessFile.write(b)
+
+                    override fun write(
+                        b: ByteArray,
+                        off: Int,
+                        len: Int,
+                    ) = randomAccessFile.write(b, off, len)
+
+                    override fun close() = randomAccessFile.close()
+                }
+            }
+            else -> {
+                val randomAccessFile = RandomAccessFile(target.path, "rw")
+                randomAccessFile.setLength(offset)
+                randomAccessFile.seek(offset)
+                object : OutputStream() {
+                    override fun write(b: Int) = randomAccessFile.write(b)
+
+                    override fun write(
+                        b: ByteArray,
+                        off: Int,
+                        len: Int,
+                    ) = randomAccessFile.write(b, off, len)
+
+                    override fun flush() = randomAccessFile.fd.sync()
+
+                    override fun close() = randomAccessFile.close()
+                }
+            }
+        }
+    }
+
+    private fun InputStream.closing(vararg resources: Closeable): InputStream {
+        val inputStream = this
+        return object : InputStream() {
+            override fun read(): Int = inputStream.read()
+
+            override fun read(
+                b: ByteArray,
+                off: Int,
+                len: Int,
+            ): Int = inputStream.read(b, off, len)
+
+            override fun available(): Int = inputStream.available()
+
+            override fun close() {
+                try {
+                    inputStream.close()
+                } finally {
+                    resources.forEach { closeQuietly(it) }
+                }
+            }
+        }
+    }
+
+    private fun OutputStream.closing(vararg resources: Closeable): OutputStream {
+        val outputStream = this
+        return object : OutputStream() {
+            override fun write(b: Int) = outputStream.write(b)
+
+            override fun write(
+                b: ByteArray,
+                off: Int,
+                len: Int,
+            ) = outputStream.write(b, off, len)
+
+            override fun flush() = outputStream.flush()
+
+            override fun close() {
+                try {
+                    outputStream.close()
+                } finally {
+                    resources.forEach { closeQuietly(it) }
+                }
+            }
+        }
+    }
+
+    private fun closeQuietly(closeable: Closeable) {
+        runCatching { closeable.close() }.onFailure { LOG.warn("Error closing {}", closeable, it) }
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import com.amaze.filemanager.database.TransferJournal
+import com.amaze.filemanager.fileoperations.utils.UpdatePosition
+import com.amaze.filemanager.filesystem.FileProperties
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.filesystem.ftp.NetCopyClientUtils.extractRemotePathFrom
+import com.amaze.filemanager.filesystem.ssh.READ_AHEAD_MAX_UNCONFIRMED_READS
+import com.amaze.filemanager.filesystem.ssh.SFtpClientTemplate
+import com.amaze.filemanager.filesystem.ssh.SshClientUtils
+import com.amaze.filemanager.filesystem.ssh.openWithReadAheadSupport
+import com.amaze.filemanager.utils.ProgressHandler
+import jcifs.smb.SmbRandomAccessFile
+import net.schmizz.sshj.sftp.SFTPClient
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Downloads a large SFTP or SMB file to local storage as several byte ranges fetched at the same
+ * time, each over its own SFTP channel or SMB file handle, and written at their position in the
+ * target. A single stream rarely fills the link because of the round trip per request.
+ *
+ * The number of ranges fetched from one server at the same time, over all downloads, is capped
+ * at [maxSegmentsPerHost].
+ *
+ * How far each range got is recorded in the [TransferJournal], so that a download interrupted by
+ * the service being killed carries on from there. A download stopped by a failure or cancelled
+ * keeps what was downloaded from the start of the file without a gap, and leaves it to
+ * [ResumableCopy] to carry on.
+ */
+class SegmentedDownload
+    @JvmOverloads
+    constructor(
+        private val progressHandler: ProgressHandler,
+        private val minSegmentSize: Long = MIN_SEGMENT_SIZE,
+        private val segmentOpener: SegmentOpener =
+            SegmentOpener { source, start -> openRemoteSegment(source, start) },
+    ) {
+        /**
+         * Opens the source of a download for reading from the given byte onward.
+         */
+        fun interface SegmentOpener {
+            @Throws(IOException::class)
+            fun open(
+                source: HybridFileParcelable,
+                start: Long,
+            ): InputStream
+        }
+
+        companion object {
+            @JvmStatic
+            private val LOG: Logger = LoggerFactory.getLogger(SegmentedDownload::class.java)
+
+            /** Files smaller than this are downloaded in one piece. */
+            const val SEGMENTED_DOWNLOAD_THRESHOLD = 64L * 1024 * 1024
+
+            /** Not worth opening another channel for less than this. */
+            const val MIN_SEGMENT_SIZE = 16L * 1024 * 1024
+
+            const val DEFAULT_MAX_SEGMENTS_PER_HOST = 4
+
+            /** Separates the target path from the range in the journal key of a segment */
+            private const val SEGMENT_SEPARATOR = "#segment:"
+
+            /**
+             * Maximum number of ranges fetched from one server at the same time.
+             * Only read when a server is first downloaded from.
+             */
+            @JvmField
+            var maxSegmentsPerHost = DEFAULT_MAX_SEGMENTS_PER_HOST
+
+            private val hostSlots = ConcurrentHashMap<String, Semaphore>()
+
+            /**
+             * Runs the segments. Its threads are never interrupted, as that would close the
+             * [FileChannel] shared by all the segments of a download.
+             */
+            private val executor: ExecutorService =
+                Executors.newCachedThreadPool { runnable ->
+                    Thread(runnable, "segmented-download").apply { isDaemon = true }
+                }
+
+            /**
+             * Answers if source is worth downloading to target in segments. Interrupted copies are
+             * left to [ResumableCopy], which knows where to carry on.
+             */
+            @JvmStatic
+            fun isSupported(
+                source: HybridFileParcelable,
+                target: HybridFile,
+            ): Boolean {
+                return (source.isSftp || source.isSmb) &&
+                    source.size >= SEGMENTED_DOWNLOAD_THRESHOLD &&
+                    target.isLocal &&
+                    FileProperties.isWritable(File(target.path)) &&
+                    TransferJournal.findCheckpoint(target.path) == null
+            }
+
+            /**
+             * Split size bytes into count consecutive ranges of about the same length.
+             *
+             * @return start offset and length of each range
+             */
+            @JvmStatic
+            fun splitIntoSegments(
+                size: Long,
+                count: Int,
+            ): List<Pair<Long, Long>> {
+                val segmentSize = size / count
+                return (0 until count).map { i ->
+                    val start = i * segmentSize
+                    Pair(start, if (i == count - 1) size - start else segmentSize)
+                }
+            }
+
+            /**
+             * Number of bytes from the start of the file downloaded without a gap.
+             */
+            private fun contiguousLength(segments: List<Segment>): Long {
+                var length = 0L
+                for (segment in segments.sortedBy { it.start }) {
+                    if (segment.start != length) break
+                    if (segment.position < segment.end) return segment.position
+                    length = segment.end
+                }
+                return length
+            }
+
+            /**
+             * Open an SFTP or SMB source for reading from the given byte onward.
+             */
+            @Throws(IOException::class)
+            private fun openRemoteSegment(
+                source: HybridFileParcelable,
+                start: Long,
+            ): InputStream {
+                if (source.isSftp) {
+                    return SshClientUtils.execute(
+                        object : SFtpClientTemplate<InputStream>(source.path, false) {
+                            override fun execute(client: SFTPClient): InputStream {
+                                val remoteFile =
+                                    client.openWithReadAheadSupport(
+                                        extractRemotePathFrom(source.path),
+                                    )
+                                val inputStream =
+                                    remoteFile.ReadAheadRemoteFileInputStream(
+                                        READ_AHEAD_MAX_UNCONFIRMED_READS,
+                                        start,
+                                    )
+                                return object : InputStream() {
+                                    override fun read(): Int = inputStream.read()
+
+                                    override fun read(
+                                        b: ByteArray,
+                                        off: Int,
+                                        len: Int,
+                                    ): Int = inputStream.read(b, off, len)
+
+                                    override fun close() {
+                                        try {
+                                            inputStream.close()
+                                        } finally {
+                                            remoteFile.close()
+                                            client.close()
+                                        }
+                                    }
+                                }
+                            }
+                        },
+                    ) ?: throw IOException("Failed to download ${source.path} from byte $start")
+                }
+
+                val randomAccessFile = SmbRandomAccessFile(source.smbFile, "r")
+                randomAccessFile.seek(start)
+                return object : InputStream() {
+                    override fun read(): Int = randomAccessFile.read()
+
+                    override fun read(
+                        b: ByteArray,
+                        off: Int,
+                        len: Int,
+                    ): Int = randomAccessFile.read(b, off, len)
+
+                    override fun close() = randomAccessFile.close()
+                }
+            }
+        }
+
+        private class Segment(val key: String, val start: Long, val end: Long, position: Long) {
+            @Volatile
+            var position = position
+        }
+
+        /** Set once a segment failed, to stop the others */
+        @Volatile
+        private var stopped = false
+
+        /**
+         * Download source into target, replacing its contents.
+         */
+        @Throws(IOException::class)
+        fun download(
+            source: HybridFileParcelable,
+            target: HybridFile,
+            updatePosition: UpdatePosition,
+        ) {
+            val size = source.size
+            val slots =
+                hostSlots.getOrPut(ParallelCopyEngine.deviceKeyOf(source)) {
+                    Semaphore(maxSegmentsPerHost, true)
+                }
+            val wanted = (size / minSegmentSize).toInt().coerceIn(1, maxSegmentsPerHost)
+            // Always make progress with one range, take more only if the server has spare slots
+            slots.acquireUninterruptibly()
+            var acquired = 1
+            while (acquired < wanted && slots.tryAcquire()) {
+                acquired++
+            }
+
+            // keep other transfers between these devices from measuring their throughput
+            val transfer = TransferTuner.begin(source, target)
+            try {
+                RandomAccessFile(target.path, "rw").use { randomAccessFile ->
+                    val segments =
+                        resumedSegments(source, target, randomAccessFile.length())
+                            ?: newSegments(source, target, acquired)
+                    randomAccessFile.setLength(size)
+                    val resumed = segments.sumOf { it.position - it.start }
+                    if (resumed > 0) {
+                        LOG.info("resuming download of {} at {} bytes", source.path, resumed)
+                        updatePosition.updatePosition(resumed)
+                    }
+                    LOG.debug("downloading {} in {} segments", source.path, acquired)
+
+                    val channel = randomAccessFile.channel
+                    val failure =
+                        downloadSegments(source, segments, channel, acquired, updatePosition)
+                    if (failure == null && !progressHandler.cancelled) {
+                        TransferJournal.completeAll(target.path + SEGMENT_SEPARATOR)
+                        return
+                    }
+
+                    // keep what has no gap, and drop the zeros preallocated after it
+                    channel.force(false)
+                    val length = contiguousLength(segments)
+                    randomAccessFile.setLength(length)
+                    TransferJournal.checkpoint(
+                        target.path,
+                        source.path,
+                        size,
+                        source.date,
+                        length,
+                    )
+                    TransferJournal.completeAll(target.path + SEGMENT_SEPARATOR)
+                    if (failure != null) {
+                        throw failure as? IOException ?: IOException(failure)
+                    }
+                }
+            } finally {
+                TransferTuner.end(transfer)
+                slots.release(acquired)
+            }
+        }
+
+        /**
+         * Segments recorded in the journal by an interrupted download of the same source to
+         * target, or null if there are none or they don't fit.
+         */
+        private fun resumedSegments(
+            source: HybridFileParcelable,
+            target: HybridFile,
+            targetLength: Long,
+        ): List<Segment>? {
+            val prefix = target.path + SEGMENT_SEPARATOR
+            val checkpoints = TransferJournal.findCheckpoints(prefix)
+            if (checkpoints.isEmpty()) return null
+
+            val segments =
+                checkpoints.mapNotNull { checkpoint ->
+                    val range = checkpoint.target.substring(prefix.length).split('-')
+                    val start = range.getOrNull(0)?.toLongOrNull()
+                    val end = range.getOrNull(1)?.toLongOrNull()
+                    if (start != null &&
+                        end != null &&
+                        checkpoint.source == source.path &&
+                        checkpoint.sourceSize == source.size &&
+                        checkpoint.sourceLastModified == source.date &&
+                        checkpoint.completedBytes in 0..end - start
+                    ) {
+                        Segment(checkpoint.target, start, end, start + checkpoint.completedBytes)
+                    } else {
+                        null
+                    }
+                }.sortedBy { it.start }
+            // the segments must still be there, and cover the whole file
+            val fits =
+                targetLength == source.size &&
+                    segments.size == checkpoints.size &&
+                    segments.first().start == 0L &&
+                    segments.last().end == source.size &&
+                    segments.zipWithNext().all { (previous, next) -> previous.end == next.start }
+            if (!fits) {
+                TransferJournal.completeAll(prefix)
+                return null
+            }
+            return segments
+        }
+
+        /**
+         * Split the download into count segments, recorded in the journal as not started.
+         */
+        private fun newSegments(
+            source: HybridFileParcelable,
+            target: HybridFile,
+            count: Int,
+        ): List<Segment> =
+            splitIntoSegments(source.size, count).map { (start, length) ->
+                val key = "${target.path}$SEGMENT_SEPARATOR$start-${start + length}"
+                TransferJournal.checkpoint(key, source.path, source.size, source.date, 0)
+                Segment(key, start, start + length, start)
+            }
+
+        /**
+         * Download the given segments, at most [parallelism] at the same time.
+         *
+         * @return the first failure, or null if every segment was downloaded or cancelled
+         */
+        private fun downloadSegments(
+            source: HybridFileParcelable,
+            segments: List<Segment>,
+            channel: FileChannel,
+            parallelism: Int,
+            updatePosition: UpdatePosition,
+        ): Throwable? {
+            val queue = ConcurrentLinkedQueue(segments.filter { it.position < it.end })
+            val failure = AtomicReference<Throwable>()
+            val futures: List<Future<*>> =
+                (0 until minOf(parallelism, queue.size)).map {
+                    executor.submit {
+                        try {
+                            while (!stopped && !progressHandler.cancelled) {
+                                val segment = queue.poll() ?: break
+                                downloadSegment(source, segment, channel, updatePosition)
+                            }
+                        } catch (e: Exception) {
+                            LOG.warn("failed to download a segment of {}", source.path, e)
+                            failure.compareAndSet(null, e)
+                            stopped = true
+                        }
+                    }
+                }
+
+            // wait for every segment to stop, they all write to the channel
+            var interrupted = false
+            for (future in futures) {
+                while (true) {
+                    try {
+                        future.get()
+                        break
+                    } catch (e: InterruptedException) {
+                        interrupted = true
+                        stopped = true
+                    } catch (e: ExecutionException) {
+                        failure.compareAndSet(null, e.cause)
+                        stopped = true
+                        break
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt()
+                failure.compareAndSet(null, IOException("Download of ${source.path} interrupted"))
+            }
+            return failure.get()
+        }
+
+        private fun downloadSegment(
+            source: HybridFileParcelable,
+            segment: Segment,
+            target: FileChannel,
+            updatePosition: UpdatePosition,
+        ) {
+            segmentOpener.open(source, segment.position).use { input ->
+                val buffer = ByteArray(GenericCopyUtil.DEFAULT_TRANSFER_QUANTUM)
+                var checkpointed = segment.position
+                while (segment.position < segment.end && !stopped && !progressHandler.cancelled) {
+                    val wanted = minOf(buffer.size.toLong(), segment.end - segment.position)
+                    val count = input.read(buffer, 0, wanted.toInt())
+                    if (count < 0) {
+                        throw IOException("Unexpected end of file at byte ${segment.position}")
+                    }
+                    val byteBuffer = ByteBuffer.wrap(buffer, 0, count)
+                    while (byteBuffer.hasRemaining()) {
+                        target.write(byteBuffer, segment.position + byteBuffer.position())
+                    }
+                    segment.position += count
+                    // Callers may pass a non thread safe UpdatePosition
+                    synchronized(updatePosition) {
+                        updatePosition.updatePosition(count.toLong())
+                    }
+                    if (segment.position - checkpointed >= ResumableCopy.CHECKPOINT_INTERVAL ||
+                        segment.position == segment.end
+                    ) {
+                        target.force(false)
+                        TransferJournal.checkpoint(
+                            segment.key,
+                            source.path,
+                            source.size,
+                            source.date,
+                            segment.position - segment.start,
+                        )
+                        checkpointed = segment.position
+                    }
+                }
+            }
+        }
+    }
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.content.Context
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.utils.OnProgressUpdate
+import com.amaze.filemanager.utils.ProgressHandler
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.util.EnumSet
+import java.util.IdentityHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Sums up the size of files on background threads, listing directories concurrently, and adds to
+ * the total size of a [ProgressHandler] as it goes. This lets an operation start moving bytes right
+ * away, instead of waiting for the size of a deep or remote tree, while its progress and remaining
+ * time converge as the walk finishes.
+ *
+ * [ProgressHandler.isTotalSizeKnown] answers false until the walk finished.
+ */
+class TotalSizeWalker
+    @JvmOverloads
+    constructor(
+        private val context: Context,
+        private val progressHandler: ProgressHandler,
+        workerCount: Int = DEFAULT_WORKER_COUNT,
+    ) {
+        private val executor: ExecutorService =
+            Executors.newFixedThreadPool(workerCount.coerceAtLeast(1), WorkerThreadFactory())
+        private val total = AtomicLong(0)
+
+        /** Directories not walked yet, plus one held by [start] while it's submitting. */
+        private val pending = AtomicInteger(1)
+        private val done = CountDownLatch(1)
+
+        /** Size walked under each of the started files, only written by [start] */
+        private val roots = IdentityHashMap<HybridFileParcelable, Root>()
+
+        @Volatile
+        private var cancelled = false
+
+        /**
+         * Start walking the given files. Returns immediately.
+         */
+        fun start(files: List<HybridFileParcelable>) {
+            progressHandler.totalSize = 0
+            progressHandler.isTotalSizeKnown = false
+            for (file in files) {
+                val root = Root()
+                roots[file] = root
+                submit { visit(file, file.isDirectory(context), root) }
+            }
+            release()
+        }
+
+        /**
+         * Wait for the walk to finish.
+         *
+         * @return total size of the files walked
+         */
+        fun await(): Long {
+            done.await()
+            return total.get()
+        }
+
+        /**
+         * Hand the size of [file], one of the files given to [start], to [onSize]: what was walked
+         * so far right away, and the rest as the walk finds it. This lets a file that needs no
+         * copying count as done, without walking it again.
+         */
+        fun onSizeOf(
+            file: HybridFileParcelable,
+            onSize: (Long) -> Unit,
+        ) {
+            val root = roots[file] ?: return
+            val walked =
+                synchronized(root) {
+                    root.onSize = onSize
+                    root.size
+                }
+            onSize(walked)
+        }
+
+        /**
+         * Stop walking. The total size stays as far as it got, and callbacks given to [onSizeOf]
+         * aren't called anymore.
+         */
+        fun cancel() {
+            cancelled = true
+        }
+
+        private fun visit(
+            file: HybridFileParcelable,
+            isDirectory: Boolean,
+            root: Root,
+        ) {
+            if (!isDirectory) {
+                add(if (file.size > 0) file.size else file.length(context), root)
+            } else if (file.mode == OpenMode.FILE) {
+                // walked in parallel too, but skipping directories unchanged since last time
+                FolderSizeCalculator.folderSize(
+                    File(file.path),
+                    object : OnProgressUpdate<Long> {
+                        private var reported = 0L
+
+                        override fun onUpdate(data: Long) {
+                            add(data - reported, root)
+                            reported = data
+                        }
+                    },
+                )
+            } else if (!WALKED_MODES.contains(file.mode)) {
+                // these have a cheaper way than listing every directory, e.g. asking the server
+                add(file.folderSize(context), root)
+            } else {
+                file.forEachChildrenFile(context, false) { child ->
+                    if (child.isDirectory) {
+                        submit { visit(child, true, root) }
+                    } else {
+                        add(child.size, root)
+                    }
+                }
+            }
+        }
+
+        private fun add(
+            size: Long,
+            root: Root,
+        ) {
+            // a directory being walked when cancelled may still find some
+            if (isCancelled()) return
+            total.addAndGet(size)
+            progressHandler.addTotalSize(size)
+            val onSize =
+                synchronized(root) {
+                    root.size += size
+                    root.onSize
+                }
+            onSize?.invoke(size)
+        }
+
+        private fun submit(task: () -> Unit) {
+            if (isCancelled()) return
+            pending.incrementAndGet()
+            executor.execute {
+                try {
+                    if (!isCancelled()) task()
+                } catch (e: Exception) {
+                    // the size is only informative, don't fail the whole operation for it
+                    LOG.warn("failed to find size", e)
+                } finally {
+                    release()
+                }
+            }
+        }
+
+        private fun release() {
+            if (pending.decrementAndGet() == 0) {
+                if (!isCancelled()) progressHandler.isTotalSizeKnown = true
+                executor.shutdown()
+                done.countDown()
+            }
+        }
+
+        private fun isCancelled() = cancelled || progressHandler.cancelled
+
+        private class Root {
+            var size = 0L
+            var onSize: ((Long) -> Unit)? = null
+        }
+
+        private class WorkerThreadFactory : ThreadFactory {
+            private val counter = AtomicInteger(0)
+
+            override fun newThread(r: Runnable): Thread =
+                Thread(r, "size-walker-${counter.incrementAndGet()}").also {
+                    it.isDaemon = true
+                }
+        }
+
+        companion object {
+            @JvmStatic
+            private val LOG: Logger = LoggerFactory.getLogger(TotalSizeWalker::class.java)
+
+            /** Listing is I/O bound, so this doesn't need to follow the number of cores. */
+            const val DEFAULT_WORKER_COUNT = 4
+
+            /** Modes whose directories are listed one by one here, in parallel. */
+            private val WALKED_MODES =
+                EnumSet.of(
+                    OpenMode.SMB,
+                    OpenMode.FTP,
+                    OpenMode.OTG,
+                    OpenMode.DOCUMENT_FILE,
+                )
+        }
+    }
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.ExplorerDatabase
+import com.amaze.filemanager.database.models.explorer.TransferTuning
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.files.ParallelCopyEngine.Companion.deviceKeyOf
+import io.reactivex.schedulers.Schedulers
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Learns which transfer block size gives the best throughput between a source and a target
+ * device, as told apart by [ParallelCopyEngine.deviceKeyOf], so that e.g. every USB OTG stick and
+ * every SMB server ends up with its own chunk size.
+ *
+ * Transfers report the throughput they achieved when they [end]. The block size then climbs
+ * towards the best one, by trying half and double the best known size, within [MIN_BLOCK_SIZE]
+ * and [MAX_BLOCK_SIZE]. The best known size is persisted, and used as starting point next time.
+ */
+object TransferTuner {
+    private val log: Logger = LoggerFactory.getLogger(TransferTuner::class.java)
+    private val database: ExplorerDatabase = AppConfig.getInstance().explorerDatabase
+
+    const val MIN_BLOCK_SIZE = 8 * 1024
+    const val MAX_BLOCK_SIZE = 8 * 1024 * 1024
+
+    /** Shorter transfers are dominated by the time taken to open the files. */
+    const val MIN_SAMPLE_BYTES = 4L * 1024 * 1024
+
+    private const val MIN_SAMPLE_MILLIS = 50L
+
+    /** Weight of past measurements against a new one, for a block size. */
+    private const val SMOOTHING = 4
+
+    private const val SEPARATOR = ">"
+
+    private val tunings: MutableMap<String, Tuning> = ConcurrentHashMap()
+
+    /**
+     * Key of the pair of devices a transfer goes between.
+     */
+    @JvmStatic
+    fun devicesOf(
+        source: HybridFile,
+        target: HybridFile,
+    ): String = deviceKeyOf(source) + SEPARATOR + deviceKeyOf(target)
+
+    /**
+     * Start a transfer from source to target, with the block size it should use. It must be
+     * ended with [end], whether it completed or not.
+     */
+    @JvmStatic
+    fun begin(
+        source: HybridFile,
+        target: HybridFile,
+    ): Transfer {
+        val devices = devicesOf(source, target)
+        val tuning = tuningOf(devices)
+        val ticket = tuning.begin()
+        return Transfer(devices, tuning, tuning.next(), ticket)
+    }
+
+    /**
+     * End a transfer started with [begin], reporting how much it copied and how long it took.
+     * Its throughput is only recorded if it is long enough to tell anything, and if it was the
+     * only transfer between these devices all along: parallel transfers share the bandwidth.
+     * Ending a transfer again does nothing.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun end(
+        transfer: Transfer,
+        bytes: Long = 0,
+        elapsedMillis: Long = 0,
+    ) {
+        if (!transfer.ended.compareAndSet(false, true)) return
+        val alone = transfer.tuning.end(transfer.ticket)
+        if (!alone || bytes < MIN_SAMPLE_BYTES || elapsedMillis < MIN_SAMPLE_MILLIS) return
+
+        val devices = transfer.devices
+        val (best, throughput) =
+            transfer.tuning.record(transfer.blockSize, bytes * 1000 / elapsedMillis)
+        runCatching {
+            database.transferTuningDao()
+                .insert(TransferTuning(devices, best, throughput))
+                .subscribeOn(Schedulers.io())
+                .blockingAwait()
+        }.onFailure {
+            log.warn("failed to save transfer tuning of {}", devices, it)
+        }
+    }
+
+    private fun tuningOf(devices: String): Tuning =
+        tunings.getOrPut(devices) {
+            runCatching {
+                database.transferTuningDao().find(devices).subscribeOn(Schedulers.io())
+                    .blockingGet()
+            }.onFailure {
+                log.warn("failed to read transfer tuning of {}", devices, it)
+            }.getOrNull()?.let {
+                Tuning(it.blockSize, it.throughput)
+            } ?: Tuning(GenericCopyUtil.DEFAULT_TRANSFER_QUANTUM)
+        }
+
+    /**
+     * A transfer between a pair of devices, from [begin] to [end].
+     */
+    class Transfer internal constructor(
+        internal val devices: String,
+        internal val tuning: Tuning,
+        /** Block size the transfer should use. */
+        val blockSize: Int,
+        internal val ticket: Long,
+    ) {
+        internal val ended = AtomicBoolean()
+    }
+
+    /**
+     * Throughputs measured between a pair of devices, in bytes per second, for each block size
+     * tried.
+     */
+    class Tuning
+        @JvmOverloads
+        constructor(
+            initialBlockSize: Int,
+            initialThroughput: Long = 0,
+        ) {
+            private val throughputs = HashMap<Int, Long>()
+
+            /** Transfers running between these devices. */
+            private var running = 0
+
+            /** Transfers started between these devices so far. */
+            private var started = 0L
+
+            /** Block size with the best throughput so far. */
+            @get:Synchronized
+            var best = initialBlockSize.coerceIn(MIN_BLOCK_SIZE, MAX_BLOCK_SIZE)
+                private set
+
+            init {
+                if (initialThroughput > 0) throughputs[best] = initialThroughput
+            }
+
+            /**
+             * Count a transfer starting between these devices.
+             *
+             * @return ticket to pass to [end]
+             */
+            @Synchronized
+            fun begin(): Long {
+                running++
+                started++
+                return if (running == 1) started else -1
+            }
+
+            /**
+             * Count a transfer started with [begin] ending.
+             *
+             * @return whether it ran alone, from its start to its end
+             */
+            @Synchronized
+            fun end(ticket: Long): Boolean {
+                running--
+                // no other transfer was running when it started, and none started since
+                return ticket == started
+            }
+
+            /**
+             * Block size to try next: the best one, unless it has a neighbour never tried yet.
+             */
+            @Synchronized
+            fun next(): Int {
+                if (!throughputs.containsKey(best)) return best
+                return listOf(best * 2, best / 2).firstOrNull {
+                    it in MIN_BLOCK_SIZE..MAX_BLOCK_SIZE && !throughputs.containsKey(it)
+                } ?: best
+            }
+
+            /**
+             * Record the throughput of a transfer made with the given block size.
+             *
+             * @return best block size after this measurement, and its throughput
+             */
+            @Synchronized
+            fun record(
+                blockSize: Int,
+                throughput: Long,
+            ): Pair<Int, Long> {
+                throughputs[blockSize] =
+                    throughputs[blockSize]?.let { (it * (SMOOTHING - 1) + throughput) / SMOOTHING }
+                        ?: throughput
+                best = throughputs.entries.maxBy { it.value }.key
+                return Pair(best, throughputs.getValue(best))
+            }
+        }
+}
@@ -33,4 +33,10 @@ interface ComparableParcelable {
 
     /** Returns the size of the item represented by the parcelable */
     fun getSize(): Long
+
+    /**
+     * Returns the [SortKey] of [getParcelableName], best kept around instead of being created at
+     * each call, as it is needed at each comparison
+     */
+    fun getSortKey(): SortKey
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files.sort
+
+import com.amaze.filemanager.filesystem.files.FileListSorter
+
+/**
+ * What [FileListSorter] compares of a name, derived once instead of at each comparison.
+ *
+ * @see ComparableParcelable.getSortKey
+ */
+class SortKey(
+    /** The name the keys were derived from */
+    val name: String,
+) {
+    /** [name] folded so that comparing it orders like comparing [name] ignoring case */
+    val foldedName: String = fold(name)
+
+    /** Extension of [name], as in [FileListSorter.getExtension] */
+    val extension: String = FileListSorter.getExtension(name)
+
+    companion object {
+        /**
+         * Fold every char the way [String.CASE_INSENSITIVE_ORDER] compares them, so that ordinal
+         * order of folded strings is the same as case insensitive order of the original ones.
+         */
+        @JvmStatic
+        fun fold(s: String): String {
+            var chars: CharArray? = null
+            for (i in s.indices) {
+                val c = s[i]
+                val folded = Character.toLowerCase(Character.toUpperCase(c))
+                if (folded != c) {
+                    if (chars == null) chars = s.toCharArray()
+                    chars[i] = folded
+                }
+            }
+            return if (chars == null) s else String(chars)
+        }
+    }
+}
@@ -23,8 +23,7 @@ package com.amaze.filemanager.filesystem.ftp
 import org.apache.commons.net.ftp.FTPClient
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
-import java.io.File
-import java.io.FileInputStream
+import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
 import kotlin.random.Random
@@ -66,48 +65,48 @@ class FTPClientImpl(private val ftpClient: FTPClient) : NetCopyClient<FTPClient>
         }
 
         /**
-         * Wraps an an temporary [File] returned by [FTPClient.retrieveFileStream].
-         * Most important part is to do [File.delete] when the reading is done.
+         * Wraps an [InputStream] returned by [FTPClient.retrieveFileStream] on a connection
+         * borrowed by [NetCopyClientConnectionPool.checkout].
+         * On [InputStream.close] the transfer is finished with [FTPClient.completePendingCommand]
+         * and the connection is given back to the pool.
          */
         @JvmStatic
-        fun wrap(inputFile: File) =
-            object : InputStream() {
-                private val inputStream = FileInputStream(inputFile)
-
-                override fun read() = inputStream.read()
+        fun wrap(
+            inputStream: InputStream,
+            client: NetCopyClient<FTPClient>,
+        ) = object : InputStream() {
+            override fun read() = inputStream.read()
 
-                override fun read(b: ByteArray?): Int = inputStream.read(b)
+            override fun read(b: ByteArray?): Int = inputStream.read(b)
 
-                override fun read(
-                    b: ByteArray?,
-                    off: Int,
-                    len: Int,
-                ): Int = inputStream.read(b, off, len)
+            override fun read(
+                b: ByteArray?,
+                off: Int,
+                len: Int,
+            ): Int = inputStream.read(b, off, len)
 
-                override fun reset() = inputStream.reset()
+            override fun available(): Int = inputStream.available()
 
-                override fun available(): Int = inputStream.available()
+            override fun skip(n: Long): Long = inputStream.skip(n)
 
-                override fun close() {
+            override fun close() {
+                // Server may answer 426 if the stream was closed before end of file
+                release(client) {
                     inputStream.close()
-                    inputFile.delete()
                 }
-
-                override fun markSupported(): Boolean = inputStream.markSupported()
-
-                override fun mark(readlimit: Int) = inputStream.mark(readlimit)
-
-                override fun skip(n: Long): Long = inputStream.skip(n)
             }
+        }
 
         /**
-         * Wraps an [OutputStream] returned by [FTPClient.storeFileStream].
-         * Most important part is to do [FTPClient.completePendingCommand] on [OutputStream.close].
+         * Wraps an [OutputStream] returned by [FTPClient.storeFileStream] on a connection
+         * borrowed by [NetCopyClientConnectionPool.checkout].
+         * Most important part is to do [FTPClient.completePendingCommand] on [OutputStream.close],
+         * before giving the connection back to the pool.
          */
         @JvmStatic
         fun wrap(
             outputStream: OutputStream,
-            ftpClient: FTPClient,
+            client: NetCopyClient<FTPClient>,
         ) = object : OutputStream() {
             override fun write(b: Int) = outputStream.write(b)
 
@@ -122,8 +121,32 @@ class FTPClientImpl(private val ftpClient: FTPClient) : NetCopyClient<FTPClient>
             override fun flush() = outputStream.flush()
 
             override fun close() {
-                outputStream.close()
-                ftpClient.completePendingCommand()
+                release(client) {
+                    outputStream.close()
+                }
+            }
+        }
+
+        /**
+         * Close the data stream, then give the connection back to the pool if the transfer
+         * completed, or discard the connection otherwise.
+         */
+        private inline fun release(
+            client: NetCopyClient<FTPClient>,
+            closeStream: () -> Unit,
+        ) {
+            val completed =
+                try {
+                    closeStream()
+                    client.getClientImpl().completePendingCommand()
+                } catch (e: IOException) {
+                    logger.warn("Error completing FTP transfer", e)
+                    false
+                }
+            if (completed) {
+                NetCopyClientConnectionPool.checkin(client)
+            } else {
+                NetCopyClientConnectionPool.invalidate(client)
             }
         }
     }
@@ -37,7 +37,8 @@ interface NetCopyClient<T> {
     /**
      * Answers if the client returned by [getClientImpl] requires thread safety.
      *
-     * [NetCopyClientUtils.execute] will see this flag and enforce locking as necessary.
+     * [NetCopyClientConnectionPool] will see this flag and hand out the client to one borrower at
+     * a time, opening more connections to the server as necessary.
      */
     fun isRequireThreadSafety(): Boolean = false
 
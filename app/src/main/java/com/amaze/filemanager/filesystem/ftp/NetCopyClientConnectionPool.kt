@@ -21,6 +21,7 @@
 package com.amaze.filemanager.filesystem.ftp
 
 import android.annotation.SuppressLint
+import androidx.annotation.VisibleForTesting
 import com.amaze.filemanager.application.AppConfig
 import com.amaze.filemanager.asynchronous.asynctasks.ftp.auth.FtpAuthenticationTask
 import com.amaze.filemanager.asynchronous.asynctasks.ssh.PemToKeyPairObservable
@@ -29,7 +30,6 @@ import com.amaze.filemanager.filesystem.ftp.FTPClientImpl.Companion.ARG_TLS
 import com.amaze.filemanager.filesystem.ftp.FTPClientImpl.Companion.TLS_EXPLICIT
 import com.amaze.filemanager.filesystem.ftp.NetCopyClientUtils.extractBaseUriFrom
 import com.amaze.filemanager.filesystem.ftp.NetCopyConnectionInfo.Companion.QUESTION_MARK
-import io.reactivex.Flowable
 import io.reactivex.Maybe
 import io.reactivex.Observable.create
 import io.reactivex.Single
@@ -45,7 +45,11 @@ import org.slf4j.LoggerFactory
 import java.security.KeyPair
 import java.util.concurrent.Callable
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
 import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicReference
 
 object NetCopyClientConnectionPool {
@@ -56,8 +60,41 @@ object NetCopyClientConnectionPool {
     const val FTPS_URI_PREFIX = "ftps://"
     const val SSH_URI_PREFIX = "ssh://"
     const val CONNECT_TIMEOUT = 30000
+    const val DEFAULT_MAX_CONNECTIONS_PER_HOST = 4
+    const val DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000L
+    private const val EVICTION_INTERVAL = 30 * 1000L
 
-    private var connections: MutableMap<String, NetCopyClient<*>> = ConcurrentHashMap()
+    private val connections: ConcurrentMap<String, NetCopyClientHostPool> = ConcurrentHashMap()
+
+    // By host and port, shared by the pools of all accounts on the server
+    private val hosts: ConcurrentMap<String, NetCopyClientHostPool.Host> = ConcurrentHashMap()
+
+    /**
+     * Maximum number of connections opened to one server, whichever account they are for. Only
+     * applies to clients that [NetCopyClient.isRequireThreadSafety]; other clients share a single
+     * connection per account.
+     */
+    @JvmField
+    var maxConnectionsPerHost: Int = DEFAULT_MAX_CONNECTIONS_PER_HOST
+
+    /**
+     * Connections not used for this many milliseconds are closed in background.
+     */
+    @JvmField
+    var idleTimeout: Long = DEFAULT_IDLE_TIMEOUT
+
+    private val evictor: ScheduledExecutorService by lazy {
+        Executors.newSingleThreadScheduledExecutor { runnable ->
+            Thread(runnable, "NetCopyClientConnectionPool-evictor").apply { isDaemon = true }
+        }.apply {
+            scheduleWithFixedDelay(
+                { evictIdleConnections() },
+                EVICTION_INTERVAL,
+                EVICTION_INTERVAL,
+                TimeUnit.MILLISECONDS,
+            )
+        }
+    }
 
     @JvmStatic
     private val LOG: Logger = LoggerFactory.getLogger(NetCopyClientConnectionPool::class.java)
@@ -74,37 +111,111 @@ object NetCopyClientConnectionPool {
      * Beneath it will return the connection if it exists; otherwise it will create a new one and
      * put it into the connection pool.
      *
+     * The connection is not reserved for the caller, hence this is only good for verifying that a
+     * connection can be made. Use [checkout] to do work with the connection.
+     *
      * @param url SSH connection URL, in the form of `
      * ssh://<username>:<password>@<host>:<port>` or `
      * ssh://<username>@<host>:<port>`
      * @return [NetCopyClient] connection, already opened and authenticated
      * @throws IOException IOExceptions that occur during connection setup
      */
-    fun <ClientType> getConnection(url: String): NetCopyClient<ClientType>? {
-        var client = connections[url]
-        if (client == null) {
-            client = createNetCopyClient.invoke(url)
-            if (client != null) {
-                connections[extractBaseUriFrom(url)] = client
-            }
-        } else {
-            if (!validate(client)) {
-                LOG.debug("Connection no longer usable. Reconnecting...")
-                expire(client)
-                connections.remove(url)
-                client = createNetCopyClient.invoke(url)
-                if (client != null) {
-                    connections[extractBaseUriFrom(url)] = client
-                }
-            }
+    fun <ClientType> getConnection(url: String): NetCopyClient<ClientType>? =
+        checkout<ClientType>(url)?.also { checkin(it) }
+
+    /**
+     * Borrow a [NetCopyClient] connection from the connection pool, opening a new one if none is
+     * free. Must be given back with [checkin], or [invalidate] if it is no longer usable.
+     *
+     * Clients that [NetCopyClient.isRequireThreadSafety] are not handed to anyone else until
+     * given back; if [maxConnectionsPerHost] are already borrowed, waits up to [timeoutMillis]
+     * for one to be returned.
+     *
+     * Validity of pooled connections is only checked locally here; connections dropped by the
+     * server are found and closed in background.
+     *
+     * @param url connection URL, path part is ignored
+     * @param timeoutMillis how long to wait for a connection to be returned
+     * @return [NetCopyClient] connection, already opened and authenticated, or null on failure
+     */
+    @JvmOverloads
+    fun <ClientType> checkout(
+        url: String,
+        timeoutMillis: Long = CONNECT_TIMEOUT.toLong(),
+    ): NetCopyClient<ClientType>? {
+        return poolOf(url).checkout(maxConnectionsPerHost, timeoutMillis) {
+            createNetCopyClient.invoke(url)
+        } as NetCopyClient<ClientType>?
+    }
+
+    /**
+     * Give back a connection borrowed by [checkout].
+     */
+    fun checkin(client: NetCopyClient<*>) {
+        if (connections.values.none { it.checkin(client) }) {
+            // Pool was removed in the meantime
+            client.expire()
         }
-        return if (client != null) {
-            client as NetCopyClient<ClientType>?
-        } else {
-            null
+    }
+
+    /**
+     * Close a connection borrowed by [checkout] and remove it from the pool.
+     */
+    fun invalidate(client: NetCopyClient<*>) {
+        if (connections.values.none { it.invalidate(client) }) {
+            client.expire()
         }
     }
 
+    /**
+     * Returns statistics of the connections to the server of the given URL, or null if no
+     * connection was ever made to it.
+     */
+    fun getStats(url: String): NetCopyClientHostPool.Stats? =
+        connections[extractBaseUriFrom(url)]?.stats()
+
+    /**
+     * Close connections idle for longer than [idleTimeout], or no longer valid.
+     *
+     * Runs periodically in background; exposed for tests.
+     *
+     * @return number of connections closed
+     */
+    @VisibleForTesting
+    internal fun evictIdleConnections(): Int {
+        val now = System.currentTimeMillis()
+        return connections.values.sumOf { it.evictIdle(now, idleTimeout) }.also {
+            if (it > 0) LOG.debug("Closed {} idle connections", it)
+        }
+    }
+
+    /**
+     * Replace the pooled connections to the server of the given URL with the given, already
+     * opened connection, without closing the replaced ones. For injecting mocks in tests.
+     */
+    @VisibleForTesting
+    internal fun putConnection(
+        url: String,
+        client: NetCopyClient<*>,
+    ) {
+        connections.put(
+            extractBaseUriFrom(url),
+            NetCopyClientHostPool(hostOf(url)).apply { put(client) },
+        )?.detach()
+    }
+
+    private fun poolOf(url: String): NetCopyClientHostPool =
+        connections.getOrPut(extractBaseUriFrom(url)) {
+            // Start background eviction along with the first pool
+            evictor
+            NetCopyClientHostPool(hostOf(url))
+        }
+
+    private fun hostOf(url: String): NetCopyClientHostPool.Host =
+        NetCopyConnectionInfo(url).let {
+            hosts.getOrPut("${it.host}:${it.port}") { NetCopyClientHostPool.Host() }
+        }
+
     /**
      * Obtain a [NetCopyClient] connection from the underlying connection pool.
      *
@@ -146,30 +257,17 @@ object NetCopyClientConnectionPool {
                 password,
                 explicitTls,
             )
-        var client = connections[url]
-        if (client == null) {
-            client =
-                createNetCopyClientInternal(
-                    protocol,
-                    host,
-                    port,
-                    hostFingerprint,
-                    username,
-                    password,
-                    keyPair,
-                    explicitTls,
-                )
-            if (client != null) connections[url] = client
-        } else {
-            if (!validate(client)) {
-                LOG.debug("Connection no longer usable. Reconnecting...")
-                expire(client)
-                connections.remove(url)
-                client = createNetCopyClient(url)
-                if (client != null) connections[url] = client
-            }
-        }
-        return client
+        val pool = poolOf(url)
+        return pool.peek() ?: createNetCopyClientInternal(
+            protocol,
+            host,
+            port,
+            hostFingerprint,
+            username,
+            password,
+            keyPair,
+            explicitTls,
+        )?.also { pool.put(it) }
     }
 
     private val createNetCopyClient: (String) -> NetCopyClient<*>? = { url ->
@@ -234,26 +332,12 @@ object NetCopyClientConnectionPool {
      */
     fun shutdown() {
         AppConfig.getInstance().runInBackground {
-            if (connections.isNotEmpty()) {
-                connections.values.forEach {
-                    it.expire()
-                }
-                connections.clear()
+            connections.keys.toList().forEach { url ->
+                connections.remove(url)?.expireAll()
             }
         }
     }
 
-    private fun validate(client: NetCopyClient<*>): Boolean {
-        return Single.fromCallable {
-            client.isConnectionValid()
-        }.subscribeOn(NetCopyClientUtils.getScheduler(client)).blockingGet()
-    }
-
-    private fun expire(client: NetCopyClient<*>) =
-        Flowable.fromCallable {
-            client.expire()
-        }.subscribeOn(NetCopyClientUtils.getScheduler(client))
-
     // Logic for creating SSH connection. Depends on password existence in given Uri password or
     // key-based authentication
     @Suppress("TooGenericExceptionThrown")
@@ -409,12 +493,7 @@ object NetCopyClientConnectionPool {
         private val url: String,
     ) : Callable<Unit> {
         override fun call() {
-            extractBaseUriFrom(url).run {
-                if (connections.containsKey(this)) {
-                    connections[this]?.expire()
-                    connections.remove(this)
-                }
-            }
+            connections.remove(extractBaseUriFrom(url))?.expireAll()
         }
     }
 
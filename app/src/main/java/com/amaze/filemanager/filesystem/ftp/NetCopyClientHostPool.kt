@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.ftp
+
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.Condition
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Connections of [NetCopyClientConnectionPool] to a single server.
+ *
+ * Clients which [NetCopyClient.isRequireThreadSafety] (i.e. FTP) are handed out to one borrower
+ * at a time, and new connections are opened as needed up to the given limit; borrowers beyond
+ * that wait for a connection to be checked in. Other clients (i.e. SSH, which multiplexes
+ * channels over one connection) are shared between borrowers, and another connection is only
+ * opened once the shared one is gone.
+ *
+ * Pools of different accounts on the same server share a [Host], the limit applies to their
+ * connections together.
+ */
+class NetCopyClientHostPool(private val host: Host = Host()) {
+    /**
+     * What the pools of all accounts on one server share: their lock, and so the count of
+     * connections open to it.
+     */
+    class Host {
+        internal val lock = ReentrantLock()
+        internal val returned: Condition = lock.newCondition()
+        internal val pools = ArrayList<NetCopyClientHostPool>()
+    }
+
+    private class Entry(val client: NetCopyClient<*>) {
+        var borrowers = 0
+        var lastUsed = System.currentTimeMillis()
+
+        // Invalidated while shared, not handed out again and closed once the last borrower is done
+        var retired = false
+    }
+
+    /**
+     * Snapshot of the state of a [NetCopyClientHostPool].
+     */
+    data class Stats(
+        val idle: Int,
+        val inUse: Int,
+        val created: Long,
+        val evicted: Long,
+        val checkouts: Long,
+        val waits: Long,
+    )
+
+    private val lock = host.lock
+    private val returned = host.returned
+    private val entries = ArrayList<Entry>()
+
+    // Connections being opened outside the lock, counted against the limit
+    private var opening = 0
+
+    // Whether connections are shared between borrowers, null until the first one is opened
+    private var shareable: Boolean? = null
+    private var created = 0L
+    private var evicted = 0L
+    private var checkouts = 0L
+    private var waits = 0L
+
+    init {
+        lock.withLock { host.pools.add(this) }
+    }
+
+    /**
+     * Borrow a connection, which must be given back with [checkin] or [invalidate].
+     *
+     * @param maxConnections maximum number of connections to keep open to this server, including
+     * the ones of other accounts
+     * @param timeoutMillis how long to wait for a connection to be returned if none is available
+     * @param create opens a new connection, already authenticated; null if it cannot be made
+     * @return connection, or null if none could be opened or waiting timed out
+     */
+    fun checkout(
+        maxConnections: Int,
+        timeoutMillis: Long,
+        create: () -> NetCopyClient<*>?,
+    ): NetCopyClient<*>? {
+        var remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+        val stale = ArrayList<NetCopyClient<*>>()
+        lock.lock()
+        try {
+            while (true) {
+                entries.removeAll { entry ->
+                    (entry.borrowers == 0 && !entry.client.isConnectionValid()).also {
+                        if (it) {
+                            stale.add(entry.client)
+                            evicted++
+                        }
+                    }
+                }
+                val entry =
+                    entries.firstOrNull { it.borrowers == 0 }
+                        ?: entries.filterNot { it.retired || it.client.isRequireThreadSafety() }
+                            .minByOrNull { it.borrowers }
+                if (entry != null) {
+                    entry.borrowers++
+                    checkouts++
+                    return entry.client
+                }
+                // a connection being opened may be shared, so wait for it instead of opening more
+                val mayShareOpening = opening > 0 && shareable != false
+                if (!mayShareOpening) {
+                    if (host.pools.sumOf { it.entries.size + it.opening } < maxConnections) {
+                        break
+                    }
+                    // an idle connection of another account makes room for this one
+                    val idle = removeIdleOfOtherAccount()
+                    if (idle != null) {
+                        stale.add(idle)
+                        break
+                    }
+                }
+                if (remaining <= 0L) {
+                    LOG.error("Timed out waiting for a free connection")
+                    return null
+                }
+                waits++
+                remaining = returned.awaitNanos(remaining)
+            }
+            opening++
+        } finally {
+            lock.unlock()
+            stale.forEach(::expireQuietly)
+        }
+
+        val client = runCatching(create).onFailure { LOG.warn("Error opening connection", it) }
+        lock.withLock {
+            opening--
+            returned.signalAll()
+            return client.getOrNull()?.also {
+                shareable = !it.isRequireThreadSafety()
+                entries.add(Entry(it).apply { borrowers = 1 })
+                created++
+                checkouts++
+            }
+        }
+    }
+
+    /**
+     * Give back a connection borrowed by [checkout]. Connections no longer valid are closed.
+     *
+     * @return false if the connection does not belong to this pool
+     */
+    fun checkin(client: NetCopyClient<*>): Boolean {
+        var stale = false
+        lock.withLock {
+            val entry = entries.firstOrNull { it.client === client } ?: return false
+            entry.borrowers--
+            entry.lastUsed = System.currentTimeMillis()
+            if (entry.borrowers == 0 && (entry.retired || !client.isConnectionValid())) {
+                entries.remove(entry)
+                evicted++
+                stale = true
+            }
+            returned.signalAll()
+        }
+        if (stale) {
+            expireQuietly(client)
+        }
+        return true
+    }
+
+    /**
+     * Close and remove a connection, e.g. after a transfer on it was interrupted.
+     *
+     * A connection shared with other borrowers is only retired: it isn't handed out anymore, and
+     * is closed when the last of them gives it back.
+     *
+     * @return false if the connection does not belong to this pool
+     */
+    fun invalidate(client: NetCopyClient<*>): Boolean {
+        lock.withLock {
+            val entry = entries.firstOrNull { it.client === client } ?: return false
+            if (entry.borrowers > 1) {
+                entry.borrowers--
+                entry.retired = true
+                return true
+            }
+            entries.remove(entry)
+            evicted++
+            returned.signalAll()
+        }
+        expireQuietly(client)
+        return true
+    }
+
+    /**
+     * Add an already opened connection as idle.
+     */
+    fun put(client: NetCopyClient<*>) {
+        lock.withLock {
+            shareable = !client.isRequireThreadSafety()
+            entries.add(Entry(client))
+            created++
+            returned.signalAll()
+        }
+    }
+
+    /**
+     * Returns any valid connection, without borrowing it.
+     */
+    fun peek(): NetCopyClient<*>? =
+        lock.withLock {
+            entries.firstOrNull { !it.retired && it.client.isConnectionValid() }?.client
+        }
+
+    /**
+     * Close connections idle for longer than [idleTimeoutMillis], or no longer valid.
+     *
+     * @return number of connections closed
+     */
+    fun evictIdle(
+        now: Long,
+        idleTimeoutMillis: Long,
+    ): Int {
+        val stale = ArrayList<NetCopyClient<*>>()
+        lock.withLock {
+            entries.removeAll { entry ->
+                (
+                    entry.borrowers == 0 &&
+                        (
+                            now - entry.lastUsed >= idleTimeoutMillis ||
+                                !entry.client.isConnectionValid()
+                        )
+                ).also {
+                    if (it) stale.add(entry.client)
+                }
+            }
+            evicted += stale.size
+            if (stale.isNotEmpty()) returned.signalAll()
+        }
+        stale.forEach(::expireQuietly)
+        return stale.size
+    }
+
+    /**
+     * Close all connections, including the ones in use, and leave the [Host].
+     */
+    fun expireAll() {
+        val all =
+            lock.withLock {
+                host.pools.remove(this)
+                entries.map { it.client }.also {
+                    entries.clear()
+                    evicted += it.size
+                    returned.signalAll()
+                }
+            }
+        all.forEach(::expireQuietly)
+    }
+
+    /**
+     * Leave the [Host] without closing any connection, they no longer count against its limit.
+     */
+    fun detach() {
+        lock.withLock {
+            host.pools.remove(this)
+            returned.signalAll()
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool state.
+     */
+    fun stats(): Stats =
+        lock.withLock {
+            val idle = entries.count { it.borrowers == 0 }
+            Stats(idle, entries.size - idle, created, evicted, checkouts, waits)
+        }
+
+    /**
+     * Remove an idle connection from the pool of another account on the same server. Must hold
+     * the lock.
+     *
+     * @return the removed connection, to be closed once the lock is released
+     */
+    private fun removeIdleOfOtherAccount(): NetCopyClient<*>? {
+        for (pool in host.pools) {
+            if (pool === this) continue
+            val entry = pool.entries.firstOrNull { it.borrowers == 0 } ?: continue
+            pool.entries.remove(entry)
+            pool.evicted++
+            return entry.client
+        }
+        return null
+    }
+
+    private fun expireQuietly(client: NetCopyClient<*>) {
+        runCatching(client::expire).onFailure { LOG.warn("Error closing connection", it) }
+    }
+
+    companion object {
+        @JvmStatic
+        private val LOG: Logger = LoggerFactory.getLogger(NetCopyClientHostPool::class.java)
+    }
+}
@@ -34,7 +34,9 @@ import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool.FTP_DEFA
 import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool.FTP_URI_PREFIX
 import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool.SSH_DEFAULT_PORT
 import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool.SSH_URI_PREFIX
-import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool.getConnection
+import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool.checkin
+import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool.checkout
+import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool.invalidate
 import com.amaze.filemanager.filesystem.ftp.NetCopyConnectionInfo.Companion.AND
 import com.amaze.filemanager.filesystem.ftp.NetCopyConnectionInfo.Companion.AT
 import com.amaze.filemanager.filesystem.ftp.NetCopyConnectionInfo.Companion.COLON
@@ -63,15 +65,12 @@ object NetCopyClientUtils {
 
     /**
      * Lambda to determine the [Scheduler] to use.
-     * Default is [Schedulers.io] while [Schedulers.single] is used when thread safety is required.
+     * Default is [Schedulers.io]. Clients requiring thread safety need no dedicated thread, since
+     * [NetCopyClientConnectionPool.checkout] hands each of them to one borrower at a time.
      */
     @JvmStatic
     var getScheduler: (NetCopyClient<*>) -> Scheduler = {
-        if (it.isRequireThreadSafety()) {
-            Schedulers.single()
-        } else {
-            Schedulers.io()
-        }
+        Schedulers.io()
     }
         // Allow test cases to override the Scheduler to use, or deadlocks will occur
         // because tests are run in parallel
@@ -91,12 +90,12 @@ object NetCopyClientUtils {
      */
     @WorkerThread
     fun <ClientType, T> execute(template: NetCopyClientTemplate<ClientType, T>): T? {
-        var client = getConnection<ClientType>(extractBaseUriFrom(template.url))
-        if (client == null) {
-            client = getConnection(template.url)
-        }
+        // one attempt: both the base URI and the full URL would wait on the same pool
+        val client = checkout<ClientType>(extractBaseUriFrom(template.url))
         var retval: T? = null
-        if (client != null) {
+        if (client == null) {
+            LOG.error("No connection available to execute template method")
+        } else {
             retval =
                 runCatching {
                     Maybe.fromCallable {
@@ -106,7 +105,9 @@ object NetCopyClientUtils {
                     LOG.error("Error executing template method", it)
                 }.also {
                     if (template.closeClientOnFinish) {
-                        tryDisconnect(client)
+                        invalidate(client)
+                    } else {
+                        checkin(client)
                     }
                 }.getOrNull()
         }
@@ -215,18 +216,6 @@ object NetCopyClientUtils {
         }
     }
 
-    /**
-     * Disconnects the given [NetCopyClient] but wrap all exceptions beneath, so callers are free
-     * from the hassles of handling thrown exceptions.
-     *
-     * @param client [NetCopyClient] instance
-     */
-    private fun tryDisconnect(client: NetCopyClient<*>) {
-        if (client.isConnectionValid()) {
-            client.expire()
-        }
-    }
-
     /**
      * Decide the SSH URL depends on password/selected KeyPair.
      */
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.root
+
+import com.amaze.filemanager.fileoperations.exceptions.ShellNotRunningException
+import com.amaze.filemanager.filesystem.root.base.IRootCommand
+import java.io.File
+
+/**
+ * Runs the commands of an operation on many items in as few shell round trips as possible,
+ * instead of one per item.
+ */
+object BatchCommand : IRootCommand() {
+    /** Most commands sent in one round trip */
+    const val CHUNK_SIZE = 512
+
+    /** Line echoed after each command: `//S/<index>/<exit status>` */
+    private const val STATUS_PREFIX = "//S/"
+
+    /**
+     * Runs each of [commands] with superuser, whether the ones before succeeded or not, in one
+     * script per [CHUNK_SIZE] of them. The filesystems of [writablePaths] are remounted
+     * read-write before, and back to read-only after if they were.
+     *
+     * @param isCancelled checked between scripts, the commands not run yet then count as failed
+     * @return for each command, whether it exited with status 0
+     */
+    @JvmOverloads
+    @Throws(ShellNotRunningException::class)
+    fun runAll(
+        commands: List<String>,
+        writablePaths: Collection<String> = emptyList(),
+        isCancelled: () -> Boolean = { false },
+    ): BooleanArray {
+        val succeeded = BooleanArray(commands.size)
+        if (commands.isEmpty()) {
+            return succeeded
+        }
+
+        val mountPoints =
+            writablePaths.distinct().mapNotNull {
+                MountPathCommand.mountPath(it, MountPathCommand.READ_WRITE)
+            }
+        try {
+            var start = 0
+            while (start < commands.size && !isCancelled()) {
+                val end = minOf(start + CHUNK_SIZE, commands.size)
+                runChunk(commands, start, end, succeeded)
+                start = end
+            }
+        } finally {
+            // we mounted the filesystems as rw, let's mount them back to ro
+            mountPoints.forEach { MountPathCommand.mountPath(it, MountPathCommand.READ_ONLY) }
+        }
+        return succeeded
+    }
+
+    /** Distinct parent directories of [paths], for [runAll] to remount once each */
+    @JvmStatic
+    fun parentsOf(paths: Collection<String>): Set<String> =
+        paths.mapTo(LinkedHashSet()) { File(it).parent ?: it }
+
+    private fun runChunk(
+        commands: List<String>,
+        start: Int,
+        end: Int,
+        succeeded: BooleanArray,
+    ) {
+        val script =
+            (start until end).map { i -> "${commands[i]}; echo \"$STATUS_PREFIX$i/\$?\"" }
+        val result = runShellCommands(script)
+        for (line in result.out) {
+            if (!line.startsWith(STATUS_PREFIX)) {
+                continue
+            }
+            val status = line.substring(STATUS_PREFIX.length).split('/')
+            val index = status[0].toIntOrNull() ?: continue
+            if (index in start until end) {
+                succeeded[index] = status.getOrNull(1) == "0"
+            }
+        }
+    }
+}
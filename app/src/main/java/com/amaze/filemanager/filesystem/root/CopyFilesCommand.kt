@@ -39,12 +39,36 @@ object CopyFilesCommand : IRootCommand() {
         // remounting destination as rw
         val mountPoint = mountPath(destination, MountPathCommand.READ_WRITE)
 
-        runShellCommand(
-            "cp -r \"${RootHelper.getCommandLineString(source)}\" " +
-                "\"${RootHelper.getCommandLineString(destination)}\"",
-        )
+        runShellCommand(command(source, destination))
 
         // we mounted the filesystem as rw, let's mount it back to ro
         mountPoint?.let { mountPath(it, MountPathCommand.READ_ONLY) }
     }
+
+    /**
+     * Copies each of [sources] to the destination at the same index using root, in as few shell
+     * round trips as possible, see [BatchCommand.runAll]
+     *
+     * @return for each source, whether it was copied
+     */
+    @JvmOverloads
+    @Throws(ShellNotRunningException::class)
+    fun copyFiles(
+        sources: List<String>,
+        destinations: List<String>,
+        isCancelled: () -> Boolean = { false },
+    ): BooleanArray {
+        require(sources.size == destinations.size)
+        return BatchCommand.runAll(
+            sources.indices.map { command(sources[it], destinations[it]) },
+            BatchCommand.parentsOf(destinations),
+            isCancelled,
+        )
+    }
+
+    private fun command(
+        source: String,
+        destination: String,
+    ) = "cp -r \"${RootHelper.getCommandLineString(source)}\" " +
+        "\"${RootHelper.getCommandLineString(destination)}\""
 }
@@ -42,4 +42,17 @@ object DeleteFileCommand : IRootCommand() {
 
         return result.isNotEmpty()
     }
+
+    /**
+     * Recursively removes each of [paths] with their contents (if any), in as few shell round
+     * trips as possible, see [BatchCommand.runAll]
+     *
+     * @return for each path, whether it was removed
+     */
+    @Throws(ShellNotRunningException::class)
+    fun deleteFiles(paths: List<String>): BooleanArray =
+        BatchCommand.runAll(
+            paths.map { "rm -rf \"${RootHelper.getCommandLineString(it)}\"" },
+            BatchCommand.parentsOf(paths),
+        )
 }
@@ -30,6 +30,7 @@ import com.amaze.filemanager.fileoperations.filesystem.root.NativeOperations
 import com.amaze.filemanager.filesystem.HybridFileParcelable
 import com.amaze.filemanager.filesystem.RootHelper
 import com.amaze.filemanager.filesystem.files.FileUtils
+import com.amaze.filemanager.filesystem.files.LocalDirectoryLister
 import com.amaze.filemanager.filesystem.root.base.IRootCommand
 import com.amaze.filemanager.ui.fragments.preferencefragments.PreferencesConstants
 import org.slf4j.Logger
@@ -53,15 +54,17 @@ object ListFilesCommand : IRootCommand() {
         if (root && FileUtils.isRunningAboveStorage(path)) {
             // we're rooted and we're trying to load file with superuser
             // we're at the root directories, superuser is required!
-            val result = executeRootCommand(path, showHidden)
-            result.first.forEach {
-                if (!it.contains("Permission denied")) {
-                    parseStringForHybridFile(
-                        rawFile = it,
-                        path = path,
-                        isStat = !result.second,
-                    )
-                        ?.let(onFileFoundCallback)
+            if (!listRootStreaming(path, showHidden, onFileFoundCallback)) {
+                val result = executeRootCommand(path, showHidden)
+                result.first.forEach {
+                    if (!it.contains("Permission denied")) {
+                        parseStringForHybridFile(
+                            rawFile = it,
+                            path = path,
+                            isStat = !result.second,
+                        )
+                            ?.let(onFileFoundCallback)
+                    }
                 }
             }
             mode = OpenMode.ROOT
@@ -94,6 +97,60 @@ object ListFilesCommand : IRootCommand() {
         return mode
     }
 
+    /**
+     * Lists [path] with superuser in a single command, giving each entry to [onFileFound] as soon
+     * as its record is read. Types of symlink targets come from the same command, instead of
+     * being checked one by one afterwards. See [RootListingParser] for the records.
+     *
+     * @return false if listing has to be done with [executeRootCommand] instead: legacy listing
+     * is enforced, or the shell has no stat
+     */
+    fun listRootStreaming(
+        path: String,
+        showHidden: Boolean,
+        onFileFound: (HybridFileParcelable) -> Unit,
+    ): Boolean {
+        if (isLegacyListingEnforced()) {
+            return false
+        }
+
+        val directory = RootHelper.getCommandLineString(path).trimEnd('/').ifEmpty { "/" }
+        val quoted =
+            if (directory == "/") "''" else "'" + directory.replace("'", "'\\''") + "'"
+        val globs = "$quoted/*" + if (showHidden) " $quoted/.*" else ""
+        // Entries first, then what the symlinks among them hold, then what they resolve to
+        val command =
+            "cd / && command -v stat >/dev/null && { " +
+                "stat -c '${RootListingParser.RECORD_FORMAT}' $globs 2>/dev/null; " +
+                "for f in $globs; do [ -L \"\$f\" ] && " +
+                "printf '${RootListingParser.SYMLINK_FORMAT}' \"\$f\" \"\$(readlink \"\$f\")\"; " +
+                "done 2>/dev/null; " +
+                "stat -L -c '${RootListingParser.LINK_FORMAT}' $globs 2>/dev/null; true; }"
+
+        var found = false
+        val parser =
+            RootListingParser(directory) {
+                found = true
+                onFileFound(it)
+            }
+        return try {
+            log.info("Using streamed stat for list parsing")
+            val result = runShellCommandStreaming(command, parser::accept)
+            parser.finish()
+            found || result.isSuccess
+        } catch (exception: ShellNotRunningException) {
+            log.warn("failed to execute root command", exception)
+            true
+        }
+    }
+
+    private fun isLegacyListingEnforced(): Boolean =
+        PreferenceManager.getDefaultSharedPreferences(AppConfig.getInstance())
+            .getBoolean(
+                PreferencesConstants.PREFERENCE_ROOT_LEGACY_LISTING,
+                false,
+            )
+
     /**
      * executes list files root command directory and return each line item
      * returns pair with first denoting the result array and second if run with ls (true) or stat (false)
@@ -120,12 +177,7 @@ object ListFilesCommand : IRootCommand() {
             val command =
                 "stat -c '%A %h %G %U %B %Y %N' " +
                     "$appendedPath*" + (if (showHidden) " $appendedPath.* " else "")
-            val enforceLegacyFileListing: Boolean =
-                PreferenceManager.getDefaultSharedPreferences(AppConfig.getInstance())
-                    .getBoolean(
-                        PreferencesConstants.PREFERENCE_ROOT_LEGACY_LISTING,
-                        false,
-                    )
+            val enforceLegacyFileListing: Boolean = isLegacyListingEnforced()
             // #3476: Check current working dir, change back to / before proceeding
             runShellCommand("pwd").run {
                 if (out.first() != "/") {
@@ -187,32 +239,17 @@ object ListFilesCommand : IRootCommand() {
         val pathFile = File(path)
         val files = ArrayList<HybridFileParcelable>()
         if (pathFile.exists() && pathFile.isDirectory) {
-            val filesInPathFile = pathFile.listFiles()
-            if (filesInPathFile != null) {
-                filesInPathFile.forEach { currentFile ->
-                    var size: Long = 0
-                    if (!currentFile.isDirectory) size = currentFile.length()
-                    HybridFileParcelable(
-                        currentFile.path,
-                        RootHelper.parseFilePermission(currentFile),
-                        currentFile.lastModified(),
-                        size,
-                        currentFile.isDirectory,
-                    ).let { baseFile ->
-                        baseFile.name = currentFile.name
-                        baseFile.mode = OpenMode.FILE
-                        if (showHidden) {
-                            files.add(baseFile)
-                            listener(baseFile)
-                        } else {
-                            if (!currentFile.isHidden) {
-                                files.add(baseFile)
-                                listener(baseFile)
-                            }
-                        }
-                    }
+            val onFileFound: (HybridFileParcelable) -> Unit = { baseFile ->
+                files.add(baseFile)
+                listener(baseFile)
+            }
+            val listed =
+                if (LocalDirectoryLister.isSupported) {
+                    LocalDirectoryLister.list(pathFile, showHidden, onFileFound)
+                } else {
+                    listFilesOneByOne(pathFile, showHidden, onFileFound)
                 }
-            } else {
+            if (!listed) {
                 log.error("Error listing files at [$path]. Access permission denied?")
                 AppConfig.getInstance().run {
                     AppConfig.toast(this, this.getString(R.string.error_permission_denied))
@@ -222,6 +259,36 @@ object ListFilesCommand : IRootCommand() {
         return files
     }
 
+    /**
+     * Fallback for [LocalDirectoryLister], querying each attribute of each file separately.
+     *
+     * @return false if the directory couldn't be listed
+     */
+    private fun listFilesOneByOne(
+        pathFile: File,
+        showHidden: Boolean,
+        onFileFound: (HybridFileParcelable) -> Unit,
+    ): Boolean {
+        val filesInPathFile = pathFile.listFiles() ?: return false
+        filesInPathFile.forEach { currentFile ->
+            if (!showHidden && currentFile.isHidden) return@forEach
+            var size: Long = 0
+            if (!currentFile.isDirectory) size = currentFile.length()
+            HybridFileParcelable(
+                currentFile.path,
+                RootHelper.parseFilePermission(currentFile),
+                currentFile.lastModified(),
+                size,
+                currentFile.isDirectory,
+            ).let { baseFile ->
+                baseFile.name = currentFile.name
+                baseFile.mode = OpenMode.FILE
+                onFileFound(baseFile)
+            }
+        }
+        return true
+    }
+
     /**
      * Parses listing command result for HybridFile
      */
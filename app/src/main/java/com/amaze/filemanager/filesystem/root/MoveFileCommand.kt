@@ -37,10 +37,34 @@ object MoveFileCommand : IRootCommand() {
     ) {
         // remounting destination as rw
         val mountPoint = MountPathCommand.mountPath(destination, MountPathCommand.READ_WRITE)
-        val command =
-            "mv \"${RootHelper.getCommandLineString(path)}\"" +
-                " \"${RootHelper.getCommandLineString(destination)}\""
-        runShellCommand(command)
+        runShellCommand(command(path, destination))
         mountPoint?.let { MountPathCommand.mountPath(it, MountPathCommand.READ_ONLY) }
     }
+
+    /**
+     * Moves each of [paths] to the destination at the same index using root, in as few shell
+     * round trips as possible, see [BatchCommand.runAll]
+     *
+     * @return for each path, whether it was moved
+     */
+    @JvmOverloads
+    @Throws(ShellNotRunningException::class)
+    fun moveFiles(
+        paths: List<String>,
+        destinations: List<String>,
+        isCancelled: () -> Boolean = { false },
+    ): BooleanArray {
+        require(paths.size == destinations.size)
+        return BatchCommand.runAll(
+            paths.indices.map { command(paths[it], destinations[it]) },
+            BatchCommand.parentsOf(destinations),
+            isCancelled,
+        )
+    }
+
+    private fun command(
+        path: String,
+        destination: String,
+    ) = "mv \"${RootHelper.getCommandLineString(path)}\"" +
+        " \"${RootHelper.getCommandLineString(destination)}\""
 }
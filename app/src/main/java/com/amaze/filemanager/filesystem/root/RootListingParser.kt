@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.root
+
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+
+/**
+ * Parses, line by line as they are read, the records printed by the command of
+ * [ListFilesCommand.listRootStreaming].
+ *
+ * Records start with [RECORD_PREFIX], [SYMLINK_PREFIX], [TARGET_PREFIX] or [LINK_PREFIX], which
+ * no line of a file name can, as names can't contain '/'. Any other line is the rest of a name or
+ * link target containing a newline. An entry is given to [onFileFound] once its record is complete,
+ * except symlinks, which wait for the type of their target from the [LINK_PREFIX] records. Those
+ * come last, after the [SYMLINK_PREFIX] and [TARGET_PREFIX] records told what each symlink holds.
+ *
+ * @param directory the listed directory
+ */
+class RootListingParser(
+    directory: String,
+    private val onFileFound: (HybridFileParcelable) -> Unit,
+) {
+    companion object {
+        /** Record of an entry: `//F/<hex mode>/<size>/<mtime in seconds>/<path>` */
+        const val RECORD_PREFIX = "//F/"
+
+        /** Record of a symlink, followed by a [TARGET_PREFIX] record: `//S/<path>` */
+        const val SYMLINK_PREFIX = "//S/"
+
+        /** Record of what the symlink before holds, as readlink prints it: `//T/<target>` */
+        const val TARGET_PREFIX = "//T/"
+
+        /** Record of what an entry resolves to: `//L/<hex mode>/<path>` */
+        const val LINK_PREFIX = "//L/"
+
+        /** stat format of [RECORD_PREFIX] records */
+        const val RECORD_FORMAT = "$RECORD_PREFIX%f/%s/%Y/%n"
+
+        /** printf format of [SYMLINK_PREFIX] and [TARGET_PREFIX] records */
+        const val SYMLINK_FORMAT = "$SYMLINK_PREFIX%s\\n$TARGET_PREFIX%s\\n"
+
+        /** stat -L format of [LINK_PREFIX] records */
+        const val LINK_FORMAT = "$LINK_PREFIX%f/%n"
+
+        /** Number of fields between the prefix and the path, by record kind */
+        private val FIELD_COUNTS =
+            mapOf(RECORD_PREFIX to 3, SYMLINK_PREFIX to 0, TARGET_PREFIX to 0, LINK_PREFIX to 1)
+
+        private const val S_IFMT = 0xF000
+        private const val S_IFSOCK = 0xC000
+        private const val S_IFLNK = 0xA000
+        private const val S_IFBLK = 0x6000
+        private const val S_IFDIR = 0x4000
+        private const val S_IFCHR = 0x2000
+        private const val S_IFIFO = 0x1000
+        private const val S_ISUID = 0x800
+        private const val S_ISGID = 0x400
+        private const val S_ISVTX = 0x200
+
+        /** Same as `ls -l` shows, from the mode bits */
+        @JvmStatic
+        fun permissionOf(mode: Int): String =
+            buildString(10) {
+                append(
+                    when (mode and S_IFMT) {
+                        S_IFDIR -> 'd'
+                        S_IFLNK -> 'l'
+                        S_IFCHR -> 'c'
+                        S_IFBLK -> 'b'
+                        S_IFIFO -> 'p'
+                        S_IFSOCK -> 's'
+                        else -> '-'
+                    },
+                )
+                appendTriplet(mode shr 6, mode and S_ISUID != 0, 's')
+                appendTriplet(mode shr 3, mode and S_ISGID != 0, 's')
+                appendTriplet(mode, mode and S_ISVTX != 0, 't')
+            }
+
+        private fun StringBuilder.appendTriplet(
+            bits: Int,
+            special: Boolean,
+            specialChar: Char,
+        ) {
+            append(if (bits and 4 != 0) 'r' else '-')
+            append(if (bits and 2 != 0) 'w' else '-')
+            val executable = bits and 1 != 0
+            append(
+                when {
+                    special && executable -> specialChar
+                    special -> specialChar.uppercaseChar()
+                    executable -> 'x'
+                    else -> '-'
+                },
+            )
+        }
+    }
+
+    private val prefix = if (directory.endsWith("/")) directory else "$directory/"
+
+    /** Last record read, its name may go on in the next lines */
+    private var kind: String? = null
+    private var fields: List<String> = emptyList()
+    private val path = StringBuilder()
+
+    /** Symlinks by path, waiting for the type of their target */
+    private val links = LinkedHashMap<String, HybridFileParcelable>()
+
+    /** Path of the last [SYMLINK_PREFIX] record, the next [TARGET_PREFIX] record is its target */
+    private var symlink: String? = null
+
+    /** Takes the next line of output. */
+    fun accept(line: String) {
+        val lineKind = FIELD_COUNTS.keys.firstOrNull { line.startsWith(it) }
+        if (lineKind == null) {
+            if (kind != null) path.append('\n').append(line)
+            return
+        }
+        complete()
+        val fieldCount = FIELD_COUNTS.getValue(lineKind)
+        val parts = line.substring(lineKind.length).split('/', limit = fieldCount + 1)
+        if (parts.size <= fieldCount) {
+            // not something we printed
+            kind = null
+            return
+        }
+        kind = lineKind
+        fields = parts
+        path.setLength(0)
+        path.append(parts[fieldCount])
+    }
+
+    /** Call once the output ended, to give the entries still held. */
+    fun finish() {
+        complete()
+        // dangling symlinks: what they point to isn't there, they behave as files
+        links.values.forEach(onFileFound)
+        links.clear()
+    }
+
+    private fun complete() {
+        val kind = this.kind ?: return
+        this.kind = null
+        val fullPath = path.toString()
+        if (kind == TARGET_PREFIX) {
+            symlink?.let { links[it]?.link = fullPath }
+            symlink = null
+            return
+        }
+        if (kind == SYMLINK_PREFIX) {
+            symlink = fullPath
+            return
+        }
+        if (!fullPath.startsWith(prefix)) return
+        val name = fullPath.substring(prefix.length)
+        if (name.isEmpty() || name == "." || name == "..") return
+        val mode = fields[0].toIntOrNull(16) ?: return
+
+        if (kind == LINK_PREFIX) {
+            links.remove(fullPath)?.let {
+                it.isDirectory = mode and S_IFMT == S_IFDIR
+                onFileFound(it)
+            }
+            return
+        }
+
+        val isDirectory = mode and S_IFMT == S_IFDIR
+        val file =
+            HybridFileParcelable(
+                fullPath,
+                permissionOf(mode),
+                (fields[2].toLongOrNull() ?: 0L) * 1000,
+                if (isDirectory) 0L else fields[1].toLongOrNull() ?: 0L,
+                isDirectory,
+            ).apply {
+                this.name = name
+                this.mode = OpenMode.ROOT
+            }
+        if (mode and S_IFMT == S_IFLNK) {
+            links[fullPath] = file
+        } else {
+            onFileFound(file)
+        }
+    }
+}
@@ -23,7 +23,9 @@ package com.amaze.filemanager.filesystem.root.base
 import com.amaze.filemanager.exceptions.ShellCommandInvalidException
 import com.amaze.filemanager.fileoperations.exceptions.ShellNotRunningException
 import com.amaze.filemanager.ui.activities.MainActivity
+import com.topjohnwu.superuser.CallbackList
 import com.topjohnwu.superuser.Shell
+import java.util.concurrent.Executor
 
 open class IRootCommand {
     /**
@@ -64,4 +66,41 @@ open class IRootCommand {
         }
         return Shell.su(cmd).exec()
     }
+
+    /**
+     * Runs all [commands] one after the other in a single round trip to the shell, from the root
+     * context (u:r:SuperSU0)
+     *
+     * @param commands the commands
+     */
+    @Throws(ShellNotRunningException::class)
+    fun runShellCommands(commands: List<String>): Shell.Result {
+        if (!Shell.getShell().isRoot) {
+            throw ShellNotRunningException()
+        }
+        return Shell.su(*commands.toTypedArray()).exec()
+    }
+
+    /**
+     * Same as [runShellCommand], handing each line of output to [onLine] as soon as it is read,
+     * instead of once the command ended. [onLine] is called on the thread reading the output,
+     * while this one waits for the command.
+     *
+     * @param cmd the command
+     * @param onLine called with each line of output
+     */
+    @Throws(ShellNotRunningException::class)
+    fun runShellCommandStreaming(
+        cmd: String,
+        onLine: (String) -> Unit,
+    ): Shell.Result {
+        if (!Shell.getShell().isRoot) {
+            throw ShellNotRunningException()
+        }
+        val output =
+            object : CallbackList<String>(Executor { it.run() }) {
+                override fun onAddElement(line: String) = onLine(line)
+            }
+        return Shell.su(cmd).to(output).exec()
+    }
 }
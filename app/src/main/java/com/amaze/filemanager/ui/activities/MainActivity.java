@@ -106,6 +106,7 @@ import com.amaze.filemanager.filesystem.MakeFileOperation;
 import com.amaze.filemanager.filesystem.PasteHelper;
 import com.amaze.filemanager.filesystem.RootHelper;
 import com.amaze.filemanager.filesystem.files.FileUtils;
+import com.amaze.filemanager.filesystem.files.FilenameIndex;
 import com.amaze.filemanager.filesystem.ftp.NetCopyClientConnectionPool;
 import com.amaze.filemanager.filesystem.ftp.NetCopyConnectionInfo;
 import com.amaze.filemanager.filesystem.ssh.SshClientUtils;
@@ -353,6 +354,8 @@ public class MainActivity extends PermissionsActivity
     dataUtils = DataUtils.getInstance();
     if (savedInstanceState != null) {
       listItemSelected = savedInstanceState.getBoolean(KEY_SELECTED_LIST_ITEM, false);
+    } else {
+      FilenameIndex.refreshPrimaryStorage();
     }
 
     initialisePreferences();
@@ -534,6 +537,7 @@ public class MainActivity extends PermissionsActivity
   @SuppressLint("CheckResult")
   public void onPermissionGranted() {
     drawer.refreshDrawer();
+    FilenameIndex.refreshPrimaryStorage();
     TabFragment tabFragment = getTabFragment();
     boolean b = getBoolean(PREFERENCE_NEED_TO_SET_HOME);
     // reset home and current paths according to new storages
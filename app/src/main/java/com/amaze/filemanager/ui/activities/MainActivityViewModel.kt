@@ -23,7 +23,6 @@ package com.amaze.filemanager.ui.activities
 import android.app.Application
 import android.content.Intent
 import android.provider.MediaStore
-import androidx.collection.LruCache
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
@@ -33,13 +32,17 @@ import com.amaze.filemanager.R
 import com.amaze.filemanager.adapters.data.LayoutElementParcelable
 import com.amaze.filemanager.application.AppConfig
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.BasicSearch
+import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.ContentSearch
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.DeepSearch
+import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.FilenameIndexSearch
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.IndexedSearch
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.SearchParameters
-import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.SearchResult
+import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.SearchResults
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.searchParametersFromBoolean
 import com.amaze.filemanager.fileoperations.filesystem.OpenMode
 import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.files.DirectoryListCache
+import com.amaze.filemanager.filesystem.files.FilenameIndex
 import com.amaze.filemanager.filesystem.files.MediaConnectionUtils.scanFile
 import com.amaze.filemanager.ui.fragments.preferencefragments.PreferencesConstants.PREFERENCE_REGEX
 import com.amaze.filemanager.ui.fragments.preferencefragments.PreferencesConstants.PREFERENCE_REGEX_MATCHES
@@ -55,11 +58,11 @@ import java.io.File
 class MainActivityViewModel(val applicationContext: Application) :
     AndroidViewModel(applicationContext) {
     var mediaCacheHash: List<List<LayoutElementParcelable>?> = List(5) { null }
-    var listCache: LruCache<String, List<LayoutElementParcelable>> = LruCache(50)
+    val listCache = DirectoryListCache(applicationContext)
     var trashBinFilesLiveData: MutableLiveData<MutableList<LayoutElementParcelable>?>? = null
 
     /** The [LiveData] of the last triggered search */
-    var lastSearchLiveData: LiveData<List<SearchResult>> = MutableLiveData(listOf())
+    var lastSearchLiveData: LiveData<SearchResults> = MutableLiveData(SearchResults.EMPTY)
         private set
 
     /** The [Job] of the last triggered search */
@@ -74,15 +77,38 @@ class MainActivityViewModel(val applicationContext: Application) :
         private val LOG = LoggerFactory.getLogger(MainActivityViewModel::class.java)
     }
 
+    override fun onCleared() {
+        super.onCleared()
+        listCache.close()
+    }
+
     /**
-     * Put list for a given path in cache
+     * Put list for a given path in cache, until evicted with [evictPathFromListCache]
      */
     fun putInCache(
         path: String,
         listToCache: List<LayoutElementParcelable>,
     ) {
+        val copy = ArrayList(listToCache)
+        viewModelScope.launch(Dispatchers.Default) {
+            listCache.put(path, copy, false, false, false)
+        }
+    }
+
+    /**
+     * Put list for a given local path in cache, it is kept up to date with the changes to the
+     * directory while cached
+     */
+    fun putLocalInCache(
+        path: String,
+        listToCache: List<LayoutElementParcelable>,
+        showHidden: Boolean,
+        useThumbs: Boolean,
+    ) {
+        // copy now, the caller goes on sorting it
+        val copy = ArrayList(listToCache)
         viewModelScope.launch(Dispatchers.Default) {
-            listCache.put(path, listToCache)
+            listCache.put(path, copy, true, showHidden, useThumbs)
         }
     }
 
@@ -96,7 +122,7 @@ class MainActivityViewModel(val applicationContext: Application) :
     }
 
     /**
-     * Get cache from a given path and updates files / folder count
+     * Get a copy of the cache for a given path
      */
     fun getFromListCache(path: String): List<LayoutElementParcelable>? {
         return listCache.get(path)
@@ -115,7 +141,7 @@ class MainActivityViewModel(val applicationContext: Application) :
     fun basicSearch(
         mainActivity: MainActivity,
         query: String,
-    ): LiveData<List<SearchResult>> {
+    ): LiveData<SearchResults> {
         val searchParameters = createSearchParameters(mainActivity)
 
         val path = mainActivity.currentMainFragment?.currentPath ?: ""
@@ -132,27 +158,51 @@ class MainActivityViewModel(val applicationContext: Application) :
     }
 
     /**
-     * Perform indexed search: on MediaStore items from the current directory & it's children
+     * Perform indexed search: on the names in [FilenameIndex] if it covers the current directory,
+     * otherwise on MediaStore items from the current directory & it's children
      */
     fun indexedSearch(
         mainActivity: MainActivity,
         query: String,
-    ): LiveData<List<SearchResult>> {
+    ): LiveData<SearchResults> {
+        val index = FilenameIndex.instance
+        // catch up with changes for the next search
+        FilenameIndex.refreshPrimaryStorage()
+        val currentPath = mainActivity.currentMainFragment?.currentPath ?: ""
+        if (index.covers(currentPath)) {
+            val filenameIndexSearch =
+                FilenameIndexSearch(query, currentPath, createSearchParameters(mainActivity), index)
+            lastSearchJob =
+                viewModelScope.launch(Dispatchers.IO) {
+                    filenameIndexSearch.search()
+                }
+            lastSearchLiveData = filenameIndexSearch.foundFilesLiveData
+            return filenameIndexSearch.foundFilesLiveData
+        }
+
         val projection =
             arrayOf(
                 MediaStore.Files.FileColumns.DATA,
                 MediaStore.Files.FileColumns.DISPLAY_NAME,
             )
-        val cursor =
-            mainActivity
-                .contentResolver
-                .query(MediaStore.Files.getContentUri("external"), projection, null, null, null)
-                ?: return MutableLiveData()
 
         val searchParameters = createSearchParameters(mainActivity)
 
         val path = mainActivity.currentMainFragment?.currentPath ?: ""
 
+        val (selection, selectionArgs) = IndexedSearch.selectionOf(query, path, searchParameters)
+        val cursor =
+            mainActivity
+                .contentResolver
+                .query(
+                    MediaStore.Files.getContentUri("external"),
+                    projection,
+                    selection,
+                    selectionArgs,
+                    null,
+                )
+                ?: return MutableLiveData()
+
         val indexedSearch = IndexedSearch(query, path, searchParameters, cursor)
 
         lastSearchJob =
@@ -170,7 +220,7 @@ class MainActivityViewModel(val applicationContext: Application) :
     fun deepSearch(
         mainActivity: MainActivity,
         query: String,
-    ): LiveData<List<SearchResult>> {
+    ): LiveData<SearchResults> {
         val searchParameters = createSearchParameters(mainActivity)
 
         val path = mainActivity.currentMainFragment?.currentPath ?: ""
@@ -197,6 +247,38 @@ class MainActivityViewModel(val applicationContext: Application) :
         return deepSearch.foundFilesLiveData
     }
 
+    /**
+     * Perform content search: search recursively for files with a line matching [query] in the
+     * current path
+     */
+    fun contentSearch(
+        mainActivity: MainActivity,
+        query: String,
+    ): LiveData<SearchResults> {
+        val searchParameters = createSearchParameters(mainActivity)
+
+        val path = mainActivity.currentMainFragment?.currentPath ?: ""
+        val openMode =
+            mainActivity.currentMainFragment?.mainFragmentViewModel?.openMode ?: OpenMode.FILE
+
+        val contentSearch =
+            ContentSearch(
+                query,
+                path,
+                searchParameters,
+                this.applicationContext,
+                openMode,
+            )
+
+        lastSearchJob =
+            viewModelScope.launch(Dispatchers.IO) {
+                contentSearch.search()
+            }
+
+        lastSearchLiveData = contentSearch.foundFilesLiveData
+        return contentSearch.foundFilesLiveData
+    }
+
     private fun createSearchParameters(mainActivity: MainActivity): SearchParameters {
         val sharedPref = PreferenceManager.getDefaultSharedPreferences(mainActivity)
         return searchParametersFromBoolean(
@@ -305,7 +305,7 @@ public class GeneralDialogCreation {
                   .append(". ")
                   .append(layoutElement.title)
                   .append(" (")
-                  .append(layoutElement.size)
+                  .append(layoutElement.getSize(context))
                   .append(")");
               sizeTotal += layoutElement.longSize;
             }
@@ -519,7 +519,7 @@ public class GeneralDialogCreation {
                 .append(". ")
                 .append(layoutElement.title)
                 .append(" (")
-                .append(layoutElement.size)
+                .append(layoutElement.getSize(context))
                 .append(")");
             sizeTotal += layoutElement.longSize;
           }
@@ -760,7 +760,8 @@ public class GeneralDialogCreation {
         new CountItemsOrAndSizeTask(c, itemsText, baseFile, forStorage);
     countItemsOrAndSizeTask.executeOnExecutor(executor);
 
-    TaskKt.fromTask(new CalculateHashTask(baseFile, c, v));
+    CalculateHashTask calculateHashTask = new CalculateHashTask(baseFile, c, v);
+    TaskKt.fromTask(calculateHashTask);
 
     /*Chart creation and data loading*/
     {
@@ -853,7 +854,12 @@ public class GeneralDialogCreation {
     builder.customView(v, true);
     builder.positiveText(themedActivity.getString(R.string.ok));
     builder.positiveColor(accentColor);
-    builder.dismissListener(dialog -> executor.shutdown());
+    builder.dismissListener(
+        dialog -> {
+          executor.shutdown();
+          // No point reading the rest of a large file once its hashes cannot be seen
+          calculateHashTask.cancel();
+        });
     builder.onPositive(
         (dialog, which) -> {
           if (baseFile.isDirectory() && nomediaFile != null) {
@@ -33,10 +33,12 @@ import static com.amaze.filemanager.ui.fragments.preferencefragments.Preferences
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +63,7 @@ import com.amaze.filemanager.filesystem.HybridFileParcelable;
 import com.amaze.filemanager.filesystem.SafRootHolder;
 import com.amaze.filemanager.filesystem.files.CryptUtil;
 import com.amaze.filemanager.filesystem.files.EncryptDecryptUtils;
+import com.amaze.filemanager.filesystem.files.FileListSorter;
 import com.amaze.filemanager.filesystem.files.FileUtils;
 import com.amaze.filemanager.filesystem.files.MediaConnectionUtils;
 import com.amaze.filemanager.ui.ExtensionsKt;
@@ -82,6 +85,7 @@ import com.amaze.filemanager.utils.BottomBarButtonPath;
 import com.amaze.filemanager.utils.DataUtils;
 import com.amaze.filemanager.utils.GenericExtKt;
 import com.amaze.filemanager.utils.OTGUtil;
+import com.amaze.filemanager.utils.OnProgressUpdate;
 import com.amaze.filemanager.utils.Utils;
 import com.google.android.material.appbar.AppBarLayout;
 
@@ -100,7 +104,6 @@ import android.os.AsyncTask;
 import android.os.Bundle;
 import android.provider.DocumentsContract;
 import android.text.TextUtils;
-import android.text.format.Formatter;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -119,6 +122,7 @@ import androidx.appcompat.widget.AppCompatTextView;
 import androidx.core.content.pm.ShortcutInfoCompat;
 import androidx.core.content.pm.ShortcutManagerCompat;
 import androidx.core.graphics.drawable.IconCompat;
+import androidx.core.util.Pair;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
@@ -164,6 +168,7 @@ public class MainFragment extends Fragment
   private View rootView;
   private FastScroller fastScroller;
   private CustomFileObserver customFileObserver;
+  private FileHandler fileHandler;
 
   // defines the current visible tab, default either 0 or 1
   // private int mCurrentTab;
@@ -661,6 +666,25 @@ public class MainFragment extends Fragment
       openMode = OpenMode.FILE;
     }
 
+    // whether some entries are already shown, while the rest is being listed
+    final boolean[] showingBatches = {false};
+    OnProgressUpdate<Pair<OpenMode, List<LayoutElementParcelable>>> onBatch = null;
+    // restoring the scroll position needs the whole list
+    if (!back) {
+      onBatch =
+          (batch) -> {
+            if (showingBatches[0]) {
+              updateListElements(batch.second, batch.first);
+            } else {
+              showingBatches[0] = true;
+              boolean isPathLayoutGrid =
+                  DataUtils.getInstance().getListOrGridForPath(providedPath, DataUtils.LIST)
+                      == DataUtils.GRID;
+              setListElements(batch.second, false, providedPath, batch.first, isPathLayoutGrid);
+            }
+          };
+    }
+
     loadFilesListTask =
         new LoadFilesListTask(
             getActivity(),
@@ -670,9 +694,12 @@ public class MainFragment extends Fragment
             getBoolean(PREFERENCE_SHOW_THUMB),
             getBoolean(PREFERENCE_SHOW_HIDDENFILES),
             forceReload,
+            onBatch,
             (data) -> {
               mSwipeRefreshLayout.setRefreshing(false);
-              if (data != null && data.second != null) {
+              if (data != null && data.second != null && showingBatches[0]) {
+                updateListElements(data.second, data.first);
+              } else if (data != null && data.second != null) {
                 boolean isPathLayoutGrid =
                     DataUtils.getInstance().getListOrGridForPath(providedPath, DataUtils.LIST)
                         == DataUtils.GRID;
@@ -812,33 +839,8 @@ public class MainFragment extends Fragment
 
   public void reloadListElements(boolean back, boolean grid) {
     if (isAdded()) {
-      boolean isOtg = (OTGUtil.PREFIX_OTG + "/").equals(mainFragmentViewModel.getCurrentPath());
-
-      if (getBoolean(PREFERENCE_SHOW_GOBACK_BUTTON)
-          && !"/".equals(mainFragmentViewModel.getCurrentPath())
-          && (mainFragmentViewModel.getOpenMode() == OpenMode.FILE
-              || mainFragmentViewModel.getOpenMode() == OpenMode.ROOT
-              || (mainFragmentViewModel.getIsCloudOpenMode()
-                  && !mainFragmentViewModel.getIsOnCloudRoot()))
-          && !isOtg
-          && (mainFragmentViewModel.getListElements().size() == 0
-              || !mainFragmentViewModel
-                  .getListElements()
-                  .get(0)
-                  .size
-                  .equals(getString(R.string.goback)))) {
-        mainFragmentViewModel.getListElements().add(0, getBackElement());
-      }
-
-      if (mainFragmentViewModel.getListElements().size() == 0) {
-        nofilesview.setVisibility(View.VISIBLE);
-        listView.setVisibility(View.GONE);
-        mSwipeRefreshLayout.setEnabled(false);
-      } else {
-        mSwipeRefreshLayout.setEnabled(true);
-        nofilesview.setVisibility(View.GONE);
-        listView.setVisibility(View.VISIBLE);
-      }
+      addBackElementIfNeeded();
+      showNoFilesIfEmpty();
 
       if (grid && mainFragmentViewModel.isList()) {
         switchToGrid();
@@ -944,6 +946,72 @@ public class MainFragment extends Fragment
     }
   }
 
+  /**
+   * Replaces the elements shown for the current path with more of its elements, inserting the new
+   * ones at their place. Everything else {@link #reloadListElements(boolean, boolean)} set up, like
+   * the scroll position and the files checked, is kept.
+   */
+  private void updateListElements(List<LayoutElementParcelable> elements, OpenMode openMode) {
+    if (!isAdded() || adapter == null) {
+      return;
+    }
+    Set<String> shown = new HashSet<>();
+    for (LayoutElementParcelable element : mainFragmentViewModel.getListElements()) {
+      shown.add(element.desc);
+    }
+    List<LayoutElementParcelable> added = new ArrayList<>();
+    for (LayoutElementParcelable element : elements) {
+      if (!shown.contains(element.desc)) {
+        added.add(element);
+      }
+    }
+
+    mainFragmentViewModel.setListElements(elements);
+    mainFragmentViewModel.setOpenMode(openMode);
+    addBackElementIfNeeded();
+    showNoFilesIfEmpty();
+    adapter.applyChanges(
+        listView,
+        mainFragmentViewModel.getListElements(),
+        added,
+        Collections.emptySet(),
+        new FileListSorter(
+            mainFragmentViewModel.getDsort(),
+            SortHandler.getSortType(requireContext(), mainFragmentViewModel.getCurrentPath())));
+  }
+
+  private void addBackElementIfNeeded() {
+    boolean isOtg = (OTGUtil.PREFIX_OTG + "/").equals(mainFragmentViewModel.getCurrentPath());
+
+    if (getBoolean(PREFERENCE_SHOW_GOBACK_BUTTON)
+        && !"/".equals(mainFragmentViewModel.getCurrentPath())
+        && (mainFragmentViewModel.getOpenMode() == OpenMode.FILE
+            || mainFragmentViewModel.getOpenMode() == OpenMode.ROOT
+            || (mainFragmentViewModel.getIsCloudOpenMode()
+                && !mainFragmentViewModel.getIsOnCloudRoot()))
+        && !isOtg
+        && (mainFragmentViewModel.getListElements().size() == 0
+            || !mainFragmentViewModel
+                .getListElements()
+                .get(0)
+                .size
+                .equals(getString(R.string.goback)))) {
+      mainFragmentViewModel.getListElements().add(0, getBackElement());
+    }
+  }
+
+  private void showNoFilesIfEmpty() {
+    if (mainFragmentViewModel.getListElements().size() == 0) {
+      nofilesview.setVisibility(View.VISIBLE);
+      listView.setVisibility(View.GONE);
+      mSwipeRefreshLayout.setEnabled(false);
+    } else {
+      mSwipeRefreshLayout.setEnabled(true);
+      nofilesview.setVisibility(View.GONE);
+      listView.setVisibility(View.VISIBLE);
+    }
+  }
+
   private LayoutElementParcelable getBackElement() {
     if (mainFragmentViewModel.getBack() == null) {
       mainFragmentViewModel.setBack(
@@ -990,16 +1058,16 @@ public class MainFragment extends Fragment
           file = new File(mainFragmentViewModel.getCurrentPath());
         }
         if (file != null && file.isDirectory() && file.canRead()) {
-          if (customFileObserver != null) {
-            // already a watcher instantiated, first it should be stopped
-            customFileObserver.stopWatching();
-          }
-
+          stopFileObserver();
+
+          fileHandler =
+              new FileHandler(
+                  this,
+                  listView,
+                  getBoolean(PREFERENCE_SHOW_THUMB),
+                  getBoolean(PREFERENCE_SHOW_HIDDENFILES));
           customFileObserver =
-              new CustomFileObserver(
-                  mainFragmentViewModel.getCurrentPath(),
-                  new FileHandler(this, listView, getBoolean(PREFERENCE_SHOW_THUMB)));
-          customFileObserver.startWatching();
+              CustomFileObserver.watch(mainFragmentViewModel.getCurrentPath(), fileHandler);
         }
         break;
       default:
@@ -1007,6 +1075,15 @@ public class MainFragment extends Fragment
     }
   }
 
+  private void stopFileObserver() {
+    if (customFileObserver != null) {
+      // the observer may be shared, only stop getting its messages
+      customFileObserver.release(fileHandler);
+      customFileObserver = null;
+      fileHandler = null;
+    }
+  }
+
   /**
    * Show dialog to rename a file
    *
@@ -1243,9 +1320,7 @@ public class MainFragment extends Fragment
   public void onPause() {
     super.onPause();
     (requireActivity()).unregisterReceiver(receiver2);
-    if (customFileObserver != null) {
-      customFileObserver.stopWatching();
-    }
+    stopFileObserver();
 
     if (SDK_INT >= JELLY_BEAN_MR2) {
       (requireActivity()).unregisterReceiver(decryptReceiver);
@@ -1301,15 +1376,12 @@ public class MainFragment extends Fragment
         mainFragmentViewModel.setFileCount(mainFragmentViewModel.getFileCount() + 1);
         LayoutElementParcelable layoutElement =
             new LayoutElementParcelable(
-                requireContext(),
                 name,
                 aMFile.getPath(),
                 "",
                 "",
-                Formatter.formatFileSize(getContext(), aMFile.length()),
                 aMFile.length(),
-                false,
-                aMFile.lastModified() + "",
+                aMFile.lastModified(),
                 false,
                 getBoolean(PREFERENCE_SHOW_THUMB),
                 OpenMode.SMB);
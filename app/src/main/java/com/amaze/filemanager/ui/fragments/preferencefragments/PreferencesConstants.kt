@@ -77,6 +77,7 @@ object PreferencesConstants {
     const val PREFERENCE_ZIP_EXTRACT_PATH = "extractpath"
     const val PREFERENCE_TEXTEDITOR_NEWSTACK = "texteditor_newstack"
     const val PREFERENCE_DELETE_CONFIRMATION = "delete_confirmation"
+    const val PREFERENCE_VERIFY_COPY = "verify_copy"
     const val PREFERENCE_DISABLE_PLAYER_INTENT_FILTERS = "disable_player_intent_filters"
     const val PREFERENCE_TRASH_BIN_RETENTION_NUM_OF_FILES = "retention_num_of_files"
     const val PREFERENCE_TRASH_BIN_RETENTION_DAYS = "retention_days"
@@ -122,4 +123,5 @@ object PreferencesConstants {
     const val KEY_TRASH_BIN_CLEANUP_INTERVAL_HOURS = "trash_bin_cleanup_interval_hours"
 
     const val DEFAULT_PREFERENCE_DELETE_CONFIRMATION = true
+    const val DEFAULT_PREFERENCE_VERIFY_COPY = false
 }
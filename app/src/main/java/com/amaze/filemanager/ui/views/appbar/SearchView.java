@@ -25,13 +25,13 @@ import static android.os.Build.VERSION.SDK_INT;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.CancellationException;
 
 import com.afollestad.materialdialogs.MaterialDialog;
 import com.amaze.filemanager.R;
 import com.amaze.filemanager.adapters.SearchRecyclerViewAdapter;
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.SearchResult;
+import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.SearchResults;
 import com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem.SearchResultListSorter;
 import com.amaze.filemanager.filesystem.files.sort.DirSortBy;
 import com.amaze.filemanager.filesystem.files.sort.SortBy;
@@ -68,6 +68,7 @@ import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Toast;
 
+import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatButton;
 import androidx.appcompat.widget.AppCompatEditText;
 import androidx.appcompat.widget.AppCompatImageView;
@@ -121,8 +122,15 @@ public class SearchView {
   // 0 -> Basic Search
   // 1 -> Indexed Search
   // 2 -> Deep Search
+  // 3 -> Content Search
   private int searchMode;
 
+  /** Results of the search being shown */
+  @Nullable private LiveData<SearchResults> currentSearchLiveData;
+
+  /** Number of results of {@link #currentSearchLiveData} shown */
+  private int shownResultsCount;
+
   private boolean enabled = false;
 
   private final SortType defaultSortType = new SortType(SortBy.RELEVANCE, SortOrder.ASC);
@@ -215,13 +223,12 @@ public class SearchView {
 
             saveRecentPreference(s);
 
-            mainActivity
-                .getCurrentMainFragment()
-                .getMainActivityViewModel()
-                .indexedSearch(mainActivity, s)
-                .observe(
-                    mainActivity.getCurrentMainFragment().getViewLifecycleOwner(),
-                    hybridFileParcelables -> updateResultList(hybridFileParcelables, s));
+            observeSearch(
+                mainActivity
+                    .getCurrentMainFragment()
+                    .getMainActivityViewModel()
+                    .indexedSearch(mainActivity, s),
+                s);
 
             searchMode = 2;
 
@@ -232,13 +239,28 @@ public class SearchView {
 
           } else if (searchMode == 2) {
 
-            mainActivity
-                .getCurrentMainFragment()
-                .getMainActivityViewModel()
-                .deepSearch(mainActivity, s)
-                .observe(
-                    mainActivity.getCurrentMainFragment().getViewLifecycleOwner(),
-                    hybridFileParcelables -> updateResultList(hybridFileParcelables, s));
+            observeSearch(
+                mainActivity
+                    .getCurrentMainFragment()
+                    .getMainActivityViewModel()
+                    .deepSearch(mainActivity, s),
+                s);
+
+            searchMode = 3;
+
+            deepSearchTV.setText(
+                getSpannableText(
+                    mainActivity.getString(R.string.not_finding_what_you_re_looking_for),
+                    mainActivity.getString(R.string.try_content_search)));
+
+          } else if (searchMode == 3) {
+
+            observeSearch(
+                mainActivity
+                    .getCurrentMainFragment()
+                    .getMainActivityViewModel()
+                    .contentSearch(mainActivity, s),
+                s);
 
             deepSearchTV.setVisibility(View.GONE);
           }
@@ -279,13 +301,31 @@ public class SearchView {
             mainActivity.getString(R.string.not_finding_what_you_re_looking_for),
             mainActivity.getString(R.string.try_indexed_search)));
 
-    mainActivity
-        .getCurrentMainFragment()
-        .getMainActivityViewModel()
-        .basicSearch(mainActivity, s)
-        .observe(
-            mainActivity.getCurrentMainFragment().getViewLifecycleOwner(),
-            hybridFileParcelables -> updateResultList(hybridFileParcelables, s));
+    observeSearch(
+        mainActivity
+            .getCurrentMainFragment()
+            .getMainActivityViewModel()
+            .basicSearch(mainActivity, s),
+        s);
+  }
+
+  /**
+   * Show the results of the given search as they come, instead of those of any search before
+   *
+   * @param searchLiveData results of the search
+   * @param searchTerm The search term of the search
+   */
+  private void observeSearch(LiveData<SearchResults> searchLiveData, String searchTerm) {
+    currentSearchLiveData = searchLiveData;
+    shownResultsCount = 0;
+    searchLiveData.observe(
+        mainActivity.getCurrentMainFragment().getViewLifecycleOwner(),
+        searchResults -> {
+          // a cancelled search may still publish what it found
+          if (searchLiveData == currentSearchLiveData) {
+            updateResultList(searchResults, searchTerm);
+          }
+        });
   }
 
   private void saveRecentPreference(String s) {
@@ -365,17 +405,25 @@ public class SearchView {
 
   /**
    * Updates the list of results displayed in {@link SearchView#searchRecyclerViewAdapter} sorted
-   * according to the current {@link SearchView#sortType}
+   * according to the current {@link SearchView#sortType}. Only the results not shown yet are
+   * added.
    *
-   * @param newResults The list of results that should be displayed
+   * @param newResults The results of the current search so far
    * @param searchTerm The search term that resulted in the search results
    */
-  private void updateResultList(List<SearchResult> newResults, String searchTerm) {
+  private void updateResultList(SearchResults newResults, String searchTerm) {
     if (newResults != null) {
-      ArrayList<SearchResult> items = new ArrayList<>(newResults);
-      Collections.sort(
-          items, new SearchResultListSorter(DirSortBy.NONE_ON_TOP, sortType, searchTerm));
-      searchRecyclerViewAdapter.submitList(items);
+      SearchResultListSorter sorter =
+          new SearchResultListSorter(DirSortBy.NONE_ON_TOP, sortType, searchTerm);
+      if (shownResultsCount == 0) {
+        ArrayList<SearchResult> items = new ArrayList<>(newResults);
+        Collections.sort(items, sorter);
+        searchRecyclerViewAdapter.setItems(items);
+      } else if (newResults.size() > shownResultsCount) {
+        searchRecyclerViewAdapter.addItems(
+            newResults.subList(shownResultsCount, newResults.size()), sorter);
+      }
+      shownResultsCount = newResults.size();
     } else {
       Toast.makeText(mainActivity, "No search result found", Toast.LENGTH_SHORT).show();
     }
@@ -478,8 +526,10 @@ public class SearchView {
     this.sortType = new SortType(SortBy.getSortBy(index), sortOrder);
     dialog.dismiss();
     updateSearchResultsSortButtonDisplay();
-    LiveData<List<SearchResult>> lastSearchLiveData =
+    LiveData<SearchResults> lastSearchLiveData =
         mainActivity.getCurrentMainFragment().getMainActivityViewModel().getLastSearchLiveData();
+    // sort everything again
+    shownResultsCount = 0;
     updateResultList(lastSearchLiveData.getValue(), getSearchTerm());
   }
 
@@ -612,7 +662,8 @@ public class SearchView {
   }
 
   private void clearRecyclerView() {
-    searchRecyclerViewAdapter.submitList(Collections.emptyList());
+    searchRecyclerViewAdapter.setItems(Collections.emptyList());
+    shownResultsCount = 0;
 
     deepSearchTV.setVisibility(View.GONE);
 
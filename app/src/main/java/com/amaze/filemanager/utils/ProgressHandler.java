@@ -36,6 +36,12 @@ public class ProgressHandler {
    */
   private volatile long totalSize = 0L;
 
+  /**
+   * whether {@link #totalSize} is final, false while it's still being summed up, see {@link
+   * com.amaze.filemanager.filesystem.files.TotalSizeWalker}
+   */
+  private volatile boolean totalSizeKnown = true;
+
   /**
    * total bytes written in process so far Volatile because non volatile long r/w are not atomic
    * (see Java Language Specification 17.7)
@@ -105,6 +111,19 @@ public class ProgressHandler {
     return this.totalSize;
   }
 
+  /** Add to the total size, as it's being found out while processing. */
+  public synchronized void addTotalSize(long size) {
+    this.totalSize += size;
+  }
+
+  public void setTotalSizeKnown(boolean totalSizeKnown) {
+    this.totalSizeKnown = totalSizeKnown;
+  }
+
+  public boolean isTotalSizeKnown() {
+    return totalSizeKnown;
+  }
+
   public void setCancelled(boolean isCancelled) {
     this.isCancelled = isCancelled;
   }
@@ -124,7 +143,8 @@ public class ProgressHandler {
   public synchronized float getPercentProgress() {
     if (totalSize == 0)
       return 0f; // Sometimes the total size is 0, because of metadata not being measured
-    return ((float) writtenSize / totalSize) * 100;
+    // files may be written before their size is summed up
+    return Math.min(((float) writtenSize / totalSize) * 100, 100f);
   }
 
   /**
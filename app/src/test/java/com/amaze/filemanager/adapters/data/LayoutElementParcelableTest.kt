@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.adapters.data
+
+import android.content.Context
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import android.os.Parcel
+import android.text.format.Formatter
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.ui.icons.Icons
+import com.amaze.filemanager.utils.Utils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+/**
+ * Tests for [LayoutElementParcelable].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class LayoutElementParcelableTest {
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    /**
+     * Size and date are formatted when asked for, then kept.
+     */
+    @Test
+    fun testLazyFormatting() {
+        val element = file("picture.jpg", 2048L, OpenMode.FILE)
+        val size = element.getSize(context)
+        assertEquals(Formatter.formatFileSize(context, 2048L), size)
+        assertSame(size, element.getSize(context))
+        assertEquals(Utils.getDate(context, DATE), element.getDateModification(context))
+        assertEquals(Icons.IMAGE, element.filetype)
+        assertEquals(IconDataParcelable.IMAGE_FROMFILE, element.iconData.type)
+    }
+
+    /**
+     * Directories and files of unknown size show no size.
+     */
+    @Test
+    fun testNoSize() {
+        val directory =
+            LayoutElementParcelable("dir", "/dir", "", "", 0L, DATE, true, false, OpenMode.FILE)
+        assertEquals("", directory.getSize(context))
+        val unknown = file("unknown.bin", -1L, OpenMode.FILE)
+        assertEquals("", unknown.getSize(context))
+        assertEquals(0L, unknown.longSize)
+    }
+
+    /**
+     * An element not shown yet gets the same icon after being parcelled.
+     */
+    @Test
+    fun testParcelKeepsIcon() {
+        val element = file("picture.jpg", 2048L, OpenMode.SMB)
+        val parcel = Parcel.obtain()
+        element.writeToParcel(parcel, 0)
+        parcel.setDataPosition(0)
+        val read = LayoutElementParcelable.CREATOR.createFromParcel(parcel)
+        parcel.recycle()
+        assertEquals(OpenMode.SMB, read.mode)
+        assertEquals(IconDataParcelable.IMAGE_FROMCLOUD, read.iconData.type)
+        assertEquals(element.getSize(context), read.getSize(context))
+    }
+
+    private fun file(
+        name: String,
+        size: Long,
+        openMode: OpenMode,
+    ) = LayoutElementParcelable(name, "/$name", "rw-", "", size, DATE, false, true, openMode)
+
+    companion object {
+        private const val DATE = 1_600_000_000_000L
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks
+
+import android.os.Build
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.adapters.data.LayoutElementParcelable
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.files.FileListSorter
+import com.amaze.filemanager.filesystem.files.sort.DirSortBy
+import com.amaze.filemanager.filesystem.files.sort.SortBy
+import com.amaze.filemanager.filesystem.files.sort.SortOrder
+import com.amaze.filemanager.filesystem.files.sort.SortType
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+/**
+ * Tests for [ListingBatcher].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class],
+    sdk = [Build.VERSION_CODES.KITKAT, Build.VERSION_CODES.P, Build.VERSION_CODES.R],
+)
+class ListingBatcherTest {
+    private val sorter = FileListSorter(DirSortBy.DIR_ON_TOP, SortType(SortBy.NAME, SortOrder.ASC))
+
+    /**
+     * First batch comes with a screenful of entries, the next ones each time the count doubles,
+     * and every batch is sorted.
+     */
+    @Test
+    fun testBatchSizes() {
+        val batches = ArrayList<List<LayoutElementParcelable>>()
+        val batcher = ListingBatcher(sorter, { batches.add(it) }, 4, Long.MAX_VALUE) { 0L }
+        (0 until 20).shuffled().forEach { batcher.add(element("file%02d".format(it))) }
+
+        assertEquals(listOf(4, 8, 16), batches.map { it.size })
+        assertEquals(3, batcher.batchCount)
+        batches.forEach { batch ->
+            assertEquals(batch.sortedWith(sorter).map { it.title }, batch.map { it.title })
+        }
+    }
+
+    /**
+     * Later batches keep what was in the earlier ones.
+     */
+    @Test
+    fun testBatchesGrow() {
+        val batches = ArrayList<List<LayoutElementParcelable>>()
+        val batcher = ListingBatcher(sorter, { batches.add(it) }, 2, Long.MAX_VALUE) { 0L }
+        listOf("d", "b", "c", "a", "f", "e", "h", "g").forEach { batcher.add(element(it)) }
+
+        batches.zipWithNext().forEach { (previous, next) ->
+            assertTrue(next.containsAll(previous))
+        }
+        assertEquals(listOf("a", "b", "c", "d", "e", "f", "g", "h"), batches.last().map { it.title })
+    }
+
+    /**
+     * Slowly listed entries are shown without waiting for a full batch.
+     */
+    @Test
+    fun testBatchAfterDelay() {
+        var now = 0L
+        val batches = ArrayList<List<LayoutElementParcelable>>()
+        val batcher = ListingBatcher(sorter, { batches.add(it) }, 100, 400) { now }
+        batcher.add(element("a"))
+        assertEquals(0, batches.size)
+        now = 500
+        batcher.add(element("b"))
+        assertEquals(1, batches.size)
+        assertEquals(listOf("a", "b"), batches[0].map { it.title })
+    }
+
+    private fun element(name: String) =
+        LayoutElementParcelable(
+            ApplicationProvider.getApplicationContext(),
+            name,
+            "/storage/emulated/0/$name",
+            "",
+            "",
+            "0",
+            0L,
+            false,
+            "0",
+            false,
+            false,
+            OpenMode.FILE,
+        )
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.hashcalculator
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.ExplorerDatabase
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import io.reactivex.android.plugins.RxAndroidPlugins
+import io.reactivex.plugins.RxJavaPlugins
+import io.reactivex.schedulers.Schedulers
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.BeforeClass
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.File
+import java.security.MessageDigest
+import java.util.Locale
+import java.util.concurrent.CancellationException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.zip.CRC32
+import kotlin.random.Random
+
+/**
+ * Tests for [CalculateHashCallback].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class CalculateHashCallbackTest {
+    companion object {
+        private val ABC_HASH =
+            Hash(
+                "900150983cd24fb0d6963f7d28e17f72",
+                "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                "a9993e364706816aba3e25717850c26c9cd0d89d",
+                "352441c2",
+            )
+
+        /**
+         * Enforce use of in-mem database during test.
+         */
+        @BeforeClass
+        @JvmStatic
+        fun bootstrap() {
+            ExplorerDatabase.overrideDatabaseBuilder = { context ->
+                Room.inMemoryDatabaseBuilder(context, ExplorerDatabase::class.java)
+            }
+        }
+    }
+
+    private lateinit var file: File
+
+    /**
+     * Test setup. Set all RxJava thread scheduler to trampoline and clear database tables
+     * for sanity.
+     */
+    @Before
+    fun setUp() {
+        RxAndroidPlugins.reset()
+        RxAndroidPlugins.setMainThreadSchedulerHandler { Schedulers.trampoline() }
+        RxJavaPlugins.reset()
+        RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+        AppConfig.getInstance().explorerDatabase.clearAllTables()
+        file = File.createTempFile("hash", ".txt")
+        file.writeText("abc")
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        file.delete()
+    }
+
+    /**
+     * All digests are computed in one go.
+     */
+    @Test
+    fun testCalculateAllDigests() {
+        val hash =
+            CalculateHashCallback(HybridFileParcelable(file.absolutePath), AppConfig.getInstance())
+                .call()
+        assertEquals(ABC_HASH, hash)
+    }
+
+    /**
+     * A file hashed over several chunks of its mapping gets the same digests as read at once.
+     */
+    @Test
+    fun testCalculateDigestsOfMappedChunks() {
+        val content = Random.nextBytes(5 * 512 * 1024 + 17)
+        file.writeBytes(content)
+        val hash =
+            CalculateHashCallback(HybridFileParcelable(file.absolutePath), AppConfig.getInstance())
+                .call()
+
+        val crc32 = CRC32().apply { update(content) }
+        assertEquals(
+            Hash(
+                MultiDigest.toHex(MessageDigest.getInstance("MD5").digest(content)),
+                MultiDigest.toHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                MultiDigest.toHex(MessageDigest.getInstance("SHA-1").digest(content)),
+                String.format(Locale.ROOT, "%08x", crc32.value),
+            ),
+            hash,
+        )
+    }
+
+    /**
+     * Unchanged file is not read again, changed file is.
+     */
+    @Test
+    fun testCachedUntilFileChanged() {
+        val lastModified = file.lastModified()
+        val context = AppConfig.getInstance()
+        CalculateHashCallback(HybridFileParcelable(file.absolutePath), context).call()
+
+        // Same size and date: cached value is trusted
+        file.writeText("xyz")
+        file.setLastModified(lastModified)
+        assertEquals(
+            ABC_HASH,
+            CalculateHashCallback(HybridFileParcelable(file.absolutePath), context).call(),
+        )
+
+        file.setLastModified(lastModified + 2000)
+        assertEquals(
+            "d16fb36f0911f878998c136191af705e",
+            CalculateHashCallback(HybridFileParcelable(file.absolutePath), context).call().md5,
+        )
+    }
+
+    /**
+     * Progress is reported, and cancelling stops the calculation.
+     */
+    @Test
+    fun testProgressAndCancel() {
+        val cancelled = AtomicBoolean(false)
+        var progress = 0L
+        CalculateHashCallback(
+            HybridFileParcelable(file.absolutePath),
+            AppConfig.getInstance(),
+            cancelled,
+        ) { bytesHashed, totalBytes ->
+            assertEquals(3L, totalBytes)
+            progress = bytesHashed
+        }.call()
+        assertEquals(3L, progress)
+
+        cancelled.set(true)
+        AppConfig.getInstance().explorerDatabase.clearAllTables()
+        val result =
+            runCatching {
+                CalculateHashCallback(
+                    HybridFileParcelable(file.absolutePath),
+                    AppConfig.getInstance(),
+                    cancelled,
+                    null,
+                ).call()
+            }
+        assertTrue(result.exceptionOrNull() is CancellationException)
+    }
+}
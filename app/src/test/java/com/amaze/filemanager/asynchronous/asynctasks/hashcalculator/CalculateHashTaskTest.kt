@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.hashcalculator
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import android.view.View
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import io.mockk.confirmVerified
+import io.mockk.mockk
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.File
+import java.util.concurrent.CancellationException
+
+/**
+ * Tests for [CalculateHashTask].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class CalculateHashTaskTest {
+    private lateinit var file: File
+
+    /**
+     * Create the file to hash.
+     */
+    @Before
+    fun setUp() {
+        file = File(AppConfig.getInstance().cacheDir, "hash.bin").apply { writeText("abc") }
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        file.delete()
+    }
+
+    /**
+     * Cancelling isn't an error: the view of the closed dialog is left alone.
+     */
+    @Test
+    fun testCancelIsQuiet() {
+        val view = mockk<View>(relaxed = true)
+        val task =
+            CalculateHashTask(
+                HybridFileParcelable(file.absolutePath, "", file.lastModified(), 3, false),
+                AppConfig.getInstance(),
+                view,
+            )
+        task.cancel()
+        task.onError(CancellationException("cancelled"))
+        confirmVerified(view)
+    }
+}
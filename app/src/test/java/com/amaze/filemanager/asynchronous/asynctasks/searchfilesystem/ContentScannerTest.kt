@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
+
+import org.junit.Assert
+import org.junit.Test
+import java.nio.ByteBuffer
+
+class ContentScannerTest {
+    private fun bufferOf(text: String): ByteBuffer = ByteBuffer.wrap(text.toByteArray())
+
+    /** Lines matching neither literal nor filter are skipped, the first line matching both wins */
+    @Test
+    fun testFirstMatchingLine() {
+        val scanner = ContentScanner(listOf("needle"))
+        val content = bufferOf("hay\nNeedle in hay\r\nneedle\nneedle again\n")
+        val checkedLines = ArrayList<String>()
+        val result =
+            scanner.firstMatchingLine(content) { line ->
+                checkedLines.add(line)
+                val start = line.indexOf("needle")
+                if (start >= 0) start until start + "needle".length else null
+            }
+        Assert.assertEquals("needle" to 0..5, result)
+        // the line with "hay" only never got decoded
+        Assert.assertEquals(listOf("Needle in hay", "needle"), checkedLines)
+    }
+
+    /** The literal at the very end of content, without a line break, is found */
+    @Test
+    fun testMatchAtEnd() {
+        val scanner = ContentScanner(listOf("END"))
+        val result = scanner.firstMatchingLine(bufferOf("abc\nthe end")) { 4..6 }
+        Assert.assertEquals("the end" to 4..6, result)
+    }
+
+    /** Nothing is found if the literal isn't there */
+    @Test
+    fun testNoMatch() {
+        val scanner = ContentScanner(listOf("needle"))
+        Assert.assertNull(scanner.firstMatchingLine(bufferOf("neede\nneedl")) { 0..0 })
+    }
+
+    /** Without an ASCII literal every line is checked */
+    @Test
+    fun testWithoutLiteral() {
+        val scanner = ContentScanner(listOf("ärger"))
+        val checkedLines = ArrayList<String>()
+        scanner.firstMatchingLine(bufferOf("a\nb\nc")) {
+            checkedLines.add(it)
+            null
+        }
+        Assert.assertEquals(listOf("a", "b", "c"), checkedLines)
+    }
+
+    /** Content is searched from its position only */
+    @Test
+    fun testFromPosition() {
+        val scanner = ContentScanner(listOf("x"))
+        val content = bufferOf("x\ny x")
+        content.position(2)
+        Assert.assertEquals("y x" to 2..2, scanner.firstMatchingLine(content) { 2..2 })
+    }
+
+    /** Text isn't binary, content with NUL bytes or starting like a known format is */
+    @Test
+    fun testIsBinary() {
+        Assert.assertFalse(ContentScanner.isBinary(bufferOf("plain text\nwith ünïcödé")))
+        Assert.assertFalse(ContentScanner.isBinary(bufferOf("")))
+        Assert.assertTrue(ContentScanner.isBinary(bufferOf("text\u0000more text")))
+        Assert.assertTrue(ContentScanner.isBinary(bufferOf("%PDF-1.4\n")))
+        Assert.assertTrue(ContentScanner.isBinary(bufferOf("PK\u0003\u0004rest")))
+    }
+}
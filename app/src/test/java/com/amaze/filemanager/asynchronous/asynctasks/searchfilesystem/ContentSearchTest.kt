@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
+
+import android.content.Context
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.filesystem.root.ListFilesCommand
+import io.mockk.MockKAnnotations
+import io.mockk.every
+import io.mockk.impl.annotations.MockK
+import io.mockk.mockkConstructor
+import io.mockk.mockkObject
+import io.mockk.unmockkAll
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import java.io.File
+import java.util.EnumSet
+
+class ContentSearchTest {
+    @get:Rule
+    val rule = InstantTaskExecutorRule()
+
+    @MockK(relaxed = true, relaxUnitFun = true)
+    lateinit var context: Context
+
+    @MockK(relaxed = true, relaxUnitFun = true)
+    lateinit var foundFileMock: HybridFileParcelable
+
+    private lateinit var file: File
+
+    /** Set up all mocks, listing a single local file */
+    @Before
+    fun setup() {
+        MockKAnnotations.init(this, relaxUnitFun = true)
+        every { context.applicationContext } returns context
+
+        file = File.createTempFile("content", ".txt")
+
+        mockkConstructor(HybridFile::class)
+        every { anyConstructed<HybridFile>().isDirectory(any()) } returns true
+
+        mockkObject(ListFilesCommand)
+        every { ListFilesCommand.listFiles(any(), any(), any(), any(), any()) } answers {
+            val onFileFoundCallback = lastArg<(HybridFileParcelable) -> Unit>()
+            onFileFoundCallback(foundFileMock)
+        }
+
+        every { foundFileMock.isDirectory } returns false
+        every { foundFileMock.isHidden } returns false
+        every { foundFileMock.isLocal } returns true
+        every { foundFileMock.path } returns file.path
+        every { foundFileMock.name } returns file.name
+    }
+
+    /** Clean up all mocks */
+    @After
+    fun cleanup() {
+        unmockkAll()
+        file.delete()
+    }
+
+    private fun search(
+        query: String,
+        searchParameters: SearchParameters = EnumSet.noneOf(SearchParameter::class.java),
+    ): List<SearchResult> {
+        val contentSearch =
+            ContentSearch(query, file.parent!!, searchParameters, context, OpenMode.FILE)
+        var results: List<SearchResult> = emptyList()
+        contentSearch.foundFilesLiveData.observeForever { results = it }
+        runTest {
+            contentSearch.search()
+        }
+        return results
+    }
+
+    /**
+     * A file with a line matching the query is found, with the first matching line and where the
+     * match is in it
+     */
+    @Test
+    fun testSimpleSearchMatch() {
+        file.writeText("first line\r\n    val answer = 42\r\nanswer again\r\n")
+
+        val results = search("ANSWER")
+
+        Assert.assertEquals(listOf(foundFileMock), results.map { it.file })
+        Assert.assertEquals(listOf("val answer = 42"), results.map { it.line })
+        Assert.assertEquals(listOf(4..9), results.map { it.matchRange })
+    }
+
+    /** With regex turned on, lines are matched against the pattern */
+    @Test
+    fun testRegexSearchMatch() {
+        file.writeText("error: none\nwarning: 3 files\n")
+
+        val results = search("warn*:", EnumSet.of(SearchParameter.REGEX))
+
+        Assert.assertEquals(listOf("warning: 3 files"), results.map { it.line })
+        Assert.assertEquals(listOf(0..7), results.map { it.matchRange })
+    }
+
+    /** A file without a matching line is not found */
+    @Test
+    fun testSimpleSearchNotMatch() {
+        file.writeText("first line\nsecond line\n")
+
+        Assert.assertTrue(search("answer").isEmpty())
+    }
+
+    /** A binary file is not searched */
+    @Test
+    fun testBinaryNotSearched() {
+        file.writeBytes("answer\u0000".toByteArray())
+
+        Assert.assertTrue(search("answer").isEmpty())
+    }
+
+    /** A large file is memory mapped and searched all the way */
+    @Test
+    fun testLargeFile() {
+        file.writeText("x".repeat(ContentSearch.MAP_THRESHOLD) + "\nthe answer\n")
+        file.setLastModified(System.currentTimeMillis() - 2 * ContentSearch.MIN_MAPPED_AGE_MILLIS)
+
+        Assert.assertEquals(listOf("the answer"), search("answer").map { it.line })
+    }
+
+    /**
+     * A large file just modified is read in chunks, and a line going over the end of a chunk is
+     * searched whole
+     */
+    @Test
+    fun testLargeFileJustModified() {
+        val padding = "x".repeat(ContentSearch.CHUNK_SIZE - 5)
+        file.writeText(padding + "\nthe answer\n" + padding + "\nlast line\n")
+
+        Assert.assertEquals(listOf("the answer"), search("answer").map { it.line })
+        Assert.assertEquals(listOf("last line"), search("last").map { it.line })
+    }
+
+    /** Long lines are cut around the match */
+    @Test
+    fun testExcerpt() {
+        val line = "a".repeat(100) + "match" + "b".repeat(300)
+
+        val (excerpt, matchRange) = ContentSearch.excerpt(line, 100..104)
+
+        Assert.assertEquals(ContentSearch.MAX_LINE_LENGTH, excerpt.length)
+        Assert.assertEquals(ContentSearch.LINE_CONTEXT..ContentSearch.LINE_CONTEXT + 4, matchRange)
+        Assert.assertEquals("match", excerpt.substring(matchRange.first, matchRange.last + 1))
+    }
+}
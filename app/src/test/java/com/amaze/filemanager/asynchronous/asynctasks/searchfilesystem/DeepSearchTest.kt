@@ -26,9 +26,11 @@ import com.amaze.filemanager.fileoperations.filesystem.OpenMode
 import com.amaze.filemanager.filesystem.HybridFile
 import com.amaze.filemanager.filesystem.HybridFileParcelable
 import com.amaze.filemanager.filesystem.root.ListFilesCommand
+import com.amaze.filemanager.utils.OnFileFound
 import io.mockk.MockKAnnotations
 import io.mockk.every
 import io.mockk.impl.annotations.MockK
+import io.mockk.mockk
 import io.mockk.mockkConstructor
 import io.mockk.mockkObject
 import io.mockk.unmockkAll
@@ -68,10 +70,10 @@ class DeepSearchTest {
             onFileFoundCallback(foundFileMock)
         }
 
-        every { foundFileMock.isDirectory(any()) } returns false
+        every { foundFileMock.isDirectory } returns false
         every { foundFileMock.isHidden } returns true
         every { foundFileMock.path } returns filePath
-        every { foundFileMock.getName(any()) } returns fileName
+        every { foundFileMock.name } returns fileName
     }
 
     /** Clean up all mocks */
@@ -192,5 +194,41 @@ class DeepSearchTest {
         }
     }
 
+    /**
+     * Directories found by the listing are searched too, and come before what they contain
+     */
+    @Test
+    fun testSearchSubdirectories() {
+        val directoryMock = mockk<HybridFileParcelable>(relaxed = true)
+        every { directoryMock.isDirectory } returns true
+        every { directoryMock.isHidden } returns false
+        every { directoryMock.path } returns "/test/abd"
+        every { directoryMock.name } returns "abd"
+        every { directoryMock.forEachChildrenFile(any(), any(), any()) } answers {
+            thirdArg<OnFileFound>().onFileFound(foundFileMock)
+        }
+        every { ListFilesCommand.listFiles(any(), any(), any(), any(), any()) } answers {
+            val onFileFoundCallback = lastArg<(HybridFileParcelable) -> Unit>()
+            onFileFoundCallback(directoryMock)
+        }
+
+        val deepSearch =
+            DeepSearch(
+                "ab",
+                "/test",
+                EnumSet.of(SearchParameter.SHOW_HIDDEN_FILES),
+                context,
+                OpenMode.FILE,
+            )
+
+        runTest {
+            deepSearch.search()
+        }
+        Assert.assertEquals(
+            listOf(directoryMock, foundFileMock),
+            deepSearch.foundFilesLiveData.value?.map { it.file },
+        )
+    }
+
     private fun listNotEmptyError(size: Int) = "List was not empty as expected but had $size elements"
 }
@@ -20,12 +20,19 @@
 
 package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
 
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import io.mockk.mockk
 import kotlinx.coroutines.test.runTest
 import org.junit.Assert
+import org.junit.Rule
 import org.junit.Test
 import java.util.EnumSet
 
 class FileSearchTest {
+    @get:Rule
+    val rule = InstantTaskExecutorRule()
+
     private fun getFileSearchMatch(
         query: String,
         path: String,
@@ -189,4 +196,33 @@ class FileSearchTest {
                 SearchParameter.REGEX + SearchParameter.REGEX_MATCHES,
             ).search()
         }
+
+    /**
+     * Found files are published in batches, each published list starting with the previous one
+     */
+    @Test
+    fun publishInBatchesTest() {
+        val files = List(600) { mockk<HybridFileParcelable>(relaxed = true) }
+        val search =
+            object : FileSearch("a", "/", EnumSet.noneOf(SearchParameter::class.java)) {
+                override suspend fun search(filter: SearchFilter) {
+                    files.forEach { publishProgress(it, 0..0) }
+                }
+            }
+        val published = ArrayList<SearchResults>()
+        search.foundFilesLiveData.observeForever { published.add(it) }
+        runTest {
+            search.search()
+        }
+
+        Assert.assertEquals(
+            listOf(FileSearch.MAX_BATCH_SIZE, 2 * FileSearch.MAX_BATCH_SIZE, files.size),
+            published.map { it.size },
+        )
+        Assert.assertEquals(files, published.last().map { it.file })
+        Assert.assertEquals(
+            published[0].toList(),
+            published[1].subList(0, FileSearch.MAX_BATCH_SIZE),
+        )
+    }
 }
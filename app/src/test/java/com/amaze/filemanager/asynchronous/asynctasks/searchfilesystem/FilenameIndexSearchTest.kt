@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.asynchronous.asynctasks.searchfilesystem
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import com.amaze.filemanager.filesystem.files.FilenameIndex
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import java.io.File
+import java.util.EnumSet
+
+class FilenameIndexSearchTest {
+    @get:Rule
+    val rule = InstantTaskExecutorRule()
+
+    private lateinit var root: File
+    private lateinit var storeFile: File
+    private lateinit var index: FilenameIndex
+
+    /** Index a small tree */
+    @Before
+    fun setup() {
+        root = File.createTempFile("search", "")
+        root.delete()
+        File(root, "docs").mkdirs()
+        File(root, "docs/report.txt").createNewFile()
+        File(root, "docs/report-final.pdf").createNewFile()
+        File(root, "abc.txt").createNewFile()
+        storeFile = File.createTempFile("search", ".bin")
+        storeFile.delete()
+        index = FilenameIndex(storeFile)
+        index.refresh(root)
+    }
+
+    /** Clean up the tree */
+    @After
+    fun cleanup() {
+        root.deleteRecursively()
+        storeFile.delete()
+    }
+
+    /**
+     * Names containing the query are found, with the range of the match.
+     */
+    @Test
+    fun testSimpleSearch() {
+        val results = search("REPORT", EnumSet.noneOf(SearchParameter::class.java))
+        Assert.assertEquals(
+            setOf("report.txt" to 0..5, "report-final.pdf" to 0..5),
+            results.map { it.file.name to it.matchRange }.toSet(),
+        )
+    }
+
+    /**
+     * Bash style wildcards and regular expressions are applied to the candidates.
+     */
+    @Test
+    fun testRegexSearch() {
+        val results = search("rep*.txt", SearchParameter.REGEX and SearchParameter.REGEX_MATCHES)
+        Assert.assertEquals(listOf("report.txt"), results.map { it.file.name })
+        val anyOf = search("(abc|final)", SearchParameters.of(SearchParameter.REGEX))
+        Assert.assertEquals(
+            setOf("abc.txt", "report-final.pdf"),
+            anyOf.map { it.file.name }.toSet(),
+        )
+    }
+
+    /**
+     * Files gone since indexing are not found.
+     */
+    @Test
+    fun testDeletedNotFound() {
+        File(root, "docs/report.txt").delete()
+        val results = search("report", EnumSet.noneOf(SearchParameter::class.java))
+        Assert.assertEquals(listOf("report-final.pdf"), results.map { it.file.name })
+    }
+
+    /**
+     * Only literals that any match contains narrow the search.
+     */
+    @Test
+    fun testRequiredLiterals() {
+        Assert.assertEquals(listOf("a.b*"), FilenameIndexSearch.requiredLiterals("a.b*", false))
+        Assert.assertEquals(
+            listOf("rep", "txt"),
+            FilenameIndexSearch.requiredLiterals("rep*.txt", true),
+        )
+        Assert.assertEquals(
+            emptyList<String>(),
+            FilenameIndexSearch.requiredLiterals("(abc|final)", true),
+        )
+    }
+
+    private fun search(
+        query: String,
+        searchParameters: SearchParameters,
+    ): List<SearchResult> {
+        val search = FilenameIndexSearch(query, root.path, searchParameters, index)
+        runTest {
+            search.search()
+        }
+        return search.foundFilesLiveData.value ?: emptyList()
+    }
+}
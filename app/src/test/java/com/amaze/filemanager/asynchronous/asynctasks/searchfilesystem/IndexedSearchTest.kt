@@ -150,5 +150,47 @@ class IndexedSearchTest {
         }
     }
 
+    /**
+     * Path and simple or wildcard-only queries are selected by the MediaStore, other regular
+     * expressions and non-ASCII queries are left to [FileSearch.SearchFilter]
+     */
+    @Test
+    fun testSelectionOf() {
+        val data = MediaStore.Files.FileColumns.DATA + " LIKE ? ESCAPE '\\'"
+        val name = MediaStore.Files.FileColumns.DISPLAY_NAME + " LIKE ? ESCAPE '\\'"
+        Assert.assertEquals(
+            IndexedSearch.Selection("$data AND $name", arrayOf("/sdcard/%", "%100\\%\\_a%")),
+            IndexedSearch.selectionOf(
+                "100%_a",
+                "/sdcard/",
+                EnumSet.noneOf(SearchParameter::class.java),
+            ),
+        )
+        Assert.assertEquals(
+            IndexedSearch.Selection(name, arrayOf("%ab%_tx_%")),
+            IndexedSearch.selectionOf("ab*.tx?", "/", EnumSet.of(SearchParameter.REGEX)),
+        )
+        Assert.assertEquals(
+            IndexedSearch.Selection(name, arrayOf("ab%_txt")),
+            IndexedSearch.selectionOf(
+                "ab*.txt",
+                "",
+                SearchParameter.REGEX and SearchParameter.REGEX_MATCHES,
+            ),
+        )
+        Assert.assertEquals(
+            IndexedSearch.Selection(null, null),
+            IndexedSearch.selectionOf("(ab|cd)", "", EnumSet.of(SearchParameter.REGEX)),
+        )
+        Assert.assertEquals(
+            IndexedSearch.Selection(data, arrayOf("/sdcard/%")),
+            IndexedSearch.selectionOf(
+                "été",
+                "/sdcard",
+                EnumSet.noneOf(SearchParameter::class.java),
+            ),
+        )
+    }
+
     private fun listNotEmptyError(size: Int) = "List was not empty as expected but had $size elements"
 }
@@ -27,6 +27,10 @@ import androidx.room.Room
 import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.platform.app.InstrumentationRegistry
+import com.amaze.filemanager.database.models.explorer.ChecksumEntry
+import com.amaze.filemanager.database.models.explorer.FolderSizeEntry
+import com.amaze.filemanager.database.models.explorer.TransferCheckpoint
+import com.amaze.filemanager.database.models.explorer.TransferTuning
 import com.amaze.filemanager.fileoperations.filesystem.OpenMode
 import com.amaze.filemanager.shadows.ShadowMultiDex
 import com.amaze.filemanager.test.ShadowPasswordUtil
@@ -82,6 +86,10 @@ class ExplorerDatabaseMigrationTest {
                     ExplorerDatabase.MIGRATION_8_9,
                     ExplorerDatabase.MIGRATION_9_10,
                     ExplorerDatabase.MIGRATION_10_11,
+                    ExplorerDatabase.MIGRATION_11_12,
+                    ExplorerDatabase.MIGRATION_12_13,
+                    ExplorerDatabase.MIGRATION_13_14,
+                    ExplorerDatabase.MIGRATION_14_15,
                 )
                 .build()
         explorerDatabase.openHelper.writableDatabase
@@ -109,6 +117,10 @@ class ExplorerDatabaseMigrationTest {
                     ExplorerDatabase.MIGRATION_8_9,
                     ExplorerDatabase.MIGRATION_9_10,
                     ExplorerDatabase.MIGRATION_10_11,
+                    ExplorerDatabase.MIGRATION_11_12,
+                    ExplorerDatabase.MIGRATION_12_13,
+                    ExplorerDatabase.MIGRATION_13_14,
+                    ExplorerDatabase.MIGRATION_14_15,
                 )
                 .build()
         explorerDatabase.openHelper.writableDatabase
@@ -135,6 +147,10 @@ class ExplorerDatabaseMigrationTest {
                     ExplorerDatabase.MIGRATION_8_9,
                     ExplorerDatabase.MIGRATION_9_10,
                     ExplorerDatabase.MIGRATION_10_11,
+                    ExplorerDatabase.MIGRATION_11_12,
+                    ExplorerDatabase.MIGRATION_12_13,
+                    ExplorerDatabase.MIGRATION_13_14,
+                    ExplorerDatabase.MIGRATION_14_15,
                 )
                 .build()
         explorerDatabase.openHelper.writableDatabase
@@ -212,6 +228,10 @@ class ExplorerDatabaseMigrationTest {
                     ExplorerDatabase.MIGRATION_8_9,
                     ExplorerDatabase.MIGRATION_9_10,
                     ExplorerDatabase.MIGRATION_10_11,
+                    ExplorerDatabase.MIGRATION_11_12,
+                    ExplorerDatabase.MIGRATION_12_13,
+                    ExplorerDatabase.MIGRATION_13_14,
+                    ExplorerDatabase.MIGRATION_14_15,
                 ).allowMainThreadQueries()
                 .build()
         explorerDatabase.openHelper.writableDatabase
@@ -320,6 +340,10 @@ class ExplorerDatabaseMigrationTest {
                     ExplorerDatabase.MIGRATION_8_9,
                     ExplorerDatabase.MIGRATION_9_10,
                     ExplorerDatabase.MIGRATION_10_11,
+                    ExplorerDatabase.MIGRATION_11_12,
+                    ExplorerDatabase.MIGRATION_12_13,
+                    ExplorerDatabase.MIGRATION_13_14,
+                    ExplorerDatabase.MIGRATION_14_15,
                 )
                 .allowMainThreadQueries()
                 .build()
@@ -359,6 +383,155 @@ class ExplorerDatabaseMigrationTest {
         explorerDatabase.close()
     }
 
+    /**
+     * Test migrate from v11 to v12 - add transfer journal table.
+     */
+    @Test
+    @Throws(IOException::class)
+    fun migrateFromV11() {
+        val db = helper.createDatabase(TEST_DB, 11)
+        db.close()
+        val explorerDatabase =
+            Room.databaseBuilder(
+                InstrumentationRegistry.getInstrumentation().targetContext,
+                ExplorerDatabase::class.java,
+                TEST_DB,
+            )
+                .addMigrations(
+                    ExplorerDatabase.MIGRATION_11_12,
+                    ExplorerDatabase.MIGRATION_12_13,
+                    ExplorerDatabase.MIGRATION_13_14,
+                    ExplorerDatabase.MIGRATION_14_15,
+                )
+                .allowMainThreadQueries()
+                .build()
+        explorerDatabase.openHelper.writableDatabase
+        explorerDatabase
+            .transferCheckpointDao()
+            .insert(TransferCheckpoint("/target", "/source", 1024, 1234, 512))
+            .subscribeOn(Schedulers.trampoline())
+            .blockingAwait()
+        val verify =
+            explorerDatabase
+                .transferCheckpointDao()
+                .find("/target")
+                .subscribeOn(Schedulers.trampoline())
+                .blockingGet()
+        Assert.assertEquals("/source", verify.source)
+        Assert.assertEquals(512L, verify.completedBytes)
+        explorerDatabase.close()
+    }
+
+    /**
+     * Test migrate from v12 to latest, with checksum cache table added.
+     */
+    @Test
+    @Throws(IOException::class)
+    fun migrateFromV12() {
+        val db = helper.createDatabase(TEST_DB, 12)
+        db.close()
+        val explorerDatabase =
+            Room.databaseBuilder(
+                InstrumentationRegistry.getInstrumentation().targetContext,
+                ExplorerDatabase::class.java,
+                TEST_DB,
+            )
+                .addMigrations(
+                    ExplorerDatabase.MIGRATION_12_13,
+                    ExplorerDatabase.MIGRATION_13_14,
+                    ExplorerDatabase.MIGRATION_14_15,
+                )
+                .allowMainThreadQueries()
+                .build()
+        explorerDatabase.openHelper.writableDatabase
+        explorerDatabase
+            .checksumEntryDao()
+            .insert(ChecksumEntry("/file", 1024, 1234, "md5", "sha1", "sha256", "crc32"))
+            .subscribeOn(Schedulers.trampoline())
+            .blockingAwait()
+        val verify =
+            explorerDatabase
+                .checksumEntryDao()
+                .find("/file")
+                .subscribeOn(Schedulers.trampoline())
+                .blockingGet()
+        Assert.assertEquals(1024L, verify.size)
+        Assert.assertEquals("sha256", verify.sha256)
+        explorerDatabase.close()
+    }
+
+    /**
+     * Test migrate from v13 to latest, with transfer tuning table added.
+     */
+    @Test
+    @Throws(IOException::class)
+    fun migrateFromV13() {
+        val db = helper.createDatabase(TEST_DB, 13)
+        db.close()
+        val explorerDatabase =
+            Room.databaseBuilder(
+                InstrumentationRegistry.getInstrumentation().targetContext,
+                ExplorerDatabase::class.java,
+                TEST_DB,
+            )
+                .addMigrations(
+                    ExplorerDatabase.MIGRATION_13_14,
+                    ExplorerDatabase.MIGRATION_14_15,
+                )
+                .allowMainThreadQueries()
+                .build()
+        explorerDatabase.openHelper.writableDatabase
+        explorerDatabase
+            .transferTuningDao()
+            .insert(TransferTuning("SMB|server>FILE|/", 262144, 1048576))
+            .subscribeOn(Schedulers.trampoline())
+            .blockingAwait()
+        val verify =
+            explorerDatabase
+                .transferTuningDao()
+                .find("SMB|server>FILE|/")
+                .subscribeOn(Schedulers.trampoline())
+                .blockingGet()
+        Assert.assertEquals(262144, verify.blockSize)
+        Assert.assertEquals(1048576L, verify.throughput)
+        explorerDatabase.close()
+    }
+
+    /**
+     * Test migrate from v14 to latest, with folder size table added.
+     */
+    @Test
+    @Throws(IOException::class)
+    fun migrateFromV14() {
+        val db = helper.createDatabase(TEST_DB, 14)
+        db.close()
+        val explorerDatabase =
+            Room.databaseBuilder(
+                InstrumentationRegistry.getInstrumentation().targetContext,
+                ExplorerDatabase::class.java,
+                TEST_DB,
+            )
+                .addMigrations(ExplorerDatabase.MIGRATION_14_15)
+                .allowMainThreadQueries()
+                .build()
+        explorerDatabase.openHelper.writableDatabase
+        explorerDatabase
+            .folderSizeEntryDao()
+            .insert(listOf(FolderSizeEntry("/sdcard/Music", 1234, 4096, "Albums/Podcasts")))
+            .subscribeOn(Schedulers.trampoline())
+            .blockingAwait()
+        val verify =
+            explorerDatabase
+                .folderSizeEntryDao()
+                .findTree("/sdcard", "/sdcard/")
+                .subscribeOn(Schedulers.trampoline())
+                .blockingGet()
+        Assert.assertEquals(1, verify.size)
+        Assert.assertEquals(4096L, verify[0].filesSize)
+        Assert.assertEquals("Albums/Podcasts", verify[0].subdirectories)
+        explorerDatabase.close()
+    }
+
     companion object {
         private const val TEST_DB = "explorer-test"
     }
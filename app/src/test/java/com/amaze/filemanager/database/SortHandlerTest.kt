@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.filesystem.files.sort.SortBy
+import com.amaze.filemanager.filesystem.files.sort.SortOrder
+import com.amaze.filemanager.filesystem.files.sort.SortType
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import io.reactivex.android.plugins.RxAndroidPlugins
+import io.reactivex.plugins.RxJavaPlugins
+import io.reactivex.schedulers.Schedulers
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+/**
+ * Tests for [SortHandler].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class SortHandlerTest {
+    /**
+     * Test setup. Set all RxJava thread scheduler to trampoline.
+     */
+    @Before
+    fun setUp() {
+        RxAndroidPlugins.reset()
+        RxAndroidPlugins.setMainThreadSchedulerHandler { Schedulers.trampoline() }
+        RxJavaPlugins.reset()
+        RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+    }
+
+    /**
+     * Sort types are found as soon as they are added, changed or cleared.
+     */
+    @Test
+    fun testAddUpdateClear() {
+        val path = "/storage/emulated/0/Music"
+        val byName = SortType(SortBy.NAME, SortOrder.ASC)
+        val bySize = SortType(SortBy.SIZE, SortOrder.DESC)
+        val sortHandler = SortHandler.getInstance()
+        sortHandler.clear(path)
+        assertNull(sortHandler.findEntry(path))
+
+        sortHandler.addEntry(path, byName)
+        val added = sortHandler.findEntry(path)
+        assertEquals(byName.toDirectorySortInt(), added?.type)
+
+        sortHandler.updateEntry(added, path, bySize)
+        assertEquals(bySize.toDirectorySortInt(), sortHandler.findEntry(path)?.type)
+        assertNull(sortHandler.findEntry("/storage/emulated/0"))
+
+        sortHandler.clear(path)
+        assertNull(sortHandler.findEntry(path))
+    }
+
+    /**
+     * The empty path can be added and cleared, it is never found.
+     */
+    @Test
+    fun testEmptyPath() {
+        val byName = SortType(SortBy.NAME, SortOrder.ASC)
+        val sortHandler = SortHandler.getInstance()
+        sortHandler.addEntry("", byName)
+        assertNull(sortHandler.findEntry(""))
+        sortHandler.clear("")
+        assertNull(sortHandler.findEntry("/"))
+    }
+}
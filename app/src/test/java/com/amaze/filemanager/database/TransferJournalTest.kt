@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.database
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.models.explorer.TransferCheckpoint
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import io.reactivex.android.plugins.RxAndroidPlugins
+import io.reactivex.plugins.RxJavaPlugins
+import io.reactivex.schedulers.Schedulers
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.BeforeClass
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+/**
+ * Tests for [TransferJournal].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class TransferJournalTest {
+    companion object {
+        private const val SOURCE = "ssh://user@127.0.0.1:22/home/user/big.iso"
+        private const val TARGET = "/storage/emulated/0/Download/big.iso"
+
+        /**
+         * Enforce use of in-mem database during test.
+         */
+        @BeforeClass
+        @JvmStatic
+        fun bootstrap() {
+            ExplorerDatabase.overrideDatabaseBuilder = { context ->
+                Room.inMemoryDatabaseBuilder(context, ExplorerDatabase::class.java)
+            }
+        }
+    }
+
+    /**
+     * Test setup. Set all RxJava thread scheduler to trampoline and clear database tables
+     * for sanity.
+     */
+    @Before
+    fun setUp() {
+        RxAndroidPlugins.reset()
+        RxAndroidPlugins.setMainThreadSchedulerHandler { Schedulers.trampoline() }
+        RxJavaPlugins.reset()
+        RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+        AppConfig.getInstance().explorerDatabase.clearAllTables()
+    }
+
+    /**
+     * Checkpoints are overwritten by later ones, and forgotten on completion.
+     */
+    @Test
+    fun testCheckpointAndComplete() {
+        TransferJournal.checkpoint(TARGET, SOURCE, 4096, 1234, 1024)
+        TransferJournal.checkpoint(TARGET, SOURCE, 4096, 1234, 2048)
+        assertEquals(2048L, TransferJournal.findCheckpoint(TARGET)?.completedBytes)
+        TransferJournal.complete(TARGET)
+        assertNull(TransferJournal.findCheckpoint(TARGET))
+    }
+
+    /**
+     * Resume only if neither source nor target changed since the checkpoint.
+     */
+    @Test
+    fun testResumeOffsetOf() {
+        val checkpoint = TransferCheckpoint(TARGET, SOURCE, 4096, 1234, 2048)
+        assertEquals(2048L, TransferJournal.resumeOffsetOf(checkpoint, SOURCE, 4096, 1234, 3000))
+        assertEquals(0L, TransferJournal.resumeOffsetOf(null, SOURCE, 4096, 1234, 3000))
+        assertEquals(0L, TransferJournal.resumeOffsetOf(checkpoint, TARGET, 4096, 1234, 3000))
+        assertEquals(0L, TransferJournal.resumeOffsetOf(checkpoint, SOURCE, 8192, 1234, 3000))
+        assertEquals(0L, TransferJournal.resumeOffsetOf(checkpoint, SOURCE, 4096, 4321, 3000))
+        assertEquals(0L, TransferJournal.resumeOffsetOf(checkpoint, SOURCE, 4096, 1234, 1000))
+    }
+}
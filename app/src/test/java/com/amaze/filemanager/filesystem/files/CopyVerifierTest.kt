@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.exceptions.ChecksumMismatchException
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.File
+
+/**
+ * Tests for [CopyVerifier].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class CopyVerifierTest {
+    companion object {
+        private const val ABC_SHA256 =
+            "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad"
+    }
+
+    private lateinit var source: File
+
+    private lateinit var target: File
+
+    /**
+     * Create source and target files.
+     */
+    @Before
+    fun setUp() {
+        source = File.createTempFile("source", ".txt")
+        target = File.createTempFile("target", ".txt")
+        source.writeText("abc")
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        source.delete()
+        target.delete()
+    }
+
+    /**
+     * Local file checksum is computed by reading it back.
+     */
+    @Test
+    fun testChecksumOf() {
+        assertEquals(
+            ABC_SHA256,
+            CopyVerifier(AppConfig.getInstance()).checksumOf(hybridFileOf(source)),
+        )
+    }
+
+    /**
+     * Identical target passes, whether the source was digested while copying or not.
+     */
+    @Test
+    fun testVerifyIdenticalCopy() {
+        target.writeText("abc")
+        val verifier = CopyVerifier(AppConfig.getInstance())
+        verifier.verify(hybridFileOf(source), hybridFileOf(target), null)
+
+        val digest = CopyVerifier.newDigest()
+        digest.update("abc".toByteArray())
+        verifier.verify(hybridFileOf(source), hybridFileOf(target), digest)
+    }
+
+    /**
+     * Target differing from the source fails.
+     */
+    @Test(expected = ChecksumMismatchException::class)
+    fun testVerifyCorruptCopy() {
+        target.writeText("abd")
+        CopyVerifier(AppConfig.getInstance())
+            .verify(hybridFileOf(source), hybridFileOf(target), null)
+    }
+
+    /**
+     * Target is checked against what was actually read while copying, not the source as it is
+     * now.
+     */
+    @Test(expected = ChecksumMismatchException::class)
+    fun testVerifyAgainstDigestedSource() {
+        target.writeText("abc")
+        val digest = CopyVerifier.newDigest()
+        digest.update("abd".toByteArray())
+        CopyVerifier(AppConfig.getInstance())
+            .verify(hybridFileOf(source), hybridFileOf(target), digest)
+    }
+
+    private fun hybridFileOf(file: File) = HybridFile(OpenMode.FILE, file.absolutePath)
+
+    /**
+     * Paths are single-quoted for the remote shell, with their own quotes escaped.
+     */
+    @Test
+    fun testShellQuote() {
+        assertEquals("'/home/a b/\$(rm x)\"`'", CopyVerifier.shellQuote("/home/a b/\$(rm x)\"`"))
+        assertEquals("'/home/it'\\''s'", CopyVerifier.shellQuote("/home/it's"))
+    }
+}
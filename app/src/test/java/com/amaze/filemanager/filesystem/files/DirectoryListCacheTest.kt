@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import android.os.FileObserver
+import android.os.Handler
+import android.os.Looper
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.adapters.data.LayoutElementParcelable
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.CustomFileObserver
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.File
+
+/**
+ * Tests for [DirectoryListCache].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class DirectoryListCacheTest {
+    private lateinit var root: File
+    private lateinit var cache: DirectoryListCache
+
+    /**
+     * Create a directory with a file.
+     */
+    @Before
+    fun setUp() {
+        root = File.createTempFile("listcache", "")
+        root.delete()
+        root.mkdirs()
+        File(root, "a.bin").writeBytes(ByteArray(100))
+        cache = DirectoryListCache(AppConfig.getInstance())
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        cache.close()
+        root.deleteRecursively()
+    }
+
+    /**
+     * Cached lists are copies, changing them doesn't change the cache.
+     */
+    @Test
+    fun testGetIsCopy() {
+        cache.put("/remote", listOf(element("/remote/a")), false, false, false)
+        (cache.get("/remote") as MutableList).clear()
+        assertEquals(1, cache.get("/remote")?.size)
+    }
+
+    /**
+     * Least recently used listings are evicted when their elements take too much memory.
+     */
+    @Test
+    fun testSizedInBytes() {
+        val elements = List(10) { element("/remote/file$it") }
+        val bytes = elements.sumOf { DirectoryListCache.estimateBytes(it) }
+        val cache = DirectoryListCache(AppConfig.getInstance(), bytes * 2)
+        cache.put("/remote/1", elements, false, false, false)
+        cache.put("/remote/2", elements, false, false, false)
+        assertEquals(bytes * 2, cache.size())
+        cache.put("/remote/3", elements, false, false, false)
+        assertNull(cache.get("/remote/1"))
+        assertNotNull(cache.get("/remote/2"))
+        assertNotNull(cache.get("/remote/3"))
+        cache.close()
+    }
+
+    /**
+     * Files created in a cached local directory are added to the cached listing.
+     */
+    @Test
+    fun testPatchedOnCreate() {
+        cache.put(root.path, listOf(element(File(root, "a.bin").path)), true, false, false)
+        File(root, "b.bin").writeBytes(ByteArray(200))
+        notify(FileObserver.CREATE, "b.bin")
+
+        val listing = await { cache.get(root.path)?.takeIf { it.size == 2 } }
+        assertEquals(200L, listing.first { it.title == "b.bin" }.longSize)
+    }
+
+    /**
+     * Files deleted from a cached local directory are removed from the cached listing.
+     */
+    @Test
+    fun testPatchedOnDelete() {
+        cache.put(root.path, listOf(element(File(root, "a.bin").path)), true, false, false)
+        File(root, "a.bin").delete()
+        notify(FileObserver.DELETE, "a.bin")
+
+        await { cache.get(root.path)?.takeIf { it.isEmpty() } }
+    }
+
+    /**
+     * Modified files get their new attributes in the cached listing.
+     */
+    @Test
+    fun testPatchedOnModify() {
+        cache.put(root.path, listOf(element(File(root, "a.bin").path)), true, false, false)
+        File(root, "a.bin").writeBytes(ByteArray(300))
+        notify(FileObserver.CLOSE_WRITE, "a.bin")
+
+        await { cache.get(root.path)?.takeIf { it.firstOrNull()?.longSize == 300L } }
+    }
+
+    /**
+     * Elements are still found by name after others were removed, and the size of the listing
+     * follows the changes.
+     */
+    @Test
+    fun testPatchedAfterRemoval() {
+        val names = listOf("a.bin", "b.bin", "c.bin")
+        names.forEach { File(root, it).writeBytes(ByteArray(100)) }
+        cache.put(root.path, names.map { element(File(root, it).path) }, true, false, false)
+        File(root, "a.bin").delete()
+        notify(FileObserver.DELETE, "a.bin")
+        File(root, "c.bin").writeBytes(ByteArray(300))
+        notify(FileObserver.CLOSE_WRITE, "c.bin")
+
+        val listing =
+            await {
+                cache.get(root.path)?.takeIf { elements ->
+                    elements.size == 2 && elements.any { it.longSize == 300L }
+                }
+            }
+        assertEquals(listOf("b.bin", "c.bin"), listing.map { File(it.desc).name }.sorted())
+        assertEquals(listing.sumOf { DirectoryListCache.estimateBytes(it) }, cache.size())
+    }
+
+    /**
+     * Removed listings aren't watched anymore.
+     */
+    @Test
+    fun testRemove() {
+        cache.put(root.path, listOf(element(File(root, "a.bin").path)), true, false, false)
+        cache.remove(root.path)
+        assertNull(cache.get(root.path))
+    }
+
+    /** Act as inotify would, on the observer shared with the cache. */
+    private fun notify(
+        event: Int,
+        name: String,
+    ) {
+        val handler = Handler(Looper.getMainLooper())
+        val observer = CustomFileObserver.watch(root.path, handler)
+        observer.onEvent(event, name)
+        observer.release(handler)
+    }
+
+    private fun <T> await(condition: () -> T?): T {
+        val end = System.currentTimeMillis() + 5000
+        while (System.currentTimeMillis() < end) {
+            condition()?.let { return it }
+            Thread.sleep(10)
+        }
+        throw AssertionError("Cache wasn't updated")
+    }
+
+    private fun element(path: String) =
+        LayoutElementParcelable(
+            AppConfig.getInstance(),
+            path,
+            "rw",
+            "",
+            "0",
+            0L,
+            false,
+            "0",
+            false,
+            false,
+            OpenMode.FILE,
+        )
+}
@@ -20,9 +20,11 @@
 
 package com.amaze.filemanager.filesystem.files
 
+import android.content.Context
 import android.os.Build
 import android.os.Build.VERSION_CODES.KITKAT
 import android.os.Build.VERSION_CODES.P
+import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import com.amaze.filemanager.filesystem.files.FileUtils.getPathsInPath
 import org.junit.Assert.assertArrayEquals
@@ -34,6 +36,7 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.annotation.Config
 import org.robolectric.annotation.LooperMode
+import java.io.File
 import java.util.TimeZone
 
 @RunWith(AndroidJUnit4::class)
@@ -438,4 +441,42 @@ class FileUtilsTest {
 
         TimeZone.setDefault(systemTz)
     }
+
+    /**
+     * Test FileUtils.generateListedElement() gives elements like a directory listing, without
+     * walking directories for their size.
+     *
+     * @see FileUtils.generateListedElement
+     */
+    @Test
+    fun testGenerateListedElement() {
+        val root = File.createTempFile("listed", "")
+        root.delete()
+        root.mkdirs()
+        try {
+            val file = File(root, "a.bin").also { it.writeBytes(ByteArray(100)) }
+            val directory = File(root, "sub").also { it.mkdirs() }
+            File(directory, "b.bin").writeBytes(ByteArray(200))
+            val hidden = File(root, ".hidden").also { it.writeBytes(ByteArray(10)) }
+            val context = ApplicationProvider.getApplicationContext<Context>()
+
+            FileUtils.generateListedElement(context, file, false, false).run {
+                assertNotNull(this)
+                assertEquals("a.bin", this!!.title)
+                assertEquals(file.path, desc)
+                assertEquals(100L, longSize)
+                assertTrue(!isDirectory)
+            }
+            FileUtils.generateListedElement(context, directory, false, false).run {
+                assertNotNull(this)
+                assertTrue(this!!.isDirectory)
+                assertEquals(0L, longSize)
+                assertEquals("", size)
+            }
+            assertNull(FileUtils.generateListedElement(context, hidden, false, false))
+            assertNotNull(FileUtils.generateListedElement(context, hidden, true, false))
+        } finally {
+            root.deleteRecursively()
+        }
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+
+/**
+ * Tests for [FilenameIndex].
+ */
+class FilenameIndexTest {
+    private lateinit var root: File
+    private lateinit var storeFile: File
+
+    /**
+     * Create a tree of directories and files.
+     */
+    @Before
+    fun setUp() {
+        root = File.createTempFile("index", "")
+        root.delete()
+        File(root, "Music/Albums").mkdirs()
+        File(root, ".hidden").mkdirs()
+        File(root, "Music/Albums/holiday.mp3").createNewFile()
+        File(root, "Music/Holiday Playlist.m3u").createNewFile()
+        File(root, ".hidden/holiday.jpg").createNewFile()
+        File(root, "notes.txt").createNewFile()
+        storeFile = File.createTempFile("index", ".bin")
+        storeFile.delete()
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        root.deleteRecursively()
+        storeFile.delete()
+    }
+
+    /**
+     * Only names containing the literals, ignoring case, below the path are candidates.
+     */
+    @Test
+    fun testSearch() {
+        val index = FilenameIndex(storeFile)
+        assertFalse(index.covers(root.path))
+        index.refresh(root)
+        assertTrue(index.covers(root.path))
+        assertTrue(index.covers(File(root, "Music").path))
+        assertFalse(index.covers(root.parent!!))
+
+        assertEquals(
+            setOf("Music/Albums/holiday.mp3", "Music/Holiday Playlist.m3u"),
+            candidates(index, root.path, listOf("HOLIDAY"), false),
+        )
+        assertEquals(
+            setOf("Music/Albums/holiday.mp3", "Music/Holiday Playlist.m3u", ".hidden/holiday.jpg"),
+            candidates(index, root.path, listOf("holi"), true),
+        )
+        assertEquals(
+            setOf("Music/Albums/holiday.mp3"),
+            candidates(index, File(root, "Music/Albums").path, listOf("holi"), false),
+        )
+        assertEquals(
+            setOf("Music/Albums/holiday.mp3"),
+            candidates(index, root.path, listOf("day", "mp3"), false),
+        )
+        assertEquals(emptySet<String>(), candidates(index, root.path, listOf("zzz"), false))
+        // too short to narrow, everything visible is a candidate
+        assertEquals(5, candidates(index, root.path, listOf("o"), false).size)
+    }
+
+    /**
+     * Changes are found on refresh, also by an index loaded from disk.
+     */
+    @Test
+    fun testRefresh() {
+        FilenameIndex(storeFile).refresh(root)
+        assertTrue(storeFile.exists())
+
+        val albums = File(root, "Music/Albums")
+        File(albums, "holiday 2.mp3").createNewFile()
+        albums.setLastModified(albums.lastModified() + 2000)
+        val index = FilenameIndex(storeFile)
+        index.refresh(root)
+        assertEquals(
+            setOf("Music/Albums/holiday.mp3", "Music/Albums/holiday 2.mp3"),
+            candidates(index, albums.path, listOf("holiday"), false),
+        )
+
+        File(root, "Music").deleteRecursively()
+        root.setLastModified(root.lastModified() + 2000)
+        index.refresh(root)
+        assertEquals(emptySet<String>(), candidates(index, root.path, listOf("holiday"), false))
+    }
+
+    /**
+     * Sorted lists intersect into a sorted list.
+     */
+    @Test
+    fun testIntersect() {
+        assertArrayEquals(
+            intArrayOf(2, 5, 9),
+            FilenameIndex.intersect(intArrayOf(1, 2, 5, 7, 9), intArrayOf(2, 3, 5, 9, 11)),
+        )
+        assertArrayEquals(IntArray(0), FilenameIndex.intersect(intArrayOf(1), IntArray(0)))
+    }
+
+    private fun candidates(
+        index: FilenameIndex,
+        path: String,
+        literals: List<String>,
+        includeHidden: Boolean,
+    ): Set<String> {
+        val found = HashSet<String>()
+        index.search(path, literals, includeHidden) { directory, name ->
+            found.add(File(directory, name).relativeTo(root).path)
+            true
+        }
+        return found
+    }
+}
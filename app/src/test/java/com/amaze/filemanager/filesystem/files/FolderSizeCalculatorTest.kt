@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.ExplorerDatabase
+import com.amaze.filemanager.database.FolderSizeCache
+import com.amaze.filemanager.database.models.explorer.FolderSizeEntry
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import com.amaze.filemanager.utils.OnProgressUpdate
+import io.reactivex.android.plugins.RxAndroidPlugins
+import io.reactivex.plugins.RxJavaPlugins
+import io.reactivex.schedulers.Schedulers
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.BeforeClass
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.File
+
+/**
+ * Tests for [FolderSizeCalculator].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class FolderSizeCalculatorTest {
+    companion object {
+        /**
+         * Enforce use of in-mem database during test.
+         */
+        @BeforeClass
+        @JvmStatic
+        fun bootstrap() {
+            ExplorerDatabase.overrideDatabaseBuilder = { context ->
+                Room.inMemoryDatabaseBuilder(context, ExplorerDatabase::class.java)
+            }
+        }
+    }
+
+    private lateinit var root: File
+
+    /**
+     * Create a tree of directories and files, with an empty cache.
+     */
+    @Before
+    fun setUp() {
+        RxAndroidPlugins.reset()
+        RxAndroidPlugins.setMainThreadSchedulerHandler { Schedulers.trampoline() }
+        RxJavaPlugins.reset()
+        RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+        AppConfig.getInstance().explorerDatabase.clearAllTables()
+
+        root = File.createTempFile("foldersize", "")
+        root.delete()
+        root.mkdirs()
+        File(root, "a.bin").writeBytes(ByteArray(100))
+        File(root, "sub/deeper").mkdirs()
+        File(root, "sub/b.bin").writeBytes(ByteArray(200))
+        File(root, "sub/deeper/c.bin").writeBytes(ByteArray(300))
+        File(root, "empty").mkdirs()
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        root.deleteRecursively()
+    }
+
+    /**
+     * Nested files all add up, partial sizes growing up to the total, and every directory is
+     * recorded.
+     */
+    @Test
+    fun testFolderSize() {
+        val updates = ArrayList<Long>()
+        val size =
+            FolderSizeCalculator.folderSize(
+                root,
+                object : OnProgressUpdate<Long> {
+                    override fun onUpdate(data: Long) {
+                        updates.add(data)
+                    }
+                },
+            )
+        assertEquals(600L, size)
+        assertEquals(updates.sorted(), updates)
+        assertEquals(600L, updates.last())
+
+        val recorded = FolderSizeCache.findTree(root.path)
+        assertEquals(4, recorded.size)
+        assertEquals(200L, recorded[File(root, "sub").path]?.filesSize)
+        assertEquals("deeper", recorded[File(root, "sub").path]?.subdirectories)
+    }
+
+    /**
+     * Directories with the same modification time are not listed again, others are.
+     */
+    @Test
+    fun testUnchangedDirectoriesReused() {
+        FolderSizeCalculator.folderSize(root)
+        val deeper = File(root, "sub/deeper")
+        FolderSizeCache.update(
+            listOf(FolderSizeEntry(deeper.path, deeper.lastModified(), 1000, "")),
+            emptyList(),
+        )
+        assertEquals(1300L, FolderSizeCalculator.folderSize(root))
+
+        File(deeper, "d.bin").writeBytes(ByteArray(50))
+        deeper.setLastModified(deeper.lastModified() + 2000)
+        assertEquals(650L, FolderSizeCalculator.folderSize(root))
+    }
+
+    /**
+     * Removed directories are forgotten along with everything below them.
+     */
+    @Test
+    fun testRemovedDirectoriesForgotten() {
+        FolderSizeCalculator.folderSize(root)
+        val sub = File(root, "sub")
+        sub.deleteRecursively()
+        root.setLastModified(root.lastModified() + 2000)
+        assertEquals(100L, FolderSizeCalculator.folderSize(root))
+
+        val recorded = FolderSizeCache.findTree(root.path)
+        assertFalse(recorded.containsKey(sub.path))
+        assertFalse(recorded.containsKey(File(sub, "deeper").path))
+        assertTrue(recorded.containsKey(File(root, "empty").path))
+    }
+}
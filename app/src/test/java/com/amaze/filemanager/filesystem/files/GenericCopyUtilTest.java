@@ -22,6 +22,8 @@ package com.amaze.filemanager.filesystem.files;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -29,12 +31,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.channels.Channels;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 import org.junit.Before;
+import org.junit.Test;
 import org.junit.experimental.theories.DataPoints;
 import org.junit.experimental.theories.Theories;
 import org.junit.experimental.theories.Theory;
@@ -42,6 +46,8 @@ import org.junit.runner.RunWith;
 import org.robolectric.RuntimeEnvironment;
 
 import com.amaze.filemanager.asynchronous.management.ServiceWatcherUtil;
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode;
+import com.amaze.filemanager.filesystem.HybridFile;
 import com.amaze.filemanager.test.DummyFileGenerator;
 import com.amaze.filemanager.utils.ProgressHandler;
 
@@ -96,6 +102,62 @@ public class GenericCopyUtilTest {
     assertSha1Equals(checksum, file2);
   }
 
+  @Theory // copy(FileChannel in, FileChannel out) over a larger, existing file
+  public void testCopyFileOverwritesLargerTarget(int size)
+      throws IOException, NoSuchAlgorithmException {
+    DummyFileGenerator.createFile(file2, size + 4096);
+    byte[] checksum = DummyFileGenerator.createFile(file1, size);
+    copyUtil.copyFile(
+        new RandomAccessFile(file1, "r").getChannel(),
+        new RandomAccessFile(file2, "rw").getChannel(),
+        ServiceWatcherUtil.UPDATE_POSITION);
+    assertEquals(file1.length(), file2.length());
+    assertSha1Equals(checksum, file2);
+  }
+
+  @Theory // copy(BufferedInputStream in, FileChannel out) over a larger file, verifying
+  public void testVerifiedCopyOverwritesLargerTarget(int size)
+      throws IOException, NoSuchAlgorithmException {
+    copyUtil = new GenericCopyUtil(RuntimeEnvironment.application, new ProgressHandler(), true);
+    DummyFileGenerator.createFile(file2, size + 4096);
+    byte[] checksum = DummyFileGenerator.createFile(file1, size);
+    copyUtil.copyFile(
+        new BufferedInputStream(new FileInputStream(file1)),
+        new RandomAccessFile(file2, "rw").getChannel(),
+        ServiceWatcherUtil.UPDATE_POSITION);
+    assertEquals(file1.length(), file2.length());
+    assertSha1Equals(checksum, file2);
+    new CopyVerifier(RuntimeEnvironment.application)
+        .verify(
+            new HybridFile(OpenMode.FILE, file1.getPath()),
+            new HybridFile(OpenMode.FILE, file2.getPath()),
+            null);
+  }
+
+  @Test
+  public void testRenameWithinFilesystem() throws IOException, NoSuchAlgorithmException {
+    byte[] checksum = DummyFileGenerator.createFile(file1, 512);
+    File target = new File(file1.getParentFile(), file1.getName() + ".moved");
+    target.deleteOnExit();
+    assertTrue(
+        GenericCopyUtil.renameWithinFilesystem(
+            new HybridFile(OpenMode.FILE, file1.getPath()),
+            new HybridFile(OpenMode.FILE, target.getPath())));
+    assertFalse(file1.exists());
+    assertSha1Equals(checksum, target);
+  }
+
+  @Test
+  public void testRenameWithinFilesystemExistingTarget() throws IOException {
+    DummyFileGenerator.createFile(file1, 512);
+    DummyFileGenerator.createFile(file2, 512);
+    assertFalse(
+        GenericCopyUtil.renameWithinFilesystem(
+            new HybridFile(OpenMode.FILE, file1.getPath()),
+            new HybridFile(OpenMode.FILE, file2.getPath())));
+    assertTrue(file1.exists());
+  }
+
   private void assertSha1Equals(byte[] expected, File file)
       throws NoSuchAlgorithmException, IOException {
     MessageDigest md = MessageDigest.getInstance("SHA-1");
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.filesystem.RootHelper
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.File
+
+/**
+ * Tests for [LocalDirectoryLister].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class LocalDirectoryListerTest {
+    private lateinit var root: File
+
+    /**
+     * Create a directory with files, a read-only file, a directory and a hidden file.
+     */
+    @Before
+    fun setUp() {
+        assumeTrue(LocalDirectoryLister.isSupported)
+        root = File.createTempFile("lister", "")
+        root.delete()
+        root.mkdirs()
+        File(root, "a.bin").writeBytes(ByteArray(100))
+        File(root, "b.bin").writeBytes(ByteArray(200))
+        File(root, "c.bin").apply {
+            writeBytes(ByteArray(300))
+            setWritable(false)
+        }
+        File(root, "sub").mkdirs()
+        File(root, ".hidden").writeBytes(ByteArray(10))
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        if (this::root.isInitialized) root.deleteRecursively()
+    }
+
+    /**
+     * Attributes are the same as what [File] answers, one call at a time.
+     */
+    @Test
+    fun testSameAsFile() {
+        val listed = list(true)
+        assertEquals(root.list()!!.toList(), listed.map { it.name })
+        listed.forEach {
+            val file = File(it.path)
+            assertEquals(file.isDirectory, it.isDirectory)
+            assertEquals(if (file.isDirectory) 0L else file.length(), it.size)
+            assertEquals(file.lastModified() / 1000, it.date / 1000)
+            assertEquals(RootHelper.parseFilePermission(file), it.permission)
+        }
+    }
+
+    /**
+     * Hidden files are left out unless asked for.
+     */
+    @Test
+    fun testHidden() {
+        assertFalse(list(false).any { it.name == ".hidden" })
+        assertTrue(list(true).any { it.name == ".hidden" })
+    }
+
+    /**
+     * Big directories are stat'ed in parallel but keep their order.
+     */
+    @Test
+    fun testBigDirectory() {
+        val big = File(root, "big")
+        big.mkdirs()
+        for (i in 0..LocalDirectoryLister.FAN_OUT_THRESHOLD * 2) {
+            File(big, "file$i").writeBytes(ByteArray(i % 7))
+        }
+        val listed = ArrayList<HybridFileParcelable>()
+        assertTrue(LocalDirectoryLister.list(big, true) { listed.add(it) })
+        assertEquals(big.list()!!.toList(), listed.map { it.name })
+        listed.forEach { assertEquals(File(it.path).length(), it.size) }
+    }
+
+    /**
+     * A directory that can't be listed is reported.
+     */
+    @Test
+    fun testNotADirectory() {
+        assertFalse(LocalDirectoryLister.list(File(root, "a.bin"), true) {})
+    }
+
+    private fun list(showHidden: Boolean): List<HybridFileParcelable> {
+        val listed = ArrayList<HybridFileParcelable>()
+        assertTrue(LocalDirectoryLister.list(root, showHidden) { listed.add(it) })
+        return listed
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.os.Environment
+import androidx.room.Room
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.ExplorerDatabase
+import com.amaze.filemanager.database.TransferJournal
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.filesystem.ssh.AbstractSftpServerTest
+import com.amaze.filemanager.utils.ProgressHandler
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.BeforeClass
+import org.junit.Test
+import java.io.File
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.random.Random
+
+/**
+ * Tests for [ResumableCopy], to and from an SFTP server, whose root is the device's external
+ * storage.
+ */
+class ResumableCopySftpTest : AbstractSftpServerTest() {
+    companion object {
+        private const val SIZE = 3 * 1024 * 1024
+        private const val CHECKPOINTED = 1024 * 1024
+
+        /**
+         * Enforce use of in-mem database during test.
+         */
+        @BeforeClass
+        @JvmStatic
+        fun setUpDatabase() {
+            ExplorerDatabase.overrideDatabaseBuilder = { context ->
+                Room.inMemoryDatabaseBuilder(context, ExplorerDatabase::class.java)
+            }
+        }
+    }
+
+    private lateinit var content: ByteArray
+    private lateinit var localFile: File
+    private lateinit var remoteFile: File
+    private lateinit var remotePath: String
+
+    /**
+     * Start the SSH server, clear database tables and prepare a local and a remote file.
+     */
+    @Before
+    override fun setUp() {
+        super.setUp()
+        AppConfig.getInstance().explorerDatabase.clearAllTables()
+
+        content = Random.nextBytes(SIZE)
+        localFile = File(AppConfig.getInstance().cacheDir, "local.bin")
+        remoteFile = File(Environment.getExternalStorageDirectory(), "remote.bin")
+        remotePath = "ssh://$USERNAME:$encryptedPassword@$HOST:$serverPort/remote.bin"
+    }
+
+    /**
+     * A whole upload writes the file on the server.
+     */
+    @Test
+    fun testUpload() {
+        localFile.writeBytes(content)
+        val target = HybridFile(OpenMode.SFTP, remotePath)
+
+        val position = AtomicLong()
+        assertTrue(
+            ResumableCopy(AppConfig.getInstance(), ProgressHandler())
+                .copy(localSource(), target, { position.addAndGet(it) }),
+        )
+        assertArrayEquals(content, remoteFile.readBytes())
+        assertEquals(SIZE.toLong(), position.get())
+        assertNull(TransferJournal.findCheckpoint(remotePath))
+    }
+
+    /**
+     * A resumed upload writes from the checkpoint onward, and cuts off whatever the remote file
+     * held beyond it.
+     */
+    @Test
+    fun testResumeUpload() {
+        remoteFile.writeBytes(content.copyOf(CHECKPOINTED) + ByteArray(4096) { 1 })
+        // bytes before the checkpoint are skipped, not read again
+        localFile.writeBytes(ByteArray(CHECKPOINTED) + content.copyOfRange(CHECKPOINTED, SIZE))
+        val source = localSource()
+        TransferJournal.checkpoint(
+            remotePath,
+            source.path,
+            source.size,
+            source.date,
+            CHECKPOINTED.toLong(),
+        )
+
+        val position = AtomicLong()
+        assertFalse(
+            ResumableCopy(AppConfig.getInstance(), ProgressHandler())
+                .copy(source, HybridFile(OpenMode.SFTP, remotePath), { position.addAndGet(it) }),
+        )
+        assertArrayEquals(content, remoteFile.readBytes())
+        assertEquals(SIZE.toLong(), position.get())
+        assertNull(TransferJournal.findCheckpoint(remotePath))
+    }
+
+    /**
+     * A resumed download reads the remote file from the checkpoint onward.
+     */
+    @Test
+    fun testResumeDownload() {
+        localFile.writeBytes(content.copyOf(CHECKPOINTED) + ByteArray(4096) { 1 })
+        // bytes before the checkpoint are skipped, not read again
+        remoteFile.writeBytes(ByteArray(CHECKPOINTED) + content.copyOfRange(CHECKPOINTED, SIZE))
+        val source = remoteSource()
+        val target = HybridFile(OpenMode.FILE, localFile.absolutePath)
+        TransferJournal.checkpoint(
+            target.path,
+            source.path,
+            source.size,
+            source.date,
+            CHECKPOINTED.toLong(),
+        )
+
+        val position = AtomicLong()
+        assertFalse(
+            ResumableCopy(AppConfig.getInstance(), ProgressHandler())
+                .copy(source, target, { position.addAndGet(it) }),
+        )
+        assertArrayEquals(content, localFile.readBytes())
+        assertEquals(SIZE.toLong(), position.get())
+        assertNull(TransferJournal.findCheckpoint(target.path))
+    }
+
+    /**
+     * A cancelled upload leaves a checkpoint to resume from.
+     */
+    @Test
+    fun testCancelUpload() {
+        localFile.writeBytes(content)
+        val progressHandler = ProgressHandler()
+        progressHandler.cancelled = true
+
+        assertFalse(
+            ResumableCopy(AppConfig.getInstance(), progressHandler)
+                .copy(localSource(), HybridFile(OpenMode.SFTP, remotePath), { }),
+        )
+        assertEquals(0L, TransferJournal.findCheckpoint(remotePath)?.completedBytes)
+    }
+
+    private fun localSource() =
+        HybridFileParcelable(
+            localFile.absolutePath,
+            "",
+            localFile.lastModified(),
+            localFile.length(),
+            false,
+        )
+
+    private fun remoteSource() =
+        HybridFileParcelable(remotePath, "", remoteFile.lastModified(), remoteFile.length(), false)
+            .apply { mode = OpenMode.SFTP }
+}
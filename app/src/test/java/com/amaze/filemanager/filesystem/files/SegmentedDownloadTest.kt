@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.database.ExplorerDatabase
+import com.amaze.filemanager.database.TransferJournal
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import com.amaze.filemanager.utils.ProgressHandler
+import io.reactivex.android.plugins.RxAndroidPlugins
+import io.reactivex.plugins.RxJavaPlugins
+import io.reactivex.schedulers.Schedulers
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.BeforeClass
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.util.Collections
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.random.Random
+
+/**
+ * Tests for [SegmentedDownload].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class SegmentedDownloadTest {
+    companion object {
+        private const val SEGMENT_SIZE = 256L * 1024
+        private const val SIZE = 4 * SEGMENT_SIZE
+
+        /**
+         * Enforce use of in-mem database during test.
+         */
+        @BeforeClass
+        @JvmStatic
+        fun bootstrap() {
+            ExplorerDatabase.overrideDatabaseBuilder = { context ->
+                Room.inMemoryDatabaseBuilder(context, ExplorerDatabase::class.java)
+            }
+        }
+    }
+
+    /**
+     * Reads segments from a local file instead of a server.
+     */
+    private class LocalSegmentOpener(
+        private val failingStart: Long = -1,
+    ) : SegmentedDownload.SegmentOpener {
+        val openedAt: MutableList<Long> = Collections.synchronizedList(ArrayList())
+        val bytesRead = AtomicLong()
+
+        override fun open(
+            source: HybridFileParcelable,
+            start: Long,
+        ): InputStream {
+            openedAt.add(start)
+            val inputStream = FileInputStream(source.path)
+            inputStream.skip(start)
+            return object : InputStream() {
+                override fun read(): Int = throw UnsupportedOperationException()
+
+                override fun read(
+                    b: ByteArray,
+                    off: Int,
+                    len: Int,
+                ): Int {
+                    if (start == failingStart) throw IOException("connection reset")
+                    return inputStream.read(b, off, len).also {
+                        if (it > 0) bytesRead.addAndGet(it.toLong())
+                    }
+                }
+
+                override fun close() = inputStream.close()
+            }
+        }
+    }
+
+    private lateinit var dir: File
+    private lateinit var targetFile: File
+    private lateinit var content: ByteArray
+    private lateinit var source: HybridFileParcelable
+    private lateinit var target: HybridFile
+
+    /**
+     * Set all RxJava thread schedulers to trampoline, clear database tables and create the
+     * source file.
+     */
+    @Before
+    fun setUp() {
+        RxAndroidPlugins.reset()
+        RxAndroidPlugins.setMainThreadSchedulerHandler { Schedulers.trampoline() }
+        RxJavaPlugins.reset()
+        RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+        AppConfig.getInstance().explorerDatabase.clearAllTables()
+
+        dir = File(AppConfig.getInstance().cacheDir, "segmented")
+        dir.mkdirs()
+        content = Random.nextBytes(SIZE.toInt())
+        val sourceFile = File(dir, "source.bin").apply { writeBytes(content) }
+        targetFile = File(dir, "target.bin")
+        source =
+            HybridFileParcelable(
+                sourceFile.absolutePath,
+                "",
+                sourceFile.lastModified(),
+                sourceFile.length(),
+                false,
+            )
+        target = HybridFile(OpenMode.FILE, targetFile.absolutePath)
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        dir.deleteRecursively()
+    }
+
+    private fun segmentKey(
+        start: Long,
+        end: Long,
+    ) = "${target.path}#segment:$start-$end"
+
+    /**
+     * Segments cover the whole file without overlap, the last one taking the remainder.
+     */
+    @Test
+    fun testSplitIntoSegments() {
+        val segments = SegmentedDownload.splitIntoSegments(100, 3)
+        assertEquals(listOf(Pair(0L, 33L), Pair(33L, 33L), Pair(66L, 34L)), segments)
+        assertEquals(100L, segments.sumOf { it.second })
+    }
+
+    /**
+     * Single segment is the whole file.
+     */
+    @Test
+    fun testSplitIntoOneSegment() {
+        assertEquals(listOf(Pair(0L, 1000L)), SegmentedDownload.splitIntoSegments(1000, 1))
+    }
+
+    /**
+     * All segments are downloaded in place, and nothing is left in the journal.
+     */
+    @Test
+    fun testDownload() {
+        val opener = LocalSegmentOpener()
+        val download = SegmentedDownload(ProgressHandler(), SEGMENT_SIZE, opener)
+        val position = AtomicLong()
+        download.download(source, target) { position.addAndGet(it) }
+
+        assertArrayEquals(content, targetFile.readBytes())
+        assertEquals(SIZE, position.get())
+        assertEquals(4, opener.openedAt.size)
+        assertNull(TransferJournal.findCheckpoint(target.path))
+        assertTrue(TransferJournal.findCheckpoints(target.path).isEmpty())
+    }
+
+    /**
+     * A failing segment stops the others and fails the download. What was downloaded without a
+     * gap is kept, checkpointed for [ResumableCopy] to carry on.
+     */
+    @Test
+    fun testFailingSegment() {
+        val download =
+            SegmentedDownload(
+                ProgressHandler(),
+                SEGMENT_SIZE,
+                LocalSegmentOpener(failingStart = 2 * SEGMENT_SIZE),
+            )
+        try {
+            download.download(source, target) { }
+            fail("Expected the download to fail")
+        } catch (e: IOException) {
+            assertEquals("connection reset", e.message)
+        }
+
+        assertKeptWithoutGap(2 * SEGMENT_SIZE)
+    }
+
+    /**
+     * A cancelled download keeps what was downloaded without a gap.
+     */
+    @Test
+    fun testCancel() {
+        val progressHandler = ProgressHandler()
+        val download = SegmentedDownload(progressHandler, SEGMENT_SIZE, LocalSegmentOpener())
+        download.download(source, target) { progressHandler.cancelled = true }
+
+        assertKeptWithoutGap(SIZE)
+    }
+
+    private fun assertKeptWithoutGap(atMost: Long) {
+        val checkpoint = TransferJournal.findCheckpoint(target.path)
+        assertNotNull(checkpoint)
+        val kept = checkpoint!!.completedBytes
+        assertTrue(kept <= atMost)
+        assertEquals(kept, targetFile.length())
+        assertArrayEquals(content.copyOf(kept.toInt()), targetFile.readBytes())
+        // only the checkpoint of the whole target is left
+        assertEquals(
+            listOf(target.path),
+            TransferJournal.findCheckpoints(target.path).map { it.target },
+        )
+    }
+
+    /**
+     * A download interrupted before only fetches what its segments didn't get to.
+     */
+    @Test
+    fun testResume() {
+        // first segment done, second one half way, others not started
+        val downloaded = (SEGMENT_SIZE * 3 / 2).toInt()
+        targetFile.writeBytes(content.copyOf(downloaded) + ByteArray(SIZE.toInt() - downloaded))
+        val done = listOf(SEGMENT_SIZE, SEGMENT_SIZE / 2, 0L, 0L)
+        done.forEachIndexed { i, completed ->
+            val start = i * SEGMENT_SIZE
+            TransferJournal.checkpoint(
+                segmentKey(start, start + SEGMENT_SIZE),
+                source.path,
+                source.size,
+                source.date,
+                completed,
+            )
+        }
+
+        val opener = LocalSegmentOpener()
+        val download = SegmentedDownload(ProgressHandler(), SEGMENT_SIZE, opener)
+        val position = AtomicLong()
+        download.download(source, target) { position.addAndGet(it) }
+
+        assertArrayEquals(content, targetFile.readBytes())
+        assertEquals(SIZE, position.get())
+        assertEquals(SIZE - downloaded, opener.bytesRead.get())
+        assertFalse(opener.openedAt.contains(0L))
+        assertTrue(TransferJournal.findCheckpoints(target.path).isEmpty())
+    }
+}
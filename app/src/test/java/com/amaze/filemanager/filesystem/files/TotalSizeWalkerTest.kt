@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import com.amaze.filemanager.utils.ProgressHandler
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.File
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Tests for [TotalSizeWalker].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class TotalSizeWalkerTest {
+    private lateinit var root: File
+
+    /**
+     * Create a tree of directories and files.
+     */
+    @Before
+    fun setUp() {
+        root = File.createTempFile("walker", "")
+        root.delete()
+        root.mkdirs()
+        File(root, "a.bin").writeBytes(ByteArray(100))
+        File(root, "sub/deeper").mkdirs()
+        File(root, "sub/b.bin").writeBytes(ByteArray(200))
+        File(root, "sub/deeper/c.bin").writeBytes(ByteArray(300))
+        File(root, "empty").mkdirs()
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        root.deleteRecursively()
+    }
+
+    /**
+     * Sizes of nested files all add up in the [ProgressHandler], which knows when it's done.
+     */
+    @Test
+    fun testWalk() {
+        val progressHandler = ProgressHandler()
+        val walker = TotalSizeWalker(AppConfig.getInstance(), progressHandler)
+        walker.start(
+            listOf(
+                HybridFileParcelable(File(root, "a.bin").absolutePath),
+                HybridFileParcelable(File(root, "sub").absolutePath),
+                HybridFileParcelable(File(root, "empty").absolutePath),
+            ),
+        )
+        assertEquals(600L, walker.await())
+        assertEquals(600L, progressHandler.totalSize)
+        assertTrue(progressHandler.isTotalSizeKnown)
+    }
+
+    /**
+     * The size of one of the walked files is handed over, whether asked for during or after the
+     * walk.
+     */
+    @Test
+    fun testOnSizeOf() {
+        val progressHandler = ProgressHandler()
+        val walker = TotalSizeWalker(AppConfig.getInstance(), progressHandler)
+        val sub = HybridFileParcelable(File(root, "sub").absolutePath)
+        val file = HybridFileParcelable(File(root, "a.bin").absolutePath)
+        walker.start(listOf(file, sub))
+        val subSize = AtomicLong()
+        walker.onSizeOf(sub) { subSize.addAndGet(it) }
+        walker.await()
+        val fileSize = AtomicLong()
+        walker.onSizeOf(file) { fileSize.addAndGet(it) }
+        assertEquals(500L, subSize.get())
+        assertEquals(100L, fileSize.get())
+    }
+
+    /**
+     * Nothing to walk is done right away.
+     */
+    @Test
+    fun testWalkNothing() {
+        val progressHandler = ProgressHandler()
+        val walker = TotalSizeWalker(AppConfig.getInstance(), progressHandler)
+        walker.start(emptyList())
+        assertEquals(0L, walker.await())
+        assertTrue(progressHandler.isTotalSizeKnown)
+    }
+
+    /**
+     * Cancelled operation leaves the total size unknown.
+     */
+    @Test
+    fun testCancelled() {
+        val progressHandler = ProgressHandler()
+        progressHandler.cancelled = true
+        val walker = TotalSizeWalker(AppConfig.getInstance(), progressHandler)
+        walker.start(listOf(HybridFileParcelable(root.absolutePath)))
+        assertEquals(0L, walker.await())
+        assertFalse(progressHandler.isTotalSizeKnown)
+    }
+}
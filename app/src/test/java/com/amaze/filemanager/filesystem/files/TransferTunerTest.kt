@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files
+
+import com.amaze.filemanager.filesystem.files.TransferTuner.MAX_BLOCK_SIZE
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [TransferTuner.Tuning].
+ */
+class TransferTunerTest {
+    companion object {
+        private const val MIB = 1024 * 1024
+    }
+
+    /**
+     * Unmeasured block size is tried first, then its neighbours, larger one first.
+     */
+    @Test
+    fun testExploreNeighbours() {
+        val tuning = TransferTuner.Tuning(MIB)
+        assertEquals(MIB, tuning.next())
+        tuning.record(MIB, 100)
+        assertEquals(2 * MIB, tuning.next())
+        tuning.record(2 * MIB, 50)
+        assertEquals(MIB / 2, tuning.next())
+        tuning.record(MIB / 2, 80)
+        // both neighbours are slower, stay
+        assertEquals(MIB, tuning.next())
+        assertEquals(MIB, tuning.best)
+    }
+
+    /**
+     * Faster neighbour becomes the best, and exploration goes on from there.
+     */
+    @Test
+    fun testClimbTowardsFaster() {
+        val tuning = TransferTuner.Tuning(MIB, 100)
+        assertEquals(2 * MIB, tuning.next())
+        assertEquals(Pair(2 * MIB, 200L), tuning.record(2 * MIB, 200))
+        assertEquals(4 * MIB, tuning.next())
+    }
+
+    /**
+     * Block size never goes beyond the bounds, even if persisted so.
+     */
+    @Test
+    fun testBounds() {
+        val tuning = TransferTuner.Tuning(Int.MAX_VALUE, 100)
+        assertEquals(MAX_BLOCK_SIZE, tuning.best)
+        assertEquals(MAX_BLOCK_SIZE / 2, tuning.next())
+        tuning.record(MAX_BLOCK_SIZE / 2, 10)
+        assertEquals(MAX_BLOCK_SIZE, tuning.next())
+    }
+
+    /**
+     * Best block size getting slower lets a neighbour take over.
+     */
+    @Test
+    fun testBestDegrades() {
+        val tuning = TransferTuner.Tuning(MIB, 100)
+        tuning.record(2 * MIB, 90)
+        tuning.record(MIB / 2, 10)
+        assertEquals(MIB, tuning.best)
+        repeat(3) { tuning.record(MIB, 20) }
+        assertEquals(2 * MIB, tuning.best)
+    }
+
+    /**
+     * Only a transfer that had the devices to itself all along ran alone.
+     */
+    @Test
+    fun testRanAlone() {
+        val tuning = TransferTuner.Tuning(MIB)
+        assertTrue(tuning.end(tuning.begin()))
+
+        // overlapping transfers, the second one starting during the first one
+        val first = tuning.begin()
+        val second = tuning.begin()
+        assertFalse(tuning.end(second))
+        assertFalse(tuning.end(first))
+
+        // another one starting and ending meanwhile
+        val third = tuning.begin()
+        tuning.end(tuning.begin())
+        assertFalse(tuning.end(third))
+
+        assertTrue(tuning.end(tuning.begin()))
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.files.sort
+
+import android.os.Build
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class],
+    sdk = [Build.VERSION_CODES.KITKAT, Build.VERSION_CODES.P, Build.VERSION_CODES.R],
+)
+class SortKeyTest {
+    /** Tests that folded names order exactly like names compared ignoring case */
+    @Test
+    fun foldedNameOrderTest() {
+        val names =
+            listOf(
+                "abc", "ABD", "Abc.txt", "_underscore", "Zeta", "zeta2", "ÉCOLE", "école",
+                "Straße", "STRASSE", "İstanbul", "istanbul", "ΣΙΣΥΦΟΣ", "σισυφος", "a", "",
+            )
+        for (a in names) {
+            for (b in names) {
+                Assert.assertEquals(
+                    "Order of \"$a\" and \"$b\" changed",
+                    Integer.signum(a.compareTo(b, ignoreCase = true)),
+                    Integer.signum(SortKey(a).foldedName.compareTo(SortKey(b).foldedName)),
+                )
+            }
+        }
+    }
+
+    /** Tests that [SortKey.fold] does not copy names that are already folded */
+    @Test
+    fun foldUnchangedTest() {
+        val name = "already folded.txt"
+        Assert.assertSame(name, SortKey.fold(name))
+    }
+
+    /** Tests that [SortKey.extension] is the lowercase extension */
+    @Test
+    fun extensionTest() {
+        Assert.assertEquals("txt", SortKey("Notes.TXT").extension)
+        Assert.assertEquals("gz", SortKey("archive.tar.gz").extension)
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.ftp
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.application.AppConfig
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFile
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.amaze.filemanager.test.ShadowPasswordUtil
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.apache.commons.net.ftp.FTP
+import org.apache.commons.net.ftp.FTPClient
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import java.io.ByteArrayInputStream
+import kotlin.random.Random
+
+/**
+ * Tests for FTP [HybridFile.getInputStream], which streams the file on a pooled connection held
+ * until the stream is closed.
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class, ShadowPasswordUtil::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class FtpInputStreamTest {
+    companion object {
+        private const val URL = "ftp://testuser@127.0.0.1:2121"
+        private const val PATH = "$URL/test.bin"
+    }
+
+    private val content = Random.nextBytes(65536)
+    private lateinit var ftpClient: FTPClient
+
+    /**
+     * Put a connection to a mocked FTP server in the pool.
+     */
+    @Before
+    fun setUp() {
+        ftpClient = mockk(relaxed = true)
+        every { ftpClient.isAvailable } returns true
+        every { ftpClient.retrieveFileStream("/test.bin") } returns ByteArrayInputStream(content)
+        NetCopyClientConnectionPool.putConnection(URL, FTPClientImpl(ftpClient))
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        NetCopyClientConnectionPool.shutdown()
+    }
+
+    /**
+     * The file is streamed in binary mode, and the connection is given back once the transfer is
+     * completed.
+     */
+    @Test
+    fun testStream() {
+        every { ftpClient.completePendingCommand() } returns true
+        val inputStream = HybridFile(OpenMode.FTP, PATH).getInputStream(AppConfig.getInstance())!!
+        assertEquals(1, NetCopyClientConnectionPool.getStats(URL)?.inUse)
+
+        assertArrayEquals(content, inputStream.readBytes())
+        inputStream.close()
+        verify { ftpClient.setFileType(FTP.BINARY_FILE_TYPE) }
+        NetCopyClientConnectionPool.getStats(URL)!!.run {
+            assertEquals(1, idle)
+            assertEquals(0, inUse)
+            assertEquals(0L, evicted)
+        }
+    }
+
+    /**
+     * A transfer the server doesn't confirm leaves the connection in an unknown state, it is
+     * closed instead of given back.
+     */
+    @Test
+    fun testIncompleteTransfer() {
+        every { ftpClient.completePendingCommand() } returns false
+        HybridFile(OpenMode.FTP, PATH).getInputStream(AppConfig.getInstance())!!.close()
+        verify { ftpClient.disconnect() }
+        NetCopyClientConnectionPool.getStats(URL)!!.run {
+            assertEquals(0, idle + inUse)
+            assertEquals(1L, evicted)
+        }
+    }
+
+    /**
+     * A file the server can't send gives no stream, and the connection is given back.
+     */
+    @Test
+    fun testMissingFile() {
+        every { ftpClient.retrieveFileStream(any()) } returns null
+        assertNull(HybridFile(OpenMode.FTP, PATH).getInputStream(AppConfig.getInstance()))
+        assertEquals(1, NetCopyClientConnectionPool.getStats(URL)?.idle)
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.ftp
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+
+/**
+ * Tests for [NetCopyClientHostPool].
+ */
+class NetCopyClientHostPoolTest {
+    private class FakeClient(private val threadSafety: Boolean) : NetCopyClient<Unit> {
+        var valid = true
+        var expired = false
+
+        override fun getClientImpl() = Unit
+
+        override fun isConnectionValid() = valid && !expired
+
+        override fun isRequireThreadSafety() = threadSafety
+
+        override fun expire() {
+            expired = true
+        }
+    }
+
+    /**
+     * Clients requiring thread safety are handed to one borrower at a time, up to the limit.
+     */
+    @Test
+    fun testExclusiveCheckout() {
+        val pool = NetCopyClientHostPool()
+        val create = { FakeClient(true) }
+        val first = pool.checkout(2, 0, create)
+        val second = pool.checkout(2, 0, create)
+        assertNotNull(first)
+        assertNotNull(second)
+        assertNotSame(first, second)
+        assertNull(pool.checkout(2, 0, create))
+
+        assertTrue(pool.checkin(first!!))
+        assertSame(first, pool.checkout(2, 0, create))
+        pool.stats().run {
+            assertEquals(0, idle)
+            assertEquals(2, inUse)
+            assertEquals(2L, created)
+            assertEquals(3L, checkouts)
+        }
+    }
+
+    /**
+     * Other clients are shared instead of opening more connections.
+     */
+    @Test
+    fun testSharedCheckout() {
+        val pool = NetCopyClientHostPool()
+        val create = { FakeClient(false) }
+        val first = pool.checkout(2, 0, create)
+        assertSame(first, pool.checkout(2, 0, create))
+        assertEquals(1L, pool.stats().created)
+    }
+
+    /**
+     * Invalidating a shared connection leaves it open for the other borrowers, until the last of
+     * them gives it back. It isn't handed out anymore meanwhile.
+     */
+    @Test
+    fun testInvalidateShared() {
+        val pool = NetCopyClientHostPool()
+        val create = { FakeClient(false) }
+        val shared = pool.checkout(2, 0, create) as FakeClient
+        assertSame(shared, pool.checkout(2, 0, create))
+
+        assertTrue(pool.invalidate(shared))
+        assertFalse(shared.expired)
+        val next = pool.checkout(2, 0, create)
+        assertNotSame(shared, next)
+
+        assertTrue(pool.checkin(shared))
+        assertTrue(shared.expired)
+        assertFalse(pool.checkin(shared))
+        pool.stats().run {
+            assertEquals(1, inUse)
+            assertEquals(1L, evicted)
+        }
+    }
+
+    /**
+     * Borrowers coming while the first connection is being opened wait for it, rather than open
+     * more connections which would be shared anyway.
+     */
+    @Test
+    fun testConcurrentFirstCheckoutShared() {
+        val pool = NetCopyClientHostPool()
+        val opening = CountDownLatch(1)
+        val opened = CountDownLatch(1)
+        var first: NetCopyClient<*>? = null
+        val thread =
+            Thread {
+                first =
+                    pool.checkout(4, 0) {
+                        opening.countDown()
+                        opened.await()
+                        FakeClient(false)
+                    }
+            }
+        thread.start()
+        opening.await()
+        Thread {
+            Thread.sleep(100)
+            opened.countDown()
+        }.start()
+        val second = pool.checkout(4, 10000) { FakeClient(false) }
+        thread.join()
+        assertSame(first, second)
+        assertEquals(1L, pool.stats().created)
+    }
+
+    /**
+     * A borrower waiting for a connection gets the one checked in by another thread.
+     */
+    @Test
+    fun testWaitForCheckin() {
+        val pool = NetCopyClientHostPool()
+        val create = { FakeClient(true) }
+        val first = pool.checkout(1, 0, create)!!
+        Thread {
+            Thread.sleep(100)
+            pool.checkin(first)
+        }.start()
+        assertSame(first, pool.checkout(1, 10000, create))
+        assertEquals(1L, pool.stats().waits)
+    }
+
+    /**
+     * Invalid connections are closed on checkin and replaced on next checkout.
+     */
+    @Test
+    fun testInvalidConnectionReplaced() {
+        val pool = NetCopyClientHostPool()
+        val create = { FakeClient(true) }
+        val first = pool.checkout(1, 0, create) as FakeClient
+        first.valid = false
+        pool.checkin(first)
+        assertTrue(first.expired)
+        val second = pool.checkout(1, 0, create)
+        assertNotSame(first, second)
+        assertTrue(pool.invalidate(second!!))
+        assertFalse(pool.checkin(second))
+        assertEquals(2L, pool.stats().evicted)
+    }
+
+    /**
+     * Only idle connections past the timeout are evicted.
+     */
+    @Test
+    fun testEvictIdle() {
+        val pool = NetCopyClientHostPool()
+        val create = { FakeClient(true) }
+        val idleClient = pool.checkout(2, 0, create) as FakeClient
+        val busyClient = pool.checkout(2, 0, create) as FakeClient
+        pool.checkin(idleClient)
+        assertEquals(0, pool.evictIdle(System.currentTimeMillis(), 60000))
+        assertEquals(1, pool.evictIdle(System.currentTimeMillis() + 60000, 60000))
+        assertTrue(idleClient.expired)
+        assertFalse(busyClient.expired)
+        pool.stats().run {
+            assertEquals(0, idle)
+            assertEquals(1, inUse)
+        }
+    }
+
+    /**
+     * Pools of different accounts on the same server share the limit. An idle connection of one
+     * account is closed to make room for another account.
+     */
+    @Test
+    fun testLimitSharedByHost() {
+        val host = NetCopyClientHostPool.Host()
+        val alice = NetCopyClientHostPool(host)
+        val bob = NetCopyClientHostPool(host)
+        val create = { FakeClient(true) }
+        val aliceClient = alice.checkout(2, 0, create) as FakeClient
+        assertNotNull(bob.checkout(2, 0, create))
+        assertNull(alice.checkout(2, 0, create))
+
+        alice.checkin(aliceClient)
+        assertNotNull(bob.checkout(2, 0, create))
+        assertTrue(aliceClient.expired)
+        assertNull(bob.checkout(2, 0, create))
+        assertEquals(1L, alice.stats().evicted)
+    }
+
+    /**
+     * Failing to open a connection returns null without holding a slot.
+     */
+    @Test
+    fun testCreateFailure() {
+        val pool = NetCopyClientHostPool()
+        assertNull(pool.checkout(1, 0) { null })
+        assertNull(pool.checkout(1, 0) { throw IllegalStateException("refused") })
+        assertNotNull(pool.checkout(1, 0) { FakeClient(true) })
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.root
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import com.topjohnwu.superuser.Shell
+import io.mockk.every
+import io.mockk.mockkObject
+import io.mockk.unmockkObject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+/**
+ * Unit test for [BatchCommand].
+ *
+ * The shell is mocked, answering each command of a script with the status line it echoes.
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class BatchCommandTest {
+    private val scripts = ArrayList<List<String>>()
+
+    /**
+     * Commands named "fail" exit with status 1, the others with 0.
+     */
+    @Before
+    fun setUp() {
+        mockkObject(BatchCommand)
+        every { BatchCommand.runShellCommands(any()) } answers {
+            val script = firstArg<List<String>>()
+            scripts.add(script)
+            val out =
+                script.map {
+                    val index = Regex("//S/(\\d+)/").find(it)!!.groupValues[1]
+                    "//S/$index/" + if (it.startsWith("fail")) "1" else "0"
+                }
+            object : Shell.Result() {
+                override fun getOut(): MutableList<String> = out.toMutableList()
+
+                override fun getErr(): MutableList<String> = ArrayList()
+
+                override fun getCode(): Int = 0
+            }
+        }
+    }
+
+    /**
+     * Post test cleanup.
+     */
+    @After
+    fun tearDown() {
+        unmockkObject(BatchCommand)
+    }
+
+    /**
+     * Statuses are mapped back to their commands, across scripts.
+     */
+    @Test
+    fun testRunAll() {
+        val commands = List(BatchCommand.CHUNK_SIZE + 2) { if (it % 3 == 0) "fail" else "ok" }
+        val succeeded = BatchCommand.runAll(commands)
+        assertEquals(2, scripts.size)
+        assertEquals(BatchCommand.CHUNK_SIZE, scripts[0].size)
+        assertEquals(commands.map { it == "ok" }, succeeded.toList())
+    }
+
+    /**
+     * Nothing is run once cancelled, what's left counts as failed.
+     */
+    @Test
+    fun testCancelled() {
+        var cancelled = false
+        val commands = List(BatchCommand.CHUNK_SIZE * 2) { "ok" }
+        val succeeded =
+            BatchCommand.runAll(commands, emptyList()) {
+                cancelled.also { cancelled = true }
+            }
+        assertEquals(1, scripts.size)
+        assertEquals(BatchCommand.CHUNK_SIZE, succeeded.count { it })
+        assertEquals(false, succeeded.last())
+    }
+}
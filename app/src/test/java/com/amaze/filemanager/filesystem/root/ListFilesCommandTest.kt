@@ -87,6 +87,10 @@ class ListFilesCommandTest {
                 argumentCaptor<(HybridFileParcelable) -> Unit>().capture(),
             )
         } answers { callOriginal() }
+        // stat and ls outputs are what's tested here, see RootListingParserTest for the rest
+        every {
+            ListFilesCommand.listRootStreaming(any(), any(), any())
+        } returns false
         every {
             ListFilesCommand.executeRootCommand(anyString(), anyBoolean(), anyBoolean())
         } answers { callOriginal() }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014-2024 Arpit Khurana <arpitkh96@gmail.com>, Vishal Nehra <vishalmeham2@gmail.com>,
+ * Emmanuel Messulam<emmanuelbendavid@gmail.com>, Raymond Lai <airwave209gt at gmail.com> and Contributors.
+ *
+ * This file is part of Amaze File Manager.
+ *
+ * Amaze File Manager is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.amaze.filemanager.filesystem.root
+
+import android.os.Build
+import android.os.Build.VERSION_CODES.KITKAT
+import android.os.Build.VERSION_CODES.P
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.amaze.filemanager.fileoperations.filesystem.OpenMode
+import com.amaze.filemanager.filesystem.HybridFileParcelable
+import com.amaze.filemanager.shadows.ShadowMultiDex
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+/**
+ * Unit test for [RootListingParser].
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(
+    shadows = [ShadowMultiDex::class],
+    sdk = [KITKAT, P, Build.VERSION_CODES.R],
+)
+class RootListingParserTest {
+    /**
+     * Entries are given as soon as their record is complete, symlinks once their target is known.
+     */
+    @Test
+    fun testStreaming() {
+        val found = ArrayList<HybridFileParcelable>()
+        val parser = RootListingParser("/system") { found.add(it) }
+        parser.accept("//F/41ed/4096/1600000000//system/bin")
+        assertTrue(found.isEmpty())
+        parser.accept("//F/81a4/1024/1600000001//system/build.prop")
+        assertEquals(listOf("bin"), found.map { it.name })
+        parser.accept("//F/a1ff/16/1600000002//system/lib")
+        parser.accept("//F/a1ff/14/1600000003//system/broken")
+        parser.accept("//L/41ed//system/bin")
+        parser.accept("//L/81a4//system/build.prop")
+        parser.accept("//L/41ed//system/lib")
+        assertEquals(listOf("bin", "build.prop", "lib"), found.map { it.name })
+        parser.finish()
+        assertEquals(listOf("bin", "build.prop", "lib", "broken"), found.map { it.name })
+
+        val (bin, prop, lib, broken) = found
+        assertTrue(bin.isDirectory)
+        assertEquals("drwxr-xr-x", bin.permission)
+        assertEquals(0L, bin.size)
+        assertEquals("/system/build.prop", prop.path)
+        assertEquals(1024L, prop.size)
+        assertEquals(1600000001000L, prop.date)
+        assertEquals(OpenMode.ROOT, prop.mode)
+        assertTrue(lib.isDirectory)
+        assertEquals("lrwxrwxrwx", lib.permission)
+        assertFalse(broken.isDirectory)
+    }
+
+    /**
+     * Symlinks hold the target readlink printed for them, dangling ones too.
+     */
+    @Test
+    fun testSymlinkTargets() {
+        val found = ArrayList<HybridFileParcelable>()
+        val parser = RootListingParser("/system") { found.add(it) }
+        parser.accept("//F/a1ff/16/1600000002//system/lib")
+        parser.accept("//F/a1ff/14/1600000003//system/broken")
+        parser.accept("//F/81a4/1024/1600000001//system/build.prop")
+        parser.accept("//S//system/lib")
+        parser.accept("//T//vendor/lib")
+        parser.accept("//S//system/broken")
+        parser.accept("//T/gone")
+        parser.accept("with newline")
+        parser.accept("//L/41ed//system/lib")
+        parser.accept("//L/81a4//system/build.prop")
+        parser.finish()
+        assertEquals(listOf("build.prop", "lib", "broken"), found.map { it.name })
+
+        val (prop, lib, broken) = found
+        assertEquals("", prop.link)
+        assertEquals("/vendor/lib", lib.link)
+        assertTrue(lib.isDirectory)
+        assertEquals("gone\nwith newline", broken.link)
+        assertFalse(broken.isDirectory)
+    }
+
+    /**
+     * Names may contain newlines, dot entries are skipped.
+     */
+    @Test
+    fun testNames() {
+        val found = ArrayList<HybridFileParcelable>()
+        val parser = RootListingParser("/") { found.add(it) }
+        parser.accept("//F/41ed/4096/1600000000//.")
+        parser.accept("//F/41ed/4096/1600000000//..")
+        parser.accept("//F/81a4/1/1600000000//two")
+        parser.accept("lines")
+        parser.accept("//F/81a4/1/1600000000//one line")
+        parser.finish()
+        assertEquals(listOf("two\nlines", "one line"), found.map { it.name })
+        assertEquals("/two\nlines", found[0].path)
+    }
+
+    /**
+     * Permissions show the special bits like ls does.
+     */
+    @Test
+    fun testPermissionOf() {
+        assertEquals("-rwsr-sr-x", RootListingParser.permissionOf(0x8000 or 0xded))
+        assertEquals("drwxrwxrwt", RootListingParser.permissionOf(0x4000 or 0x3ff))
+        assertEquals("-rw-r-----", RootListingParser.permissionOf(0x8000 or 0x1a0))
+    }
+}